@@ -18,6 +18,7 @@
 package com.graphhopper;
 
 import com.graphhopper.routing.util.HintsMap;
+import com.graphhopper.util.CancellationToken;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.shapes.GHPoint;
 
@@ -44,6 +45,7 @@ public class GHRequest {
     private String algo = "";
     private boolean possibleToAdd = false;
     private Locale locale = Locale.US;
+    private CancellationToken cancellationToken;
 
     public GHRequest() {
         this(5);
@@ -277,6 +279,18 @@ public class GHRequest {
         return this.pathDetails;
     }
 
+    /**
+     * Specify a token to stop the calculation of this request from another thread. Can be null.
+     */
+    public GHRequest setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+        return this;
+    }
+
+    public CancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+
     @Override
     public String toString() {
         String res = "";
@@ -31,6 +31,7 @@ import java.util.List;
 public class GHResponse {
     private final List<Throwable> errors = new ArrayList<>(4);
     private final PMap hintsMap = new PMap();
+    private final PMap metrics = new PMap();
     private final List<PathWrapper> pathWrappers = new ArrayList<>(5);
     private String debugInfo = "";
 
@@ -124,6 +125,14 @@ public class GHResponse {
         return this;
     }
 
+    /**
+     * @return the internal measurements of the request like the timings and the routing mode. Unlike the hints they
+     * are never written into the serialized response but are only meant for monitoring.
+     */
+    public PMap getMetrics() {
+        return metrics;
+    }
+
     @Override
     public String toString() {
         String str = "";
@@ -344,4 +344,38 @@ public class PathWrapper {
     public void setImpossible(boolean impossible) {
         this.impossible = impossible;
     }
+
+    /**
+     * @return a deep copy of this path, i.e. changing the copy, its points, instructions or details does not change
+     * this path. The public transit legs are shared.
+     */
+    public PathWrapper copy() {
+        PathWrapper copy = new PathWrapper();
+        copy.errors.addAll(errors);
+        if (description != null)
+            copy.description = new ArrayList<>(description);
+        copy.distance = distance;
+        copy.ascend = ascend;
+        copy.descend = descend;
+        copy.routeWeight = routeWeight;
+        copy.time = time;
+        copy.debugInfo = debugInfo;
+        if (instructions != null)
+            copy.instructions = instructions.copy();
+        copy.waypointList = waypointList == PointList.EMPTY ? waypointList : waypointList.clone(false);
+        copy.pointList = pointList == PointList.EMPTY ? pointList : pointList.clone(false);
+        copy.numChanges = numChanges;
+        copy.legs.addAll(legs);
+        copy.pointsOrder.addAll(pointsOrder);
+        for (Map.Entry<String, List<PathDetail>> entry : pathDetails.entrySet()) {
+            List<PathDetail> details = new ArrayList<>(entry.getValue().size());
+            for (PathDetail detail : entry.getValue()) {
+                details.add(detail.copy());
+            }
+            copy.pathDetails.put(entry.getKey(), details);
+        }
+        copy.fare = fare;
+        copy.impossible = impossible;
+        return copy;
+    }
 }
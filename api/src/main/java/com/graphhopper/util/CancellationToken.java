@@ -0,0 +1,74 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.util;
+
+import com.graphhopper.util.exceptions.RequestCancelledException;
+
+/**
+ * Allows stopping a running calculation from another thread or after a timeout. The calculation has to check the
+ * token regularly via {@link #throwIfCancelled()}, so it stops at the next check and not immediately.
+ * <p>
+ * A token can have a parent, e.g. the token of the whole request, and is then also cancelled if its parent is
+ * cancelled or times out.
+ */
+public class CancellationToken {
+    private final CancellationToken parent;
+    private final long timeoutMillis;
+    private final long deadlineNanos;
+    private volatile boolean cancelled;
+
+    public CancellationToken() {
+        this(null, 0);
+    }
+
+    /**
+     * @param parent        the token this token depends on or null
+     * @param timeoutMillis the time in milliseconds after which this token is cancelled, 0 disables the timeout
+     */
+    public CancellationToken(CancellationToken parent, long timeoutMillis) {
+        if (timeoutMillis < 0)
+            throw new IllegalArgumentException("The timeout must not be negative but was " + timeoutMillis);
+        this.parent = parent;
+        this.timeoutMillis = timeoutMillis;
+        this.deadlineNanos = System.nanoTime() + timeoutMillis * 1_000_000L;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || isTimedOut() || parent != null && parent.isCancelled();
+    }
+
+    /**
+     * @throws RequestCancelledException if this token or its parent was cancelled or timed out
+     */
+    public void throwIfCancelled() {
+        if (cancelled)
+            throw new RequestCancelledException("The request was cancelled");
+        if (isTimedOut())
+            throw new RequestCancelledException("The request was cancelled as it took longer than " + timeoutMillis + "ms");
+        if (parent != null)
+            parent.throwIfCancelled();
+    }
+
+    private boolean isTimedOut() {
+        return timeoutMillis > 0 && System.nanoTime() - deadlineNanos >= 0;
+    }
+}
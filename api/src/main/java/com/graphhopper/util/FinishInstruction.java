@@ -47,6 +47,12 @@ public class FinishInstruction extends Instruction {
                 pointAccess.is3D() ? pointAccess.getElevation(node) : Double.NaN);
     }
 
+    @Override
+    public FinishInstruction copy() {
+        return copyTo(new FinishInstruction(name, points.getLatitude(0), points.getLongitude(0),
+                points.is3D() ? points.getElevation(0) : Double.NaN));
+    }
+
     @Override
     public int getLength() {
         return 0;
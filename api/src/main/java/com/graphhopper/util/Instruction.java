@@ -137,6 +137,25 @@ public class Instruction {
         this.points = points;
     }
 
+    /**
+     * @return a deep copy of this instruction, i.e. changing the copy or its points does not change this instruction
+     */
+    public Instruction copy() {
+        return copyTo(new Instruction(sign, name, annotation, copyPoints()));
+    }
+
+    <T extends Instruction> T copyTo(T copy) {
+        copy.rawName = rawName;
+        copy.distance = distance;
+        copy.time = time;
+        copy.extraInfo = new HashMap<>(extraInfo);
+        return copy;
+    }
+
+    PointList copyPoints() {
+        return points == PointList.EMPTY ? points : points.clone(false);
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -128,4 +128,15 @@ public class InstructionList extends AbstractList<Instruction> {
         return tr;
     }
 
+    /**
+     * @return a deep copy of this list, i.e. changing the copy or its instructions does not change this list
+     */
+    public InstructionList copy() {
+        InstructionList copy = new InstructionList(size(), tr);
+        for (Instruction instruction : instructions) {
+            copy.add(instruction.copy());
+        }
+        return copy;
+    }
+
 }
@@ -56,6 +56,10 @@ public class Parameters {
          * round trip algorithm (not yet for CH)
          */
         public static final String ROUND_TRIP = "round_trip";
+        /**
+         * paths from the first point to every other point (only for node based CH)
+         */
+        public static final String ONE_TO_MANY = "one_to_many";
 
         /**
          * All public properties for alternative routing.
@@ -66,6 +70,8 @@ public class Parameters {
             public static final String MAX_WEIGHT = ALT_ROUTE + ".max_weight_factor";
 
             public static final String MAX_SHARE = ALT_ROUTE + ".max_share_factor";
+
+            public static final String LOCAL_OPTIMALITY_FACTOR = ALT_ROUTE + ".local_optimality_factor";
         }
 
         public static final class AStar {
@@ -96,6 +102,31 @@ public class Parameters {
         public static final String U_TURN_COSTS = "u_turn_costs";
         public static final String MAX_VISITED_NODES = "max_visited_nodes";
         public static final String INIT_MAX_VISITED_NODES = ROUTING_INIT_PREFIX + "max_visited_nodes";
+        /**
+         * time in milliseconds after which the calculation of a request is stopped, 0 disables it
+         */
+        public static final String TIMEOUT = "timeout_ms";
+        public static final String INIT_TIMEOUT = ROUTING_INIT_PREFIX + "timeout_ms";
+        /**
+         * number of threads to calculate the legs of a request with via points concurrently, 0 disables it
+         */
+        public static final String INIT_LEG_THREADS = ROUTING_INIT_PREFIX + "leg_threads";
+        /**
+         * number of route responses that are cached, 0 disables the cache
+         */
+        public static final String INIT_CACHE_MAX_ENTRIES = ROUTING_INIT_PREFIX + "cache.max_entries";
+        /**
+         * number of traces of sampled or slow requests that are kept, 0 disables tracing
+         */
+        public static final String INIT_TRACE_CAPACITY = ROUTING_INIT_PREFIX + "trace.capacity";
+        /**
+         * fraction of the requests that are traced including the time spent in the weighting and approximator
+         */
+        public static final String INIT_TRACE_SAMPLE_RATE = ROUTING_INIT_PREFIX + "trace.sample_rate";
+        /**
+         * the traces of requests that took at least this many milliseconds are kept, a negative value disables it
+         */
+        public static final String INIT_TRACE_SLOW_THRESHOLD = ROUTING_INIT_PREFIX + "trace.slow_threshold";
         /**
          * if true the response will contain turn instructions
          */
@@ -142,6 +173,10 @@ public class Parameters {
          * This property name configures at start if the DISABLE parameter can have an effect.
          */
         public static final String INIT_DISABLING_ALLOWED = ROUTING_INIT_PREFIX + "ch.disabling_allowed";
+        /**
+         * maximum number of original edges of unpacked shortcuts that are cached per CH profile, 0 disables the cache
+         */
+        public static final String INIT_UNPACK_CACHE_MAX_EDGES = ROUTING_INIT_PREFIX + "ch.unpack_cache.max_edges";
         /**
          * The property name in HintsMap if heading should be used for CH regardless of the possible
          * routing errors.
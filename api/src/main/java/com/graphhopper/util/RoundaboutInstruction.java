@@ -34,6 +34,16 @@ public class RoundaboutInstruction extends Instruction {
         super(sign, name, ia, pl);
     }
 
+    @Override
+    public RoundaboutInstruction copy() {
+        RoundaboutInstruction copy = copyTo(new RoundaboutInstruction(sign, name, annotation, copyPoints()));
+        copy.exitNumber = exitNumber;
+        copy.clockwise = clockwise;
+        copy.exited = exited;
+        copy.radian = radian;
+        return copy;
+    }
+
     public RoundaboutInstruction increaseExitNumber() {
         this.exitNumber += 1;
         return this;
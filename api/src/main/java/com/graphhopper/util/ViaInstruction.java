@@ -34,6 +34,13 @@ public class ViaInstruction extends Instruction {
         this.extraInfo = instr.extraInfo;
     }
 
+    @Override
+    public ViaInstruction copy() {
+        ViaInstruction copy = copyTo(new ViaInstruction(name, annotation, copyPoints()));
+        copy.viaPosition = viaPosition;
+        return copy;
+    }
+
     @Override
     public int getLength() {
         return 0;
@@ -77,6 +77,13 @@ public class PathDetail {
         return last - first;
     }
 
+    public PathDetail copy() {
+        PathDetail copy = new PathDetail(value);
+        copy.first = first;
+        copy.last = last;
+        return copy;
+    }
+
     @Override
     public String toString() {
         return value + " [" + getFirst() + ", " + getLast() + "]";
@@ -0,0 +1,58 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.util;
+
+import com.graphhopper.util.exceptions.RequestCancelledException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CancellationTokenTest {
+
+    @Test
+    public void testCancelParent() {
+        CancellationToken parent = new CancellationToken();
+        CancellationToken child = new CancellationToken(parent, 0);
+        assertFalse(child.isCancelled());
+        child.throwIfCancelled();
+
+        parent.cancel();
+        assertTrue(child.isCancelled());
+        try {
+            child.throwIfCancelled();
+            fail();
+        } catch (RequestCancelledException ex) {
+            assertEquals("The request was cancelled", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testTimeout() throws InterruptedException {
+        CancellationToken parent = new CancellationToken();
+        CancellationToken child = new CancellationToken(parent, 1);
+        Thread.sleep(5);
+        assertTrue(child.isCancelled());
+        assertFalse(parent.isCancelled());
+        try {
+            child.throwIfCancelled();
+            fail();
+        } catch (RequestCancelledException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("1ms"));
+        }
+    }
+}
@@ -19,8 +19,7 @@ package com.graphhopper.util;
 
 import org.junit.Test;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
 /**
  * @author Johannes Pelzer
@@ -70,4 +69,32 @@ public class InstructionTest {
         assertTrue(Double.isNaN(i5.calcAzimuth(null)));
         assertEquals("", i5.calcDirection(null));
     }
+
+    @Test
+    public void testCopy() {
+        PointList pl = new PointList();
+        pl.add(49.942, 11.584);
+        pl.add(49.944, 11.582);
+        RoundaboutInstruction roundabout = new RoundaboutInstruction(Instruction.USE_ROUNDABOUT, "ring", InstructionAnnotation.EMPTY, pl);
+        roundabout.setExitNumber(2).setExited().setRadian(1.5);
+        roundabout.setDistance(100).setTime(2000);
+
+        InstructionList list = new InstructionList(null);
+        list.add(roundabout);
+        list.add(new FinishInstruction(49.944, 11.582, Double.NaN));
+        InstructionList copy = list.copy();
+        assertEquals(2, copy.size());
+        assertTrue(copy.get(1) instanceof FinishInstruction);
+        RoundaboutInstruction roundaboutCopy = (RoundaboutInstruction) copy.get(0);
+        assertNotSame(roundabout, roundaboutCopy);
+        assertEquals(roundabout.getExtraInfoJSON(), roundaboutCopy.getExtraInfoJSON());
+        assertEquals(100, roundaboutCopy.getDistance(), .1);
+        assertEquals(2000, roundaboutCopy.getTime());
+
+        // changing the copy does not change the original
+        roundaboutCopy.getPoints().removeLastPoint();
+        roundaboutCopy.setExtraInfo("test", 1);
+        assertEquals(2, roundabout.getPoints().size());
+        assertFalse(roundabout.getExtraInfoJSON().containsKey("test"));
+    }
 }
@@ -23,12 +23,14 @@ import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopperAPI;
 import com.graphhopper.PathWrapper;
+import com.graphhopper.http.ProtobufRouteCodec;
 import com.graphhopper.http.WebHelper;
 import com.graphhopper.jackson.Jackson;
 import com.graphhopper.jackson.PathWrapperDeserializer;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.Parameters;
 import com.graphhopper.util.shapes.GHPoint;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.ResponseBody;
@@ -57,6 +59,7 @@ public class GraphHopperWeb implements GraphHopperAPI {
     private boolean calcPoints = true;
     private boolean elevation = false;
     private String optimize = "false";
+    private boolean protobuf = false;
     private final Set<String> ignoreSet;
 
     public static final String TIMEOUT = "timeout";
@@ -159,12 +162,30 @@ public class GraphHopperWeb implements GraphHopperAPI {
     }
 
 
+    /**
+     * Enable or disable the compact protocol buffers format for the responses, which is faster to parse than JSON.
+     * The default is false.
+     */
+    public GraphHopperWeb setProtobuf(boolean protobuf) {
+        this.protobuf = protobuf;
+        return this;
+    }
+
     @Override
     public GHResponse route(GHRequest request) {
         ResponseBody rspBody = null;
         try {
             Request okRequest = createRequest(request);
+            if (protobuf)
+                // errors are still returned as JSON
+                okRequest = okRequest.newBuilder().header("Accept", ProtobufRouteCodec.MEDIA_TYPE + ", application/json;q=0.9").build();
             rspBody = getClientForRequest(request).newCall(okRequest).execute().body();
+            MediaType contentType = rspBody.contentType();
+            if (contentType != null && ProtobufRouteCodec.MEDIA_TYPE.equals(contentType.type() + "/" + contentType.subtype()))
+                return ProtobufRouteCodec.read(rspBody.byteStream(),
+                        request.getHints().getBool("elevation", elevation),
+                        request.getHints().getBool("turn_description", true));
+
             JsonNode json = objectMapper.reader().readTree(rspBody.byteStream());
 
             GHResponse res = new GHResponse();
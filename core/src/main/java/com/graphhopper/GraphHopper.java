@@ -30,6 +30,7 @@ import com.graphhopper.routing.profiles.EnumEncodedValue;
 import com.graphhopper.routing.profiles.RoadEnvironment;
 import com.graphhopper.routing.subnetwork.PrepareRoutingSubnetworks;
 import com.graphhopper.routing.template.AlternativeRoutingTemplate;
+import com.graphhopper.routing.template.OneToManyRoutingTemplate;
 import com.graphhopper.routing.template.RoundTripRoutingTemplate;
 import com.graphhopper.routing.template.RoutingTemplate;
 import com.graphhopper.routing.template.ViaRoutingTemplate;
@@ -41,6 +42,7 @@ import com.graphhopper.storage.*;
 import com.graphhopper.storage.change.ChangeGraphHelper;
 import com.graphhopper.storage.change.ChangeGraphResponse;
 import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.LocationIndexRTree;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.QueryResult;
 import com.graphhopper.util.*;
@@ -50,6 +52,7 @@ import com.graphhopper.util.Parameters.Routing;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
 import com.graphhopper.util.exceptions.PointDistanceExceededException;
 import com.graphhopper.util.exceptions.PointOutOfBoundsException;
+import com.graphhopper.util.exceptions.RequestCancelledException;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 import org.slf4j.Logger;
@@ -59,9 +62,10 @@ import java.io.File;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static com.graphhopper.routing.ch.CHAlgoFactoryDecorator.EdgeBasedCHMode.EDGE_OR_NODE;
 import static com.graphhopper.routing.ch.CHAlgoFactoryDecorator.EdgeBasedCHMode.OFF;
@@ -98,12 +102,19 @@ public class GraphHopper implements GraphHopperAPI {
     private int maxRoundTripRetries = 3;
     private boolean simplifyResponse = true;
     private int maxVisitedNodes = Integer.MAX_VALUE;
+    private long timeoutMillis;
+    private ExecutorService legExecutor;
+    private SearchTraceRecorder searchTraceRecorder;
+    private RouteCache routeCache;
 
     private int nonChMaxWaypointDistance = Integer.MAX_VALUE;
     // for index
     private LocationIndex locationIndex;
     private int preciseIndexResolution = 300;
     private int maxRegionSearch = 4;
+    // 0 means the search distance of the rtree index is derived from the region search of the tree index
+    private double maxSearchDistance = 0;
+    private String locationIndexType = "tree";
     // for prepare
     private int minNetworkSize = 200;
     private int minOneWayNetworkSize = 0;
@@ -123,7 +134,8 @@ public class GraphHopper implements GraphHopperAPI {
     private FlagEncoderFactory flagEncoderFactory = new DefaultFlagEncoderFactory();
     private EncodedValueFactory encodedValueFactory = new DefaultEncodedValueFactory();
     private TagParserFactory tagParserFactory = new DefaultTagParserFactory();
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    private final Lock changeGraphLock = new ReentrantLock();
+    private final List<ChangeGraphHelper.EdgeChangeListener> changeGraphListeners = new CopyOnWriteArrayList<>();
     private PathDetailsBuilderFactory pathBuilderFactory = new PathDetailsBuilderFactory();
 
     public GraphHopper() {
@@ -335,6 +347,76 @@ public class GraphHopper implements GraphHopperAPI {
         this.maxVisitedNodes = maxVisitedNodes;
     }
 
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * This method stops the calculation of a request that takes longer than the specified milliseconds, so that
+     * requests for e.g. unreachable points do not block a thread until the maximum visited nodes are reached. 0
+     * disables it, which is the default. Requests can lower this value via the timeout_ms hint.
+     */
+    public GraphHopper setTimeoutMillis(long timeoutMillis) {
+        if (timeoutMillis < 0)
+            throw new IllegalArgumentException("The timeout must not be negative but was " + timeoutMillis);
+        this.timeoutMillis = timeoutMillis;
+        return this;
+    }
+
+    /**
+     * Calculates the legs of requests with via points concurrently on a pool with the specified number of threads
+     * that is shared by all requests. 0 disables it, which is the default.
+     */
+    public GraphHopper setLegThreads(int threads) {
+        if (threads < 0)
+            throw new IllegalArgumentException("the number of leg threads cannot be negative: " + threads);
+
+        if (legExecutor != null)
+            legExecutor.shutdown();
+        if (threads == 0) {
+            legExecutor = null;
+            return this;
+        }
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        // legs that do not fit into the queue are calculated on the request thread
+        legExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * 16), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "leg-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Records the search space of sampled or slow requests to diagnose them, null disables it which is the default.
+     */
+    public GraphHopper setSearchTraceRecorder(SearchTraceRecorder searchTraceRecorder) {
+        this.searchTraceRecorder = searchTraceRecorder;
+        return this;
+    }
+
+    public SearchTraceRecorder getSearchTraceRecorder() {
+        return searchTraceRecorder;
+    }
+
+    /**
+     * Caches the responses of the route method, null disables it which is the default. Cache hits skip the
+     * route calculation, but the points of the request are still snapped to identify the route.
+     */
+    public GraphHopper setRouteCache(RouteCache routeCache) {
+        this.routeCache = routeCache;
+        return this;
+    }
+
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+
     /**
      * @return true if storing and fetching elevation data is enabled. Default is false
      */
@@ -590,9 +672,20 @@ public class GraphHopper implements GraphHopperAPI {
         // index
         preciseIndexResolution = args.getInt("index.high_resolution", preciseIndexResolution);
         maxRegionSearch = args.getInt("index.max_region_search", maxRegionSearch);
+        maxSearchDistance = args.getDouble("index.max_search_distance", maxSearchDistance);
+        locationIndexType = args.get("index.type", locationIndexType);
 
         // routing
         maxVisitedNodes = args.getInt(Routing.INIT_MAX_VISITED_NODES, Integer.MAX_VALUE);
+        setTimeoutMillis(args.getLong(Routing.INIT_TIMEOUT, 0));
+        setLegThreads(args.getInt(Routing.INIT_LEG_THREADS, 0));
+        int routeCacheEntries = args.getInt(Routing.INIT_CACHE_MAX_ENTRIES, 0);
+        if (routeCacheEntries > 0)
+            setRouteCache(new RouteCache(routeCacheEntries));
+        int traceCapacity = args.getInt(Routing.INIT_TRACE_CAPACITY, 0);
+        if (traceCapacity > 0)
+            setSearchTraceRecorder(new SearchTraceRecorder(traceCapacity, args.getDouble(Routing.INIT_TRACE_SAMPLE_RATE, 0),
+                    args.getLong(Routing.INIT_TRACE_SLOW_THRESHOLD, 1000)));
         maxRoundTripRetries = args.getInt(RoundTrip.INIT_MAX_RETRIES, maxRoundTripRetries);
         nonChMaxWaypointDistance = args.getInt(Parameters.NON_CH.MAX_NON_CH_POINT_DISTANCE, Integer.MAX_VALUE);
 
@@ -940,7 +1033,7 @@ public class GraphHopper implements GraphHopperAPI {
     @Override
     public GHResponse route(GHRequest request) {
         GHResponse response = new GHResponse();
-        calcPaths(request, response);
+        calcPaths(request, response, routeCache);
         return response;
     }
 
@@ -948,6 +1041,37 @@ public class GraphHopper implements GraphHopperAPI {
      * This method calculates the alternative path list using the low level Path objects.
      */
     public List<Path> calcPaths(GHRequest request, GHResponse ghRsp) {
+        return calcPaths(request, ghRsp, null);
+    }
+
+    /**
+     * Like {@link #calcPaths(GHRequest, GHResponse)} but for warm-up queries that must measure the algorithms:
+     * the route cache is bypassed, i.e. the paths are neither looked up in nor stored into it, and the request is
+     * not recorded by the search trace recorder.
+     */
+    public List<Path> calcPathsForWarmUp(GHRequest request, GHResponse ghRsp) {
+        return calcPaths(request, ghRsp, null, null);
+    }
+
+    /**
+     * @param cache the paths of the response are taken from this cache if possible, in this case the returned list
+     *              is empty. Can be null.
+     */
+    private List<Path> calcPaths(GHRequest request, GHResponse ghRsp, RouteCache cache) {
+        SearchTraceRecorder recorder = searchTraceRecorder;
+        SearchTrace trace = recorder == null ? null : recorder.start(request);
+        if (trace == null)
+            return calcPaths(request, ghRsp, cache, null);
+
+        StopWatch sw = new StopWatch().start();
+        try {
+            return calcPaths(request, ghRsp, cache, trace);
+        } finally {
+            recorder.finish(trace, ghRsp, sw.stop().getMillis());
+        }
+    }
+
+    private List<Path> calcPaths(GHRequest request, GHResponse ghRsp, RouteCache cache, SearchTrace trace) {
         if (ghStorage == null || !fullyLoaded)
             throw new IllegalStateException("Do a successful call to load or importOrLoad before routing");
 
@@ -961,8 +1085,9 @@ public class GraphHopper implements GraphHopperAPI {
             request.setVehicle(vehicle);
         }
 
-        Lock readLock = readWriteLock.readLock();
-        readLock.lock();
+        // all edge iterators of this request read the same version of the changed edge flags
+        EdgeFlagOverlay flagOverlay = ghStorage.getEdgeFlagOverlay();
+        EdgeFlagOverlay previousFlagOverlay = ghStorage.pinEdgeFlagOverlay(flagOverlay);
         try {
             if (!encodingManager.hasEncoder(vehicle))
                 throw new IllegalArgumentException("Vehicle not supported: " + vehicle + ". Supported are: " + encodingManager.toString());
@@ -997,25 +1122,54 @@ public class GraphHopper implements GraphHopperAPI {
             // For example see #734
             checkIfPointsAreInBounds(points);
 
+            long timeoutForRequest = hints.getLong(Routing.TIMEOUT, timeoutMillis);
+            if (timeoutForRequest < 0)
+                throw new IllegalArgumentException("The " + Routing.TIMEOUT + " parameter must not be negative");
+            if (timeoutMillis > 0 && (timeoutForRequest == 0 || timeoutForRequest > timeoutMillis))
+                throw new IllegalArgumentException("The " + Routing.TIMEOUT + " parameter has to be positive and below or equal to:" + timeoutMillis);
+            // the timeout includes the lookup, so it starts here
+            CancellationToken cancellationToken = timeoutForRequest > 0
+                    ? new CancellationToken(request.getCancellationToken(), timeoutForRequest)
+                    : request.getCancellationToken();
+
             RoutingTemplate routingTemplate;
             if (ROUND_TRIP.equalsIgnoreCase(algoStr))
-                routingTemplate = new RoundTripRoutingTemplate(request, ghRsp, locationIndex, encodingManager, maxRoundTripRetries);
+                routingTemplate = new RoundTripRoutingTemplate(request, ghRsp, locationIndex, encodingManager, maxRoundTripRetries).
+                        setGraph(ghStorage, createWeighting(hints, encoder, ghStorage), cancellationToken);
             else if (ALT_ROUTE.equalsIgnoreCase(algoStr))
                 routingTemplate = new AlternativeRoutingTemplate(request, ghRsp, locationIndex, encodingManager);
+            else if (ONE_TO_MANY.equalsIgnoreCase(algoStr))
+                routingTemplate = new OneToManyRoutingTemplate(request, ghRsp, locationIndex, encodingManager);
             else
-                routingTemplate = new ViaRoutingTemplate(request, ghRsp, locationIndex, encodingManager);
+                routingTemplate = new ViaRoutingTemplate(request, ghRsp, locationIndex, encodingManager).setLegExecutor(legExecutor, ghStorage);
 
             List<Path> altPaths = null;
             int maxRetries = routingTemplate.getMaxRetries();
             Locale locale = request.getLocale();
             Translation tr = trMap.getWithFallBack(locale);
+            long lookupNanos = 0, routingNanos = 0, extractionNanos = 0;
+            String cacheKey = null;
+            long cacheVersion = 0;
             for (int i = 0; i < maxRetries; i++) {
                 StopWatch sw = new StopWatch().start();
                 List<QueryResult> qResults = routingTemplate.lookup(points, encoder);
                 ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+                lookupNanos += sw.getNanos();
+                ghRsp.getMetrics().put("took.lookup_micros", lookupNanos / 1000);
                 if (ghRsp.hasErrors())
                     return Collections.emptyList();
 
+                // round trips are excluded as their points are generated and retried
+                if (cache != null && !(routingTemplate instanceof RoundTripRoutingTemplate)) {
+                    // the pinned version, so that a concurrent change is never cached
+                    cacheVersion = flagOverlay.getVersion();
+                    cacheKey = RouteCache.createKey(request, qResults);
+                    if (cache.copyTo(cacheKey, cacheVersion, ghRsp)) {
+                        ghRsp.getMetrics().put("routing.mode", "cache");
+                        return Collections.emptyList();
+                    }
+                }
+
                 RoutingAlgorithmFactory tmpAlgoFactory = getAlgorithmFactory(hints);
                 Weighting weighting;
                 QueryGraph queryGraph;
@@ -1038,13 +1192,18 @@ public class GraphHopper implements GraphHopperAPI {
                     } else {
                         throw new IllegalStateException("Although CH was enabled a non-CH algorithm factory was returned " + tmpAlgoFactory);
                     }
+                    ghRsp.getMetrics().put("routing.mode", "ch");
                 } else {
                     checkNonChMaxWaypointDistance(points);
                     queryGraph = new QueryGraph(ghStorage);
                     queryGraph.lookup(qResults);
                     weighting = createWeighting(hints, encoder, queryGraph);
+                    if (trace != null && trace.isTimed())
+                        weighting = new TracingWeighting(weighting, trace);
+                    ghRsp.getMetrics().put("routing.mode", tmpAlgoFactory instanceof LMAlgoFactoryDecorator.LMRAFactory ? "lm" : "flexible");
                 }
                 ghRsp.addDebugInfo("tmode:" + tMode.toString());
+                ghRsp.getMetrics().put("virtual_nodes", queryGraph.getNodes() - ghStorage.getNodes());
 
                 int maxVisitedNodesForRequest = hints.getInt(Routing.MAX_VISITED_NODES, maxVisitedNodes);
                 if (maxVisitedNodesForRequest > maxVisitedNodes)
@@ -1060,11 +1219,25 @@ public class GraphHopper implements GraphHopperAPI {
                 AlgorithmOptions algoOpts = AlgorithmOptions.start().
                         algorithm(algoStr).traversalMode(tMode).weighting(weighting).
                         maxVisitedNodes(maxVisitedNodesForRequest).
+                        cancellationToken(cancellationToken).
                         hints(hints).
                         build();
 
                 // do the actual route calculation !
+                if (trace != null)
+                    tmpAlgoFactory = new TracingAlgorithmFactory(tmpAlgoFactory, trace);
+                sw = new StopWatch().start();
                 altPaths = routingTemplate.calcPaths(queryGraph, tmpAlgoFactory, algoOpts);
+                routingNanos += sw.stop().getNanos();
+                for (Path path : altPaths) {
+                    extractionNanos += path.getExtractionTime();
+                }
+                // the extraction is part of the algorithm run, but for concurrently calculated legs both are only
+                // approximations of the time spent
+                ghRsp.getMetrics().put("took.routing_micros", Math.max(0, routingNanos - extractionNanos) / 1000);
+                ghRsp.getMetrics().put("took.path_extraction_micros", extractionNanos / 1000);
+                if (trace != null)
+                    trace.setTimes(lookupNanos / 1000, Math.max(0, routingNanos - extractionNanos) / 1000, extractionNanos / 1000);
 
                 boolean tmpEnableInstructions = hints.getBool(Routing.INSTRUCTIONS, getEncodingManager().isEnableInstructions());
                 boolean tmpCalcPoints = hints.getBool(Routing.CALC_POINTS, calcPoints);
@@ -1085,38 +1258,52 @@ public class GraphHopper implements GraphHopperAPI {
                     break;
             }
 
+            if (cacheKey != null && !ghRsp.hasErrors())
+                cache.put(cacheKey, cacheVersion, ghRsp);
             return altPaths;
 
-        } catch (IllegalArgumentException ex) {
+        } catch (IllegalArgumentException | RequestCancelledException ex) {
             ghRsp.addError(ex);
             return Collections.emptyList();
         } finally {
-            readLock.unlock();
+            ghStorage.pinEdgeFlagOverlay(previousFlagOverlay);
         }
     }
 
     /**
-     * This method applies the changes to the graph specified as feature collection. It does so by locking the routing
-     * to avoid concurrent changes which could result in incorrect routing (like when done while a Dijkstra search) or
-     * also while just reading one edge row (inconsistent edge properties).
+     * This method applies the changes to the graph specified as feature collection. The changed edge flags are
+     * published as a new version of the EdgeFlagOverlay, so routing is not blocked: a request that already started
+     * keeps reading the version it pinned and never sees inconsistent edge properties. Calls of this method are
+     * applied one after the other.
      */
     public ChangeGraphResponse changeGraph(Collection<JsonFeature> collection) {
         // TODO allow calling this method if called before CH preparation
         if (getCHFactoryDecorator().isEnabled())
             throw new IllegalArgumentException("To use the changeGraph API you need to turn off CH");
 
-        Lock writeLock = readWriteLock.writeLock();
-        writeLock.lock();
+        changeGraphLock.lock();
         try {
             ChangeGraphHelper overlay = createChangeGraphHelper(ghStorage, locationIndex);
+            for (ChangeGraphHelper.EdgeChangeListener listener : changeGraphListeners) {
+                overlay.addListener(listener);
+            }
             long updateCount = overlay.applyChanges(encodingManager, collection);
             return new ChangeGraphResponse(updateCount);
         } finally {
-            writeLock.unlock();
+            changeGraphLock.unlock();
         }
     }
 
-    protected ChangeGraphHelper createChangeGraphHelper(Graph graph, LocationIndex locationIndex) {
+    /**
+     * Registers a listener that is notified about every edge modified via changeGraph, e.g. to invalidate
+     * cached data for this edge.
+     */
+    public GraphHopper addChangeGraphListener(ChangeGraphHelper.EdgeChangeListener listener) {
+        changeGraphListeners.add(listener);
+        return this;
+    }
+
+    protected ChangeGraphHelper createChangeGraphHelper(GraphHopperStorage graph, LocationIndex locationIndex) {
         return new ChangeGraphHelper(graph, locationIndex);
     }
 
@@ -1152,9 +1339,16 @@ public class GraphHopper implements GraphHopperAPI {
     }
 
     protected LocationIndex createLocationIndex(Directory dir) {
-        LocationIndexTree tmpIndex = new LocationIndexTree(ghStorage, dir);
-        tmpIndex.setResolution(preciseIndexResolution);
-        tmpIndex.setMaxRegionSearch(maxRegionSearch);
+        LocationIndex tmpIndex;
+        if ("rtree".equals(locationIndexType)) {
+            tmpIndex = new LocationIndexRTree(ghStorage, dir).
+                    setMaxSearchDistance(maxSearchDistance > 0 ? maxSearchDistance : maxRegionSearch * preciseIndexResolution);
+        } else if ("tree".equals(locationIndexType)) {
+            tmpIndex = new LocationIndexTree(ghStorage, dir).setMaxRegionSearch(maxRegionSearch);
+            tmpIndex.setResolution(preciseIndexResolution);
+        } else {
+            throw new IllegalArgumentException("Unknown index.type " + locationIndexType + ", use tree or rtree");
+        }
         if (!tmpIndex.loadExisting()) {
             ensureWriteAccess();
             tmpIndex.prepareIndex();
@@ -1236,6 +1430,9 @@ public class GraphHopper implements GraphHopperAPI {
      * remove the files created in graphhopperLocation you have to call clean().
      */
     public void close() {
+        if (legExecutor != null)
+            legExecutor.shutdown();
+
         if (ghStorage != null)
             ghStorage.close();
 
@@ -62,6 +62,10 @@ public class AStar extends AbstractRoutingAlgorithm {
         return this;
     }
 
+    public WeightApproximator getApproximation() {
+        return weightApprox;
+    }
+
     protected void initCollections(int size) {
         fromMap = new GHIntObjectHashMap<>();
         fromHeap = new PriorityQueue<>(size);
@@ -133,6 +137,8 @@ public class AStar extends AbstractRoutingAlgorithm {
             currEdge = fromHeap.poll();
             if (currEdge == null)
                 throw new AssertionError("Empty edge cannot happen");
+            if (searchTrace != null)
+                searchTrace.onSettled(false, fromHeap.size());
         }
     }
 
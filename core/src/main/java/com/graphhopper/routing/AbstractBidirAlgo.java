@@ -254,6 +254,8 @@ public abstract class AbstractBidirAlgo extends AbstractRoutingAlgorithm {
         }
         currFrom = pqOpenSetFrom.poll();
         visitedCountFrom++;
+        if (searchTrace != null)
+            searchTrace.onSettled(false, pqOpenSetFrom.size());
         if (fromEntryCanBeSkipped()) {
             return true;
         }
@@ -271,6 +273,8 @@ public abstract class AbstractBidirAlgo extends AbstractRoutingAlgorithm {
         }
         currTo = pqOpenSetTo.poll();
         visitedCountTo++;
+        if (searchTrace != null)
+            searchTrace.onSettled(true, pqOpenSetTo.size());
         if (toEntryCanBeSkipped()) {
             return true;
         }
@@ -26,6 +26,7 @@ import com.graphhopper.routing.weighting.TurnWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.storage.ShortcutUnpackingCache;
 import com.graphhopper.util.EdgeExplorer;
 import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
@@ -40,6 +41,7 @@ public abstract class AbstractBidirectionEdgeCHNoSOD extends AbstractBidirAlgo {
     private final EdgeExplorer innerInExplorer;
     private final EdgeExplorer innerOutExplorer;
     private final TurnWeighting turnWeighting;
+    private ShortcutUnpackingCache shortcutUnpackingCache;
 
     public AbstractBidirectionEdgeCHNoSOD(Graph graph, TurnWeighting weighting) {
         super(graph, weighting, TraversalMode.EDGE_BASED);
@@ -143,9 +145,17 @@ public abstract class AbstractBidirectionEdgeCHNoSOD extends AbstractBidirAlgo {
         }
     }
 
+    /**
+     * Sets the cache of the unpacked shortcuts that is shared between the queries of the same CH graph
+     */
+    public AbstractBidirectionEdgeCHNoSOD setShortcutUnpackingCache(ShortcutUnpackingCache shortcutUnpackingCache) {
+        this.shortcutUnpackingCache = shortcutUnpackingCache;
+        return this;
+    }
+
     @Override
     protected BidirPathExtractor createPathExtractor(Graph graph, Weighting weighting) {
-        return new EdgeBasedCHBidirPathExtractor(graph, graph.getBaseGraph(), weighting);
+        return new EdgeBasedCHBidirPathExtractor(graph, graph.getBaseGraph(), weighting, shortcutUnpackingCache);
     }
 
     @Override
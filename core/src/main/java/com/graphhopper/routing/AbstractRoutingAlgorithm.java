@@ -20,10 +20,12 @@ package com.graphhopper.routing;
 import com.graphhopper.routing.util.DefaultEdgeFilter;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.SearchTrace;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.CancellationToken;
 import com.graphhopper.util.EdgeExplorer;
 import com.graphhopper.util.EdgeIteratorState;
 
@@ -34,6 +36,7 @@ import java.util.List;
  * @author Peter Karich
  */
 public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm {
+    private static final int CANCELLATION_CHECK_MASK = 0xFF;
     protected final Graph graph;
     protected final Weighting weighting;
     protected final FlagEncoder flagEncoder;
@@ -43,6 +46,9 @@ public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm {
     protected EdgeExplorer outEdgeExplorer;
     protected int maxVisitedNodes = Integer.MAX_VALUE;
     protected EdgeFilter additionalEdgeFilter;
+    protected SearchTrace.Search searchTrace;
+    protected CancellationToken cancellationToken;
+    private int cancellationChecks;
     private boolean alreadyRun;
 
     /**
@@ -65,11 +71,24 @@ public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm {
         this.maxVisitedNodes = numberOfNodes;
     }
 
+    @Override
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
     public RoutingAlgorithm setEdgeFilter(EdgeFilter additionalEdgeFilter) {
         this.additionalEdgeFilter = additionalEdgeFilter;
         return this;
     }
 
+    /**
+     * Records the settled nodes and the heap sizes of this algorithm, null disables it.
+     */
+    public RoutingAlgorithm setSearchTrace(SearchTrace.Search searchTrace) {
+        this.searchTrace = searchTrace;
+        return this;
+    }
+
     protected boolean accept(EdgeIteratorState iter, int prevOrNextEdgeId) {
         // for edge-based traversal we leave it for TurnWeighting to decide whether or not a u-turn is acceptable,
         // but for node-based traversal we exclude such a turn for performance reasons already here
@@ -123,7 +142,22 @@ public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm {
         return getName() + "|" + weighting;
     }
 
+    /**
+     * This method is called for every visited node and also checks the cancellation token.
+     *
+     * @throws com.graphhopper.util.exceptions.RequestCancelledException if the search was cancelled or timed out
+     */
     protected boolean isMaxVisitedNodesExceeded() {
+        checkCancelled();
         return maxVisitedNodes < getVisitedNodes();
     }
+
+    /**
+     * Throws an exception if the cancellation token was cancelled or timed out. Only the first and then every 256th
+     * call checks the token, so this method can be called for every visited node.
+     */
+    protected void checkCancelled() {
+        if (cancellationToken != null && (cancellationChecks++ & CANCELLATION_CHECK_MASK) == 0)
+            cancellationToken.throwIfCancelled();
+    }
 }
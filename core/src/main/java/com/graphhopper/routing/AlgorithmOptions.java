@@ -19,6 +19,7 @@ package com.graphhopper.routing;
 
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.util.CancellationToken;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.Parameters;
 
@@ -40,6 +41,7 @@ public class AlgorithmOptions {
     private Weighting weighting;
     private TraversalMode traversalMode = TraversalMode.NODE_BASED;
     private int maxVisitedNodes = Integer.MAX_VALUE;
+    private CancellationToken cancellationToken;
 
     private AlgorithmOptions() {
     }
@@ -79,6 +81,8 @@ public class AlgorithmOptions {
             b.weighting(opts.getWeighting());
         if (opts.maxVisitedNodes >= 0)
             b.maxVisitedNodes(opts.maxVisitedNodes);
+        if (opts.cancellationToken != null)
+            b.cancellationToken(opts.cancellationToken);
         if (!opts.hints.isEmpty())
             b.hints(opts.hints);
 
@@ -110,6 +114,13 @@ public class AlgorithmOptions {
         return maxVisitedNodes;
     }
 
+    /**
+     * @return the token to stop the algorithm or null
+     */
+    public CancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+
     public PMap getHints() {
         return hints;
     }
@@ -154,6 +165,11 @@ public class AlgorithmOptions {
             return this;
         }
 
+        public Builder cancellationToken(CancellationToken cancellationToken) {
+            this.opts.cancellationToken = cancellationToken;
+            return this;
+        }
+
         public Builder hints(PMap hints) {
             this.opts.hints.put(hints);
             return this;
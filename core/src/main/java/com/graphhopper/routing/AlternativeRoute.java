@@ -26,6 +26,7 @@ import com.graphhopper.routing.weighting.WeightApproximator;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.util.CancellationToken;
 import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
@@ -70,6 +71,7 @@ public class AlternativeRoute implements RoutingAlgorithm {
     private final TraversalMode traversalMode;
     private int visitedNodes;
     private int maxVisitedNodes = Integer.MAX_VALUE;
+    private CancellationToken cancellationToken;
     private double maxWeightFactor = 1.4;
     // the higher the maxWeightFactor the higher the explorationFactor needs to be
     // 1 is default for bidir Dijkstra, 0.8 seems to be a very similar value for bidir A* but roughly 1/2 of the nodes explored
@@ -118,6 +120,11 @@ public class AlternativeRoute implements RoutingAlgorithm {
         this.maxVisitedNodes = numberOfNodes;
     }
 
+    @Override
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
     /**
      * Increasing this factor results in returning more alternatives. E.g. if the factor is 2 than
      * all alternatives with a weight 2 times longer than the optimal weight are return. (default is
@@ -169,6 +176,7 @@ public class AlternativeRoute implements RoutingAlgorithm {
         AlternativeBidirSearch altBidirDijktra = new AlternativeBidirSearch(
                 graph, weighting, traversalMode, maxExplorationFactor * 2);
         altBidirDijktra.setMaxVisitedNodes(maxVisitedNodes);
+        altBidirDijktra.setCancellationToken(cancellationToken);
         if (weightApproximator != null) {
             altBidirDijktra.setApproximation(weightApproximator);
         }
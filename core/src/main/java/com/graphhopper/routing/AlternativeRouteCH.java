@@ -0,0 +1,259 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntIndexedContainer;
+import com.carrotsearch.hppc.IntSet;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
+import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.Parameters;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Calculates alternative routes on a node-based contraction hierarchy via the 'via node' approach described in
+ * 'Alternative Routes in Road Networks' (Abraham, Delling, Goldberg, Werneck 2010):
+ * http://www.cs.princeton.edu/~rwerneck/papers/ADGW10-alternatives-sea.pdf
+ * <p>
+ * The forward and backward CH searches are continued until maxWeightFactor times the best weight. Every node settled
+ * in both searches is a candidate via node v for the path s-v-t. A candidate is accepted if the path is not too
+ * long, does not share too much with the already accepted paths and is locally optimal around v, i.e. the shortest
+ * path between two nodes on the path before and after v goes through v. The latter is used instead of the plateau
+ * check of {@link AlternativeRoute} as the CH search spaces do not contain complete shortest path trees.
+ */
+public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
+    private double maxWeightFactor = 1.4;
+    private double maxShareFactor = 0.6;
+    private double localOptimalityFactor = 0.25;
+    private int maxPaths = 2;
+    private int extraVisitedNodes;
+
+    public AlternativeRouteCH(Graph graph, Weighting weighting) {
+        super(graph, weighting);
+    }
+
+    /**
+     * Alternatives with a weight up to maxWeightFactor times the weight of the best path are considered.
+     */
+    public AlternativeRouteCH setMaxWeightFactor(double maxWeightFactor) {
+        this.maxWeightFactor = maxWeightFactor;
+        return this;
+    }
+
+    /**
+     * Alternatives that share more than this fraction of their distance with the best path or an already accepted
+     * alternative are rejected.
+     */
+    public AlternativeRouteCH setMaxShareFactor(double maxShareFactor) {
+        this.maxShareFactor = maxShareFactor;
+        return this;
+    }
+
+    /**
+     * The fraction of the detour of an alternative around its via node that must be a shortest path. Higher values
+     * avoid alternatives with small and unreasonable detours but reduce the number of alternatives.
+     */
+    public AlternativeRouteCH setLocalOptimalityFactor(double localOptimalityFactor) {
+        this.localOptimalityFactor = localOptimalityFactor;
+        return this;
+    }
+
+    /**
+     * Specifies how many paths (including the optimal) are returned. (default is 2)
+     */
+    public AlternativeRouteCH setMaxPaths(int maxPaths) {
+        if (maxPaths < 2)
+            throw new IllegalArgumentException("Use normal algorithm with less overhead instead if no alternatives are required");
+        this.maxPaths = maxPaths;
+        return this;
+    }
+
+    @Override
+    public boolean finished() {
+        // we need to finish BOTH searches for CH and continue them to find the candidates for the via nodes
+        if (finishedFrom && finishedTo)
+            return true;
+
+        return currFrom.weight >= bestWeight * maxWeightFactor && currTo.weight >= bestWeight * maxWeightFactor;
+    }
+
+    @Override
+    public List<Path> calcPaths(int from, int to) {
+        checkAlreadyRun();
+        init(from, 0, to, 0);
+        runAlgo();
+        Path bestPath = extractPath();
+        if (!bestPath.isFound())
+            return Collections.singletonList(bestPath);
+
+        List<Path> paths = new ArrayList<>(maxPaths);
+        paths.add(bestPath);
+        List<IntSet> pathEdges = new ArrayList<>(maxPaths);
+        IntSet bestPathEdges = getEdgeIds(bestPath);
+        pathEdges.add(bestPathEdges);
+        IntSet bestPathNodes = new GHIntHashSet(bestPath.calcNodes());
+        double maxWeight = bestPath.getWeight() * maxWeightFactor;
+
+        // the nodes settled in both searches, ordered by the weight of their via path
+        List<SPTEntry[]> candidates = new ArrayList<>();
+        for (IntObjectCursor<SPTEntry> cursor : bestWeightMapFrom) {
+            SPTEntry toEntry = bestWeightMapTo.get(cursor.key);
+            // the subpaths of a shortest path are shortest paths, so a via node on the best path leads to the best path
+            if (toEntry == null || bestPathNodes.contains(cursor.key)
+                    || cursor.value.getWeightOfVisitedPath() + toEntry.getWeightOfVisitedPath() > maxWeight)
+                continue;
+            candidates.add(new SPTEntry[]{cursor.value, toEntry});
+        }
+        Collections.sort(candidates, new Comparator<SPTEntry[]>() {
+            @Override
+            public int compare(SPTEntry[] o1, SPTEntry[] o2) {
+                return Double.compare(o1[0].getWeightOfVisitedPath() + o1[1].getWeightOfVisitedPath(),
+                        o2[0].getWeightOfVisitedPath() + o2[1].getWeightOfVisitedPath());
+            }
+        });
+
+        for (SPTEntry[] candidate : candidates) {
+            if (paths.size() >= maxPaths || isMaxVisitedNodesExceeded())
+                break;
+
+            // the CH path via v is cheap to unpack and rejects most of the candidates before the more expensive checks
+            double viaWeight = candidate[0].getWeightOfVisitedPath() + candidate[1].getWeightOfVisitedPath();
+            Path preliminaryPath = createPathExtractor(graph, weighting).extract(candidate[0], candidate[1], viaWeight);
+            if (calcMaxShare(preliminaryPath, pathEdges) > maxShareFactor)
+                continue;
+
+            // the CH path to and from v is not necessarily the shortest, so calculate these parts separately
+            int viaNode = candidate[0].adjNode;
+            Path svPath = calcSubPath(from, viaNode);
+            Path vtPath = calcSubPath(viaNode, to);
+            if (!svPath.isFound() || !vtPath.isFound())
+                continue;
+
+            Path path = concat(svPath, vtPath);
+            if (path.getWeight() > maxWeight || calcMaxShare(path, pathEdges) > maxShareFactor
+                    || !isLocallyOptimal(path, svPath.getEdgeCount(), bestPathEdges))
+                continue;
+
+            paths.add(path);
+            pathEdges.add(getEdgeIds(path));
+        }
+        return paths;
+    }
+
+    private Path calcSubPath(int from, int to) {
+        DijkstraBidirectionCH algo = new DijkstraBidirectionCH(graph, weighting);
+        algo.setEdgeFilter(additionalEdgeFilter);
+        algo.setMaxVisitedNodes(maxVisitedNodes);
+        algo.setCancellationToken(cancellationToken);
+        Path path = algo.calcPath(from, to);
+        extraVisitedNodes += algo.getVisitedNodes();
+        return path;
+    }
+
+    private Path concat(Path svPath, Path vtPath) {
+        Path path = new Path(graph.getBaseGraph(), weighting);
+        path.setFromNode(from);
+        for (EdgeIteratorState edge : svPath.calcEdges()) {
+            path.addEdge(edge.getEdge());
+        }
+        for (EdgeIteratorState edge : vtPath.calcEdges()) {
+            path.addEdge(edge.getEdge());
+        }
+        path.setEndNode(to);
+        path.setDistance(svPath.getDistance() + vtPath.getDistance());
+        path.addTime(svPath.getTime() + vtPath.getTime());
+        path.setWeight(svPath.getWeight() + vtPath.getWeight());
+        path.setFound(true);
+        return path;
+    }
+
+    private static IntSet getEdgeIds(Path path) {
+        IntSet edgeIds = new GHIntHashSet(path.getEdgeCount());
+        for (EdgeIteratorState edge : path.calcEdges()) {
+            edgeIds.add(edge.getEdge());
+        }
+        return edgeIds;
+    }
+
+    /**
+     * @return the maximum fraction of the distance of the specified path that is shared with one of the paths
+     */
+    private static double calcMaxShare(Path path, List<IntSet> pathEdges) {
+        if (path.getDistance() <= 0)
+            return 1;
+
+        double maxShare = 0;
+        List<EdgeIteratorState> edges = path.calcEdges();
+        for (IntSet edgeIds : pathEdges) {
+            double sharedDistance = 0;
+            for (EdgeIteratorState edge : edges) {
+                if (edgeIds.contains(edge.getEdge()))
+                    sharedDistance += edge.getDistance();
+            }
+            maxShare = Math.max(maxShare, sharedDistance / path.getDistance());
+        }
+        return maxShare;
+    }
+
+    /**
+     * Checks that the subpath around the via node is a shortest path. It spans localOptimalityFactor times the
+     * detour, i.e. the distance that is not shared with the best path.
+     *
+     * @param bestPathEdges the edge IDs of the best path, calculated once per query
+     */
+    private boolean isLocallyOptimal(Path path, int viaIndex, IntSet bestPathEdges) {
+        List<EdgeIteratorState> edges = path.calcEdges();
+        double detour = 0;
+        for (EdgeIteratorState edge : edges) {
+            if (!bestPathEdges.contains(edge.getEdge()))
+                detour += edge.getDistance();
+        }
+        double maxDistance = 0.5 * localOptimalityFactor * detour;
+        IntIndexedContainer nodes = path.calcNodes();
+        int fromIndex = viaIndex;
+        for (double distance = 0; fromIndex > 0 && distance < maxDistance; fromIndex--) {
+            distance += edges.get(fromIndex - 1).getDistance();
+        }
+        int toIndex = viaIndex;
+        for (double distance = 0; toIndex < edges.size() && distance < maxDistance; toIndex++) {
+            distance += edges.get(toIndex).getDistance();
+        }
+        if (fromIndex == viaIndex || toIndex == viaIndex)
+            return true;
+
+        Path localPath = calcSubPath(nodes.get(fromIndex), nodes.get(toIndex));
+        return localPath.isFound() && localPath.calcNodes().contains(nodes.get(viaIndex));
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return super.getVisitedNodes() + extraVisitedNodes;
+    }
+
+    @Override
+    public String getName() {
+        return Parameters.Algorithms.ALT_ROUTE + "|ch";
+    }
+}
@@ -95,6 +95,7 @@ public class BidirPathExtractor {
     }
 
     protected void setExtractionTime(long nanos) {
+        path.setExtractionTime(nanos);
         path.setDebugInfo("path extraction: " + nanos / 1000 + " micros");
     }
 
@@ -110,6 +110,8 @@ public class Dijkstra extends AbstractRoutingAlgorithm {
             currEdge = fromHeap.poll();
             if (currEdge == null)
                 throw new AssertionError("Empty edge cannot happen");
+            if (searchTrace != null)
+                searchTrace.onSettled(false, fromHeap.size());
         }
     }
 
@@ -21,8 +21,11 @@ import com.graphhopper.routing.ch.NodeBasedCHBidirPathExtractor;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.ShortcutUnpackingCache;
 
 public class DijkstraBidirectionCHNoSOD extends DijkstraBidirectionRef {
+    private ShortcutUnpackingCache shortcutUnpackingCache;
+
     public DijkstraBidirectionCHNoSOD(Graph graph, Weighting weighting) {
         super(graph, weighting, TraversalMode.NODE_BASED);
     }
@@ -42,9 +45,17 @@ public class DijkstraBidirectionCHNoSOD extends DijkstraBidirectionRef {
         return currFrom.weight >= bestWeight && currTo.weight >= bestWeight;
     }
 
+    /**
+     * Sets the cache of the unpacked shortcuts that is shared between the queries of the same CH graph
+     */
+    public DijkstraBidirectionCHNoSOD setShortcutUnpackingCache(ShortcutUnpackingCache shortcutUnpackingCache) {
+        this.shortcutUnpackingCache = shortcutUnpackingCache;
+        return this;
+    }
+
     @Override
     protected BidirPathExtractor createPathExtractor(Graph graph, Weighting weighting) {
-        return new NodeBasedCHBidirPathExtractor(graph, graph.getBaseGraph(), weighting);
+        return new NodeBasedCHBidirPathExtractor(graph, graph.getBaseGraph(), weighting, shortcutUnpackingCache);
     }
 
     @Override
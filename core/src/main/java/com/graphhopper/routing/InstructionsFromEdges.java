@@ -104,6 +104,14 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
 
     @Override
     public void next(EdgeIteratorState edge, int index, int prevEdgeId) {
+        next(edge, edge.fetchWayGeometry(3));
+    }
+
+    /**
+     * Same as the visitor callback but with the already fetched geometry of the edge including its base and
+     * adjacent node, i.e. fetchWayGeometry(3).
+     */
+    public void next(EdgeIteratorState edge, PointList wayGeo) {
         // baseNode is the current node and adjNode is the next
         int adjNode = edge.getAdjNode();
         int baseNode = edge.getBaseNode();
@@ -112,7 +120,6 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
         double adjLon = nodeAccess.getLongitude(adjNode);
         double latitude, longitude;
 
-        PointList wayGeo = edge.fetchWayGeometry(3);
         boolean isRoundabout = roundaboutEnc.getBool(false, flags);
 
         if (wayGeo.getSize() <= 2) {
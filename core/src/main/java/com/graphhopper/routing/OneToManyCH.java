@@ -0,0 +1,91 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.util.Parameters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Calculates the shortest paths from one node to many other nodes using contraction hierarchies. The forward search
+ * from the origin runs only once and settles its whole upward search space. Its shortest path tree is then reused
+ * by the backward search of every destination, which stops as soon as no shorter path can be found. This is much
+ * cheaper than a bidirectional search for every destination, which would repeat the forward search every time.
+ * <p>
+ * Only node-based CH is supported.
+ */
+public class OneToManyCH extends DijkstraBidirectionCHNoSOD {
+    public OneToManyCH(Graph graph, Weighting weighting) {
+        super(graph, weighting);
+    }
+
+    /**
+     * @return the paths from the specified node to each of the specified nodes, in the same order. If a node
+     * cannot be reached its path is not found.
+     */
+    public List<Path> calcPaths(int from, int[] toNodes) {
+        checkAlreadyRun();
+        initFrom(from, 0);
+        // the forward search has to settle all nodes it can reach, the backward searches will decide which one is
+        // the best meeting point
+        while (!isMaxVisitedNodesExceeded()) {
+            if (!fillEdgesFrom())
+                break;
+        }
+        finishedFrom = true;
+
+        List<Path> paths = new ArrayList<>(toNodes.length);
+        for (int to : toNodes) {
+            paths.add(calcPathTo(to));
+        }
+        return paths;
+    }
+
+    private Path calcPathTo(int to) {
+        pqOpenSetTo.clear();
+        bestWeightMapTo.clear();
+        bestFwdEntry = null;
+        bestBwdEntry = null;
+        bestWeight = Double.MAX_VALUE;
+        initTo(to, 0);
+
+        SPTEntry fwdEntry = bestWeightMapFrom.get(to);
+        if (fwdEntry != null) {
+            bestFwdEntry = fwdEntry;
+            bestBwdEntry = currTo;
+            bestWeight = fwdEntry.weight;
+        }
+        // the forward search is complete, so the backward search can stop once it cannot improve the best weight
+        while (!pqOpenSetTo.isEmpty() && pqOpenSetTo.peek().weight < bestWeight && !isMaxVisitedNodesExceeded()) {
+            fillEdgesTo();
+        }
+
+        if (bestFwdEntry == null)
+            return createEmptyPath();
+        return createPathExtractor(graph, weighting).extract(bestFwdEntry, bestBwdEntry, bestWeight);
+    }
+
+    @Override
+    public String getName() {
+        return Parameters.Algorithms.ONE_TO_MANY + "|ch";
+    }
+}
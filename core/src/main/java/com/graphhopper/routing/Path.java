@@ -60,6 +60,7 @@ public class Path {
     private double weight;
     private NodeAccess nodeAccess;
     private String debugInfo = "";
+    private long extractionTime;
 
     public Path(Graph graph, Weighting weighting) {
         this.weight = Double.MAX_VALUE;
@@ -189,6 +190,17 @@ public class Path {
         return debugInfo;
     }
 
+    public void setExtractionTime(long nanos) {
+        this.extractionTime = nanos;
+    }
+
+    /**
+     * @return the nanoseconds spent to extract this path from the shortest path tree of the algorithm
+     */
+    public long getExtractionTime() {
+        return extractionTime;
+    }
+
     /**
      * Iterates over all edges in this path sorted from start to end and calls the visitor callback
      * for every edge.
@@ -316,6 +328,68 @@ public class Path {
         return ways;
     }
 
+    /**
+     * Calculates the points of this path together with its instructions and path details. Other than calling
+     * calcPoints, calcInstructions and calcDetails separately this iterates over the edges only once and fetches the
+     * geometry of every edge a single time, which matters for long paths with many path details.
+     * <p>
+     * Only the geometry fetch is fused explicitly. The edge flags are not passed around: the instructions and every
+     * path details builder decode their own encoded values from the edge state. As all of them get the same edge
+     * state, which caches its flags, the flags are still read from the storage only once per edge.
+     *
+     * @param ways        the instructions are added to this list, null if no instructions should be calculated
+     * @param pathDetails the path details are put into this map, see calcDetails for the other parameters
+     * @return this path its geometry
+     */
+    public PointList calcPoints(BooleanEncodedValue roundaboutEnc, final InstructionList ways,
+                                List<String> requestedPathDetails, PathDetailsBuilderFactory pathBuilderFactory,
+                                int previousIndex, Map<String, List<PathDetail>> pathDetails) {
+        final PointList points = new PointList(edgeIds.size() + 1, nodeAccess.is3D());
+        if (!isFound())
+            return points;
+
+        List<PathDetailsBuilder> pathBuilders = requestedPathDetails.isEmpty()
+                ? Collections.<PathDetailsBuilder>emptyList()
+                : pathBuilderFactory.createPathDetailsBuilders(requestedPathDetails, encoder, weighting);
+        final PathDetailsFromEdges detailsFromEdges = pathBuilders.isEmpty() ? null : new PathDetailsFromEdges(pathBuilders, previousIndex);
+        if (edgeIds.isEmpty()) {
+            points.add(nodeAccess, endNode);
+            if (ways != null)
+                ways.add(new FinishInstruction(nodeAccess, endNode));
+            if (detailsFromEdges != null)
+                detailsFromEdges.finish();
+        } else {
+            points.add(nodeAccess, getFromNode());
+            final InstructionsFromEdges instructionsFromEdges = ways == null ? null
+                    : new InstructionsFromEdges(getFromNode(), graph, weighting, encoder, roundaboutEnc, nodeAccess, ways.getTr(), ways);
+            forEveryEdge(new EdgeVisitor() {
+                @Override
+                public void next(EdgeIteratorState eb, int index, int prevEdgeId) {
+                    PointList wayGeo = eb.fetchWayGeometry(3);
+                    // skip the base node, it was added as adjacent node of the previous edge
+                    for (int j = 1; j < wayGeo.getSize(); j++) {
+                        points.add(wayGeo, j);
+                    }
+                    if (instructionsFromEdges != null)
+                        instructionsFromEdges.next(eb, wayGeo);
+                    if (detailsFromEdges != null)
+                        detailsFromEdges.next(eb, wayGeo);
+                }
+
+                @Override
+                public void finish() {
+                    if (instructionsFromEdges != null)
+                        instructionsFromEdges.finish();
+                    if (detailsFromEdges != null)
+                        detailsFromEdges.finish();
+                }
+            });
+        }
+
+        pathDetails.putAll(buildDetails(pathBuilders));
+        return points;
+    }
+
     /**
      * Calculates the PathDetails for this Path. This method will return fast, if there are no calculators.
      *
@@ -330,7 +404,10 @@ public class Path {
             return Collections.emptyMap();
 
         forEveryEdge(new PathDetailsFromEdges(pathBuilders, previousIndex));
+        return buildDetails(pathBuilders);
+    }
 
+    private static Map<String, List<PathDetail>> buildDetails(List<PathDetailsBuilder> pathBuilders) {
         Map<String, List<PathDetail>> pathDetails = new HashMap<>(pathBuilders.size());
         for (PathDetailsBuilder builder : pathBuilders) {
             Map.Entry<String, List<PathDetail>> entry = builder.build();
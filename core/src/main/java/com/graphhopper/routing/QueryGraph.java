@@ -44,6 +44,10 @@ import java.util.*;
  * to each adjacent nodes via 2 virtual edges with opposite base node / adjacent node encoding.
  * However, the edge explorer returned by {@link #createEdgeExplorer()} only returns two
  * virtual edges per virtual node (the ones with correct base node).
+ * <p>
+ * After lookup the virtual nodes and edges do not change anymore and several algorithms can use the same
+ * QueryGraph concurrently. The unfavored edges and the edge explorer cache are state of a single search: use
+ * {@link #createView()} to get a QueryGraph per search if these are needed concurrently.
  *
  * @author Peter Karich
  */
@@ -167,6 +171,31 @@ public class QueryGraph implements Graph {
         };
     }
 
+    /**
+     * Creates a view of the specified QueryGraph which shares its virtual nodes and edges, see createView
+     */
+    private QueryGraph(QueryGraph source, List<VirtualEdgeIteratorState> virtualEdges) {
+        mainGraph = source.mainGraph;
+        mainNodeAccess = source.mainNodeAccess;
+        mainNodes = source.mainNodes;
+        mainEdges = source.mainEdges;
+        if (mainGraph.getExtension() instanceof TurnCostExtension)
+            wrappedExtension = new QueryGraphTurnExt();
+        else
+            wrappedExtension = mainGraph.getExtension();
+
+        baseGraph = new QueryGraph(mainGraph.getBaseGraph(), this) {
+            @Override
+            public QueryGraph setUseEdgeExplorerCache(boolean useEECache) {
+                baseGraph.useEdgeExplorerCache = useEECache;
+                return baseGraph;
+            }
+        };
+        this.virtualEdges = baseGraph.virtualEdges = virtualEdges;
+        this.virtualNodes = baseGraph.virtualNodes = source.virtualNodes;
+        this.queryResults = baseGraph.queryResults = source.queryResults;
+    }
+
     /**
      * See 'lookup' for further variables that are initialized
      */
@@ -346,6 +375,38 @@ public class QueryGraph implements Graph {
                 return true;
             }
         });
+
+        // the virtual edges and query results are shared with views and must not change anymore
+        virtualEdges = baseGraph.virtualEdges = Collections.unmodifiableList(virtualEdges);
+        queryResults = baseGraph.queryResults = Collections.unmodifiableList(queryResults);
+    }
+
+    /**
+     * Creates a lightweight QueryGraph for one search. It shares the virtual nodes and the query results with this
+     * QueryGraph but uses its own copies of the virtual edges, so unfavoring edges e.g. via enforceHeading does not
+     * influence other views. Different views can be used from different threads.
+     */
+    public QueryGraph createView() {
+        if (!isInitialized())
+            throw new IllegalStateException("Call lookup before creating a view");
+
+        // the same edge instance can occur several times in virtualEdges
+        Map<VirtualEdgeIteratorState, VirtualEdgeIteratorState> copies = new IdentityHashMap<>(virtualEdges.size());
+        List<VirtualEdgeIteratorState> viewEdges = new ArrayList<>(virtualEdges.size());
+        for (VirtualEdgeIteratorState edge : virtualEdges) {
+            VirtualEdgeIteratorState copy = copies.get(edge);
+            if (copy == null) {
+                copy = edge.copy();
+                copies.put(edge, copy);
+            }
+            viewEdges.add(copy);
+        }
+        for (Map.Entry<VirtualEdgeIteratorState, VirtualEdgeIteratorState> entry : copies.entrySet()) {
+            VirtualEdgeIteratorState reverseEdge = copies.get(entry.getKey().getReverseEdge());
+            if (reverseEdge != null)
+                entry.getValue().setReverseEdge(reverseEdge);
+        }
+        return new QueryGraph(this, Collections.unmodifiableList(viewEdges));
     }
 
     @Override
@@ -0,0 +1,158 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.shapes.GHPoint3D;
+
+import java.util.*;
+
+/**
+ * Caches the paths of route responses in a LRU of a fixed number of entries. A route is identified by the snapped
+ * positions of its points and by the parameters of the request, i.e. requests with different input coordinates
+ * share an entry if they snap to the same positions. The cache only keeps the routes of the newest version of the
+ * graph, e.g. GraphHopper.changeGraph creates a new version, and requests that still use an older version miss.
+ * <p>
+ * The cache keeps its own copies of the paths and every hit gets new copies, so the responses can be modified.
+ */
+public class RouteCache {
+    private final Map<String, Entry> entries;
+    private long version;
+    private long hits;
+    private long misses;
+
+    public RouteCache(final int maxEntries) {
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("The maximum number of cached routes has to be positive but was " + maxEntries);
+
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return the key of the route for the specified request and its snapped points
+     */
+    public static String createKey(GHRequest request, List<QueryResult> queryResults) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < queryResults.size(); i++) {
+            QueryResult qr = queryResults.get(i);
+            GHPoint3D snapped = qr.getSnappedPoint();
+            sb.append(qr.getClosestEdge().getEdge()).append(',').
+                    append(qr.getClosestEdge().getBaseNode()).append(',').
+                    append(qr.getWayIndex()).append(',').
+                    append(qr.getSnappedPosition()).append(',').
+                    append(snapped.lat).append(',').append(snapped.lon).append(',').append(snapped.ele).append(',').
+                    append(request.getFavoredHeading(i)).append(';');
+        }
+        sb.append(request.getVehicle()).append(';').
+                append(request.getWeighting()).append(';').
+                append(request.getAlgorithm()).append(';').
+                append(request.getLocale()).append(';').
+                append(request.getPathDetails()).append(';').
+                // sorted to make the key independent of the order of the hints
+                append(new TreeMap<>(request.getHints().toMap()));
+        return sb.toString();
+    }
+
+    /**
+     * Adds the cached paths for the specified key to the response, including the hints of the cached response like
+     * the number of visited nodes.
+     *
+     * @param version the version of the graph the request uses. The entries of older versions are evicted, while
+     *                a request of an older version than the cached entries is always a miss.
+     * @return true if the route was cached
+     */
+    public boolean copyTo(String key, long version, GHResponse response) {
+        Entry entry;
+        synchronized (this) {
+            evictOlderThan(version);
+            entry = version == this.version ? entries.get(key) : null;
+            if (entry == null) {
+                misses++;
+                return false;
+            }
+            hits++;
+        }
+        for (PathWrapper path : entry.paths) {
+            response.add(path.copy());
+        }
+        for (Map.Entry<String, String> hint : entry.hints.entrySet()) {
+            response.getHints().put(hint.getKey(), hint.getValue());
+        }
+        return true;
+    }
+
+    /**
+     * Caches the paths of the specified successful response.
+     *
+     * @param version the version of the graph that was used to calculate the response. The paths are not cached if
+     *                the graph changed in the meantime.
+     */
+    public void put(String key, long version, GHResponse response) {
+        if (response.hasErrors())
+            throw new IllegalArgumentException("Responses with errors cannot be cached: " + response.getErrors());
+
+        // only copies of the merged paths are kept and not the Path objects or the QueryGraph they reference
+        List<PathWrapper> paths = new ArrayList<>(response.getAll().size());
+        for (PathWrapper path : response.getAll()) {
+            paths.add(path.copy());
+        }
+        Entry entry = new Entry(paths, response.getHints().toMap());
+        synchronized (this) {
+            evictOlderThan(version);
+            if (version == this.version)
+                entries.put(key, entry);
+        }
+    }
+
+    private void evictOlderThan(long version) {
+        if (version > this.version) {
+            entries.clear();
+            this.version = version;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private static final class Entry {
+        final List<PathWrapper> paths;
+        final Map<String, String> hints;
+
+        Entry(List<PathWrapper> paths, Map<String, String> hints) {
+            this.paths = paths;
+            this.hints = hints;
+        }
+    }
+}
@@ -17,6 +17,7 @@
  */
 package com.graphhopper.routing;
 
+import com.graphhopper.util.CancellationToken;
 import com.graphhopper.util.NotThreadSafe;
 
 import java.util.List;
@@ -48,6 +49,12 @@ public interface RoutingAlgorithm {
      */
     void setMaxVisitedNodes(int numberOfNodes);
 
+    /**
+     * Stops the search with a RequestCancelledException if the specified token is cancelled or timed out. Can be
+     * null.
+     */
+    void setCancellationToken(CancellationToken cancellationToken);
+
     /**
      * @return name of this algorithm
      */
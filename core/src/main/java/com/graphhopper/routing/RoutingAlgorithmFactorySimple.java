@@ -70,6 +70,7 @@ public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
         }
 
         ra.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+        ra.setCancellationToken(opts.getCancellationToken());
         return ra;
     }
 
@@ -0,0 +1,54 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.SearchTrace;
+import com.graphhopper.routing.weighting.TracingWeightApproximator;
+import com.graphhopper.storage.Graph;
+
+/**
+ * Decorates the algorithms of another factory so that they record their search space into a SearchTrace. If the
+ * trace is timed the weight approximator of A* algorithms is timed too.
+ */
+public class TracingAlgorithmFactory implements RoutingAlgorithmFactory {
+    private final RoutingAlgorithmFactory algoFactory;
+    private final SearchTrace trace;
+
+    public TracingAlgorithmFactory(RoutingAlgorithmFactory algoFactory, SearchTrace trace) {
+        this.algoFactory = algoFactory;
+        this.trace = trace;
+    }
+
+    @Override
+    public RoutingAlgorithm createAlgo(Graph g, AlgorithmOptions opts) {
+        RoutingAlgorithm algo = algoFactory.createAlgo(g, opts);
+        if (algo instanceof AbstractRoutingAlgorithm)
+            ((AbstractRoutingAlgorithm) algo).setSearchTrace(trace.startSearch(algo.getName()));
+
+        if (trace.isTimed()) {
+            if (algo instanceof AStar) {
+                AStar astar = (AStar) algo;
+                astar.setApproximation(new TracingWeightApproximator(astar.getApproximation(), trace));
+            } else if (algo instanceof AStarBidirection) {
+                AStarBidirection astarbi = (AStarBidirection) algo;
+                astarbi.setApproximation(new TracingWeightApproximator(astarbi.getApproximation(), trace));
+            }
+        }
+        return algo;
+    }
+}
@@ -348,4 +348,18 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState, CHEdgeIterat
         this.reverseEdge = reverseEdge;
     }
 
+    EdgeIteratorState getReverseEdge() {
+        return reverseEdge;
+    }
+
+    /**
+     * @return a copy of this edge which is not unfavored and has no reverse edge
+     */
+    VirtualEdgeIteratorState copy() {
+        VirtualEdgeIteratorState copy = new VirtualEdgeIteratorState(originalEdgeKey, edgeId, baseNode, adjNode,
+                distance, IntsRef.deepCopyOf(edgeFlags), name, pointList, reverse);
+        copy.routeDesc = routeDesc;
+        return copy;
+    }
+
 }
@@ -30,6 +30,7 @@ abstract class AbstractNodeContractor implements NodeContractor {
     CHEdgeExplorer inEdgeExplorer;
     CHEdgeExplorer outEdgeExplorer;
     private final DataAccess originalEdges;
+    private final boolean sharedOriginalEdges;
     int maxLevel;
     private int maxEdgesCount;
 
@@ -38,6 +39,17 @@ abstract class AbstractNodeContractor implements NodeContractor {
         this.encoder = weighting.getFlagEncoder();
         originalEdges = new GHDirectory("", DAType.RAM_INT).find("");
         originalEdges.create(1000);
+        sharedOriginalEdges = false;
+    }
+
+    /**
+     * Creates a contractor for the same graph that reads the original edge counts of the given contractor
+     */
+    AbstractNodeContractor(AbstractNodeContractor contractor) {
+        this.prepareGraph = contractor.prepareGraph;
+        this.encoder = contractor.encoder;
+        originalEdges = contractor.originalEdges;
+        sharedOriginalEdges = true;
     }
 
     @Override
@@ -50,7 +62,8 @@ abstract class AbstractNodeContractor implements NodeContractor {
 
     @Override
     public void close() {
-        originalEdges.close();
+        if (!sharedOriginalEdges)
+            originalEdges.close();
     }
 
     boolean isContracted(int node) {
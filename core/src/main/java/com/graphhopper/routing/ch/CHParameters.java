@@ -9,6 +9,7 @@ public final class CHParameters {
     public static final String NEIGHBOR_UPDATES = Parameters.CH.PREPARE + "updates.neighbor";
     public static final String CONTRACTED_NODES = Parameters.CH.PREPARE + "contracted_nodes";
     public static final String LOG_MESSAGES = Parameters.CH.PREPARE + "log_messages";
+    public static final String PRIORITY_UPDATE_THREADS = Parameters.CH.PREPARE + "updates.threads";
     // node contraction, node-based
     public static final String EDGE_DIFFERENCE_WEIGHT = Parameters.CH.PREPARE + "node.edge_difference_weight";
     public static final String ORIGINAL_EDGE_COUNT_WEIGHT = Parameters.CH.PREPARE + "node.original_edge_count_weight";
@@ -20,6 +21,7 @@ public final class CHParameters {
     public static final String SIGMA_FACTOR = Parameters.CH.PREPARE + "edge.witness_search.sigma_factor";
     public static final String MIN_MAX_SETTLED_EDGES = Parameters.CH.PREPARE + "edge.witness_search.min_max_settled_edges";
     public static final String SETTLED_EDGES_RESET_INTERVAL = Parameters.CH.PREPARE + "edge.witness_search.reset_interval";
+    public static final String ESTIMATION_LIMIT_FACTOR = Parameters.CH.PREPARE + "edge.witness_search.estimation_limit_factor";
 
     private CHParameters() {
     }
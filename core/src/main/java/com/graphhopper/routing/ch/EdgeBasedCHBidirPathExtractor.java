@@ -24,6 +24,7 @@ import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.SPTEntry;
 import com.graphhopper.storage.ShortcutUnpacker;
+import com.graphhopper.storage.ShortcutUnpackingCache;
 import com.graphhopper.util.EdgeIteratorState;
 
 /**
@@ -33,8 +34,15 @@ public class EdgeBasedCHBidirPathExtractor extends BidirPathExtractor {
     private final ShortcutUnpacker shortcutUnpacker;
 
     public EdgeBasedCHBidirPathExtractor(Graph routingGraph, Graph baseGraph, Weighting weighting) {
+        this(routingGraph, baseGraph, weighting, null);
+    }
+
+    /**
+     * @param cache the cache of the unpacked shortcuts or null
+     */
+    public EdgeBasedCHBidirPathExtractor(Graph routingGraph, Graph baseGraph, Weighting weighting, ShortcutUnpackingCache cache) {
         super(baseGraph, weighting);
-        shortcutUnpacker = createShortcutUnpacker(routingGraph, weighting);
+        shortcutUnpacker = createShortcutUnpacker(routingGraph, weighting, cache);
         if (!(weighting instanceof TurnWeighting)) {
             throw new IllegalArgumentException("Need a TurnWeighting for edge-based CH");
         }
@@ -49,7 +57,7 @@ public class EdgeBasedCHBidirPathExtractor extends BidirPathExtractor {
         }
     }
 
-    private ShortcutUnpacker createShortcutUnpacker(Graph routingGraph, final Weighting weighting) {
+    private ShortcutUnpacker createShortcutUnpacker(Graph routingGraph, final Weighting weighting, ShortcutUnpackingCache cache) {
         return new ShortcutUnpacker(routingGraph, new ShortcutUnpacker.Visitor() {
             @Override
             public void visit(EdgeIteratorState edge, boolean reverse, int prevOrNextEdgeId) {
@@ -57,7 +65,7 @@ public class EdgeBasedCHBidirPathExtractor extends BidirPathExtractor {
                 path.addTime(weighting.calcMillis(edge, reverse, prevOrNextEdgeId));
                 path.addEdge(edge.getEdge());
             }
-        }, true);
+        }, true, cache);
     }
 
     @Override
@@ -17,6 +17,7 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.IntSet;
 import com.graphhopper.routing.profiles.BooleanEncodedValue;
@@ -88,6 +89,31 @@ class EdgeBasedNodeContractor extends AbstractNodeContractor {
         extractParams(pMap);
     }
 
+    /**
+     * Creates a contractor that shares the original edge counts and the hierarchy depths of the given contractor. It
+     * can calculate node priorities concurrently to the given contractor as long as no node is contracted meanwhile.
+     */
+    EdgeBasedNodeContractor(EdgeBasedNodeContractor contractor) {
+        super(contractor);
+        this.turnWeighting = contractor.turnWeighting;
+        this.encoder = contractor.encoder;
+        this.pMap = contractor.pMap;
+        extractParams(pMap);
+        initFromGraph();
+        hierarchyDepths = contractor.hierarchyDepths;
+    }
+
+    /**
+     * Starts the following witness path searches with the current limit of settled edges of the given contractor.
+     */
+    void copyMaxSettledEdges(EdgeBasedNodeContractor contractor) {
+        witnessPathSearcher.copyMaxSettledEdges(contractor.witnessPathSearcher);
+    }
+
+    int getMaxSettledEdges() {
+        return witnessPathSearcher.getMaxSettledEdges();
+    }
+
     private void extractParams(PMap pMap) {
         params.edgeQuotientWeight = pMap.getFloat(EDGE_QUOTIENT_WEIGHT, params.edgeQuotientWeight);
         params.originalEdgeQuotientWeight = pMap.getFloat(ORIGINAL_EDGE_QUOTIENT_WEIGHT, params.originalEdgeQuotientWeight);
@@ -120,6 +146,7 @@ class EdgeBasedNodeContractor extends AbstractNodeContractor {
     @Override
     public float calculatePriority(int node) {
         activeShortcutHandler = countingShortcutHandler;
+        witnessPathSearcher.setEstimationMode(true);
         stats().stopWatch.start();
         findAndHandleShortcuts(node);
         stats().stopWatch.stop();
@@ -142,6 +169,7 @@ class EdgeBasedNodeContractor extends AbstractNodeContractor {
     @Override
     public void contractNode(int node) {
         activeShortcutHandler = addingShortcutHandler;
+        witnessPathSearcher.setEstimationMode(false);
         stats().stopWatch.start();
         findAndHandleShortcuts(node);
         updateHierarchyDepthsOfNeighbors(node);
@@ -424,6 +452,7 @@ class EdgeBasedNodeContractor extends AbstractNodeContractor {
     private class AggressiveStrategy implements SearchStrategy {
         private IntSet sourceNodes = new IntHashSet(10);
         private IntSet toNodes = new IntHashSet(10);
+        private IntArrayList targetNodes = new IntArrayList(10);
 
         @Override
         public String getStatisticsString() {
@@ -442,6 +471,12 @@ class EdgeBasedNodeContractor extends AbstractNodeContractor {
             resetEdgeCounters();
             Set<AddedShortcut> addedShortcuts = new HashSet<>();
 
+            // the target nodes that can be reached from the center node are the same for all source edges
+            findTargetNodes(node);
+            if (targetNodes.isEmpty()) {
+                return;
+            }
+
             // first we need to identify the possible source nodes from which we can reach the center node
             sourceNodes.clear();
             EdgeIterator incomingEdges = inEdgeExplorer.setBaseNode(node);
@@ -462,18 +497,8 @@ class EdgeBasedNodeContractor extends AbstractNodeContractor {
                         continue;
                     }
 
-                    // now we need to identify all target nodes that can be reached from the center node
-                    toNodes.clear();
-                    EdgeIterator outgoingEdges = outEdgeExplorer.setBaseNode(node);
-                    while (outgoingEdges.next()) {
-                        int targetNode = outgoingEdges.getAdjNode();
-                        if (isContracted(targetNode) || targetNode == node) {
-                            continue;
-                        }
-                        boolean isNewTargetNode = toNodes.add(targetNode);
-                        if (!isNewTargetNode) {
-                            continue;
-                        }
+                    for (int i = 0; i < targetNodes.size(); i++) {
+                        int targetNode = targetNodes.get(i);
                         // for each target edge outgoing from a target node we need to check if reaching it requires
                         // a 'bridge-path'
                         EdgeIterator targetEdgeIter = targetNodeOrigOutEdgeExplorer.setBaseNode(targetNode);
@@ -507,6 +532,21 @@ class EdgeBasedNodeContractor extends AbstractNodeContractor {
                 }
             }
         }
+
+        private void findTargetNodes(int node) {
+            toNodes.clear();
+            targetNodes.elementsCount = 0;
+            EdgeIterator outgoingEdges = outEdgeExplorer.setBaseNode(node);
+            while (outgoingEdges.next()) {
+                int targetNode = outgoingEdges.getAdjNode();
+                if (isContracted(targetNode) || targetNode == node) {
+                    continue;
+                }
+                if (toNodes.add(targetNode)) {
+                    targetNodes.add(targetNode);
+                }
+            }
+        }
     }
 
     private static class AddedShortcut {
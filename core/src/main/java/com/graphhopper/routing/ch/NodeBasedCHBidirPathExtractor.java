@@ -22,6 +22,7 @@ import com.graphhopper.routing.BidirPathExtractor;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.ShortcutUnpacker;
+import com.graphhopper.storage.ShortcutUnpackingCache;
 import com.graphhopper.util.EdgeIteratorState;
 
 import static com.graphhopper.util.EdgeIterator.NO_EDGE;
@@ -30,8 +31,15 @@ public class NodeBasedCHBidirPathExtractor extends BidirPathExtractor {
     private final ShortcutUnpacker shortcutUnpacker;
 
     public NodeBasedCHBidirPathExtractor(Graph routingGraph, Graph baseGraph, Weighting weighting) {
+        this(routingGraph, baseGraph, weighting, null);
+    }
+
+    /**
+     * @param cache the cache of the unpacked shortcuts or null
+     */
+    public NodeBasedCHBidirPathExtractor(Graph routingGraph, Graph baseGraph, Weighting weighting, ShortcutUnpackingCache cache) {
         super(baseGraph, weighting);
-        shortcutUnpacker = createShortcutUnpacker(routingGraph, weighting);
+        shortcutUnpacker = createShortcutUnpacker(routingGraph, weighting, cache);
     }
 
     @Override
@@ -43,7 +51,7 @@ public class NodeBasedCHBidirPathExtractor extends BidirPathExtractor {
         }
     }
 
-    private ShortcutUnpacker createShortcutUnpacker(Graph routingGraph, final Weighting weighting) {
+    private ShortcutUnpacker createShortcutUnpacker(Graph routingGraph, final Weighting weighting, ShortcutUnpackingCache cache) {
         return new ShortcutUnpacker(routingGraph, new ShortcutUnpacker.Visitor() {
             @Override
             public void visit(EdgeIteratorState edge, boolean reverse, int prevOrNextEdgeId) {
@@ -51,6 +59,6 @@ public class NodeBasedCHBidirPathExtractor extends BidirPathExtractor {
                 path.addTime(weighting.calcMillis(edge, reverse, NO_EDGE));
                 path.addEdge(edge.getEdge());
             }
-        }, false);
+        }, false, cache);
     }
 }
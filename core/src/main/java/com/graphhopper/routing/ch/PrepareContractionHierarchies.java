@@ -29,13 +29,22 @@ import com.graphhopper.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.nf;
+import static com.graphhopper.util.Parameters.Algorithms.ALT_ROUTE;
 import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
+import static com.graphhopper.util.Parameters.Algorithms.AltRoute.*;
 import static com.graphhopper.util.Parameters.Algorithms.DIJKSTRA_BI;
+import static com.graphhopper.util.Parameters.Algorithms.ONE_TO_MANY;
 
 /**
  * This class prepares the graph for a bidirectional algorithm supporting contraction hierarchies
@@ -64,6 +73,7 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
     private final StopWatch contractionSW = new StopWatch();
     private final Params params;
     private NodeContractor nodeContractor;
+    private final List<EdgeBasedNodeContractor> priorityCalculators = new ArrayList<>();
     private NodeOrderingProvider nodeOrderingProvider;
     private CHEdgeExplorer vehicleAllExplorer;
     private CHEdgeExplorer vehicleAllTmpExplorer;
@@ -73,6 +83,7 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
     private float[] oldPriorities;
     private PMap pMap = new PMap();
     private int checkCounter;
+    private ShortcutUnpackingCache shortcutUnpackingCache;
 
     public PrepareContractionHierarchies(CHGraph chGraph) {
         this.prepareGraph = chGraph;
@@ -93,9 +104,25 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         params.setNeighborUpdatePercentage(pMap.getInt(NEIGHBOR_UPDATES, params.getNeighborUpdatePercentage()));
         params.setNodesContractedPercentage(pMap.getInt(CONTRACTED_NODES, params.getNodesContractedPercentage()));
         params.setLogMessagesPercentage(pMap.getInt(LOG_MESSAGES, params.getLogMessagesPercentage()));
+        params.setPriorityUpdateThreads(pMap.getInt(PRIORITY_UPDATE_THREADS, params.getPriorityUpdateThreads()));
+        int unpackCacheMaxEdges = pMap.getInt(Parameters.CH.INIT_UNPACK_CACHE_MAX_EDGES, 0);
+        setShortcutUnpackingCache(unpackCacheMaxEdges > 0 ? new ShortcutUnpackingCache(unpackCacheMaxEdges) : null);
         return this;
     }
 
+    /**
+     * Sets the cache of the unpacked shortcuts that is used by all algorithms created by this preparation or null to
+     * unpack the shortcuts of every path again.
+     */
+    public PrepareContractionHierarchies setShortcutUnpackingCache(ShortcutUnpackingCache shortcutUnpackingCache) {
+        this.shortcutUnpackingCache = shortcutUnpackingCache;
+        return this;
+    }
+
+    public ShortcutUnpackingCache getShortcutUnpackingCache() {
+        return shortcutUnpackingCache;
+    }
+
     /**
      * Instead of heuristically determining a node ordering for the graph contraction it is also possible
      * to use a fixed ordering. For example this allows re-using a previously calculated node ordering.
@@ -146,6 +173,7 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         AbstractBidirAlgo algo = doCreateAlgo(graph, opts);
         algo.setEdgeFilter(new LevelEdgeFilter(prepareGraph));
         algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+        algo.setCancellationToken(opts.getCancellationToken());
         return algo;
     }
 
@@ -160,9 +188,11 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
     private AbstractBidirAlgo createAlgoEdgeBased(Graph graph, AlgorithmOptions opts) {
         if (ASTAR_BI.equals(opts.getAlgorithm())) {
             return new AStarBidirectionEdgeCHNoSOD(graph, createTurnWeightingForEdgeBased(graph))
-                    .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, graph.getNodeAccess()));
+                    .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, graph.getNodeAccess()))
+                    .setShortcutUnpackingCache(shortcutUnpackingCache);
         } else if (DIJKSTRA_BI.equals(opts.getAlgorithm())) {
-            return new DijkstraBidirectionEdgeCHNoSOD(graph, createTurnWeightingForEdgeBased(graph));
+            return new DijkstraBidirectionEdgeCHNoSOD(graph, createTurnWeightingForEdgeBased(graph))
+                    .setShortcutUnpackingCache(shortcutUnpackingCache);
         } else {
             throw new IllegalArgumentException("Algorithm " + opts.getAlgorithm() + " not supported for edge-based Contraction Hierarchies. Try with ch.disable=true");
         }
@@ -171,13 +201,26 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
     private AbstractBidirAlgo createAlgoNodeBased(Graph graph, AlgorithmOptions opts) {
         if (ASTAR_BI.equals(opts.getAlgorithm())) {
             return new AStarBidirectionCH(graph, prepareWeighting)
+                    .setShortcutUnpackingCache(shortcutUnpackingCache)
                     .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, graph.getNodeAccess()));
         } else if (DIJKSTRA_BI.equals(opts.getAlgorithm())) {
             if (opts.getHints().getBool("stall_on_demand", true)) {
-                return new DijkstraBidirectionCH(graph, prepareWeighting);
+                return new DijkstraBidirectionCH(graph, prepareWeighting)
+                        .setShortcutUnpackingCache(shortcutUnpackingCache);
             } else {
-                return new DijkstraBidirectionCHNoSOD(graph, prepareWeighting);
+                return new DijkstraBidirectionCHNoSOD(graph, prepareWeighting)
+                        .setShortcutUnpackingCache(shortcutUnpackingCache);
             }
+        } else if (ONE_TO_MANY.equals(opts.getAlgorithm())) {
+            return new OneToManyCH(graph, prepareWeighting)
+                    .setShortcutUnpackingCache(shortcutUnpackingCache);
+        } else if (ALT_ROUTE.equals(opts.getAlgorithm())) {
+            return new AlternativeRouteCH(graph, prepareWeighting).
+                    setMaxPaths(opts.getHints().getInt(MAX_PATHS, 2)).
+                    setMaxWeightFactor(opts.getHints().getDouble(MAX_WEIGHT, 1.4)).
+                    setMaxShareFactor(opts.getHints().getDouble(MAX_SHARE, 0.6)).
+                    setLocalOptimalityFactor(opts.getHints().getDouble(LOCAL_OPTIMALITY_FACTOR, 0.25)).
+                    setShortcutUnpackingCache(shortcutUnpackingCache);
         } else {
             throw new IllegalArgumentException("Algorithm " + opts.getAlgorithm() + " not supported for node-based Contraction Hierarchies. Try with ch.disable=true");
         }
@@ -203,6 +246,13 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         oldPriorities = new float[prepareGraph.getNodes()];
         nodeContractor = createNodeContractor(prepareGraph, chProfile.getTraversalMode());
         nodeContractor.initFromGraph();
+        // every thread needs its own witness path searcher, so the priorities are only calculated concurrently for
+        // edge-based CH, whose priority calculation is much more expensive
+        if (params.getPriorityUpdateThreads() > 1 && nodeContractor instanceof EdgeBasedNodeContractor) {
+            for (int i = 0; i < params.getPriorityUpdateThreads(); i++) {
+                priorityCalculators.add(new EdgeBasedNodeContractor((EdgeBasedNodeContractor) nodeContractor));
+            }
+        }
     }
 
     private void setMaxLevelOnAllNodes() {
@@ -216,15 +266,62 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         periodicUpdateSW.start();
         sortedNodes.clear();
         final int nodes = prepareGraph.getNodes();
+        if (!priorityCalculators.isEmpty())
+            calculatePrioritiesConcurrently();
         for (int node = 0; node < nodes; node++) {
             if (prepareGraph.getLevel(node) != maxLevel)
                 continue;
-            float priority = oldPriorities[node] = calculatePriority(node);
+            float priority = priorityCalculators.isEmpty()
+                    ? oldPriorities[node] = calculatePriority(node)
+                    : oldPriorities[node];
             sortedNodes.insert(node, priority);
         }
         periodicUpdateSW.stop();
     }
 
+    /**
+     * Calculates the priorities of all remaining nodes into oldPriorities. The graph is not modified meanwhile, so
+     * every thread can read it with its own node contractor.
+     */
+    private void calculatePrioritiesConcurrently() {
+        final int nodes = prepareGraph.getNodes();
+        final int threads = priorityCalculators.size();
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                // every contractor starts with the limit of settled edges the witness path searches of the main
+                // contractor reached so far and handles a fixed range of nodes, because the limits of its searches
+                // also depend on its previous searches. this way the priorities do not depend on the thread scheduling.
+                final EdgeBasedNodeContractor calculator = priorityCalculators.get(i);
+                calculator.copyMaxSettledEdges((EdgeBasedNodeContractor) nodeContractor);
+                final int fromNode = (int) ((long) nodes * i / threads);
+                final int toNode = (int) ((long) nodes * (i + 1) / threads);
+                futures.add(executorService.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int node = fromNode; node < toNode; node++) {
+                            if (prepareGraph.getLevel(node) == maxLevel)
+                                oldPriorities[node] = calculator.calculatePriority(node);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
     private void contractNodesUsingHeuristicNodeOrdering() {
         // note that we update the priorities before preparing the node contractor. this does not make much sense,
         // but has always been like that and changing it would possibly require retuning the contraction parameters
@@ -403,6 +500,10 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
 
     private void close() {
         nodeContractor.close();
+        for (NodeContractor calculator : priorityCalculators) {
+            calculator.close();
+        }
+        priorityCalculators.clear();
         sortedNodes = null;
         oldPriorities = null;
     }
@@ -415,6 +516,10 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         return nodeContractor.getAddedShortcutsCount();
     }
 
+    public double getTotalTime() {
+        return allSW.getCurrentSeconds();
+    }
+
     public double getLazyTime() {
         return lazyUpdateSW.getCurrentSeconds();
     }
@@ -512,6 +617,14 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
          * @see #periodicUpdatesPercentage
          */
         private int logMessagesPercentage;
+        /**
+         * Specifies the number of threads that calculate the priorities of all remaining nodes in the beginning and
+         * during periodic updates. This is only used for edge-based CH and every thread needs its own memory for
+         * the witness path searches. Every thread starts with the current limits of the witness path searches of
+         * the node contractor and adjusts them independently during an update, so the priorities can depend on the
+         * number of threads.
+         */
+        private int priorityUpdateThreads = 1;
 
         static Params forTraversalMode(TraversalMode traversalMode) {
             if (traversalMode.isEdgeBased()) {
@@ -576,6 +689,16 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
             this.logMessagesPercentage = logMessagesPercentage;
         }
 
+        int getPriorityUpdateThreads() {
+            return priorityUpdateThreads;
+        }
+
+        void setPriorityUpdateThreads(int priorityUpdateThreads) {
+            if (priorityUpdateThreads < 1)
+                throw new IllegalArgumentException(PRIORITY_UPDATE_THREADS + " has to be positive but was " + priorityUpdateThreads);
+            this.priorityUpdateThreads = priorityUpdateThreads;
+        }
+
         private void checkPercentage(String name, int value) {
             if (value < 0 || value > 100) {
                 throw new IllegalArgumentException(name + " has to be in [0, 100], to disable it use 0");
@@ -58,6 +58,10 @@ import static java.lang.Double.isInfinite;
  * only stop this when it is guaranteed that no bridge-path exists. Here we limit the maximum number of settled
  * edges during the search and determine this maximum number based on the statistics we collected during previous
  * searches.
+ * <p>
+ * The searches used to calculate node priorities only need to estimate the number of required shortcuts. In
+ * estimation mode they are limited more aggressively, because missing a witness path only means that a shortcut is
+ * counted that would not be added when the node is contracted.
  *
  * @author easbar
  */
@@ -85,6 +89,9 @@ public class WitnessPathSearcher {
     private int numPathsToCenter;
     private int numSettledEdges;
     private int numPolledEdges;
+    private int settledEdgesLimit;
+    private boolean estimating;
+    private boolean estimationMode;
 
     // data structures used to build the shortest path tree
     // we allocate memory for all possible edge keys and keep track which ones have been discovered so far
@@ -128,6 +135,32 @@ public class WitnessPathSearcher {
         params.sigmaFactor = pMap.getDouble(SIGMA_FACTOR, params.sigmaFactor);
         params.minimumMaxSettledEdges = pMap.getInt(MIN_MAX_SETTLED_EDGES, params.minimumMaxSettledEdges);
         params.settledEdgeStatsResetInterval = pMap.getInt(SETTLED_EDGES_RESET_INTERVAL, params.settledEdgeStatsResetInterval);
+        params.estimationLimitFactor = pMap.getDouble(ESTIMATION_LIMIT_FACTOR, params.estimationLimitFactor);
+        if (params.estimationLimitFactor <= 0 || params.estimationLimitFactor > 1)
+            throw new IllegalArgumentException(ESTIMATION_LIMIT_FACTOR + " has to be in (0, 1] but was " + params.estimationLimitFactor);
+    }
+
+    /**
+     * Enables the estimation mode for the following searches, in which they settle at most the given fraction of the
+     * edges of a normal search, see {@link CHParameters#ESTIMATION_LIMIT_FACTOR}. Estimating searches are not used to
+     * adjust the limit of settled edges. If the factor is 1 the estimation mode has no effect, i.e. the searches are
+     * limited like normal searches and adjust the limit as well.
+     */
+    public void setEstimationMode(boolean estimationMode) {
+        this.estimationMode = estimationMode && params.estimationLimitFactor < 1;
+    }
+
+    /**
+     * Continues with the limit of settled edges of the given searcher, e.g. to calculate node priorities on another
+     * thread. The statistics of the previous searches of this searcher are dropped.
+     */
+    void copyMaxSettledEdges(WitnessPathSearcher searcher) {
+        maxSettledEdges = searcher.maxSettledEdges;
+        settledEdgesStats.reset();
+    }
+
+    int getMaxSettledEdges() {
+        return maxSettledEdges;
     }
 
     /**
@@ -145,6 +178,10 @@ public class WitnessPathSearcher {
         this.sourceEdge = sourceEdge;
         this.sourceNode = sourceNode;
         this.centerNode = centerNode;
+        estimating = estimationMode;
+        settledEdgesLimit = estimating
+                ? (int) (params.estimationLimitFactor * maxSettledEdges)
+                : maxSettledEdges;
         setInitialEntries(sourceNode, sourceEdge, centerNode);
         // if there is no entry that reaches the center node we won't need to search for any witnesses
         if (numPathsToCenter < 1) {
@@ -152,9 +189,9 @@ public class WitnessPathSearcher {
             return 0;
         }
         currentBatchStats.numSearches++;
-        currentBatchStats.maxNumSettledEdges += maxSettledEdges;
+        currentBatchStats.maxNumSettledEdges += settledEdgesLimit;
         totalStats.numSearches++;
-        totalStats.maxNumSettledEdges += maxSettledEdges;
+        totalStats.maxNumSettledEdges += settledEdgesLimit;
         return dijkstraHeap.getSize();
     }
 
@@ -219,7 +256,7 @@ public class WitnessPathSearcher {
             }
 
             // after a certain amount of edges has been settled we only expand entries that might yield a bridge-path
-            if (numSettledEdges > maxSettledEdges && !isPathToCenters[currKey]) {
+            if (numSettledEdges > settledEdgesLimit && !isPathToCenters[currKey]) {
                 continue;
             }
 
@@ -380,7 +417,9 @@ public class WitnessPathSearcher {
     }
 
     private void reset() {
-        updateMaxSettledEdges();
+        // the settled edges of estimating searches are limited and would lower the limit of the normal searches
+        if (!estimating)
+            updateMaxSettledEdges();
         numSettledEdges = 0;
         numPolledEdges = 0;
         numPathsToCenter = 0;
@@ -492,6 +531,10 @@ public class WitnessPathSearcher {
         private double sigmaFactor = 3.0;
         private int minimumMaxSettledEdges = 100;
         private int settledEdgeStatsResetInterval = 10_000;
+        /**
+         * The fraction of the maximum number of settled edges that the searches in estimation mode may settle.
+         */
+        private double estimationLimitFactor = 1;
     }
 
     static class Stats {
@@ -0,0 +1,92 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.template;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.routing.*;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.util.Parameters.Routing;
+import com.graphhopper.util.PathMerger;
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.Translation;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.graphhopper.util.Parameters.Algorithms.ONE_TO_MANY;
+
+/**
+ * Implementation of routes from the first point to every other point, resulting in one path list per destination.
+ *
+ * @see OneToManyCH
+ */
+final public class OneToManyRoutingTemplate extends ViaRoutingTemplate {
+    public OneToManyRoutingTemplate(GHRequest ghRequest, GHResponse ghRsp, LocationIndex locationIndex, EncodingManager encodingManager) {
+        super(ghRequest, ghRsp, locationIndex, encodingManager);
+    }
+
+    @Override
+    public List<Path> calcPaths(QueryGraph queryGraph, RoutingAlgorithmFactory algoFactory, AlgorithmOptions algoOpts) {
+        if (ghRequest.getHints().getBool(Routing.PASS_THROUGH, false))
+            throw new IllegalArgumentException("The " + ONE_TO_MANY + " algorithm and " + Routing.PASS_THROUGH + " at the same time is not supported");
+
+        StopWatch sw = new StopWatch().start();
+        RoutingAlgorithm algo = algoFactory.createAlgo(queryGraph, algoOpts);
+        if (!(algo instanceof OneToManyCH))
+            throw new IllegalArgumentException("The " + ONE_TO_MANY + " algorithm is only supported for node based CH");
+        altResponse.addDebugInfo("algoInit:" + sw.stop().getSeconds() + "s");
+
+        int[] toNodes = new int[queryResults.size() - 1];
+        for (int i = 1; i < queryResults.size(); i++) {
+            toNodes[i - 1] = queryResults.get(i).getClosestNode();
+        }
+        sw = new StopWatch().start();
+        pathList = ((OneToManyCH) algo).calcPaths(queryResults.get(0).getClosestNode(), toNodes);
+        altResponse.addDebugInfo(algo.getName() + "-routing:" + sw.stop().getSeconds() + "s");
+
+        if (algo.getVisitedNodes() >= algoOpts.getMaxVisitedNodes())
+            throw new IllegalArgumentException("No path found due to maximum nodes exceeded " + algoOpts.getMaxVisitedNodes());
+
+        ghResponse.getHints().put("visited_nodes.sum", algo.getVisitedNodes());
+        ghResponse.getHints().put("visited_nodes.average", (float) algo.getVisitedNodes() / toNodes.length);
+        return pathList;
+    }
+
+    @Override
+    public boolean isReady(PathMerger pathMerger, Translation tr) {
+        if (ghRequest.getPoints().size() - 1 != pathList.size())
+            throw new RuntimeException("There should be exactly one more points than paths. points:" + ghRequest.getPoints().size() + ", paths:" + pathList.size());
+
+        // every destination gets its own path list with the origin and the destination as waypoints
+        PointList waypoints = getWaypoints();
+        for (int index = 0; index < pathList.size(); index++) {
+            PathWrapper pathWrapper = index == 0 ? altResponse : new PathWrapper();
+            PointList wpList = new PointList(2, waypoints.is3D());
+            wpList.add(waypoints, 0);
+            wpList.add(waypoints, index + 1);
+            pathWrapper.setWaypoints(wpList);
+            ghResponse.add(pathWrapper);
+            pathMerger.doWork(pathWrapper, Collections.singletonList(pathList.get(index)), encodingManager, tr);
+        }
+        return true;
+    }
+}
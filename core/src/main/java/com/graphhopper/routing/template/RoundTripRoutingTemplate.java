@@ -26,10 +26,14 @@ import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.routing.util.tour.MultiPointTour;
+import com.graphhopper.routing.util.tour.TourPointFinder;
 import com.graphhopper.routing.util.tour.TourStrategy;
 import com.graphhopper.routing.weighting.AvoidEdgesWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.CancellationToken;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.Parameters;
 import com.graphhopper.util.Parameters.Algorithms;
@@ -51,11 +55,16 @@ import java.util.Random;
  * @author Peter Karich
  */
 public class RoundTripRoutingTemplate extends AbstractRoutingTemplate implements RoutingTemplate {
+    private static final int TOUR_MAX_VISITED_NODES = 50_000;
+    private static final double NETWORK_DISTANCE_TOLERANCE = 0.1;
     private final int maxRetries;
     private final GHRequest ghRequest;
     private final GHResponse ghResponse;
     private final LocationIndex locationIndex;
     private final EncodingManager encodingManager;
+    private Graph graph;
+    private Weighting weighting;
+    private CancellationToken cancellationToken;
     private PathWrapper altResponse;
     // result from route
     private List<Path> pathList;
@@ -68,6 +77,21 @@ public class RoundTripRoutingTemplate extends AbstractRoutingTemplate implements
         this.maxRetries = maxRetries;
     }
 
+    /**
+     * Specifies the graph to explore the roads around the start. The generated points are then placed on reachable
+     * nodes with the intended network distance from the start and the distances between them are scaled so that the
+     * tour has roughly the requested length. Without a graph the points are placed by their air-line distance.
+     *
+     * @param weighting         the weighting of the request that is used to explore the roads
+     * @param cancellationToken the token of the request that also cancels the exploration, can be null
+     */
+    public RoundTripRoutingTemplate setGraph(Graph graph, Weighting weighting, CancellationToken cancellationToken) {
+        this.graph = graph;
+        this.weighting = weighting;
+        this.cancellationToken = cancellationToken;
+        return this;
+    }
+
     @Override
     public List<QueryResult> lookup(List<GHPoint> points, FlagEncoder encoder) {
         if (points.size() != 1 || ghRequest.getPoints().size() != 1)
@@ -81,16 +105,51 @@ public class RoundTripRoutingTemplate extends AbstractRoutingTemplate implements
         TourStrategy strategy = new MultiPointTour(new Random(seed), distanceInMeter, roundTripPointCount, initialHeading);
         queryResults = new ArrayList<>(2 + strategy.getNumberOfGeneratedPoints());
         EdgeFilter edgeFilter = DefaultEdgeFilter.allEdges(encoder);
-        QueryResult startQR = locationIndex.findClosest(start.lat, start.lon, edgeFilter);
+        LocationIndex.Snapper snapper = locationIndex.createSnapper();
+        QueryResult startQR = snapper.findClosest(start.lat, start.lon, edgeFilter);
         if (!startQR.isValid())
             throw new PointNotFoundException("Cannot find point 0: " + start, 0);
 
         queryResults.add(startQR);
 
+        int pointCount = strategy.getNumberOfGeneratedPoints();
+        double[] distances = new double[pointCount];
+        double[] headings = new double[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            distances[i] = strategy.getDistanceForIteration(i);
+            headings[i] = strategy.getHeadingForIteration(i);
+        }
+        TourPointFinder finder = null;
+        if (graph != null) {
+            // a point of a round trip is at most half of the distance away from the start
+            finder = TourPointFinder.explore(graph, weighting, cancellationToken, startQR.getClosestNode(),
+                    distanceInMeter / 2 * (1 + NETWORK_DISTANCE_TOLERANCE), TOUR_MAX_VISITED_NODES);
+            if (finder != null) {
+                double scale = distanceInMeter / estimateDistance(start, distances, headings, finder);
+                for (int i = 0; i < pointCount; i++) {
+                    distances[i] *= scale;
+                }
+            }
+        }
+
         GHPoint last = start;
-        for (int i = 0; i < strategy.getNumberOfGeneratedPoints(); i++) {
-            double heading = strategy.getHeadingForIteration(i);
-            QueryResult result = generateValidPoint(last, strategy.getDistanceForIteration(i), heading, edgeFilter);
+        for (int i = 0; i < pointCount; i++) {
+            QueryResult result = null;
+            if (finder != null) {
+                // prefer a reachable node with the intended network distance from the start
+                GHPoint point = Helper.DIST_EARTH.projectCoordinate(last.getLat(), last.getLon(), distances[i], headings[i]);
+                double heading = Helper.ANGLE_CALC.calcAzimuth(start.getLat(), start.getLon(), point.getLat(), point.getLon());
+                double networkDistance = Helper.DIST_EARTH.calcDist(start.getLat(), start.getLon(), point.getLat(), point.getLon())
+                        * finder.getDetourFactor(heading);
+                int node = finder.findNode(point.getLat(), point.getLon(), networkDistance, NETWORK_DISTANCE_TOLERANCE);
+                if (node >= 0) {
+                    result = snapper.findClosest(graph.getNodeAccess().getLatitude(node), graph.getNodeAccess().getLongitude(node), edgeFilter);
+                    if (!result.isValid())
+                        result = null;
+                }
+            }
+            if (result == null)
+                result = generateValidPoint(snapper, last, distances[i], headings[i], edgeFilter);
             if (result == null) {
                 ghResponse.addError(new IllegalStateException("Could not find a valid point after " + maxRetries + " tries, for the point:" + last));
                 return Collections.emptyList();
@@ -103,6 +162,25 @@ public class RoundTripRoutingTemplate extends AbstractRoutingTemplate implements
         return queryResults;
     }
 
+    /**
+     * Estimates the network distance of the tour from the air-line distances of its legs, including the leg back to
+     * the start, and the detour factors in their direction.
+     */
+    static double estimateDistance(GHPoint start, double[] distances, double[] headings, TourPointFinder finder) {
+        double distance = 0;
+        GHPoint last = start;
+        for (int i = 0; i <= distances.length; i++) {
+            GHPoint next = i < distances.length
+                    ? Helper.DIST_EARTH.projectCoordinate(last.getLat(), last.getLon(), distances[i], headings[i])
+                    : start;
+            double heading = Helper.ANGLE_CALC.calcAzimuth(last.getLat(), last.getLon(), next.getLat(), next.getLon());
+            distance += Helper.DIST_EARTH.calcDist(last.getLat(), last.getLon(), next.getLat(), next.getLon())
+                    * finder.getDetourFactor(heading);
+            last = next;
+        }
+        return distance;
+    }
+
     void setQueryResults(List<QueryResult> queryResults) {
         this.queryResults = queryResults;
     }
@@ -159,12 +237,12 @@ public class RoundTripRoutingTemplate extends AbstractRoutingTemplate implements
         return true;
     }
 
-    private QueryResult generateValidPoint(GHPoint from, double distanceInMeters, double heading,
+    private QueryResult generateValidPoint(LocationIndex.Snapper snapper, GHPoint from, double distanceInMeters, double heading,
                                            EdgeFilter edgeFilter) {
         int tryCount = 0;
         while (true) {
             GHPoint generatedPoint = Helper.DIST_EARTH.projectCoordinate(from.getLat(), from.getLon(), distanceInMeters, heading);
-            QueryResult qr = locationIndex.findClosest(generatedPoint.getLat(), generatedPoint.getLon(), edgeFilter);
+            QueryResult qr = snapper.findClosest(generatedPoint.getLat(), generatedPoint.getLon(), edgeFilter);
             if (qr.isValid())
                 return qr;
 
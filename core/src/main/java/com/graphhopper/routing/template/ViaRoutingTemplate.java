@@ -24,8 +24,11 @@ import com.graphhopper.routing.*;
 import com.graphhopper.routing.profiles.RoadClass;
 import com.graphhopper.routing.profiles.RoadEnvironment;
 import com.graphhopper.routing.util.*;
+import com.graphhopper.storage.EdgeFlagOverlay;
+import com.graphhopper.storage.GraphHopperStorage;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.CancellationToken;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.Parameters.Routing;
 import com.graphhopper.util.PathMerger;
@@ -36,6 +39,7 @@ import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.*;
 
 /**
  * Implementation of calculating a route with multiple via points.
@@ -50,6 +54,8 @@ public class ViaRoutingTemplate extends AbstractRoutingTemplate implements Routi
     protected final EncodingManager encodingManager;
     // result from route
     protected List<Path> pathList;
+    private ExecutorService legExecutor;
+    private GraphHopperStorage graph;
 
     public ViaRoutingTemplate(GHRequest ghRequest, GHResponse ghRsp, LocationIndex locationIndex, EncodingManager encodingManager) {
         this.locationIndex = locationIndex;
@@ -58,6 +64,18 @@ public class ViaRoutingTemplate extends AbstractRoutingTemplate implements Routi
         this.encodingManager = encodingManager;
     }
 
+    /**
+     * Calculates the legs concurrently on the specified executor. Legs with a heading use their own view of the
+     * QueryGraph. Requests with pass_through are still calculated sequentially as every leg depends on the previous.
+     * The threads of the executor pin the version of the changed edge flags of the specified graph that the request
+     * thread pinned.
+     */
+    public ViaRoutingTemplate setLegExecutor(ExecutorService legExecutor, GraphHopperStorage graph) {
+        this.legExecutor = legExecutor;
+        this.graph = graph;
+        return this;
+    }
+
     @Override
     public List<QueryResult> lookup(List<GHPoint> points, FlagEncoder encoder) {
         if (points.size() < 2)
@@ -67,16 +85,17 @@ public class ViaRoutingTemplate extends AbstractRoutingTemplate implements Routi
         EdgeFilter strictEdgeFilter = !ghRequest.hasSnapPreventions() ? edgeFilter : new SnapPreventionEdgeFilter(edgeFilter,
                 encoder.getEnumEncodedValue(RoadClass.KEY, RoadClass.class),
                 encoder.getEnumEncodedValue(RoadEnvironment.KEY, RoadEnvironment.class), ghRequest.getSnapPreventions());
+        LocationIndex.Snapper snapper = locationIndex.createSnapper();
         queryResults = new ArrayList<>(points.size());
         for (int placeIndex = 0; placeIndex < points.size(); placeIndex++) {
             GHPoint point = points.get(placeIndex);
             QueryResult qr = null;
             if (ghRequest.hasPointHints())
-                qr = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictEdgeFilter, ghRequest.getPointHints().get(placeIndex)));
+                qr = snapper.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictEdgeFilter, ghRequest.getPointHints().get(placeIndex)));
             else if (ghRequest.hasSnapPreventions())
-                qr = locationIndex.findClosest(point.lat, point.lon, strictEdgeFilter);
+                qr = snapper.findClosest(point.lat, point.lon, strictEdgeFilter);
             if (qr == null || !qr.isValid())
-                qr = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
+                qr = snapper.findClosest(point.lat, point.lon, edgeFilter);
             if (!qr.isValid())
                 ghResponse.addError(new PointNotFoundException("Cannot find point " + placeIndex + ": " + point, placeIndex));
 
@@ -92,65 +111,148 @@ public class ViaRoutingTemplate extends AbstractRoutingTemplate implements Routi
         boolean viaTurnPenalty = ghRequest.getHints().getBool(Routing.PASS_THROUGH, false);
         int pointCounts = ghRequest.getPoints().size();
         pathList = new ArrayList<>(pointCounts - 1);
-        QueryResult fromQResult = queryResults.get(0);
-        StopWatch sw;
-        for (int placeIndex = 1; placeIndex < pointCounts; placeIndex++) {
-            if (placeIndex == 1) {
-                // enforce start direction
-                queryGraph.enforceHeading(fromQResult.getClosestNode(), ghRequest.getFavoredHeading(0), false);
-            } else if (viaTurnPenalty) {
-                // enforce straight start after via stop
-                Path prevRoute = pathList.get(placeIndex - 2);
-                if (prevRoute.getEdgeCount() > 0) {
-                    EdgeIteratorState incomingVirtualEdge = prevRoute.getFinalEdge();
-                    queryGraph.unfavorVirtualEdgePair(fromQResult.getClosestNode(), incomingVirtualEdge.getEdge());
-                }
+        if (legExecutor != null && pointCounts > 2 && !viaTurnPenalty) {
+            for (Leg leg : calcLegsConcurrently(queryGraph, algoFactory, algoOpts)) {
+                pathList.addAll(leg.paths);
+                altResponse.addDebugInfo(leg.debug);
+                visitedNodesSum += leg.visitedNodes;
+                altResponse.addDebugInfo("visited nodes sum: " + visitedNodesSum);
             }
+        } else {
+            QueryResult fromQResult = queryResults.get(0);
+            for (int placeIndex = 1; placeIndex < pointCounts; placeIndex++) {
+                if (placeIndex == 1) {
+                    // enforce start direction
+                    queryGraph.enforceHeading(fromQResult.getClosestNode(), ghRequest.getFavoredHeading(0), false);
+                } else if (viaTurnPenalty) {
+                    // enforce straight start after via stop
+                    Path prevRoute = pathList.get(placeIndex - 2);
+                    if (prevRoute.getEdgeCount() > 0) {
+                        EdgeIteratorState incomingVirtualEdge = prevRoute.getFinalEdge();
+                        queryGraph.unfavorVirtualEdgePair(fromQResult.getClosestNode(), incomingVirtualEdge.getEdge());
+                    }
+                }
 
-            QueryResult toQResult = queryResults.get(placeIndex);
+                QueryResult toQResult = queryResults.get(placeIndex);
 
-            // enforce end direction
-            queryGraph.enforceHeading(toQResult.getClosestNode(), ghRequest.getFavoredHeading(placeIndex), true);
+                // enforce end direction
+                queryGraph.enforceHeading(toQResult.getClosestNode(), ghRequest.getFavoredHeading(placeIndex), true);
 
-            sw = new StopWatch().start();
-            RoutingAlgorithm algo = algoFactory.createAlgo(queryGraph, algoOpts);
-            String debug = ", algoInit:" + sw.stop().getSeconds() + "s";
+                Leg leg = calcLeg(queryGraph, algoFactory, algoOpts, fromQResult, toQResult);
+                pathList.addAll(leg.paths);
+                altResponse.addDebugInfo(leg.debug);
 
-            sw = new StopWatch().start();
+                // reset all direction enforcements in queryGraph to avoid influencing next path
+                queryGraph.clearUnfavoredStatus();
+
+                visitedNodesSum += leg.visitedNodes;
+                altResponse.addDebugInfo("visited nodes sum: " + visitedNodesSum);
+                fromQResult = toQResult;
+            }
+        }
 
-            // calculate paths
-            List<Path> tmpPathList = algo.calcPaths(fromQResult.getClosestNode(), toQResult.getClosestNode());
-            debug += ", " + algo.getName() + "-routing:" + sw.stop().getSeconds() + "s";
-            if (tmpPathList.isEmpty())
-                throw new IllegalStateException("At least one path has to be returned for " + fromQResult + " -> " + toQResult);
+        ghResponse.getHints().put("visited_nodes.sum", visitedNodesSum);
+        ghResponse.getHints().put("visited_nodes.average", (float) visitedNodesSum / (pointCounts - 1));
 
-            int idx = 0;
-            for (Path path : tmpPathList) {
-                if (path.getTime() < 0)
-                    throw new RuntimeException("Time was negative " + path.getTime() + " for index " + idx + ". Please report as bug and include:" + ghRequest);
+        return pathList;
+    }
 
-                pathList.add(path);
-                debug += ", " + path.getDebugInfo();
-                idx++;
-            }
+    /**
+     * Calculates one leg with its own algorithm instance. This method does not modify the QueryGraph and can be
+     * called concurrently.
+     */
+    private Leg calcLeg(QueryGraph queryGraph, RoutingAlgorithmFactory algoFactory, AlgorithmOptions algoOpts,
+                        QueryResult fromQResult, QueryResult toQResult) {
+        StopWatch sw = new StopWatch().start();
+        RoutingAlgorithm algo = algoFactory.createAlgo(queryGraph, algoOpts);
+        String debug = ", algoInit:" + sw.stop().getSeconds() + "s";
 
-            altResponse.addDebugInfo(debug);
+        sw = new StopWatch().start();
 
-            // reset all direction enforcements in queryGraph to avoid influencing next path
-            queryGraph.clearUnfavoredStatus();
+        // calculate paths
+        List<Path> tmpPathList = algo.calcPaths(fromQResult.getClosestNode(), toQResult.getClosestNode());
+        debug += ", " + algo.getName() + "-routing:" + sw.stop().getSeconds() + "s";
+        if (tmpPathList.isEmpty())
+            throw new IllegalStateException("At least one path has to be returned for " + fromQResult + " -> " + toQResult);
 
-            if (algo.getVisitedNodes() >= algoOpts.getMaxVisitedNodes())
-                throw new IllegalArgumentException("No path found due to maximum nodes exceeded " + algoOpts.getMaxVisitedNodes());
+        int idx = 0;
+        for (Path path : tmpPathList) {
+            if (path.getTime() < 0)
+                throw new RuntimeException("Time was negative " + path.getTime() + " for index " + idx + ". Please report as bug and include:" + ghRequest);
 
-            visitedNodesSum += algo.getVisitedNodes();
-            altResponse.addDebugInfo("visited nodes sum: " + visitedNodesSum);
-            fromQResult = toQResult;
+            debug += ", " + path.getDebugInfo();
+            idx++;
         }
 
-        ghResponse.getHints().put("visited_nodes.sum", visitedNodesSum);
-        ghResponse.getHints().put("visited_nodes.average", (float) visitedNodesSum / (pointCounts - 1));
+        if (algo.getVisitedNodes() >= algoOpts.getMaxVisitedNodes())
+            throw new IllegalArgumentException("No path found due to maximum nodes exceeded " + algoOpts.getMaxVisitedNodes());
 
-        return pathList;
+        return new Leg(tmpPathList, debug, algo.getVisitedNodes());
+    }
+
+    private List<Leg> calcLegsConcurrently(final QueryGraph queryGraph, final RoutingAlgorithmFactory algoFactory,
+                                           AlgorithmOptions requestOpts) {
+        // if one leg fails the legs that are still calculated on other threads are stopped via this token
+        CancellationToken legsToken = new CancellationToken(requestOpts.getCancellationToken(), 0);
+        final AlgorithmOptions algoOpts = AlgorithmOptions.start(requestOpts).cancellationToken(legsToken).build();
+        List<FutureTask<Leg>> tasks = new ArrayList<>(queryResults.size() - 1);
+        final EdgeFlagOverlay flagOverlay = graph.getEdgeFlagOverlay();
+        for (int placeIndex = 1; placeIndex < queryResults.size(); placeIndex++) {
+            final QueryResult fromQResult = queryResults.get(placeIndex - 1);
+            final QueryResult toQResult = queryResults.get(placeIndex);
+            final double startHeading = placeIndex == 1 ? ghRequest.getFavoredHeading(0) : Double.NaN;
+            final double endHeading = ghRequest.getFavoredHeading(placeIndex);
+            FutureTask<Leg> task = new FutureTask<>(new Callable<Leg>() {
+                @Override
+                public Leg call() {
+                    // all legs have to read the same flags as the request thread
+                    EdgeFlagOverlay previous = graph.pinEdgeFlagOverlay(flagOverlay);
+                    try {
+                        QueryGraph legGraph = queryGraph;
+                        if (!Double.isNaN(startHeading) || !Double.isNaN(endHeading)) {
+                            // the unfavored edges must not influence the other legs
+                            legGraph = queryGraph.createView();
+                            legGraph.enforceHeading(fromQResult.getClosestNode(), startHeading, false);
+                            legGraph.enforceHeading(toQResult.getClosestNode(), endHeading, true);
+                        }
+                        return calcLeg(legGraph, algoFactory, algoOpts, fromQResult, toQResult);
+                    } finally {
+                        graph.pinEdgeFlagOverlay(previous);
+                    }
+                }
+            });
+            tasks.add(task);
+            try {
+                legExecutor.execute(task);
+            } catch (RejectedExecutionException ex) {
+                // the leg is calculated on the request thread below
+            }
+        }
+
+        List<Leg> legs = new ArrayList<>(tasks.size());
+        try {
+            for (FutureTask<Leg> task : tasks) {
+                // calculates the leg on the request thread if no thread of the executor started it yet, so a busy
+                // executor never makes a request slower than the sequential calculation
+                task.run();
+                legs.add(task.get());
+            }
+            return legs;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while calculating the legs", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            if (ex.getCause() instanceof Error)
+                throw (Error) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            legsToken.cancel();
+            for (FutureTask<Leg> task : tasks) {
+                task.cancel(false);
+            }
+        }
     }
 
     @Override
@@ -168,4 +270,16 @@ public class ViaRoutingTemplate extends AbstractRoutingTemplate implements Routi
     public int getMaxRetries() {
         return 1;
     }
+
+    private static class Leg {
+        final List<Path> paths;
+        final String debug;
+        final int visitedNodes;
+
+        Leg(List<Path> paths, String debug, int visitedNodes) {
+            this.paths = paths;
+            this.debug = debug;
+            this.visitedNodes = visitedNodes;
+        }
+    }
 }
@@ -0,0 +1,224 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.util;
+
+import com.carrotsearch.hppc.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Describes the search space of the algorithms of one route request to diagnose slow queries. For every algorithm
+ * run a {@link Search} records the settled nodes per direction and samples the size of the heaps. If the trace is
+ * timed the time spent in the weighting and in the weight approximator is measured too, the remaining time of the
+ * algorithm is spent to iterate the edges and to update the heaps.
+ *
+ * @see SearchTraceRecorder
+ */
+public class SearchTrace {
+    static final int MAX_HEAP_SAMPLES = 64;
+
+    private final long timestamp = System.currentTimeMillis();
+    private final String request;
+    private final boolean timed;
+    private final List<Search> searches = new ArrayList<>();
+    private final AtomicLong weightingNanos = new AtomicLong();
+    private final AtomicLong approximatorNanos = new AtomicLong();
+    private long lookupMicros;
+    private long algorithmMicros;
+    private long pathExtractionMicros;
+    private long tookMillis;
+    private String errors = "";
+
+    public SearchTrace(String request, boolean timed) {
+        this.request = request;
+        this.timed = timed;
+    }
+
+    /**
+     * Creates the trace for a new algorithm run. Algorithms of different legs can run concurrently.
+     */
+    public Search startSearch(String algorithm) {
+        Search search = new Search(algorithm);
+        synchronized (searches) {
+            searches.add(search);
+        }
+        return search;
+    }
+
+    public void addWeightingTime(long nanos) {
+        weightingNanos.addAndGet(nanos);
+    }
+
+    public void addApproximatorTime(long nanos) {
+        approximatorNanos.addAndGet(nanos);
+    }
+
+    public void setTimes(long lookupMicros, long algorithmMicros, long pathExtractionMicros) {
+        this.lookupMicros = lookupMicros;
+        this.algorithmMicros = algorithmMicros;
+        this.pathExtractionMicros = pathExtractionMicros;
+    }
+
+    void finish(long tookMillis, String errors) {
+        this.tookMillis = tookMillis;
+        this.errors = errors;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getRequest() {
+        return request;
+    }
+
+    /**
+     * @return true if the time spent in the weighting and the approximator was measured for this request
+     */
+    public boolean isTimed() {
+        return timed;
+    }
+
+    public long getTookMillis() {
+        return tookMillis;
+    }
+
+    public String getErrors() {
+        return errors;
+    }
+
+    public long getLookupMicros() {
+        return lookupMicros;
+    }
+
+    /**
+     * @return the time spent in the algorithms without the path extraction. For concurrently calculated legs this is
+     * the elapsed time and not the sum of the legs.
+     */
+    public long getAlgorithmMicros() {
+        return algorithmMicros;
+    }
+
+    public long getPathExtractionMicros() {
+        return pathExtractionMicros;
+    }
+
+    public long getWeightingMicros() {
+        return weightingNanos.get() / 1000;
+    }
+
+    public long getApproximatorMicros() {
+        return approximatorNanos.get() / 1000;
+    }
+
+    public List<Search> getSearches() {
+        synchronized (searches) {
+            return new ArrayList<>(searches);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return request + ", took:" + tookMillis + "ms, searches:" + getSearches();
+    }
+
+    /**
+     * The search space of a single algorithm run. The heap sizes are sampled at regular intervals of settled nodes
+     * and the interval is doubled whenever MAX_HEAP_SAMPLES are reached, so the samples always cover the whole
+     * search with a constant amount of memory.
+     */
+    public static class Search {
+        private final String algorithm;
+        private final IntArrayList heapSizesFrom = new IntArrayList(MAX_HEAP_SAMPLES);
+        private final IntArrayList heapSizesTo = new IntArrayList(MAX_HEAP_SAMPLES);
+        private int settledFrom;
+        private int settledTo;
+        private int heapSizeFrom;
+        private int heapSizeTo;
+        private int sampleInterval = 1;
+
+        Search(String algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        /**
+         * Called by the algorithm for every node taken from the heap of the forward or the reverse search.
+         */
+        public void onSettled(boolean reverse, int heapSize) {
+            if (reverse) {
+                settledTo++;
+                heapSizeTo = heapSize;
+            } else {
+                settledFrom++;
+                heapSizeFrom = heapSize;
+            }
+            int settled = settledFrom + settledTo;
+            if (settled % sampleInterval != 0)
+                return;
+
+            if (heapSizesFrom.size() == MAX_HEAP_SAMPLES) {
+                // keep the samples at the even multiples of the interval
+                for (int i = 0; i < MAX_HEAP_SAMPLES / 2; i++) {
+                    heapSizesFrom.set(i, heapSizesFrom.get(2 * i + 1));
+                    heapSizesTo.set(i, heapSizesTo.get(2 * i + 1));
+                }
+                heapSizesFrom.elementsCount = MAX_HEAP_SAMPLES / 2;
+                heapSizesTo.elementsCount = MAX_HEAP_SAMPLES / 2;
+                sampleInterval *= 2;
+                if (settled % sampleInterval != 0)
+                    return;
+            }
+            heapSizesFrom.add(heapSizeFrom);
+            heapSizesTo.add(heapSizeTo);
+        }
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        public int getSettledFrom() {
+            return settledFrom;
+        }
+
+        public int getSettledTo() {
+            return settledTo;
+        }
+
+        /**
+         * @return the number of settled nodes of both directions between two heap size samples
+         */
+        public int getSampleInterval() {
+            return sampleInterval;
+        }
+
+        public int[] getHeapSizesFrom() {
+            return heapSizesFrom.toArray();
+        }
+
+        public int[] getHeapSizesTo() {
+            return heapSizesTo.toArray();
+        }
+
+        @Override
+        public String toString() {
+            return algorithm + ", settled:" + settledFrom + "/" + settledTo;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.util;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps the traces of the last sampled or slow route requests in a ring buffer of a fixed capacity. Sampled
+ * requests are timed in detail, which adds two calls of System.nanoTime for every calculated edge weight. All other
+ * requests are traced without timing if a slow threshold is set, and their trace is only kept if the request took
+ * at least this threshold.
+ */
+public class SearchTraceRecorder {
+    private final SearchTrace[] traces;
+    private final double sampleRate;
+    private final long slowThresholdMillis;
+    private int next;
+    private int size;
+
+    /**
+     * @param capacity            the number of traces that are kept
+     * @param sampleRate          the fraction of the requests that are traced with timing, 0 disables sampling
+     * @param slowThresholdMillis requests that took at least this are kept, a negative value disables it
+     */
+    public SearchTraceRecorder(int capacity, double sampleRate, long slowThresholdMillis) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("The capacity of the search traces has to be positive but was " + capacity);
+        if (sampleRate < 0 || sampleRate > 1)
+            throw new IllegalArgumentException("The sample rate has to be in [0, 1] but was " + sampleRate);
+        this.traces = new SearchTrace[capacity];
+        this.sampleRate = sampleRate;
+        this.slowThresholdMillis = slowThresholdMillis;
+    }
+
+    /**
+     * @return the trace for the specified request or null if it should not be traced
+     */
+    public SearchTrace start(GHRequest request) {
+        boolean sampled = sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+        if (!sampled && slowThresholdMillis < 0)
+            return null;
+        return new SearchTrace(request.toString(), sampled);
+    }
+
+    public void finish(SearchTrace trace, GHResponse response, long tookMillis) {
+        trace.finish(tookMillis, response.hasErrors() ? response.getErrors().toString() : "");
+        if (trace.isTimed() || slowThresholdMillis >= 0 && tookMillis >= slowThresholdMillis)
+            add(trace);
+    }
+
+    private synchronized void add(SearchTrace trace) {
+        traces[next] = trace;
+        next = (next + 1) % traces.length;
+        size = Math.min(size + 1, traces.length);
+    }
+
+    /**
+     * @return the kept traces, the newest first
+     */
+    public synchronized List<SearchTrace> getTraces() {
+        List<SearchTrace> list = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            list.add(traces[(next - i + traces.length) % traces.length]);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.util.tour;
+
+import com.carrotsearch.hppc.IntDoubleHashMap;
+import com.carrotsearch.hppc.cursors.ObjectCursor;
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.util.CancellationToken;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.Helper;
+
+/**
+ * Finds the points of a tour in a shortest path tree from the start, so that the points are reachable and have
+ * the intended network distance from the start. The tree also provides the ratio of the network distance to the
+ * air-line distance per heading sector, which is used to place the points so that the tour length matches the
+ * requested distance, independent of how direct the roads around the start are.
+ */
+public class TourPointFinder {
+    private static final int SECTORS = 8;
+    // sectors with less nodes use the factor of all sectors
+    private static final int MIN_SAMPLES = 10;
+    private final NodeAccess nodeAccess;
+    private final PathTree tree;
+    private final double[] factors;
+
+    private TourPointFinder(NodeAccess nodeAccess, PathTree tree, double[] factors) {
+        this.nodeAccess = nodeAccess;
+        this.tree = tree;
+        this.factors = factors;
+    }
+
+    /**
+     * Explores the roads from the start node up to maxDistance or maxVisitedNodes.
+     *
+     * @param weighting         the weighting of the tour, so that the tree contains the paths of the tour
+     * @param cancellationToken the token of the request or null
+     * @return the finder or null if not enough nodes were reached
+     */
+    public static TourPointFinder explore(Graph graph, Weighting weighting, CancellationToken cancellationToken,
+                                          int startNode, double maxDistance, int maxVisitedNodes) {
+        PathTree tree = new PathTree(graph, weighting, maxDistance);
+        tree.setMaxVisitedNodes(maxVisitedNodes);
+        tree.setCancellationToken(cancellationToken);
+        tree.calcPath(startNode, -1);
+
+        // nodes close to the start are dominated by the local street layout and the snapping
+        double minDistance = 0.25 * tree.getMaxDistance();
+        NodeAccess na = graph.getNodeAccess();
+        double startLat = na.getLatitude(startNode), startLon = na.getLongitude(startNode);
+        double[] networkSums = new double[SECTORS + 1], beelineSums = new double[SECTORS + 1];
+        int[] counts = new int[SECTORS + 1];
+        for (ObjectCursor<SPTEntry> cursor : tree.getEntries()) {
+            SPTEntry entry = cursor.value;
+            double distance = tree.getDistance(entry);
+            if (distance < minDistance)
+                continue;
+
+            double lat = na.getLatitude(entry.adjNode), lon = na.getLongitude(entry.adjNode);
+            double beeline = Helper.DIST_EARTH.calcDist(startLat, startLon, lat, lon);
+            if (beeline <= 0)
+                continue;
+
+            int sector = getSector(Helper.ANGLE_CALC.calcAzimuth(startLat, startLon, lat, lon));
+            networkSums[sector] += distance;
+            beelineSums[sector] += beeline;
+            counts[sector]++;
+            networkSums[SECTORS] += distance;
+            beelineSums[SECTORS] += beeline;
+            counts[SECTORS]++;
+        }
+        if (counts[SECTORS] < MIN_SAMPLES)
+            return null;
+
+        double[] factors = new double[SECTORS];
+        double allFactor = Math.max(1, networkSums[SECTORS] / beelineSums[SECTORS]);
+        for (int sector = 0; sector < SECTORS; sector++) {
+            factors[sector] = counts[sector] < MIN_SAMPLES ? allFactor : Math.max(1, networkSums[sector] / beelineSums[sector]);
+        }
+        return new TourPointFinder(na, tree, factors);
+    }
+
+    private static int getSector(double heading) {
+        return ((int) (heading * SECTORS / 360) % SECTORS + SECTORS) % SECTORS;
+    }
+
+    /**
+     * @param heading the north based heading in degree
+     * @return the ratio of the network distance to the air-line distance, at least 1
+     */
+    public double getDetourFactor(double heading) {
+        return factors[getSector(heading)];
+    }
+
+    /**
+     * @param networkDistance the intended network distance from the start
+     * @param tolerance       the accepted relative deviation from the network distance
+     * @return the node of the tree closest to the specified point whose network distance from the start is within
+     * the tolerance or -1 if there is no such node
+     */
+    public int findNode(double lat, double lon, double networkDistance, double tolerance) {
+        double minDistance = networkDistance * (1 - tolerance), maxDistance = networkDistance * (1 + tolerance);
+        int bestNode = -1;
+        double bestDist = Double.MAX_VALUE;
+        for (ObjectCursor<SPTEntry> cursor : tree.getEntries()) {
+            SPTEntry entry = cursor.value;
+            double distance = tree.getDistance(entry);
+            if (distance < minDistance || distance > maxDistance)
+                continue;
+
+            double normedDist = Helper.DIST_PLANE.calcNormalizedDist(lat, lon,
+                    nodeAccess.getLatitude(entry.adjNode), nodeAccess.getLongitude(entry.adjNode));
+            if (normedDist < bestDist) {
+                bestDist = normedDist;
+                bestNode = entry.adjNode;
+            }
+        }
+        return bestNode;
+    }
+
+    /**
+     * A shortest path tree of the weighting of the tour that records the distance of every node, as the legs of the
+     * tour are calculated with the same weighting.
+     */
+    private static class PathTree extends Dijkstra {
+        private final double maxDistance;
+        private final IntDoubleHashMap distances = new IntDoubleHashMap();
+
+        PathTree(Graph graph, Weighting weighting, double maxDistance) {
+            super(graph, weighting, TraversalMode.NODE_BASED);
+            this.maxDistance = maxDistance;
+            setEdgeFilter(DefaultEdgeFilter.outEdges(weighting.getFlagEncoder()));
+        }
+
+        @Override
+        protected boolean finished() {
+            return getDistance(currEdge) >= maxDistance;
+        }
+
+        @Override
+        protected void updateBestPath(EdgeIteratorState edgeState, SPTEntry bestSPTEntry, int traversalId) {
+            distances.put(traversalId, getDistance(bestSPTEntry.parent) + edgeState.getDistance());
+        }
+
+        double getDistance(SPTEntry entry) {
+            return distances.getOrDefault(entry.adjNode, 0);
+        }
+
+        double getMaxDistance() {
+            return currEdge == null ? 0 : getDistance(currEdge);
+        }
+
+        Iterable<ObjectCursor<SPTEntry>> getEntries() {
+            return fromMap.values();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.routing.util.SearchTrace;
+
+/**
+ * Measures the time spent in the wrapped WeightApproximator, e.g. the BeelineWeightApproximator or the
+ * LMApproximator, for a SearchTrace.
+ */
+public class TracingWeightApproximator implements WeightApproximator {
+    private final WeightApproximator approximator;
+    private final SearchTrace trace;
+
+    public TracingWeightApproximator(WeightApproximator approximator, SearchTrace trace) {
+        this.approximator = approximator;
+        this.trace = trace;
+    }
+
+    @Override
+    public double approximate(int currentNode) {
+        long start = System.nanoTime();
+        double weight = approximator.approximate(currentNode);
+        trace.addApproximatorTime(System.nanoTime() - start);
+        return weight;
+    }
+
+    @Override
+    public void setTo(int to) {
+        approximator.setTo(to);
+    }
+
+    @Override
+    public WeightApproximator reverse() {
+        return new TracingWeightApproximator(approximator.reverse(), trace);
+    }
+
+    @Override
+    public String toString() {
+        return approximator.toString();
+    }
+}
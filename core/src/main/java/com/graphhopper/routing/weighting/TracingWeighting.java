@@ -0,0 +1,62 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.routing.util.HintsMap;
+import com.graphhopper.routing.util.SearchTrace;
+import com.graphhopper.util.EdgeIteratorState;
+
+/**
+ * Measures the time spent to calculate the edge weights of the wrapped weighting for a SearchTrace.
+ */
+public class TracingWeighting extends AbstractAdjustedWeighting {
+    private final SearchTrace trace;
+
+    public TracingWeighting(Weighting superWeighting, SearchTrace trace) {
+        super(superWeighting);
+        this.trace = trace;
+    }
+
+    @Override
+    public double getMinWeight(double distance) {
+        return superWeighting.getMinWeight(distance);
+    }
+
+    @Override
+    public double calcWeight(EdgeIteratorState edgeState, boolean reverse, int prevOrNextEdgeId) {
+        long start = System.nanoTime();
+        double weight = superWeighting.calcWeight(edgeState, reverse, prevOrNextEdgeId);
+        trace.addWeightingTime(System.nanoTime() - start);
+        return weight;
+    }
+
+    @Override
+    public boolean matches(HintsMap reqMap) {
+        return superWeighting.matches(reqMap);
+    }
+
+    @Override
+    public String getName() {
+        return superWeighting.getName();
+    }
+
+    @Override
+    public String toString() {
+        return superWeighting.toString();
+    }
+}
@@ -17,8 +17,11 @@
  */
 package com.graphhopper.storage;
 
+import com.carrotsearch.hppc.IntObjectMap;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
 import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.coll.GHBitSetImpl;
+import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.coll.SparseIntIntArray;
 import com.graphhopper.routing.profiles.*;
 import com.graphhopper.routing.util.AllEdgesIterator;
@@ -29,7 +32,9 @@ import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
 import org.slf4j.LoggerFactory;
 
+import java.util.IdentityHashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import static com.graphhopper.util.EdgeIteratorState.REVERSE_STATE;
 import static com.graphhopper.util.Helper.nf;
@@ -92,6 +97,12 @@ class BaseGraph implements Graph {
     private int edgeEntryIndex, nodeEntryIndex;
     private long maxGeoRef;
     private boolean frozen = false;
+    // edge flags changed while the graph is in use, see publishEdgeFlags
+    volatile EdgeFlagOverlay flagOverlay = EdgeFlagOverlay.EMPTY;
+    // the version a request reads with all its edge iterators, see pinEdgeFlagOverlay
+    private final ThreadLocal<EdgeFlagOverlay> pinnedFlagOverlay = new ThreadLocal<>();
+    // the number of threads that pinned a version, the overlay is only folded if no older version is pinned
+    private final Map<EdgeFlagOverlay, Integer> flagOverlayPins = new IdentityHashMap<>();
     private static String routeDesc;
 
     public BaseGraph(Directory dir, final EncodingManager encodingManager, boolean withElevation,
@@ -416,6 +427,7 @@ class BaseGraph implements Graph {
     }
 
     void flush() {
+        foldEdgeFlagOverlay();
         setNodesHeader();
         setEdgesHeader();
         setWayGeometryHeader();
@@ -427,6 +439,90 @@ class BaseGraph implements Graph {
         extStorage.flush();
     }
 
+    /**
+     * Writes the overlay into the edge storage and starts with an empty overlay again, so that reading the flags
+     * does not need a lookup in the overlay anymore. This is only done if no thread pinned an older version: such a
+     * reader falls back to the edge storage for edges missing in its version and would see the new flags. Readers
+     * of the current version are not affected as the overlay contains all written edges and takes precedence. If
+     * an older version is pinned the overlay is kept and the edge storage is not changed.
+     */
+    private synchronized void foldEdgeFlagOverlay() {
+        if (flagOverlay.isEmpty())
+            return;
+        synchronized (flagOverlayPins) {
+            for (EdgeFlagOverlay pinned : flagOverlayPins.keySet()) {
+                if (pinned != flagOverlay)
+                    return;
+            }
+            flagOverlay.writeTo(edgeAccess);
+            flagOverlay = flagOverlay.cleared();
+        }
+    }
+
+    /**
+     * @return the version pinned by the current thread or the latest version if none is pinned
+     */
+    EdgeFlagOverlay getEdgeFlagOverlay() {
+        EdgeFlagOverlay latest = flagOverlay;
+        // avoid the thread local lookup if nothing was ever published
+        if (latest.getVersion() == 0)
+            return latest;
+        EdgeFlagOverlay pinned = pinnedFlagOverlay.get();
+        return pinned == null ? latest : pinned;
+    }
+
+    EdgeFlagOverlay pinEdgeFlagOverlay(EdgeFlagOverlay overlay) {
+        EdgeFlagOverlay previous = pinnedFlagOverlay.get();
+        synchronized (flagOverlayPins) {
+            if (previous != null) {
+                int pins = flagOverlayPins.get(previous);
+                if (pins == 1)
+                    flagOverlayPins.remove(previous);
+                else
+                    flagOverlayPins.put(previous, pins - 1);
+            }
+            if (overlay != null) {
+                Integer pins = flagOverlayPins.get(overlay);
+                flagOverlayPins.put(overlay, pins == null ? 1 : pins + 1);
+            }
+        }
+        if (overlay == null)
+            pinnedFlagOverlay.remove();
+        else
+            pinnedFlagOverlay.set(overlay);
+        return previous;
+    }
+
+    /**
+     * Called after the flags of the specified edge were written directly into the edge storage. If the edge is
+     * overridden by the overlay the written flags are published as well, as otherwise they would stay hidden.
+     */
+    void updateEdgeFlagOverlay(int edgeId, IntsRef edgeFlags) {
+        if (flagOverlay.isEmpty())
+            return;
+        synchronized (this) {
+            if (flagOverlay.contains(edgeId)) {
+                GHIntObjectHashMap<IntsRef> changes = new GHIntObjectHashMap<>(1);
+                changes.put(edgeId, edgeFlags);
+                flagOverlay = flagOverlay.with(changes);
+            }
+        }
+    }
+
+    /**
+     * Publishes a new version of the edge flag overlay with the specified flags per edge. Edge iterators created
+     * before this call still read the previous version.
+     */
+    synchronized void publishEdgeFlags(IntObjectMap<IntsRef> changes) {
+        for (IntObjectCursor<IntsRef> cursor : changes) {
+            if (!edgeAccess.isInBounds(cursor.key))
+                throw new IllegalArgumentException("edgeId " + cursor.key + " out of bounds");
+            if (cursor.value.length != bytesForFlags / 4)
+                throw new IllegalArgumentException("flags of edge " + cursor.key + " have invalid length " + cursor.value.length);
+        }
+        flagOverlay = flagOverlay.with(changes);
+    }
+
     void close() {
         wayGeometry.close();
         nameIndex.close();
@@ -481,6 +577,7 @@ class BaseGraph implements Graph {
     EdgeIteratorState copyProperties(EdgeIteratorState from, CommonEdgeIterator to) {
         long edgePointer = edgeAccess.toPointer(to.getEdge());
         edgeAccess.writeFlags(edgePointer, from.getFlags());
+        updateEdgeFlagOverlay(to.getEdge(), from.getFlags());
 
         // copy the rest with higher level API
         to.setDistance(from.getDistance()).
@@ -1028,6 +1125,8 @@ class BaseGraph implements Graph {
             // always use base graph edge access
             setEdgeId(baseGraph.edgeAccess.getEdgeRef(baseNode));
             _setBaseNode(baseNode);
+            // explorers are reused across requests, so read the version pinned by the current request
+            flagOverlay = baseGraph.getEdgeFlagOverlay();
             return this;
         }
 
@@ -1065,6 +1164,7 @@ class BaseGraph implements Graph {
                 throw new IllegalStateException("call next before detaching or setEdgeId (edgeId:" + edgeId + " vs. next " + nextEdgeId + ")");
 
             EdgeIterable iter = edgeAccess.createSingleEdge(filter);
+            iter.flagOverlay = flagOverlay;
             boolean ret;
             if (reverseArg) {
                 ret = iter.init(edgeId, baseNode);
@@ -1124,6 +1224,7 @@ class BaseGraph implements Graph {
                 throw new IllegalStateException("call next before detaching");
 
             AllEdgeIterator iter = new AllEdgeIterator(baseGraph, edgeAccess);
+            iter.flagOverlay = flagOverlay;
             iter.edgeId = edgeId;
             iter.edgePointer = edgePointer;
             if (reverseArg) {
@@ -1154,12 +1255,16 @@ class BaseGraph implements Graph {
         int edgeId = -1;
         private final IntsRef baseIntsRef;
         int chFlags;
+        // the version of the changed edge flags this iterator reads, i.e. the version pinned by the request. It is
+        // read again in setBaseNode, as an explorer can be reused by later requests
+        EdgeFlagOverlay flagOverlay;
 
         public CommonEdgeIterator(long edgePointer, EdgeAccess edgeAccess, BaseGraph baseGraph) {
             this.edgePointer = edgePointer;
             this.edgeAccess = edgeAccess;
             this.baseGraph = baseGraph;
             this.baseIntsRef = new IntsRef(baseGraph.bytesForFlags / 4);
+            this.flagOverlay = baseGraph.getEdgeFlagOverlay();
         }
 
         @Override
@@ -1186,7 +1291,9 @@ class BaseGraph implements Graph {
         @Override
         public IntsRef getFlags() {
             if (!freshFlags) {
-                edgeAccess.readFlags(edgePointer, baseIntsRef);
+                // shortcuts are never overridden
+                if (flagOverlay.isEmpty() || edgeAccess != baseGraph.edgeAccess || !flagOverlay.readFlags(edgeId, baseIntsRef))
+                    edgeAccess.readFlags(edgePointer, baseIntsRef);
                 freshFlags = true;
             }
             return baseIntsRef;
@@ -1195,7 +1302,7 @@ class BaseGraph implements Graph {
         @Override
         public final EdgeIteratorState setFlags(IntsRef edgeFlags) {
             assert edgeId < baseGraph.edgeCount : "must be edge but was shortcut: " + edgeId + " >= " + baseGraph.edgeCount + ". Use setFlagsAndWeight";
-            edgeAccess.writeFlags(edgePointer, edgeFlags);
+            writeFlags(edgeFlags);
             for (int i = 0; i < edgeFlags.ints.length; i++) {
                 baseIntsRef.ints[i] = edgeFlags.ints[i];
             }
@@ -1203,6 +1310,13 @@ class BaseGraph implements Graph {
             return this;
         }
 
+        private void writeFlags(IntsRef edgeFlags) {
+            edgeAccess.writeFlags(edgePointer, edgeFlags);
+            // shortcuts are never overridden
+            if (edgeAccess == baseGraph.edgeAccess)
+                baseGraph.updateEdgeFlagOverlay(edgeId, edgeFlags);
+        }
+
         @Override
         public final int getAdditionalField() {
             return baseGraph.edges.getInt(edgePointer + baseGraph.E_ADDITIONAL);
@@ -1222,7 +1336,7 @@ class BaseGraph implements Graph {
         @Override
         public EdgeIteratorState set(BooleanEncodedValue property, boolean value) {
             property.setBool(reverse, getFlags(), value);
-            edgeAccess.writeFlags(edgePointer, getFlags());
+            writeFlags(getFlags());
             return this;
         }
 
@@ -1234,7 +1348,7 @@ class BaseGraph implements Graph {
         @Override
         public EdgeIteratorState setReverse(BooleanEncodedValue property, boolean value) {
             property.setBool(!reverse, getFlags(), value);
-            edgeAccess.writeFlags(edgePointer, getFlags());
+            writeFlags(getFlags());
             return this;
         }
 
@@ -1246,7 +1360,7 @@ class BaseGraph implements Graph {
         @Override
         public EdgeIteratorState set(IntEncodedValue property, int value) {
             property.setInt(reverse, getFlags(), value);
-            edgeAccess.writeFlags(edgePointer, getFlags());
+            writeFlags(getFlags());
             return this;
         }
 
@@ -1258,7 +1372,7 @@ class BaseGraph implements Graph {
         @Override
         public EdgeIteratorState setReverse(IntEncodedValue property, int value) {
             property.setInt(!reverse, getFlags(), value);
-            edgeAccess.writeFlags(edgePointer, getFlags());
+            writeFlags(getFlags());
             return this;
         }
 
@@ -1270,7 +1384,7 @@ class BaseGraph implements Graph {
         @Override
         public EdgeIteratorState set(DecimalEncodedValue property, double value) {
             property.setDecimal(reverse, getFlags(), value);
-            edgeAccess.writeFlags(edgePointer, getFlags());
+            writeFlags(getFlags());
             return this;
         }
 
@@ -1282,7 +1396,7 @@ class BaseGraph implements Graph {
         @Override
         public EdgeIteratorState setReverse(DecimalEncodedValue property, double value) {
             property.setDecimal(!reverse, getFlags(), value);
-            edgeAccess.writeFlags(edgePointer, getFlags());
+            writeFlags(getFlags());
             return this;
         }
 
@@ -1294,7 +1408,7 @@ class BaseGraph implements Graph {
         @Override
         public <T extends Enum> EdgeIteratorState set(EnumEncodedValue<T> property, T value) {
             property.setEnum(reverse, getFlags(), value);
-            edgeAccess.writeFlags(edgePointer, getFlags());
+            writeFlags(getFlags());
             return this;
         }
 
@@ -1306,7 +1420,7 @@ class BaseGraph implements Graph {
         @Override
         public <T extends Enum> EdgeIteratorState setReverse(EnumEncodedValue<T> property, T value) {
             property.setEnum(!reverse, getFlags(), value);
-            edgeAccess.writeFlags(edgePointer, getFlags());
+            writeFlags(getFlags());
             return this;
         }
 
@@ -496,6 +496,7 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
             // always use ch edge access
             setEdgeId(chEdgeAccess.getEdgeRef(baseNode));
             _setBaseNode(baseNode);
+            flagOverlay = baseGraph.getEdgeFlagOverlay();
             return this;
         }
 
@@ -0,0 +1,127 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.carrotsearch.hppc.IntObjectMap;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
+import com.graphhopper.coll.GHIntObjectHashMap;
+
+/**
+ * An immutable version of edge flags that take precedence over the flags stored in the BaseGraph. Every update
+ * creates a new version which is published atomically. A routing request pins one version for all its edge
+ * iterators, so it sees a consistent state and is never blocked by updates.
+ * <p>
+ * A new version only stores the changed flags and shares the previous versions as parent layers. A layer is merged
+ * into its parent if it is at least half as large, so the number of layers and the number of copies of every entry
+ * only grow logarithmically with the number of changes.
+ */
+public final class EdgeFlagOverlay {
+    static final EdgeFlagOverlay EMPTY = new EdgeFlagOverlay(0, new GHIntObjectHashMap<int[]>(0), null);
+    private final long version;
+    private final IntObjectMap<int[]> flags;
+    private final EdgeFlagOverlay parent;
+
+    private EdgeFlagOverlay(long version, IntObjectMap<int[]> flags, EdgeFlagOverlay parent) {
+        this.version = version;
+        this.flags = flags;
+        this.parent = parent;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the number of stored flags. An edge that was changed in several layers is counted once per layer.
+     */
+    public int size() {
+        return parent == null ? flags.size() : flags.size() + parent.size();
+    }
+
+    boolean isEmpty() {
+        return parent == null && flags.isEmpty();
+    }
+
+    boolean contains(int edgeId) {
+        for (EdgeFlagOverlay layer = this; layer != null; layer = layer.parent) {
+            if (layer.flags.containsKey(edgeId))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the flags of the specified edge are overridden. In this case they are copied into intsRef.
+     */
+    boolean readFlags(int edgeId, IntsRef intsRef) {
+        for (EdgeFlagOverlay layer = this; layer != null; layer = layer.parent) {
+            int[] ints = layer.flags.get(edgeId);
+            if (ints != null) {
+                System.arraycopy(ints, 0, intsRef.ints, intsRef.offset, ints.length);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates the next version that contains the flags of this version and the specified changes.
+     */
+    EdgeFlagOverlay with(IntObjectMap<IntsRef> changes) {
+        GHIntObjectHashMap<int[]> layer = new GHIntObjectHashMap<>(changes.size());
+        for (IntObjectCursor<IntsRef> cursor : changes) {
+            IntsRef intsRef = cursor.value;
+            int[] ints = new int[intsRef.length];
+            System.arraycopy(intsRef.ints, intsRef.offset, ints, 0, intsRef.length);
+            layer.put(cursor.key, ints);
+        }
+
+        EdgeFlagOverlay newParent = isEmpty() ? null : this;
+        while (newParent != null && newParent.flags.size() <= 2 * layer.size()) {
+            GHIntObjectHashMap<int[]> merged = new GHIntObjectHashMap<>(newParent.flags.size() + layer.size());
+            merged.putAll(newParent.flags);
+            merged.putAll(layer);
+            layer = merged;
+            newParent = newParent.parent;
+        }
+        return new EdgeFlagOverlay(version + 1, layer, newParent);
+    }
+
+    /**
+     * @return an empty overlay that keeps the version of this overlay, see BaseGraph.flush
+     */
+    EdgeFlagOverlay cleared() {
+        return new EdgeFlagOverlay(version, new GHIntObjectHashMap<int[]>(0), null);
+    }
+
+    /**
+     * Writes the overridden flags into the edge storage.
+     */
+    void writeTo(EdgeAccess edgeAccess) {
+        // older layers first as newer layers take precedence
+        if (parent != null)
+            parent.writeTo(edgeAccess);
+        IntsRef intsRef = null;
+        for (IntObjectCursor<int[]> cursor : flags) {
+            if (intsRef == null)
+                intsRef = new IntsRef(cursor.value.length);
+            System.arraycopy(cursor.value, 0, intsRef.ints, 0, cursor.value.length);
+            edgeAccess.writeFlags(edgeAccess.toPointer(cursor.key), intsRef);
+        }
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.coll.GHBitSetImpl;
+import com.graphhopper.routing.profiles.EnumEncodedValue;
+import com.graphhopper.routing.profiles.RoadClass;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.BBox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A generalized road network for low zoom levels of a map. For every zoom band only the major roads are
+ * stored. Consecutive edges of the same road class and name are merged into one line which is then simplified
+ * via DouglasPeucker with a tolerance of roughly one pixel of the highest zoom in the band.
+ * <p>
+ * The lines of every band are indexed in a grid over the bounds of all lines, so a tile only reads the lines of the
+ * cells it covers.
+ */
+public class GeneralizedRoadNetwork implements Storable<GeneralizedRoadNetwork> {
+    // a tile has 256 pixels and the circumference of the earth is ~40075km
+    private static final double METERS_PER_PIXEL_AT_ZOOM_0 = 40_075_016d / 256;
+    private static final int[] BAND_MAX_ZOOM = {7, 9, 11};
+    private static final RoadClass[][] BAND_ROAD_CLASSES = {
+            {RoadClass.MOTORWAY, RoadClass.TRUNK},
+            {RoadClass.MOTORWAY, RoadClass.TRUNK, RoadClass.PRIMARY},
+            {RoadClass.MOTORWAY, RoadClass.TRUNK, RoadClass.PRIMARY}
+    };
+    // a line is stored as minLat, minLon, maxLat, maxLon, edge, road class, point count and the points
+    private static final int LINE_HEADER_INTS = 7;
+    // a band is stored as the pointer to its lines, the number of lines, the pointer to its grid and the grid size
+    private static final int BAND_HEADER_INTS = 4;
+    // the grid of a band has about this number of lines per cell
+    private static final int LINES_PER_CELL = 4;
+    private static final int MAX_GRID_SIZE = 1024;
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final int MAGIC_INT = Integer.MAX_VALUE / 22322;
+    private final Graph graph;
+    private final DataAccess dataAccess;
+    // the bounds of all lines which are covered by the grids
+    private int gridMinLat, gridMinLon, gridMaxLat, gridMaxLon;
+    private boolean initialized = false;
+
+    public GeneralizedRoadNetwork(Graph graph, Directory dir) {
+        this.graph = graph;
+        this.dataAccess = dir.find("generalized_roads", DAType.getPreferredInt(dir.getDefaultType()));
+    }
+
+    /**
+     * @return the highest zoom level which can be rendered from this network
+     */
+    public static int getMaxZoom() {
+        return BAND_MAX_ZOOM[BAND_MAX_ZOOM.length - 1];
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (initialized)
+            throw new IllegalStateException("Call loadExisting only once");
+
+        if (!dataAccess.loadExisting())
+            return false;
+
+        if (dataAccess.getHeader(0) != MAGIC_INT)
+            throw new IllegalStateException("incorrect generalized road network version, expected:" + MAGIC_INT);
+
+        if (dataAccess.getHeader(1 * 4) != graph.getNodes())
+            throw new IllegalStateException("generalized road network was opened with incorrect graph: "
+                    + dataAccess.getHeader(1 * 4) + " vs. " + graph.getNodes());
+
+        gridMinLat = dataAccess.getHeader(2 * 4);
+        gridMinLon = dataAccess.getHeader(3 * 4);
+        gridMaxLat = dataAccess.getHeader(4 * 4);
+        gridMaxLon = dataAccess.getHeader(5 * 4);
+        initialized = true;
+        return true;
+    }
+
+    @Override
+    public GeneralizedRoadNetwork create(long byteCount) {
+        throw new UnsupportedOperationException("Not supported. Use prepare instead.");
+    }
+
+    /**
+     * Creates the lines of all zoom bands from the road class of the edges.
+     */
+    public GeneralizedRoadNetwork prepare(EnumEncodedValue<RoadClass> roadClassEnc) {
+        if (initialized)
+            throw new IllegalStateException("Call prepare only once");
+
+        StopWatch sw = new StopWatch().start();
+        dataAccess.create(64 * 1024);
+        long pointer = BAND_MAX_ZOOM.length * BAND_HEADER_INTS;
+        dataAccess.ensureCapacity(pointer * 4);
+        int[] lines = new int[BAND_MAX_ZOOM.length];
+        int[] points = new int[BAND_MAX_ZOOM.length];
+        GHBitSet visited = new GHBitSetImpl(graph.getAllEdges().length());
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        DouglasPeucker simplifier = new DouglasPeucker();
+        for (int band = 0; band < BAND_MAX_ZOOM.length; band++) {
+            Set<RoadClass> roadClasses = EnumSet.noneOf(RoadClass.class);
+            for (RoadClass rc : BAND_ROAD_CLASSES[band]) {
+                roadClasses.add(rc);
+            }
+            simplifier.setMaxDistance(METERS_PER_PIXEL_AT_ZOOM_0 / (1 << BAND_MAX_ZOOM[band]));
+            dataAccess.setInt(band * BAND_HEADER_INTS * 4, (int) pointer);
+            visited.clear();
+            AllEdgesIterator iter = graph.getAllEdges();
+            while (iter.next()) {
+                RoadClass roadClass = iter.get(roadClassEnc);
+                if (visited.contains(iter.getEdge()) || !roadClasses.contains(roadClass))
+                    continue;
+
+                visited.add(iter.getEdge());
+                // collect the chain behind the base node in reverse order and then the chain from this edge on
+                PointList line = new PointList(10, false);
+                followChain(line, explorer, iter.getBaseNode(), iter.getEdge(), roadClassEnc, roadClass, iter.getName(), visited);
+                line.reverse();
+                PointList geometry = iter.fetchWayGeometry(3);
+                for (int i = 0; i < geometry.getSize(); i++) {
+                    line.add(geometry.getLatitude(i), geometry.getLongitude(i));
+                }
+                followChain(line, explorer, iter.getAdjNode(), iter.getEdge(), roadClassEnc, roadClass, iter.getName(), visited);
+
+                simplifier.simplify(line);
+                pointer = storeLine(pointer, line, iter.getEdge(), roadClass);
+                lines[band]++;
+                points[band] += line.getSize();
+            }
+            dataAccess.setInt((band * BAND_HEADER_INTS + 1) * 4, lines[band]);
+        }
+
+        initGridBounds();
+        for (int band = 0; band < BAND_MAX_ZOOM.length; band++) {
+            pointer = storeGrid(band, pointer);
+        }
+        flush();
+        initialized = true;
+        logger.info("generalized road network created in " + sw.stop().getSeconds() + "s, lines per band:"
+                + Arrays.toString(lines) + ", points per band:" + Arrays.toString(points));
+        return this;
+    }
+
+    /**
+     * Appends the geometry of the edges following the specified edge at node, excluding node itself, as long
+     * as there is exactly one continuation with the same road class and name.
+     */
+    private void followChain(PointList line, EdgeExplorer explorer, int node, int edge,
+                             EnumEncodedValue<RoadClass> roadClassEnc, RoadClass roadClass, String name, GHBitSet visited) {
+        while (true) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            int next = -1, count = 0;
+            while (iter.next()) {
+                if (iter.getEdge() != edge && iter.get(roadClassEnc) == roadClass && iter.getName().equals(name)) {
+                    next = iter.getEdge();
+                    count++;
+                }
+            }
+            if (count != 1 || visited.contains(next))
+                return;
+
+            visited.add(next);
+            EdgeIteratorState nextEdge = graph.getEdgeIteratorState(next, Integer.MIN_VALUE);
+            // fetch the geometry in the direction away from node
+            PointList geometry = nextEdge.getBaseNode() == node ? nextEdge.fetchWayGeometry(2) : nextEdge.detach(true).fetchWayGeometry(2);
+            for (int i = 0; i < geometry.getSize(); i++) {
+                line.add(geometry.getLatitude(i), geometry.getLongitude(i));
+            }
+            node = nextEdge.getBaseNode() == node ? nextEdge.getAdjNode() : nextEdge.getBaseNode();
+            edge = next;
+        }
+    }
+
+    private long storeLine(long pointer, PointList line, int edge, RoadClass roadClass) {
+        BBox bbox = BBox.createInverse(false);
+        for (int i = 0; i < line.getSize(); i++) {
+            bbox.update(line.getLatitude(i), line.getLongitude(i));
+        }
+        dataAccess.ensureCapacity((pointer + LINE_HEADER_INTS + line.getSize() * 2) * 4);
+        dataAccess.setInt(pointer * 4, Helper.degreeToInt(bbox.minLat));
+        dataAccess.setInt((pointer + 1) * 4, Helper.degreeToInt(bbox.minLon));
+        dataAccess.setInt((pointer + 2) * 4, Helper.degreeToInt(bbox.maxLat));
+        dataAccess.setInt((pointer + 3) * 4, Helper.degreeToInt(bbox.maxLon));
+        dataAccess.setInt((pointer + 4) * 4, edge);
+        dataAccess.setInt((pointer + 5) * 4, roadClass.ordinal());
+        dataAccess.setInt((pointer + 6) * 4, line.getSize());
+        pointer += LINE_HEADER_INTS;
+        for (int i = 0; i < line.getSize(); i++, pointer += 2) {
+            dataAccess.setInt(pointer * 4, Helper.degreeToInt(line.getLatitude(i)));
+            dataAccess.setInt((pointer + 1) * 4, Helper.degreeToInt(line.getLongitude(i)));
+        }
+        return pointer;
+    }
+
+    private void initGridBounds() {
+        gridMinLat = gridMinLon = Integer.MAX_VALUE;
+        gridMaxLat = gridMaxLon = Integer.MIN_VALUE;
+        for (int band = 0; band < BAND_MAX_ZOOM.length; band++) {
+            long pointer = dataAccess.getInt(band * BAND_HEADER_INTS * 4);
+            int lines = dataAccess.getInt((band * BAND_HEADER_INTS + 1) * 4);
+            for (int line = 0; line < lines; line++) {
+                gridMinLat = Math.min(gridMinLat, dataAccess.getInt(pointer * 4));
+                gridMinLon = Math.min(gridMinLon, dataAccess.getInt((pointer + 1) * 4));
+                gridMaxLat = Math.max(gridMaxLat, dataAccess.getInt((pointer + 2) * 4));
+                gridMaxLon = Math.max(gridMaxLon, dataAccess.getInt((pointer + 3) * 4));
+                pointer += LINE_HEADER_INTS + dataAccess.getInt((pointer + 6) * 4) * 2;
+            }
+        }
+        if (gridMinLat > gridMaxLat)
+            gridMinLat = gridMinLon = gridMaxLat = gridMaxLon = 0;
+    }
+
+    /**
+     * Stores the grid of the specified band at pointer: the start of every cell and then the line pointers of all
+     * cells. A line is stored in every cell its bounding box intersects.
+     *
+     * @return the pointer behind the grid
+     */
+    private long storeGrid(int band, long pointer) {
+        long linesPointer = dataAccess.getInt(band * BAND_HEADER_INTS * 4);
+        int lines = dataAccess.getInt((band * BAND_HEADER_INTS + 1) * 4);
+        int size = Math.max(1, Math.min(MAX_GRID_SIZE, (int) Math.ceil(Math.sqrt((double) lines / LINES_PER_CELL))));
+        int[] cellStarts = new int[size * size + 1];
+        long linePointer = linesPointer;
+        for (int line = 0; line < lines; line++) {
+            int minX = getCellX(dataAccess.getInt((linePointer + 1) * 4), size), maxX = getCellX(dataAccess.getInt((linePointer + 3) * 4), size);
+            int minY = getCellY(dataAccess.getInt(linePointer * 4), size), maxY = getCellY(dataAccess.getInt((linePointer + 2) * 4), size);
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    cellStarts[y * size + x + 1]++;
+                }
+            }
+            linePointer += LINE_HEADER_INTS + dataAccess.getInt((linePointer + 6) * 4) * 2;
+        }
+        for (int cell = 0; cell < size * size; cell++) {
+            cellStarts[cell + 1] += cellStarts[cell];
+        }
+
+        long entriesPointer = pointer + cellStarts.length;
+        dataAccess.ensureCapacity((entriesPointer + cellStarts[size * size]) * 4);
+        for (int cell = 0; cell < cellStarts.length; cell++) {
+            dataAccess.setInt((pointer + cell) * 4, cellStarts[cell]);
+        }
+        int[] cellEnds = Arrays.copyOf(cellStarts, size * size);
+        linePointer = linesPointer;
+        for (int line = 0; line < lines; line++) {
+            int minX = getCellX(dataAccess.getInt((linePointer + 1) * 4), size), maxX = getCellX(dataAccess.getInt((linePointer + 3) * 4), size);
+            int minY = getCellY(dataAccess.getInt(linePointer * 4), size), maxY = getCellY(dataAccess.getInt((linePointer + 2) * 4), size);
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    dataAccess.setInt((entriesPointer + cellEnds[y * size + x]++) * 4, (int) linePointer);
+                }
+            }
+            linePointer += LINE_HEADER_INTS + dataAccess.getInt((linePointer + 6) * 4) * 2;
+        }
+        dataAccess.setInt((band * BAND_HEADER_INTS + 2) * 4, (int) pointer);
+        dataAccess.setInt((band * BAND_HEADER_INTS + 3) * 4, size);
+        return entriesPointer + cellStarts[size * size];
+    }
+
+    private int getCellX(int lon, int size) {
+        return (int) Math.max(0, Math.min(size - 1, ((long) lon - gridMinLon) * size / ((long) gridMaxLon - gridMinLon + 1)));
+    }
+
+    private int getCellY(int lat, int size) {
+        return (int) Math.max(0, Math.min(size - 1, ((long) lat - gridMinLat) * size / ((long) gridMaxLat - gridMinLat + 1)));
+    }
+
+    /**
+     * Calls the visitor for every line of the zoom band of the specified zoom that intersects the bbox.
+     */
+    public void query(int zoom, BBox bbox, LineVisitor visitor) {
+        if (!initialized)
+            throw new IllegalStateException("Call prepare or loadExisting before query");
+        if (zoom < 0 || zoom > getMaxZoom())
+            throw new IllegalArgumentException("zoom must be within [0, " + getMaxZoom() + "] but was " + zoom);
+
+        int band = 0;
+        while (zoom > BAND_MAX_ZOOM[band]) {
+            band++;
+        }
+        int minLat = Helper.degreeToInt(bbox.minLat), minLon = Helper.degreeToInt(bbox.minLon);
+        int maxLat = Helper.degreeToInt(bbox.maxLat), maxLon = Helper.degreeToInt(bbox.maxLon);
+        if (minLat > gridMaxLat || maxLat < gridMinLat || minLon > gridMaxLon || maxLon < gridMinLon)
+            return;
+
+        long gridPointer = dataAccess.getInt((band * BAND_HEADER_INTS + 2) * 4);
+        int size = dataAccess.getInt((band * BAND_HEADER_INTS + 3) * 4);
+        long entriesPointer = gridPointer + size * size + 1;
+        int minX = getCellX(minLon, size), maxX = getCellX(maxLon, size);
+        int minY = getCellY(minLat, size), maxY = getCellY(maxLat, size);
+        IntArrayList linePointers = new IntArrayList();
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                int cell = y * size + x;
+                int end = dataAccess.getInt((gridPointer + cell + 1) * 4);
+                for (int entry = dataAccess.getInt((gridPointer + cell) * 4); entry < end; entry++) {
+                    int pointer = dataAccess.getInt((entriesPointer + entry) * 4);
+                    int lineMinLat = dataAccess.getInt(pointer * 4), lineMinLon = dataAccess.getInt((pointer + 1) * 4);
+                    if (lineMinLat > maxLat || dataAccess.getInt((pointer + 2) * 4) < minLat
+                            || lineMinLon > maxLon || dataAccess.getInt((pointer + 3) * 4) < minLon)
+                        continue;
+                    // a line is in several cells, so it is only taken from the first cell that is also queried
+                    if (Math.max(getCellX(lineMinLon, size), minX) == x && Math.max(getCellY(lineMinLat, size), minY) == y)
+                        linePointers.add(pointer);
+                }
+            }
+        }
+
+        // keep the order in which the lines are stored
+        int[] sortedPointers = linePointers.toArray();
+        Arrays.sort(sortedPointers);
+        RoadClass[] roadClasses = RoadClass.values();
+        for (int pointer : sortedPointers) {
+            int pointCount = dataAccess.getInt((pointer + 6) * 4);
+            PointList points = new PointList(pointCount, false);
+            for (int i = 0; i < pointCount; i++) {
+                long pointPointer = pointer + LINE_HEADER_INTS + i * 2;
+                points.add(Helper.intToDegree(dataAccess.getInt(pointPointer * 4)),
+                        Helper.intToDegree(dataAccess.getInt((pointPointer + 1) * 4)));
+            }
+            visitor.onLine(points, roadClasses[dataAccess.getInt((pointer + 5) * 4)], dataAccess.getInt((pointer + 4) * 4));
+        }
+    }
+
+    @Override
+    public void flush() {
+        dataAccess.setHeader(0, MAGIC_INT);
+        dataAccess.setHeader(1 * 4, graph.getNodes());
+        dataAccess.setHeader(2 * 4, gridMinLat);
+        dataAccess.setHeader(3 * 4, gridMinLon);
+        dataAccess.setHeader(4 * 4, gridMaxLat);
+        dataAccess.setHeader(5 * 4, gridMaxLon);
+        dataAccess.flush();
+    }
+
+    @Override
+    public void close() {
+        dataAccess.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return dataAccess.isClosed();
+    }
+
+    @Override
+    public long getCapacity() {
+        return dataAccess.getCapacity();
+    }
+
+    public interface LineVisitor {
+        /**
+         * @param edge one of the edges of this line, e.g. to get the name
+         */
+        void onLine(PointList points, RoadClass roadClass, int edge);
+    }
+}
@@ -17,6 +17,7 @@
  */
 package com.graphhopper.storage;
 
+import com.carrotsearch.hppc.IntObjectMap;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.EncodingManager;
@@ -76,6 +77,8 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
 
             @Override
             public void freeze() {
+                if (baseGraph.getExtension() instanceof TurnCostExtension)
+                    ((TurnCostExtension) baseGraph.getExtension()).optimize(baseGraph.getNodes());
                 for (CHGraphImpl cg : getAllCHGraphs()) {
                     cg._prepareForContraction();
                 }
@@ -266,6 +269,8 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
 
             String dim = properties.get("graph.dimension");
             baseGraph.loadExisting(dim);
+            if (baseGraph.isFrozen() && baseGraph.getExtension() instanceof TurnCostExtension)
+                ((TurnCostExtension) baseGraph.getExtension()).initTurnCostNodes(baseGraph.getNodes());
 
             checkIfConfiguredAndLoadedWeightingsCompatible();
 
@@ -464,6 +469,36 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
         return baseGraph.isAdjacentToNode(edge, node);
     }
 
+    /**
+     * @return the version of the edge flags changed via publishEdgeFlags that is pinned by the current thread, or
+     * the currently published version if the current thread did not pin a version
+     */
+    public EdgeFlagOverlay getEdgeFlagOverlay() {
+        return baseGraph.getEdgeFlagOverlay();
+    }
+
+    /**
+     * Pins the specified version of the changed edge flags for the current thread: all edge iterators created by
+     * this thread read this version, even if a newer version is published meanwhile. A request pins the version
+     * once before it starts, so all its searches and the path extraction see the same flags.
+     *
+     * @param overlay the version to pin or null to unpin
+     * @return the version that was pinned before or null if none was pinned
+     */
+    public EdgeFlagOverlay pinEdgeFlagOverlay(EdgeFlagOverlay overlay) {
+        return baseGraph.pinEdgeFlagOverlay(overlay);
+    }
+
+    /**
+     * Changes the flags of the specified edges without blocking readers: the new flags are visible to edge
+     * iterators created after this call, while requests that already pinned a version keep reading it. The changes
+     * are written into the edge storage on flush, unless a request still reads an older version. Only the base graph
+     * is changed, i.e. shortcuts are not updated.
+     */
+    public void publishEdgeFlags(IntObjectMap<IntsRef> changes) {
+        baseGraph.publishEdgeFlags(changes);
+    }
+
     private Collection<CHGraphImpl> getAllCHGraphs() {
         return chGraphs;
     }
@@ -436,6 +436,22 @@ public final class MMapDataAccess extends AbstractDataAccess {
         return segments.size();
     }
 
+    /**
+     * Loads all segments into physical memory, one after the other, so that the first accesses do not page fault.
+     * The memory can still be paged out later if the operating system runs out of memory.
+     *
+     * @return the number of loaded bytes
+     */
+    public long load() {
+        long bytes = 0;
+        for (ByteBuffer bb : segments) {
+            if (bb instanceof MappedByteBuffer)
+                ((MappedByteBuffer) bb).load();
+            bytes += bb.capacity();
+        }
+        return bytes;
+    }
+
     /**
      * Cleans up MappedByteBuffers. Be sure you bring the segments list in a consistent state
      * afterwards.
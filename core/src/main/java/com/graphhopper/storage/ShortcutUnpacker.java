@@ -1,5 +1,6 @@
 package com.graphhopper.storage;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.util.CHEdgeIteratorState;
 import com.graphhopper.util.EdgeIteratorState;
@@ -9,7 +10,8 @@ import java.util.Locale;
 import static com.graphhopper.util.EdgeIterator.NO_EDGE;
 
 /**
- * Recursively unpack shortcuts.
+ * Recursively unpack shortcuts. If a {@link ShortcutUnpackingCache} is used the original edges of a shortcut are
+ * only unpacked once and taken from the cache afterwards.
  * <p>
  *
  * @author Peter Karich
@@ -17,15 +19,28 @@ import static com.graphhopper.util.EdgeIterator.NO_EDGE;
  * @see PrepareContractionHierarchies
  */
 public class ShortcutUnpacker {
+    // used instead of the previous or next edge of the unpacked shortcut while its original edges are recorded
+    private static final int OUTER_EDGE = Integer.MIN_VALUE;
     private final Graph graph;
     private final Visitor visitor;
     private final boolean edgeBased;
+    private final ShortcutUnpackingCache cache;
+    private final IntArrayList recordedEdges = new IntArrayList();
     private boolean reverseOrder;
+    private boolean recording;
 
     public ShortcutUnpacker(Graph graph, Visitor visitor, boolean edgeBased) {
+        this(graph, visitor, edgeBased, null);
+    }
+
+    /**
+     * @param cache the cache of the unpacked shortcuts or null
+     */
+    public ShortcutUnpacker(Graph graph, Visitor visitor, boolean edgeBased, ShortcutUnpackingCache cache) {
         this.graph = graph;
         this.visitor = visitor;
         this.edgeBased = edgeBased;
+        this.cache = cache;
     }
 
     /**
@@ -48,12 +63,43 @@ public class ShortcutUnpacker {
         if (edge == null) {
             throw new IllegalArgumentException("Edge with id: " + edgeId + " does not exist or does not touch node " + adjNode);
         }
-        expandEdge(edge, reverse, prevOrNextEdgeId);
+        if (cache == null || !edge.isShortcut()) {
+            expandEdge(edge, reverse, prevOrNextEdgeId);
+            return;
+        }
+
+        recordedEdges.clear();
+        if (!cache.copyTo(edgeId, adjNode, reverse, recordedEdges)) {
+            // the edges are always recorded in the same order, independent of reverseOrder
+            this.reverseOrder = false;
+            recording = true;
+            try {
+                expandEdge(edge, reverse, OUTER_EDGE);
+            } finally {
+                recording = false;
+                this.reverseOrder = reverseOrder;
+            }
+            cache.put(edgeId, adjNode, reverse, recordedEdges);
+        }
+        visitRecordedEdges(reverse, prevOrNextEdgeId);
+    }
+
+    private void visitRecordedEdges(boolean reverse, int prevOrNextEdgeId) {
+        int edges = recordedEdges.size() / ShortcutUnpackingCache.EDGE_INTS;
+        for (int i = 0; i < edges; i++) {
+            int offset = (reverseOrder ? edges - 1 - i : i) * ShortcutUnpackingCache.EDGE_INTS;
+            EdgeIteratorState edge = graph.getEdgeIteratorState(recordedEdges.get(offset), recordedEdges.get(offset + 1));
+            int prevOrNextOrigEdgeId = recordedEdges.get(offset + 2);
+            visitor.visit(edge, reverse, prevOrNextOrigEdgeId == OUTER_EDGE ? prevOrNextEdgeId : prevOrNextOrigEdgeId);
+        }
     }
 
     private void expandEdge(CHEdgeIteratorState edge, boolean reverse, int prevOrNextEdgeId) {
         if (!edge.isShortcut()) {
-            visitor.visit(edge, reverse, prevOrNextEdgeId);
+            if (recording)
+                recordedEdges.add(edge.getEdge(), edge.getAdjNode(), prevOrNextEdgeId);
+            else
+                visitor.visit(edge, reverse, prevOrNextEdgeId);
             return;
         }
         if (edgeBased) {
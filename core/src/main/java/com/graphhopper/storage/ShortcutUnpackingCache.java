@@ -0,0 +1,118 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.carrotsearch.hppc.IntArrayList;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the original edges of unpacked shortcuts for all queries of one CH graph. The number of cached edges is
+ * limited. If the limit is reached the cache is cleared, so the shortcuts that are unpacked most often, e.g. the long
+ * ones near the top of the hierarchy, are cached again soon.
+ * <p>
+ * Every original edge takes {@link #EDGE_INTS} ints: its id, its adjacent node and the previous or next edge id
+ * that is passed to the {@link ShortcutUnpacker.Visitor}.
+ * <p>
+ * The queries use the cache concurrently without a global lock: the edges of a shortcut are stored as an immutable
+ * array in a ConcurrentHashMap. If queries add shortcuts while the cache is cleared, the limit can be exceeded
+ * by the edges of these shortcuts.
+ *
+ * @see ShortcutUnpacker
+ */
+public class ShortcutUnpackingCache {
+    public static final int EDGE_INTS = 3;
+    private final int maxInts;
+    // the key is the shortcut and its adjacent node, the value are its edges
+    private final ConcurrentMap<Long, int[]> fwdEntries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, int[]> bwdEntries = new ConcurrentHashMap<>();
+    private final AtomicInteger cachedInts = new AtomicInteger();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxEdges the maximum number of original edges of all cached shortcuts
+     */
+    public ShortcutUnpackingCache(int maxEdges) {
+        if (maxEdges <= 0)
+            throw new IllegalArgumentException("The maximum number of cached edges has to be positive but was " + maxEdges);
+        maxInts = maxEdges * EDGE_INTS;
+    }
+
+    /**
+     * Adds the cached original edges of the specified shortcut to <code>edges</code>.
+     *
+     * @return true if the shortcut was cached
+     */
+    public boolean copyTo(int shortcut, int adjNode, boolean reverse, IntArrayList edges) {
+        int[] entry = getEntries(reverse).get(createKey(shortcut, adjNode));
+        if (entry == null) {
+            misses.incrementAndGet();
+            return false;
+        }
+        hits.incrementAndGet();
+        edges.add(entry);
+        return true;
+    }
+
+    /**
+     * Caches the original edges of the specified shortcut. They are not cached if they exceed the limit.
+     */
+    public void put(int shortcut, int adjNode, boolean reverse, IntArrayList edges) {
+        int length = edges.size();
+        if (length > maxInts)
+            return;
+        if (cachedInts.addAndGet(length) > maxInts) {
+            clear();
+            cachedInts.addAndGet(length);
+        }
+        getEntries(reverse).put(createKey(shortcut, adjNode), edges.toArray());
+    }
+
+    public void clear() {
+        fwdEntries.clear();
+        bwdEntries.clear();
+        cachedInts.set(0);
+    }
+
+    /**
+     * @return the number of cached shortcuts
+     */
+    public int size() {
+        return fwdEntries.size() + bwdEntries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private ConcurrentMap<Long, int[]> getEntries(boolean reverse) {
+        return reverse ? bwdEntries : fwdEntries;
+    }
+
+    private static long createKey(int shortcut, int adjNode) {
+        return (long) shortcut << 32 | adjNode;
+    }
+}
@@ -17,6 +17,8 @@
  */
 package com.graphhopper.storage;
 
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.util.EdgeIterator;
 
 /**
@@ -24,6 +26,10 @@ import com.graphhopper.util.EdgeIterator;
  * towards the first entry within a node cost table to identify turn restrictions, or later, turn
  * getCosts.
  * <p>
+ * When the graph is frozen the entries are rearranged, see {@link #optimize(int)}: the entries of every node are
+ * stored consecutively and sorted by their edges, so a lookup reads adjacent memory and can stop early. Additionally
+ * a bit set marks the nodes with turn costs, which avoids the lookup completely for most nodes.
+ * <p>
  *
  * @author Karl Hübner
  * @author Peter Karich
@@ -43,6 +49,10 @@ public class TurnCostExtension implements GraphExtension {
     private int turnCostsEntryIndex = -4;
     private int turnCostsEntryBytes;
     private int turnCostsCount;
+    // true if the entries of every node are stored consecutively and sorted by their edges
+    private boolean sorted;
+    // the nodes with at least one entry, null if not yet optimized
+    private GHBitSet turnCostNodes;
     private NodeAccess nodeAccess;
 
     public TurnCostExtension() {
@@ -83,6 +93,7 @@ public class TurnCostExtension implements GraphExtension {
     public void flush() {
         turnCosts.setHeader(0, turnCostsEntryBytes);
         turnCosts.setHeader(1 * 4, turnCostsCount);
+        turnCosts.setHeader(2 * 4, sorted ? 1 : 0);
         turnCosts.flush();
     }
 
@@ -103,6 +114,7 @@ public class TurnCostExtension implements GraphExtension {
 
         turnCostsEntryBytes = turnCosts.getHeader(0);
         turnCostsCount = turnCosts.getHeader(4);
+        sorted = turnCosts.getHeader(2 * 4) == 1;
         return true;
     }
 
@@ -176,6 +188,10 @@ public class TurnCostExtension implements GraphExtension {
         if (!oldEntryFound) {
             costsBase = (long) newEntryIndex * turnCostsEntryBytes;
             turnCostsCount++;
+            // the new entry is appended to the entries of all nodes
+            sorted = false;
+            if (turnCostNodes != null)
+                turnCostNodes.add(viaNode);
         } else {
             costsBase = (long) previousEntryIndex * turnCostsEntryBytes;
         }
@@ -206,15 +222,24 @@ public class TurnCostExtension implements GraphExtension {
     }
 
     private long nextCostFlags(int edgeFrom, int nodeVia, int edgeTo) {
+        if (turnCostNodes != null && !turnCostNodes.contains(nodeVia))
+            return EMPTY_FLAGS;
+
         int turnCostIndex = nodeAccess.getAdditionalNodeField(nodeVia);
         int i = 0;
         for (; i < 1000; i++) {
             if (turnCostIndex == NO_TURN_ENTRY)
                 break;
             long turnCostPtr = (long) turnCostIndex * turnCostsEntryBytes;
-            if (edgeFrom == turnCosts.getInt(turnCostPtr + TC_FROM)) {
-                if (edgeTo == turnCosts.getInt(turnCostPtr + TC_TO))
+            int from = turnCosts.getInt(turnCostPtr + TC_FROM);
+            if (edgeFrom == from) {
+                int to = turnCosts.getInt(turnCostPtr + TC_TO);
+                if (edgeTo == to)
                     return turnCosts.getInt(turnCostPtr + TC_FLAGS);
+                if (sorted && to > edgeTo)
+                    break;
+            } else if (sorted && from > edgeFrom) {
+                break;
             }
 
             int nextTurnCostIndex = turnCosts.getInt(turnCostPtr + TC_NEXT);
@@ -229,6 +254,84 @@ public class TurnCostExtension implements GraphExtension {
         return EMPTY_FLAGS;
     }
 
+    /**
+     * Stores the entries of every node consecutively, sorted by their from and to edges, and marks the nodes with
+     * turn costs. Entries can still be added afterwards, but then the lookups can no longer stop early.
+     *
+     * @param nodes the number of nodes of the graph
+     */
+    void optimize(int nodes) {
+        int[] entries = new int[turnCostsCount * 3];
+        int[] nextEntries = new int[turnCostsCount];
+        GHBitSet nodesWithTurnCosts = new GHBitSetImpl(nodes);
+        int count = 0;
+        for (int node = 0; node < nodes; node++) {
+            int index = nodeAccess.getAdditionalNodeField(node);
+            if (index == NO_TURN_ENTRY)
+                continue;
+
+            nodesWithTurnCosts.add(node);
+            int first = count;
+            while (index != NO_TURN_ENTRY) {
+                if (count - first > 1000)
+                    throw new IllegalStateException("something went wrong: there seems to be no end of the turn cost-list!?");
+                long turnCostPtr = (long) index * turnCostsEntryBytes;
+                entries[count * 3] = turnCosts.getInt(turnCostPtr + TC_FROM);
+                entries[count * 3 + 1] = turnCosts.getInt(turnCostPtr + TC_TO);
+                entries[count * 3 + 2] = turnCosts.getInt(turnCostPtr + TC_FLAGS);
+                nextEntries[count] = count + 1;
+                count++;
+                index = turnCosts.getInt(turnCostPtr + TC_NEXT);
+            }
+            nextEntries[count - 1] = NO_TURN_ENTRY;
+            sortEntries(entries, first, count);
+            nodeAccess.setAdditionalNodeField(node, first);
+        }
+
+        for (int i = 0; i < count; i++) {
+            long turnCostPtr = (long) i * turnCostsEntryBytes;
+            turnCosts.setInt(turnCostPtr + TC_FROM, entries[i * 3]);
+            turnCosts.setInt(turnCostPtr + TC_TO, entries[i * 3 + 1]);
+            turnCosts.setInt(turnCostPtr + TC_FLAGS, entries[i * 3 + 2]);
+            turnCosts.setInt(turnCostPtr + TC_NEXT, nextEntries[i]);
+        }
+        turnCostsCount = count;
+        sorted = true;
+        turnCostNodes = nodesWithTurnCosts;
+    }
+
+    /**
+     * Marks the nodes with turn costs of a loaded graph, which was optimized before it was stored
+     */
+    void initTurnCostNodes(int nodes) {
+        GHBitSet nodesWithTurnCosts = new GHBitSetImpl(nodes);
+        for (int node = 0; node < nodes; node++) {
+            if (nodeAccess.getAdditionalNodeField(node) != NO_TURN_ENTRY)
+                nodesWithTurnCosts.add(node);
+        }
+        turnCostNodes = nodesWithTurnCosts;
+    }
+
+    /**
+     * Sorts the entries in [from, to) by their from and to edges. The entries of a node are only a few, so we use
+     * an insertion sort.
+     */
+    private static void sortEntries(int[] entries, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            int fromEdge = entries[i * 3], toEdge = entries[i * 3 + 1], flags = entries[i * 3 + 2];
+            int j = i - 1;
+            while (j >= from && (entries[j * 3] > fromEdge || entries[j * 3] == fromEdge && entries[j * 3 + 1] > toEdge)) {
+                entries[(j + 1) * 3] = entries[j * 3];
+                entries[(j + 1) * 3 + 1] = entries[j * 3 + 1];
+                entries[(j + 1) * 3 + 2] = entries[j * 3 + 2];
+                j--;
+            }
+            entries[(j + 1) * 3] = fromEdge;
+            entries[(j + 1) * 3 + 1] = toEdge;
+            entries[(j + 1) * 3 + 2] = flags;
+        }
+    }
+
     private void ensureTurnCostIndex(int nodeIndex) {
         turnCosts.ensureCapacity(((long) nodeIndex + 4) * turnCostsEntryBytes);
     }
@@ -264,6 +367,7 @@ public class TurnCostExtension implements GraphExtension {
 
         turnCosts.copyTo(clonedTC.turnCosts);
         clonedTC.turnCostsCount = turnCostsCount;
+        clonedTC.sorted = sorted;
 
         return clonedStorage;
     }
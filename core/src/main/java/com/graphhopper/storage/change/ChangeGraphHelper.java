@@ -19,6 +19,7 @@ package com.graphhopper.storage.change;
 
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.json.geo.JsonFeature;
 import com.graphhopper.routing.profiles.BooleanEncodedValue;
 import com.graphhopper.routing.profiles.DecimalEncodedValue;
@@ -26,20 +27,24 @@ import com.graphhopper.routing.util.DefaultEdgeFilter;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FlagEncoder;
-import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.GraphEdgeIdFinder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.IntsRef;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.util.EdgeIteratorState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 /**
- * This graph applies permanent changes passed as JsonFeature to the specified graph.
+ * This graph applies permanent changes passed as JsonFeature to the specified graph. All changes of one
+ * applyChanges call are published at once via GraphHopperStorage.publishEdgeFlags, so routing requests running
+ * in parallel are not blocked and either see all or none of the changes.
  * <p>
  * This class is not thread-safe. It is currently only safe to use it via GraphHopper.changeGraph
  *
@@ -47,15 +52,24 @@ import java.util.Map;
  */
 public class ChangeGraphHelper {
     private final Logger logger = LoggerFactory.getLogger(getClass());
-    private final Graph graph;
+    private final GraphHopperStorage graph;
     private final GraphEdgeIdFinder graphBrowser;
+    private final List<EdgeChangeListener> listeners = new ArrayList<>();
     private boolean enableLogging = false;
 
-    public ChangeGraphHelper(Graph graph, LocationIndex locationIndex) {
+    public ChangeGraphHelper(GraphHopperStorage graph, LocationIndex locationIndex) {
         this.graph = graph;
         this.graphBrowser = new GraphEdgeIdFinder(graph, locationIndex);
     }
 
+    /**
+     * The specified listener is notified about every edge that was modified by applyChanges.
+     */
+    public ChangeGraphHelper addListener(EdgeChangeListener listener) {
+        listeners.add(listener);
+        return this;
+    }
+
     public void setLogging(boolean log) {
         enableLogging = log;
     }
@@ -70,6 +84,7 @@ public class ChangeGraphHelper {
             throw new NullPointerException("EncodingManager cannot be null to change existing graph");
 
         long updates = 0;
+        GHIntObjectHashMap<IntsRef> changes = new GHIntObjectHashMap<>();
         for (JsonFeature jsonFeature : features) {
             if (!jsonFeature.hasProperties())
                 throw new IllegalArgumentException("One feature has no properties, please specify properties e.g. speed or access");
@@ -77,19 +92,28 @@ public class ChangeGraphHelper {
             List<String> encodersAsStr = (List) jsonFeature.getProperty("vehicles");
             if (encodersAsStr == null) {
                 for (FlagEncoder encoder : em.fetchEdgeEncoders()) {
-                    updates += applyChange(jsonFeature, encoder);
+                    updates += applyChange(jsonFeature, encoder, changes);
                 }
             } else {
                 for (String encoderStr : encodersAsStr) {
-                    updates += applyChange(jsonFeature, em.getEncoder(encoderStr));
+                    updates += applyChange(jsonFeature, em.getEncoder(encoderStr), changes);
                 }
             }
         }
 
+        if (!changes.isEmpty()) {
+            graph.publishEdgeFlags(changes);
+            for (IntCursor edgeId : changes.keys()) {
+                fireEdgeChange(graph.getEdgeIteratorState(edgeId.value, Integer.MIN_VALUE));
+            }
+        }
         return updates;
     }
 
-    private long applyChange(JsonFeature jsonFeature, FlagEncoder encoder) {
+    /**
+     * Collects the new flags of the edges matching the specified feature in changes.
+     */
+    private long applyChange(JsonFeature jsonFeature, FlagEncoder encoder, GHIntObjectHashMap<IntsRef> changes) {
         BooleanEncodedValue accessEnc = encoder.getAccessEnc();
         DecimalEncodedValue avSpeedEnc = encoder.getAverageSpeedEnc();
         long updates = 0;
@@ -106,26 +130,46 @@ public class ChangeGraphHelper {
         Map<String, Object> props = jsonFeature.getProperties();
         while (iter.hasNext()) {
             int edgeId = iter.next().value;
-            EdgeIteratorState edge = graph.getEdgeIteratorState(edgeId, Integer.MIN_VALUE);
+            // an edge could be changed by several features
+            IntsRef flags = changes.get(edgeId);
+            if (flags == null)
+                flags = IntsRef.deepCopyOf(graph.getEdgeIteratorState(edgeId, Integer.MIN_VALUE).getFlags());
             if (props.containsKey("access")) {
                 boolean value = (boolean) props.get("access");
                 updates++;
                 if (enableLogging)
                     logger.info(encoder.toString() + " - access change via feature " + jsonFeature.getId());
-                edge.set(accessEnc, value).setReverse(accessEnc, value);
+                accessEnc.setBool(false, flags, value);
+                accessEnc.setBool(true, flags, value);
+                changes.put(edgeId, flags);
 
             } else if (props.containsKey("speed")) {
                 // TODO use different speed for the different directions (see e.g. Bike2WeightFlagEncoder)
                 double value = ((Number) props.get("speed")).doubleValue();
-                double oldSpeed = edge.get(avSpeedEnc);
+                double oldSpeed = avSpeedEnc.getDecimal(false, flags);
                 if (oldSpeed != value) {
                     updates++;
                     if (enableLogging)
                         logger.info(encoder.toString() + " - speed change via feature " + jsonFeature.getId() + ". Old: " + oldSpeed + ", new:" + value);
-                    edge.set(avSpeedEnc, value);
+                    avSpeedEnc.setDecimal(false, flags, value);
+                    changes.put(edgeId, flags);
                 }
             }
         }
         return updates;
     }
+
+    private void fireEdgeChange(EdgeIteratorState edge) {
+        for (EdgeChangeListener listener : listeners) {
+            listener.onEdgeChange(edge);
+        }
+    }
+
+    public interface EdgeChangeListener {
+        /**
+         * This method is called after the changes were published. Calls are not concurrent as GraphHopper.changeGraph
+         * applies one change at a time, so implementations should be fast and must not call changeGraph again.
+         */
+        void onEdgeChange(EdgeIteratorState edge);
+    }
 }
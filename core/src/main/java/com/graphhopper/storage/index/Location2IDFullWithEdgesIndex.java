@@ -67,6 +67,17 @@ public class Location2IDFullWithEdgesIndex implements LocationIndex {
         return this;
     }
 
+    @Override
+    public Snapper createSnapper() {
+        // no search state to reuse
+        return new Snapper() {
+            @Override
+            public QueryResult findClosest(double lat, double lon, EdgeFilter edgeFilter) {
+                return Location2IDFullWithEdgesIndex.this.findClosest(lat, lon, edgeFilter);
+            }
+        };
+    }
+
     @Override
     public QueryResult findClosest(double queryLat, double queryLon, EdgeFilter filter) {
         if (isClosed())
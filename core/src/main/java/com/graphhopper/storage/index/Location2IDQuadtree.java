@@ -276,6 +276,17 @@ class Location2IDQuadtree implements LocationIndex {
         return dx * dx + dy * dy;
     }
 
+    @Override
+    public Snapper createSnapper() {
+        // no search state to reuse
+        return new Snapper() {
+            @Override
+            public QueryResult findClosest(double lat, double lon, EdgeFilter edgeFilter) {
+                return Location2IDQuadtree.this.findClosest(lat, lon, edgeFilter);
+            }
+        };
+    }
+
     @Override
     public QueryResult findClosest(final double queryLat, final double queryLon,
                                    final EdgeFilter edgeFilter) {
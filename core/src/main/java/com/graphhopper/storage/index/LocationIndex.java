@@ -61,6 +61,13 @@ public interface LocationIndex extends Storable<LocationIndex> {
      */
     QueryResult findClosest(double lat, double lon, EdgeFilter edgeFilter);
 
+    /**
+     * Creates a Snapper which does the same as findClosest but can reuse its internal search state for subsequent
+     * calls. Use it if many locations need to be looked up, e.g. all points of a request. The returned Snapper is
+     * not thread-safe and should be used from one thread only.
+     */
+    Snapper createSnapper();
+
     /**
      * @param approxDist false if initialization and querying should be faster but less precise.
      */
@@ -74,6 +81,13 @@ public interface LocationIndex extends Storable<LocationIndex> {
      */
     void query(BBox queryBBox, Visitor function);
 
+    /**
+     * This interface finds the closest QueryResult for a location, see {@link LocationIndex#findClosest}.
+     */
+    interface Snapper {
+        QueryResult findClosest(double lat, double lon, EdgeFilter edgeFilter);
+    }
+
     /**
      * This interface allows to visit every node stored in the leafs of a LocationIndex.
      */
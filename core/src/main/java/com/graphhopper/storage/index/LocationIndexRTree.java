@@ -0,0 +1,645 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage.index;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.BBox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This location index stores every segment of every edge, including the pillar geometry, in a static
+ * R-tree. The segments are sorted along a Hilbert curve and packed bottom-up into nodes of a fixed size,
+ * so the whole tree is a flat int array stored in a DataAccess.
+ * <p>
+ * In contrast to LocationIndexTree no breadth first search from nearby tower nodes is necessary: a best
+ * first search over the tree returns the closest accepted segment, independent of the edge lengths, and
+ * there is no region search to tune.
+ */
+public class LocationIndexRTree implements LocationIndex {
+    private static final float DEGREE_FACTOR = Integer.MAX_VALUE / 400f;
+    private static final int HILBERT_BITS = 15;
+    // a box is stored as minLat, minLon, maxLat, maxLon and a segment as lat1, lon1, lat2, lon2
+    private static final int BOX_BYTES = 4 * 4;
+    // the edge and the way index of the first segment point (shifted left by one, the lowest bit marks the last segment)
+    private static final int PAYLOAD_BYTES = 2 * 4;
+    protected final Graph graph;
+    final DataAccess dataAccess;
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final int MAGIC_INT;
+    private DistanceCalc distCalc = Helper.DIST_PLANE;
+    /**
+     * If a segment end is closer than this to the snapped point on the segment the end is used instead.
+     */
+    private double equalNormedDelta = distCalc.calcNormalizedDist(0.1);
+    private double maxSearchDistance = Double.MAX_VALUE;
+    private double maxSearchNormedDist = Double.MAX_VALUE;
+    private int nodeSize = 16;
+    private int segments;
+    // the exclusive end index of every level, level 0 are the segments and the last level is the root
+    private int[] levelBounds;
+    private long boxPointer;
+    private long payloadPointer;
+    private boolean initialized = false;
+
+    public LocationIndexRTree(Graph g, Directory dir) {
+        if (g instanceof CHGraph)
+            throw new IllegalArgumentException("Use base graph for LocationIndexRTree instead of CHGraph");
+
+        MAGIC_INT = Integer.MAX_VALUE / 22319;
+        this.graph = g;
+        dataAccess = dir.find("location_index_rtree", DAType.getPreferredInt(dir.getDefaultType()));
+    }
+
+    /**
+     * The maximum number of children of a tree node. Smaller nodes mean less segments to check per node
+     * but a deeper tree. Default is 16.
+     */
+    public LocationIndexRTree setNodeSize(int nodeSize) {
+        if (initialized)
+            throw new IllegalStateException("Call setNodeSize before prepareIndex");
+        if (nodeSize < 2)
+            throw new IllegalArgumentException("Node size must be at least 2 but was " + nodeSize);
+
+        this.nodeSize = nodeSize;
+        return this;
+    }
+
+    /**
+     * Segments that are further away from the queried position than this are not considered, so a lookup with an
+     * edge filter that rejects most edges cannot walk the whole tree. Default is no limit.
+     *
+     * @param meters the maximum distance between the queried position and the snapped point
+     */
+    public LocationIndexRTree setMaxSearchDistance(double meters) {
+        if (meters <= 0)
+            throw new IllegalArgumentException("The maximum search distance has to be positive but was " + meters);
+
+        maxSearchDistance = meters;
+        initMaxSearchNormedDist();
+        return this;
+    }
+
+    private void initMaxSearchNormedDist() {
+        // the normalized distance of the earth is not monotonic for arbitrarily large distances
+        maxSearchNormedDist = maxSearchDistance == Double.MAX_VALUE ? Double.MAX_VALUE : distCalc.calcNormalizedDist(maxSearchDistance);
+    }
+
+    /**
+     * The resolution is not used as all segments are stored.
+     */
+    @Override
+    public LocationIndex setResolution(int resolution) {
+        return this;
+    }
+
+    @Override
+    public LocationIndex setApproximation(boolean approx) {
+        if (approx)
+            distCalc = Helper.DIST_PLANE;
+        else
+            distCalc = Helper.DIST_EARTH;
+        equalNormedDelta = distCalc.calcNormalizedDist(0.1);
+        initMaxSearchNormedDist();
+        return this;
+    }
+
+    @Override
+    public LocationIndexRTree create(long size) {
+        throw new UnsupportedOperationException("Not supported. Use prepareIndex instead.");
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (initialized)
+            throw new IllegalStateException("Call loadExisting only once");
+
+        if (!dataAccess.loadExisting())
+            return false;
+
+        if (dataAccess.getHeader(0) != MAGIC_INT)
+            throw new IllegalStateException("incorrect location index version, expected:" + MAGIC_INT);
+
+        if (dataAccess.getHeader(1 * 4) != calcChecksum())
+            throw new IllegalStateException("location index was opened with incorrect graph: "
+                    + dataAccess.getHeader(1 * 4) + " vs. " + calcChecksum());
+
+        segments = dataAccess.getHeader(2 * 4);
+        nodeSize = dataAccess.getHeader(3 * 4);
+        levelBounds = new int[dataAccess.getHeader(4 * 4)];
+        for (int level = 0; level < levelBounds.length; level++) {
+            levelBounds[level] = dataAccess.getInt(level * 4);
+        }
+        initPointers();
+        initialized = true;
+        return true;
+    }
+
+    @Override
+    public void flush() {
+        dataAccess.setHeader(0, MAGIC_INT);
+        dataAccess.setHeader(1 * 4, calcChecksum());
+        dataAccess.setHeader(2 * 4, segments);
+        dataAccess.setHeader(3 * 4, nodeSize);
+        dataAccess.setHeader(4 * 4, levelBounds.length);
+        dataAccess.flush();
+    }
+
+    @Override
+    public LocationIndex prepareIndex() {
+        if (initialized)
+            throw new IllegalStateException("Call prepareIndex only once");
+
+        StopWatch sw = new StopWatch().start();
+        IntArrayList coordinates = new IntArrayList(graph.getAllEdges().length() * 4);
+        IntArrayList payload = new IntArrayList(graph.getAllEdges().length() * 2);
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            PointList points = iter.fetchWayGeometry(3);
+            int last = points.getSize() - 1;
+            for (int i = 0; i < last; i++) {
+                if (distCalc.isCrossBoundary(points.getLongitude(i), points.getLongitude(i + 1)))
+                    continue;
+
+                coordinates.add(toInt(points.getLatitude(i)), toInt(points.getLongitude(i)),
+                        toInt(points.getLatitude(i + 1)), toInt(points.getLongitude(i + 1)));
+                payload.add(iter.getEdge(), i << 1 | (i + 1 == last ? 1 : 0));
+            }
+        }
+
+        segments = payload.size() / 2;
+
+        long[] sortedSegments = sortAlongHilbertCurve(coordinates);
+        // pack the tree bottom-up, there is at least one level of tree nodes above the segments
+        IntArrayList tmpLevelBounds = new IntArrayList();
+        tmpLevelBounds.add(segments);
+        int levelStart = 0, items = segments;
+        do {
+            int levelEnd = items;
+            items += (levelEnd - levelStart + nodeSize - 1) / nodeSize;
+            levelStart = levelEnd;
+            tmpLevelBounds.add(items);
+        } while (items - levelStart > 1);
+        levelBounds = tmpLevelBounds.toArray();
+        initPointers();
+
+        dataAccess.create(64 * 1024);
+        try {
+            dataAccess.ensureCapacity(payloadPointer + (long) segments * PAYLOAD_BYTES);
+            for (int level = 0; level < levelBounds.length; level++) {
+                dataAccess.setInt(level * 4, levelBounds[level]);
+            }
+
+            for (int i = 0; i < segments; i++) {
+                int segment = (int) sortedSegments[i];
+                long pointer = boxPointer + (long) i * BOX_BYTES;
+                for (int k = 0; k < 4; k++) {
+                    dataAccess.setInt(pointer + k * 4, coordinates.get(segment * 4 + k));
+                }
+                pointer = payloadPointer + (long) i * PAYLOAD_BYTES;
+                dataAccess.setInt(pointer, payload.get(segment * 2));
+                dataAccess.setInt(pointer + 4, payload.get(segment * 2 + 1));
+            }
+
+            int[] box = new int[4];
+            for (int level = 1; level < levelBounds.length; level++) {
+                int childStart = levelStart(level - 1);
+                for (int item = levelStart(level); item < levelBounds[level]; item++) {
+                    int firstChild = childStart + (item - levelStart(level)) * nodeSize;
+                    int lastChild = Math.min(firstChild + nodeSize, levelBounds[level - 1]);
+                    box[0] = box[1] = Integer.MAX_VALUE;
+                    box[2] = box[3] = Integer.MIN_VALUE;
+                    for (int child = firstChild; child < lastChild; child++) {
+                        long pointer = boxPointer + (long) child * BOX_BYTES;
+                        int lat1 = dataAccess.getInt(pointer), lon1 = dataAccess.getInt(pointer + 4);
+                        int lat2 = dataAccess.getInt(pointer + 8), lon2 = dataAccess.getInt(pointer + 12);
+                        box[0] = Math.min(box[0], Math.min(lat1, lat2));
+                        box[1] = Math.min(box[1], Math.min(lon1, lon2));
+                        box[2] = Math.max(box[2], Math.max(lat1, lat2));
+                        box[3] = Math.max(box[3], Math.max(lon1, lon2));
+                    }
+                    long pointer = boxPointer + (long) item * BOX_BYTES;
+                    for (int k = 0; k < 4; k++) {
+                        dataAccess.setInt(pointer + k * 4, box[k]);
+                    }
+                }
+            }
+            flush();
+        } catch (Exception ex) {
+            throw new IllegalStateException("Problem while storing location index. " + Helper.getMemInfo(), ex);
+        }
+        initialized = true;
+        logger.info("location index created in " + sw.stop().getSeconds()
+                + "s, segments:" + Helper.nf(segments)
+                + ", tree nodes:" + Helper.nf(items - segments)
+                + ", depth:" + levelBounds.length
+                + ", node size:" + nodeSize
+                + ", checksum:" + calcChecksum());
+        return this;
+    }
+
+    /**
+     * @return the segment indices sorted by the Hilbert value of their center, the index is stored in the
+     * lower 32 bits of every entry
+     */
+    private long[] sortAlongHilbertCurve(IntArrayList coordinates) {
+        BBox bounds = graph.getBounds();
+        int minLat = toInt(bounds.minLat), minLon = toInt(bounds.minLon);
+        double latFactor = ((1 << HILBERT_BITS) - 1) / Math.max(1d, (double) toInt(bounds.maxLat) - minLat);
+        double lonFactor = ((1 << HILBERT_BITS) - 1) / Math.max(1d, (double) toInt(bounds.maxLon) - minLon);
+        long[] keys = new long[segments];
+        for (int i = 0; i < segments; i++) {
+            double centerLat = ((double) coordinates.get(i * 4) + coordinates.get(i * 4 + 2)) / 2;
+            double centerLon = ((double) coordinates.get(i * 4 + 1) + coordinates.get(i * 4 + 3)) / 2;
+            int y = clampCell((centerLat - minLat) * latFactor);
+            int x = clampCell((centerLon - minLon) * lonFactor);
+            keys[i] = hilbertIndex(x, y) << 32 | i;
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    /**
+     * Same conversion as used by the node storage but rounded, so that the stored ints of the graph are
+     * restored exactly.
+     */
+    private static int toInt(double degree) {
+        return (int) Math.round(degree * DEGREE_FACTOR);
+    }
+
+    private static int clampCell(double value) {
+        return (int) Math.max(0, Math.min((1 << HILBERT_BITS) - 1, value));
+    }
+
+    static long hilbertIndex(int x, int y) {
+        int n = 1 << HILBERT_BITS;
+        long index = 0;
+        for (int s = n / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            index += (long) s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                int tmp = x;
+                x = y;
+                y = tmp;
+            }
+        }
+        return index;
+    }
+
+    private void initPointers() {
+        boxPointer = levelBounds.length * 4;
+        payloadPointer = boxPointer + (long) levelBounds[levelBounds.length - 1] * BOX_BYTES;
+    }
+
+    private int levelStart(int level) {
+        return level == 0 ? 0 : levelBounds[level - 1];
+    }
+
+    private int levelOf(int item) {
+        int level = 0;
+        while (item >= levelBounds[level]) {
+            level++;
+        }
+        return level;
+    }
+
+    int calcChecksum() {
+        return graph.getNodes();
+    }
+
+    @Override
+    public void close() {
+        dataAccess.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return dataAccess.isClosed();
+    }
+
+    @Override
+    public long getCapacity() {
+        return dataAccess.getCapacity();
+    }
+
+    @Override
+    public void setSegmentSize(int bytes) {
+        dataAccess.setSegmentSize(bytes);
+    }
+
+    @Override
+    public QueryResult findClosest(double queryLat, double queryLon, EdgeFilter edgeFilter) {
+        return new RTreeSnapper().findClosest(queryLat, queryLon, edgeFilter);
+    }
+
+    @Override
+    public Snapper createSnapper() {
+        return new RTreeSnapper();
+    }
+
+    /**
+     * Returns the closest segment of every edge that is within the specified radius around the queried
+     * position, sorted by distance. If no edge is within the radius the closest edge is returned.
+     *
+     * @param radius in meters
+     */
+    public List<QueryResult> findNClosest(double queryLat, double queryLon, EdgeFilter edgeFilter, double radius) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+
+        double normedRadius = distCalc.calcNormalizedDist(radius);
+        List<QueryResult> queryResults = new ArrayList<>();
+        GHIntHashSet checkedEdges = new GHIntHashSet();
+        SearchQueue queue = new SearchQueue();
+        pushRoot(queue);
+        while (!queue.isEmpty()) {
+            double normedDist = queue.peekKey();
+            if (normedDist > normedRadius && !queryResults.isEmpty())
+                break;
+
+            int item = queue.poll();
+            if (item >= segments) {
+                pushChildren(queue, item, queryLat, queryLon);
+                continue;
+            }
+
+            // the first segment of an edge that is polled is the closest one
+            int edgeId = getEdge(item);
+            if (!checkedEdges.add(edgeId))
+                continue;
+
+            EdgeIteratorState edge = graph.getEdgeIteratorState(edgeId, Integer.MIN_VALUE);
+            if (edgeFilter.accept(edge))
+                queryResults.add(createQueryResult(queryLat, queryLon, item, edge, normedDist));
+        }
+        return queryResults;
+    }
+
+    @Override
+    public void query(BBox queryBBox, Visitor function) {
+        int minLat = toInt(queryBBox.minLat), maxLat = toInt(queryBBox.maxLat);
+        int minLon = toInt(queryBBox.minLon), maxLon = toInt(queryBBox.maxLon);
+        GHIntHashSet visitedEdges = new GHIntHashSet();
+        GHIntHashSet visitedNodes = new GHIntHashSet();
+        IntArrayList stack = new IntArrayList();
+        if (segments > 0)
+            stack.add(getRootItem());
+        while (!stack.isEmpty()) {
+            int item = stack.remove(stack.size() - 1);
+            long pointer = boxPointer + (long) item * BOX_BYTES;
+            int lat1 = dataAccess.getInt(pointer), lon1 = dataAccess.getInt(pointer + 4);
+            int lat2 = dataAccess.getInt(pointer + 8), lon2 = dataAccess.getInt(pointer + 12);
+            if (Math.max(lat1, lat2) < minLat || Math.min(lat1, lat2) > maxLat
+                    || Math.max(lon1, lon2) < minLon || Math.min(lon1, lon2) > maxLon)
+                continue;
+
+            if (item < segments) {
+                int edgeId = getEdge(item);
+                if (visitedEdges.add(edgeId)) {
+                    EdgeIteratorState edge = graph.getEdgeIteratorState(edgeId, Integer.MIN_VALUE);
+                    if (visitedNodes.add(edge.getBaseNode()))
+                        function.onNode(edge.getBaseNode());
+                    if (visitedNodes.add(edge.getAdjNode()))
+                        function.onNode(edge.getAdjNode());
+                }
+                continue;
+            }
+
+            int level = levelOf(item);
+            if (function.isTileInfo())
+                function.onTile(new BBox(Helper.intToDegree(lon1), Helper.intToDegree(lon2),
+                        Helper.intToDegree(lat1), Helper.intToDegree(lat2)), levelBounds.length - 1 - level);
+
+            int firstChild = levelStart(level - 1) + (item - levelStart(level)) * nodeSize;
+            int lastChild = Math.min(firstChild + nodeSize, levelBounds[level - 1]);
+            for (int child = firstChild; child < lastChild; child++) {
+                stack.add(child);
+            }
+        }
+    }
+
+    private void pushRoot(SearchQueue queue) {
+        // an index without edges has an empty tree
+        if (segments > 0)
+            queue.push(getRootItem(), 0);
+    }
+
+    private int getRootItem() {
+        return levelBounds[levelBounds.length - 1] - 1;
+    }
+
+    private int getEdge(int segment) {
+        return dataAccess.getInt(payloadPointer + (long) segment * PAYLOAD_BYTES);
+    }
+
+    /**
+     * Pushes all children of the specified tree node with their normalized distance to the query point.
+     * For segments this is the exact distance and for tree nodes a lower bound. Children beyond the maximum
+     * search distance are skipped.
+     */
+    private void pushChildren(SearchQueue queue, int item, double queryLat, double queryLon) {
+        int level = levelOf(item);
+        int firstChild = levelStart(level - 1) + (item - levelStart(level)) * nodeSize;
+        int lastChild = Math.min(firstChild + nodeSize, levelBounds[level - 1]);
+        for (int child = firstChild; child < lastChild; child++) {
+            long pointer = boxPointer + (long) child * BOX_BYTES;
+            double lat1 = Helper.intToDegree(dataAccess.getInt(pointer));
+            double lon1 = Helper.intToDegree(dataAccess.getInt(pointer + 4));
+            double lat2 = Helper.intToDegree(dataAccess.getInt(pointer + 8));
+            double lon2 = Helper.intToDegree(dataAccess.getInt(pointer + 12));
+            double normedDist;
+            if (level == 1) {
+                normedDist = calcNormalizedSegmentDist(queryLat, queryLon, lat1, lon1, lat2, lon2);
+            } else {
+                double lat = Math.max(lat1, Math.min(lat2, queryLat));
+                double lon = Math.max(lon1, Math.min(lon2, queryLon));
+                normedDist = distCalc.calcNormalizedDist(queryLat, queryLon, lat, lon);
+            }
+            if (normedDist <= maxSearchNormedDist)
+                queue.push(child, normedDist);
+        }
+    }
+
+    private double calcNormalizedSegmentDist(double queryLat, double queryLon,
+                                             double lat1, double lon1, double lat2, double lon2) {
+        if (distCalc.validEdgeDistance(queryLat, queryLon, lat1, lon1, lat2, lon2))
+            return distCalc.calcNormalizedEdgeDistance(queryLat, queryLon, lat1, lon1, lat2, lon2);
+
+        return Math.min(distCalc.calcNormalizedDist(queryLat, queryLon, lat1, lon1),
+                distCalc.calcNormalizedDist(queryLat, queryLon, lat2, lon2));
+    }
+
+    private QueryResult createQueryResult(double queryLat, double queryLon, int segment, EdgeIteratorState edge,
+                                          double normedDist) {
+        long pointer = boxPointer + (long) segment * BOX_BYTES;
+        double lat1 = Helper.intToDegree(dataAccess.getInt(pointer));
+        double lon1 = Helper.intToDegree(dataAccess.getInt(pointer + 4));
+        double lat2 = Helper.intToDegree(dataAccess.getInt(pointer + 8));
+        double lon2 = Helper.intToDegree(dataAccess.getInt(pointer + 12));
+        int wayInfo = dataAccess.getInt(payloadPointer + (long) segment * PAYLOAD_BYTES + 4);
+        int wayIndex = wayInfo >>> 1;
+        boolean lastSegment = (wayInfo & 1) != 0;
+
+        double dist1 = distCalc.calcNormalizedDist(queryLat, queryLon, lat1, lon1);
+        double dist2 = distCalc.calcNormalizedDist(queryLat, queryLon, lat2, lon2);
+        QueryResult.Position pos;
+        if (Math.min(dist1, dist2) > normedDist + equalNormedDelta) {
+            pos = QueryResult.Position.EDGE;
+        } else if (dist1 <= dist2) {
+            pos = wayIndex == 0 ? QueryResult.Position.TOWER : QueryResult.Position.PILLAR;
+        } else {
+            wayIndex++;
+            pos = lastSegment ? QueryResult.Position.TOWER : QueryResult.Position.PILLAR;
+        }
+
+        int closestNode;
+        if (pos == QueryResult.Position.TOWER) {
+            closestNode = wayIndex == 0 ? edge.getBaseNode() : edge.getAdjNode();
+        } else {
+            NodeAccess na = graph.getNodeAccess();
+            int base = edge.getBaseNode(), adj = edge.getAdjNode();
+            closestNode = distCalc.calcNormalizedDist(queryLat, queryLon, na.getLatitude(adj), na.getLongitude(adj))
+                    < distCalc.calcNormalizedDist(queryLat, queryLon, na.getLatitude(base), na.getLongitude(base))
+                    ? adj : base;
+        }
+
+        QueryResult qr = new QueryResult(queryLat, queryLon);
+        qr.setQueryDistance(distCalc.calcDenormalizedDist(normedDist));
+        qr.setClosestNode(closestNode);
+        qr.setClosestEdge(edge);
+        qr.setWayIndex(wayIndex);
+        qr.setSnappedPosition(pos);
+        qr.calcSnappedPoint(distCalc);
+        return qr;
+    }
+
+    /**
+     * Reuses the priority queue of the best first search for several lookups.
+     */
+    private class RTreeSnapper implements Snapper {
+        private final SearchQueue queue = new SearchQueue();
+        private final GHIntHashSet rejectedEdges = new GHIntHashSet();
+
+        @Override
+        public QueryResult findClosest(double queryLat, double queryLon, EdgeFilter edgeFilter) {
+            if (isClosed())
+                throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+
+            queue.clear();
+            rejectedEdges.clear();
+            pushRoot(queue);
+            while (!queue.isEmpty()) {
+                double normedDist = queue.peekKey();
+                int item = queue.poll();
+                if (item >= segments) {
+                    pushChildren(queue, item, queryLat, queryLon);
+                    continue;
+                }
+
+                // an edge consists of several segments, so the filter is called once per edge and the edge state is
+                // only created for edges that were not rejected before
+                int edgeId = getEdge(item);
+                if (rejectedEdges.contains(edgeId))
+                    continue;
+
+                // segments are polled in the order of their distance so the first accepted one is the closest
+                EdgeIteratorState edge = graph.getEdgeIteratorState(edgeId, Integer.MIN_VALUE);
+                if (edgeFilter.accept(edge))
+                    return createQueryResult(queryLat, queryLon, item, edge, normedDist);
+                rejectedEdges.add(edgeId);
+            }
+            return new QueryResult(queryLat, queryLon);
+        }
+    }
+
+    /**
+     * A binary min heap of tree items keyed by their normalized distance.
+     */
+    private static class SearchQueue {
+        private double[] keys = new double[64];
+        private int[] items = new int[64];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        double peekKey() {
+            return keys[0];
+        }
+
+        void push(int item, double key) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                items = Arrays.copyOf(items, size * 2);
+            }
+            int pos = size++;
+            while (pos > 0) {
+                int parent = (pos - 1) / 2;
+                if (keys[parent] <= key)
+                    break;
+                keys[pos] = keys[parent];
+                items[pos] = items[parent];
+                pos = parent;
+            }
+            keys[pos] = key;
+            items[pos] = item;
+        }
+
+        int poll() {
+            int result = items[0];
+            size--;
+            double key = keys[size];
+            int item = items[size];
+            int pos = 0;
+            while (true) {
+                int child = 2 * pos + 1;
+                if (child >= size)
+                    break;
+                if (child + 1 < size && keys[child + 1] < keys[child])
+                    child++;
+                if (key <= keys[child])
+                    break;
+                keys[pos] = keys[child];
+                items[pos] = items[child];
+                pos = child;
+            }
+            keys[pos] = key;
+            items[pos] = item;
+            return result;
+        }
+    }
+}
@@ -21,6 +21,7 @@ import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.carrotsearch.hppc.predicates.IntPredicate;
+import com.carrotsearch.hppc.procedures.IntProcedure;
 import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.coll.GHIntHashSet;
 import com.graphhopper.coll.GHTBitSet;
@@ -396,9 +397,14 @@ public class LocationIndexTree implements LocationIndex {
      * coordinate
      */
     final double calculateRMin(double lat, double lon, int paddingTiles) {
-        GHPoint query = new GHPoint(lat, lon);
-        long key = keyAlgo.encode(query);
-        GHPoint center = new GHPoint();
+        return calculateRMin(lat, lon, paddingTiles, new GHPoint());
+    }
+
+    /**
+     * @param center is used to decode the center of the tile and avoids an allocation per call
+     */
+    final double calculateRMin(double lat, double lon, int paddingTiles, GHPoint center) {
+        long key = keyAlgo.encode(lat, lon);
         keyAlgo.decode(key, center);
 
         // deltaLat and deltaLon comes from the LocationIndex:
@@ -407,23 +413,23 @@ public class LocationIndexTree implements LocationIndex {
         double minLon = center.lon - (0.5 + paddingTiles) * deltaLon;
         double maxLon = center.lon + (0.5 + paddingTiles) * deltaLon;
 
-        double dSouthernLat = query.lat - minLat;
-        double dNorthernLat = maxLat - query.lat;
-        double dWesternLon = query.lon - minLon;
-        double dEasternLon = maxLon - query.lon;
+        double dSouthernLat = lat - minLat;
+        double dNorthernLat = maxLat - lat;
+        double dWesternLon = lon - minLon;
+        double dEasternLon = maxLon - lon;
 
         // convert degree deltas into a radius in meter
         double dMinLat, dMinLon;
         if (dSouthernLat < dNorthernLat) {
-            dMinLat = distCalc.calcDist(query.lat, query.lon, minLat, query.lon);
+            dMinLat = distCalc.calcDist(lat, lon, minLat, lon);
         } else {
-            dMinLat = distCalc.calcDist(query.lat, query.lon, maxLat, query.lon);
+            dMinLat = distCalc.calcDist(lat, lon, maxLat, lon);
         }
 
         if (dWesternLon < dEasternLon) {
-            dMinLon = distCalc.calcDist(query.lat, query.lon, query.lat, minLon);
+            dMinLon = distCalc.calcDist(lat, lon, lat, minLon);
         } else {
-            dMinLon = distCalc.calcDist(query.lat, query.lon, query.lat, maxLon);
+            dMinLon = distCalc.calcDist(lat, lon, lat, maxLon);
         }
 
         double rMin = Math.min(dMinLat, dMinLon);
@@ -524,6 +530,31 @@ public class LocationIndexTree implements LocationIndex {
      */
     final boolean findNetworkEntries(double queryLat, double queryLon,
                                      GHIntHashSet foundEntries, int iteration) {
+        fillNetworkEntries(queryLat, queryLon, foundEntries, iteration);
+
+        if (iteration % 2 != 0) {
+            // Check if something was found already...
+            if (!foundEntries.isEmpty()) {
+                double rMin = calculateRMin(queryLat, queryLon, iteration);
+                double minDistance = calcMinDistance(queryLat, queryLon, foundEntries);
+
+                if (minDistance < rMin)
+                    // early finish => foundEntries contains a nearest node for sure
+                    return true;
+                // else: continue as an undetected nearer node may sit in a neighbouring tile.
+                // Now calculate how far we have to look outside to find any hidden nearest nodes
+                // and repeat whole process with wider search area until this distance is covered.
+            }
+        }
+
+        // no early finish possible
+        return false;
+    }
+
+    /**
+     * Fills the set with the node indices of the tiles in the border of the search box for the specified iteration.
+     */
+    final void fillNetworkEntries(double queryLat, double queryLon, GHIntHashSet foundEntries, int iteration) {
         // find entries in border of searchbox
         for (int yreg = -iteration; yreg <= iteration; yreg++) {
             double subqueryLat = queryLat + yreg * deltaLat;
@@ -543,24 +574,6 @@ public class LocationIndexTree implements LocationIndex {
             findNetworkEntriesSingleRegion(foundEntries, subqueryLatA, subqueryLon);
             findNetworkEntriesSingleRegion(foundEntries, subqueryLatB, subqueryLon);
         }
-
-        if (iteration % 2 != 0) {
-            // Check if something was found already...
-            if (!foundEntries.isEmpty()) {
-                double rMin = calculateRMin(queryLat, queryLon, iteration);
-                double minDistance = calcMinDistance(queryLat, queryLon, foundEntries);
-
-                if (minDistance < rMin)
-                    // early finish => foundEntries contains a nearest node for sure
-                    return true;
-                // else: continue as an undetected nearer node may sit in a neighbouring tile.
-                // Now calculate how far we have to look outside to find any hidden nearest nodes
-                // and repeat whole process with wider search area until this distance is covered.
-            }
-        }
-
-        // no early finish possible
-        return false;
     }
 
     final double calcMinDistance(double queryLat, double queryLon, GHIntHashSet pointset) {
@@ -585,59 +598,12 @@ public class LocationIndexTree implements LocationIndex {
 
     @Override
     public QueryResult findClosest(final double queryLat, final double queryLon, final EdgeFilter edgeFilter) {
-        if (isClosed())
-            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
-
-        GHIntHashSet allCollectedEntryIds = new GHIntHashSet();
-        final QueryResult closestMatch = new QueryResult(queryLat, queryLon);
-        for (int iteration = 0; iteration < maxRegionSearch; iteration++) {
-            GHIntHashSet storedNetworkEntryIds = new GHIntHashSet();
-            boolean earlyFinish = findNetworkEntries(queryLat, queryLon, storedNetworkEntryIds, iteration);
-            storedNetworkEntryIds.removeAll(allCollectedEntryIds);
-            allCollectedEntryIds.addAll(storedNetworkEntryIds);
-
-            // clone storedIds to avoid interference with forEach
-            final GHBitSet checkBitset = new GHTBitSet(new GHIntHashSet(storedNetworkEntryIds));
-            // find nodes from the network entries which are close to 'point'
-            final EdgeExplorer explorer = graph.createEdgeExplorer();
-            storedNetworkEntryIds.forEach(new IntPredicate() {
-                @Override
-                public boolean apply(int networkEntryNodeId) {
-                    new XFirstSearchCheck(queryLat, queryLon, checkBitset, edgeFilter) {
-                        @Override
-                        protected double getQueryDistance() {
-                            return closestMatch.getQueryDistance();
-                        }
-
-                        @Override
-                        protected boolean check(int node, double normedDist, int wayIndex, EdgeIteratorState edge, QueryResult.Position pos) {
-                            if (normedDist < closestMatch.getQueryDistance()) {
-                                closestMatch.setQueryDistance(normedDist);
-                                closestMatch.setClosestNode(node);
-                                closestMatch.setClosestEdge(edge.detach(false));
-                                closestMatch.setWayIndex(wayIndex);
-                                closestMatch.setSnappedPosition(pos);
-                                return true;
-                            }
-                            return false;
-                        }
-                    }.start(explorer, networkEntryNodeId);
-                    return true;
-                }
-            });
-
-            // do early finish only if something was found (#318)
-            if (earlyFinish && closestMatch.isValid())
-                break;
-        }
-
-        // denormalize distance and calculate snapping point only if closed match was found
-        if (closestMatch.isValid()) {
-            closestMatch.setQueryDistance(distCalc.calcDenormalizedDist(closestMatch.getQueryDistance()));
-            closestMatch.calcSnappedPoint(distCalc);
-        }
+        return new TreeSnapper().findClosest(queryLat, queryLon, edgeFilter);
+    }
 
-        return closestMatch;
+    @Override
+    public Snapper createSnapper() {
+        return new TreeSnapper();
     }
 
     /**
@@ -1013,6 +979,179 @@ public class LocationIndexTree implements LocationIndex {
         }
     }
 
+    /**
+     * Finds the closest edge and keeps the collected tile entries and the edge explorer to reuse them for the next
+     * call. Every edge is stored in the tiles it crosses via one of its nodes, so it is sufficient to check the edges
+     * adjacent to the collected entry nodes.
+     * <p>
+     * This class is not thread-safe.
+     */
+    class TreeSnapper implements Snapper {
+        private final GHIntHashSet allCollectedEntryIds = new GHIntHashSet();
+        private final GHIntHashSet networkEntryIds = new GHIntHashSet();
+        private final IntArrayList newNetworkEntries = new IntArrayList();
+        private final GHPoint tileCenter = new GHPoint();
+        private final EdgeExplorer explorer = graph.createEdgeExplorer();
+        private final IntProcedure collectNewEntry = new IntProcedure() {
+            @Override
+            public void apply(int node) {
+                if (allCollectedEntryIds.add(node))
+                    newNetworkEntries.add(node);
+            }
+        };
+        private final IntProcedure calcMinEntryDistance = new IntProcedure() {
+            @Override
+            public void apply(int node) {
+                double dist = distCalc.calcDist(queryLat, queryLon, nodeAccess.getLatitude(node), nodeAccess.getLongitude(node));
+                if (dist < minEntryDistance)
+                    minEntryDistance = dist;
+            }
+        };
+        private double queryLat;
+        private double queryLon;
+        private EdgeFilter edgeFilter;
+        private double minEntryDistance;
+        // the current state of the closest match
+        private double closestNormedDist;
+        private int closestNode;
+        private EdgeIteratorState closestEdge;
+        private int closestWayIndex;
+        private QueryResult.Position closestPosition;
+        // the current entry node
+        private int currNode;
+        private double currLat;
+        private double currLon;
+        private double currNormedDist;
+
+        @Override
+        public QueryResult findClosest(double queryLat, double queryLon, EdgeFilter edgeFilter) {
+            if (isClosed())
+                throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+
+            this.queryLat = queryLat;
+            this.queryLon = queryLon;
+            this.edgeFilter = edgeFilter;
+            closestNormedDist = Double.MAX_VALUE;
+            closestNode = QueryResult.INVALID_NODE;
+            closestEdge = null;
+            allCollectedEntryIds.clear();
+            for (int iteration = 0; iteration < maxRegionSearch; iteration++) {
+                networkEntryIds.clear();
+                fillNetworkEntries(queryLat, queryLon, networkEntryIds, iteration);
+                boolean earlyFinish = false;
+                if (iteration % 2 != 0 && !networkEntryIds.isEmpty()) {
+                    minEntryDistance = Double.MAX_VALUE;
+                    networkEntryIds.forEach(calcMinEntryDistance);
+                    // early finish => the entries contain a nearest node for sure
+                    earlyFinish = minEntryDistance < calculateRMin(queryLat, queryLon, iteration, tileCenter);
+                }
+
+                newNetworkEntries.clear();
+                networkEntryIds.forEach(collectNewEntry);
+                for (int i = 0; i < newNetworkEntries.size(); i++) {
+                    checkAdjacentEdges(newNetworkEntries.get(i));
+                }
+
+                // do early finish only if something was found (#318)
+                if (earlyFinish && closestNode >= 0)
+                    break;
+            }
+
+            QueryResult closestMatch = new QueryResult(queryLat, queryLon);
+            // denormalize distance and calculate snapping point only if closed match was found
+            if (closestNode >= 0) {
+                closestMatch.setQueryDistance(distCalc.calcDenormalizedDist(closestNormedDist));
+                closestMatch.setClosestNode(closestNode);
+                closestMatch.setClosestEdge(closestEdge);
+                closestMatch.setWayIndex(closestWayIndex);
+                closestMatch.setSnappedPosition(closestPosition);
+                closestMatch.calcSnappedPoint(distCalc);
+            }
+            closestEdge = null;
+            this.edgeFilter = null;
+            return closestMatch;
+        }
+
+        private void checkAdjacentEdges(int node) {
+            currNode = node;
+            currLat = nodeAccess.getLatitude(node);
+            currLon = nodeAccess.getLongitude(node);
+            currNormedDist = distCalc.calcNormalizedDist(queryLat, queryLon, currLat, currLon);
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                if (edgeFilter.accept(iter))
+                    checkEdge(iter);
+            }
+        }
+
+        private void checkEdge(EdgeIteratorState currEdge) {
+            int tmpClosestNode = currNode;
+            if (check(tmpClosestNode, currNormedDist, 0, currEdge, QueryResult.Position.TOWER)) {
+                if (currNormedDist <= equalNormedDelta)
+                    return;
+            }
+
+            int adjNode = currEdge.getAdjNode();
+            double adjLat = nodeAccess.getLatitude(adjNode);
+            double adjLon = nodeAccess.getLongitude(adjNode);
+            double adjDist = distCalc.calcNormalizedDist(adjLat, adjLon, queryLat, queryLon);
+            // if there are wayPoints this is only an approximation
+            if (adjDist < currNormedDist)
+                tmpClosestNode = adjNode;
+
+            double tmpLat = currLat;
+            double tmpLon = currLon;
+            double tmpNormedDist;
+            // avoids the allocation of a PointList for edges without pillar nodes
+            PointList pillars = currEdge.fetchWayGeometry(0);
+            int len = pillars.getSize() + 1;
+            for (int pointIndex = 0; pointIndex < len; pointIndex++) {
+                boolean isAdjNode = pointIndex + 1 == len;
+                double wayLat = isAdjNode ? adjLat : pillars.getLatitude(pointIndex);
+                double wayLon = isAdjNode ? adjLon : pillars.getLongitude(pointIndex);
+                QueryResult.Position pos = QueryResult.Position.EDGE;
+                if (distCalc.isCrossBoundary(tmpLon, wayLon)) {
+                    tmpLat = wayLat;
+                    tmpLon = wayLon;
+                    continue;
+                }
+
+                if (distCalc.validEdgeDistance(queryLat, queryLon, tmpLat, tmpLon, wayLat, wayLon)) {
+                    tmpNormedDist = distCalc.calcNormalizedEdgeDistance(queryLat, queryLon,
+                            tmpLat, tmpLon, wayLat, wayLon);
+                    check(tmpClosestNode, tmpNormedDist, pointIndex, currEdge, pos);
+                } else {
+                    if (isAdjNode) {
+                        tmpNormedDist = adjDist;
+                        pos = QueryResult.Position.TOWER;
+                    } else {
+                        tmpNormedDist = distCalc.calcNormalizedDist(queryLat, queryLon, wayLat, wayLon);
+                        pos = QueryResult.Position.PILLAR;
+                    }
+                    check(tmpClosestNode, tmpNormedDist, pointIndex + 1, currEdge, pos);
+                }
+
+                if (tmpNormedDist <= equalNormedDelta)
+                    return;
+
+                tmpLat = wayLat;
+                tmpLon = wayLon;
+            }
+        }
+
+        private boolean check(int node, double normedDist, int wayIndex, EdgeIteratorState edge, QueryResult.Position pos) {
+            if (normedDist >= closestNormedDist)
+                return false;
+
+            closestNormedDist = normedDist;
+            closestNode = node;
+            closestEdge = edge.detach(false);
+            closestWayIndex = wayIndex;
+            closestPosition = pos;
+            return true;
+        }
+    }
+
     /**
      * Make it possible to collect nearby location also for other purposes.
      */
@@ -27,6 +27,7 @@ package com.graphhopper.util;
  * @author Peter Karich
  */
 public class DouglasPeucker {
+    private static final int DELTA = 500;
     private double normedMaxDist;
     private DistanceCalc calc;
     private boolean approx;
@@ -74,95 +75,141 @@ public class DouglasPeucker {
      * @return The number of removed points
      */
     public int simplify(PointList points, int fromIndex, int lastIndex) {
+        int removed = simplify(points, fromIndex, lastIndex, createStack(lastIndex - fromIndex));
+        if (removed > 0)
+            compress(points, fromIndex, null);
+
+        return removed;
+    }
+
+    /**
+     * Simplifies the <code>points</code> in between every two consecutive of the specified <code>indices</code>
+     * which are all kept. This is equivalent to calling {@link #simplify(PointList, int, int)} for every interval,
+     * but the points are moved only once.
+     *
+     * @param indices The ascending indices of the points to keep. After the call they contain the new indices of
+     *                these points.
+     * @return The number of removed points
+     */
+    public int simplify(PointList points, int[] indices) {
+        if (indices.length < 2)
+            return 0;
+
+        int maxLength = 0;
+        for (int i = 1; i < indices.length; i++) {
+            if (indices[i] < indices[i - 1])
+                throw new IllegalArgumentException("Indices have to be ascending but " + indices[i] + " is after " + indices[i - 1]);
+            maxLength = Math.max(maxLength, indices[i] - indices[i - 1]);
+        }
+
+        int[] stack = createStack(maxLength);
         int removed = 0;
-        int size = lastIndex - fromIndex;
-        if (approx) {
-            int delta = 500;
-            int segments = size / delta + 1;
-            int start = fromIndex;
-            for (int i = 0; i < segments; i++) {
-                // start of next is end of last segment, except for the last
-                removed += subSimplify(points, start, Math.min(lastIndex, start + delta));
-                start += delta;
-            }
-        } else {
-            removed = subSimplify(points, fromIndex, lastIndex);
+        for (int i = 1; i < indices.length; i++) {
+            removed += simplify(points, indices[i - 1], indices[i], stack);
         }
 
         if (removed > 0)
-            compressNew(points, removed);
+            compress(points, indices[0], indices);
 
         return removed;
     }
 
+    private int[] createStack(int length) {
+        // the intervals on the stack do not overlap and contain at least one point to check
+        return new int[(approx ? Math.min(length, DELTA) : length) + 2];
+    }
+
+    private int simplify(PointList points, int fromIndex, int lastIndex, int[] stack) {
+        if (!approx)
+            return subSimplify(points, fromIndex, lastIndex, stack);
+
+        int removed = 0;
+        int segments = (lastIndex - fromIndex) / DELTA + 1;
+        int start = fromIndex;
+        for (int i = 0; i < segments; i++) {
+            // start of next is end of last segment, except for the last
+            removed += subSimplify(points, start, Math.min(lastIndex, start + DELTA), stack);
+            start += DELTA;
+        }
+        return removed;
+    }
+
     /**
-     * compress list: move points into EMPTY slots
+     * Compresses the list starting at fromIndex: moves the remaining points into the slots of the removed points.
+     *
+     * @param indices if not null the ascending indices of kept points, which are updated to their new position
      */
-    void compressNew(PointList points, int removed) {
-        int freeIndex = -1;
-        for (int currentIndex = 0; currentIndex < points.getSize(); currentIndex++) {
-            if (Double.isNaN(points.getLatitude(currentIndex))) {
-                if (freeIndex < 0)
-                    freeIndex = currentIndex;
-
+    void compress(PointList points, int fromIndex, int[] indices) {
+        int size = points.getSize();
+        int freeIndex = fromIndex;
+        int indicesIndex = 0;
+        for (int currentIndex = fromIndex; currentIndex < size; currentIndex++) {
+            double lat = points.getLatitude(currentIndex);
+            if (Double.isNaN(lat))
                 continue;
-            } else if (freeIndex < 0) {
-                continue;
-            }
 
-            points.set(freeIndex, points.getLatitude(currentIndex), points.getLongitude(currentIndex), points.getElevation(currentIndex));
-            points.set(currentIndex, Double.NaN, Double.NaN, Double.NaN);
-            // find next free index
-            int max = currentIndex;
-            int searchIndex = freeIndex + 1;
-            freeIndex = currentIndex;
-            for (; searchIndex < max; searchIndex++) {
-                if (Double.isNaN(points.getLatitude(searchIndex))) {
-                    freeIndex = searchIndex;
-                    break;
+            if (indices != null) {
+                while (indicesIndex < indices.length && indices[indicesIndex] == currentIndex) {
+                    indices[indicesIndex++] = freeIndex;
                 }
             }
+
+            if (freeIndex != currentIndex)
+                points.set(freeIndex, lat, points.getLongitude(currentIndex), points.getElevation(currentIndex));
+            freeIndex++;
         }
-        points.trimToSize(points.getSize() - removed);
+        points.trimToSize(freeIndex);
     }
 
-    // keep the points of fromIndex and lastIndex
-    int subSimplify(PointList points, int fromIndex, int lastIndex) {
-        if (lastIndex - fromIndex < 2) {
+    /**
+     * Marks the removed points between fromIndex and lastIndex with NaN. Instead of recursing into both halves the
+     * intervals are kept in the specified stack which needs a length of at least lastIndex - fromIndex + 2.
+     */
+    int subSimplify(PointList points, int fromIndex, int lastIndex, int[] stack) {
+        if (lastIndex - fromIndex < 2)
             return 0;
-        }
-        int indexWithMaxDist = -1;
-        double maxDist = -1;
-        double firstLat = points.getLatitude(fromIndex);
-        double firstLon = points.getLongitude(fromIndex);
-        double lastLat = points.getLatitude(lastIndex);
-        double lastLon = points.getLongitude(lastIndex);
-        for (int i = fromIndex + 1; i < lastIndex; i++) {
-            double lat = points.getLatitude(i);
-            if (Double.isNaN(lat)) {
-                continue;
-            }
-            double lon = points.getLongitude(i);
-            double dist = calc.calcNormalizedEdgeDistance(lat, lon, firstLat, firstLon, lastLat, lastLon);
-            if (maxDist < dist) {
-                indexWithMaxDist = i;
-                maxDist = dist;
+
+        int counter = 0;
+        int stackSize = 0;
+        stack[stackSize++] = fromIndex;
+        stack[stackSize++] = lastIndex;
+        while (stackSize > 0) {
+            int last = stack[--stackSize];
+            int first = stack[--stackSize];
+            int indexWithMaxDist = -1;
+            double maxDist = -1;
+            double firstLat = points.getLatitude(first);
+            double firstLon = points.getLongitude(first);
+            double lastLat = points.getLatitude(last);
+            double lastLon = points.getLongitude(last);
+            for (int i = first + 1; i < last; i++) {
+                double dist = calc.calcNormalizedEdgeDistance(points.getLatitude(i), points.getLongitude(i),
+                        firstLat, firstLon, lastLat, lastLon);
+                if (maxDist < dist) {
+                    indexWithMaxDist = i;
+                    maxDist = dist;
+                }
             }
-        }
 
-        if (indexWithMaxDist < 0) {
-            throw new IllegalStateException("maximum not found in [" + fromIndex + "," + lastIndex + "]");
-        }
+            if (indexWithMaxDist < 0)
+                throw new IllegalStateException("maximum not found in [" + first + "," + last + "]");
 
-        int counter = 0;
-        if (maxDist < normedMaxDist) {
-            for (int i = fromIndex + 1; i < lastIndex; i++) {
-                points.set(i, Double.NaN, Double.NaN, Double.NaN);
-                counter++;
+            if (maxDist < normedMaxDist) {
+                for (int i = first + 1; i < last; i++) {
+                    points.set(i, Double.NaN, Double.NaN, Double.NaN);
+                }
+                counter += last - first - 1;
+            } else {
+                // push the second half first to keep the order of the recursive version
+                if (last - indexWithMaxDist >= 2) {
+                    stack[stackSize++] = indexWithMaxDist;
+                    stack[stackSize++] = last;
+                }
+                if (indexWithMaxDist - first >= 2) {
+                    stack[stackSize++] = first;
+                    stack[stackSize++] = indexWithMaxDist;
+                }
             }
-        } else {
-            counter = subSimplify(points, fromIndex, indexWithMaxDist);
-            counter += subSimplify(points, indexWithMaxDist, lastIndex);
         }
         return counter;
     }
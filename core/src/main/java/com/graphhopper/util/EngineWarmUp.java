@@ -18,14 +18,27 @@
 package com.graphhopper.util;
 
 import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.coll.GHTBitSet;
-import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.routing.ch.CHAlgoFactoryDecorator;
+import com.graphhopper.routing.lm.LMAlgoFactoryDecorator;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.HintsMap;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.Parameters.CH;
+import com.graphhopper.util.Parameters.Landmark;
+import com.graphhopper.util.Parameters.Routing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 /**
  * This class provides helper methods to reduce calculation speed difference of the first requests. Necessary
@@ -68,7 +81,7 @@ public class EngineWarmUp {
             double toLongitude = ghStorage.getNodeAccess().getLongitude(endNode);
 
             GHRequest request = new GHRequest(fromLatitude, fromLongitude, toLatitude, toLongitude);
-            graphHopper.route(request);
+            graphHopper.calcPathsForWarmUp(request, new GHResponse());
         }
     }
 
@@ -96,4 +109,131 @@ public class EngineWarmUp {
             bfs.start(explorer, startNode);
         }
     }
+
+    /**
+     * Loads all memory mapped DataAccess objects of the specified directory into physical memory, so that the first
+     * requests do not page fault. The segments are read sequentially which is a lot faster than the random access of
+     * the queries. RAM based objects are already in memory and skipped.
+     *
+     * @return the number of loaded bytes
+     */
+    public static long preFault(Directory directory) {
+        StopWatch sw = new StopWatch().start();
+        long bytes = 0;
+        for (DataAccess da : new ArrayList<>(directory.getAll())) {
+            if (da instanceof MMapDataAccess && !da.isClosed())
+                bytes += ((MMapDataAccess) da).load();
+        }
+        LOGGER.info("pre-faulted " + bytes / Helper.MB + "MB of " + directory.getLocation() + " in " + sw.stop().getSeconds() + "s");
+        return bytes;
+    }
+
+    /**
+     * Sends the same batch of random queries for every CH profile, for every LM weighting and, if they are allowed,
+     * flexible queries per vehicle until the mean latency of a batch differs at most by the specified tolerance from
+     * the previous batch.
+     *
+     * @param batchSize  the number of queries of one batch
+     * @param maxQueries the maximum number of queries per profile
+     * @param tolerance  the relative change of the latency, e.g. 0.1, below which it is considered stable
+     * @param token      stops the warm up if cancelled
+     * @return false if the warm up was cancelled
+     */
+    public static boolean warmUpUntilStable(GraphHopper graphHopper, int batchSize, int maxQueries, double tolerance,
+                                            CancellationToken token) {
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("The batch size has to be positive but was " + batchSize);
+        GraphHopperStorage ghStorage = graphHopper.getGraphHopperStorage();
+        if (ghStorage == null)
+            throw new IllegalArgumentException("The storage of GraphHopper must not be empty");
+        if (ghStorage.getNodes() == 0)
+            return true;
+
+        for (HintsMap profile : createProfiles(graphHopper)) {
+            List<GHRequest> batch = createBatch(ghStorage, profile, batchSize, token);
+            double previousMillis = -1;
+            int queries = 0;
+            while (queries < maxQueries) {
+                StopWatch sw = new StopWatch().start();
+                for (GHRequest request : batch) {
+                    graphHopper.calcPathsForWarmUp(request, new GHResponse());
+                }
+                if (token.isCancelled())
+                    return false;
+                double meanMillis = sw.stop().getNanos() / 1e6 / batch.size();
+                queries += batch.size();
+                boolean stable = previousMillis >= 0 && Math.abs(meanMillis - previousMillis) <= tolerance * previousMillis;
+                previousMillis = meanMillis;
+                if (stable)
+                    break;
+            }
+            LOGGER.info("warmed up " + profile + " with " + queries + " queries, mean latency " + Helper.round2(previousMillis) + "ms");
+        }
+        return true;
+    }
+
+    /**
+     * @return the hints of all profiles that can be requested, i.e. the CH profiles, the LM weightings and, if
+     * neither CH nor LM is enforced, a flexible profile for every weighting configured for a vehicle or "fastest"
+     * if there is none
+     */
+    static List<HintsMap> createProfiles(GraphHopper graphHopper) {
+        List<HintsMap> profiles = new ArrayList<>();
+        List<Weighting> configuredWeightings = new ArrayList<>();
+        CHAlgoFactoryDecorator chDecorator = graphHopper.getCHFactoryDecorator();
+        if (chDecorator.isEnabled()) {
+            for (CHProfile chProfile : chDecorator.getCHProfiles()) {
+                profiles.add(createHints(chProfile.getWeighting()).put(Routing.EDGE_BASED, chProfile.isEdgeBased()));
+                configuredWeightings.add(chProfile.getWeighting());
+            }
+        }
+        if (!chDecorator.isDisablingAllowed())
+            return profiles;
+
+        LMAlgoFactoryDecorator lmDecorator = graphHopper.getLMFactoryDecorator();
+        if (lmDecorator.isEnabled()) {
+            for (Weighting weighting : lmDecorator.getWeightings()) {
+                profiles.add(createHints(weighting).put(CH.DISABLE, true));
+                configuredWeightings.add(weighting);
+            }
+        }
+        if (lmDecorator.isDisablingAllowed()) {
+            for (FlagEncoder encoder : graphHopper.getEncodingManager().fetchEdgeEncoders()) {
+                Set<String> weightingNames = new LinkedHashSet<>();
+                for (Weighting weighting : configuredWeightings) {
+                    if (weighting.getFlagEncoder() == encoder)
+                        weightingNames.add(weighting.getName());
+                }
+                if (weightingNames.isEmpty())
+                    weightingNames.add("fastest");
+
+                for (String weightingName : weightingNames) {
+                    profiles.add(new HintsMap().setVehicle(encoder.toString()).setWeighting(weightingName).
+                            put(CH.DISABLE, true).put(Landmark.DISABLE, true));
+                }
+            }
+        }
+        return profiles;
+    }
+
+    private static HintsMap createHints(Weighting weighting) {
+        return new HintsMap().setVehicle(weighting.getFlagEncoder().toString()).setWeighting(weighting.getName());
+    }
+
+    private static List<GHRequest> createBatch(GraphHopperStorage ghStorage, HintsMap profile, int batchSize, CancellationToken token) {
+        NodeAccess nodeAccess = ghStorage.getNodeAccess();
+        int nodes = ghStorage.getNodes();
+        Random rand = new Random(0);
+        List<GHRequest> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            int startNode = rand.nextInt(nodes);
+            int endNode = rand.nextInt(nodes);
+            GHRequest request = new GHRequest(nodeAccess.getLatitude(startNode), nodeAccess.getLongitude(startNode),
+                    nodeAccess.getLatitude(endNode), nodeAccess.getLongitude(endNode));
+            request.getHints().put(profile);
+            request.setCancellationToken(token);
+            batch.add(request);
+        }
+        return batch;
+    }
 }
@@ -678,6 +678,16 @@ public class GHUtility {
             throw new UnsupportedOperationException("Not supported. Edge is empty.");
         }
 
+        @Override
+        public String getRouteDesc() {
+            throw new UnsupportedOperationException("Not supported. Edge is empty.");
+        }
+
+        @Override
+        public EdgeIteratorState setRouteDesc(String desc) {
+            throw new UnsupportedOperationException("Not supported. Edge is empty.");
+        }
+
         @Override
         public int getAdditionalField() {
             throw new UnsupportedOperationException("Not supported. Edge is empty.");
@@ -22,12 +22,11 @@ import com.graphhopper.routing.Path;
 import com.graphhopper.routing.profiles.BooleanEncodedValue;
 import com.graphhopper.routing.profiles.Roundabout;
 import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.util.details.PathDetail;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
 import com.graphhopper.util.exceptions.ConnectionNotFoundException;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 /**
  * This class merges multiple {@link Path} objects into one continuous object that
@@ -99,10 +98,12 @@ public class PathMerger {
             fullTimeInMillis += path.getTime();
             fullDistance += path.getDistance();
             fullWeight += path.getWeight();
-            if (enableInstructions) {
-                InstructionList il = path.calcInstructions(roundaboutEnc, tr);
-
-                if (!il.isEmpty()) {
+            if (calcPoints || enableInstructions) {
+                // points, instructions and path details are calculated while iterating over the edges only once
+                InstructionList il = enableInstructions ? new InstructionList(path.getEdgeCount() / 4, tr) : null;
+                Map<String, List<PathDetail>> pathDetails = new HashMap<>();
+                PointList tmpPoints = path.calcPoints(roundaboutEnc, il, requestedPathDetails, pathBuilderFactory, origPoints, pathDetails);
+                if (il != null && !il.isEmpty()) {
                     fullInstructions.addAll(il);
 
                     // for all paths except the last replace the FinishInstruction with a ViaInstructionn
@@ -113,9 +114,6 @@ public class PathMerger {
                     }
                 }
 
-            }
-            if (calcPoints || enableInstructions) {
-                PointList tmpPoints = path.calcPoints();
                 if (fullPoints.isEmpty())
                     fullPoints = new PointList(tmpPoints.size(), tmpPoints.is3D());
 
@@ -125,7 +123,7 @@ public class PathMerger {
                 }
 
                 fullPoints.add(tmpPoints);
-                altRsp.addPathDetails(path.calcDetails(requestedPathDetails, pathBuilderFactory, origPoints));
+                altRsp.addPathDetails(pathDetails);
                 origPoints = fullPoints.size();
             }
 
@@ -21,6 +21,7 @@ import com.graphhopper.PathWrapper;
 import com.graphhopper.util.details.PathDetail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -71,69 +72,29 @@ public class PathSimplification {
             return pointList;
         }
 
-        // The offset of already included points
-        int[] offsets = new int[listsToSimplify.size()];
-        int[] endIntervals = new int[listsToSimplify.size()];
-        // All start at 0
-        int[] startIntervals = new int[listsToSimplify.size()];
-
-        while (true) {
-            boolean simplificationPossible = true;
-            int nonConflictingStart = 0;
-            int nonConflictingEnd = Integer.MAX_VALUE;
-            int listIndexToSimplify = -1;
-            int listIndexToShift = -1;
-
-            endIntervals = calculateEndIntervals(endIntervals, startIntervals, offsets, listsToSimplify);
-
-            // Find the intervals to run a simplification, if possible, and where to shift
-            for (int i = 0; i < listsToSimplify.size(); i++) {
-                if (startIntervals[i] >= nonConflictingEnd || endIntervals[i] <= nonConflictingStart) {
-                    simplificationPossible = false;
-                }
-                if (startIntervals[i] > nonConflictingStart) {
-                    listIndexToSimplify = -1;
-                    nonConflictingStart = startIntervals[i];
-                }
-                if (endIntervals[i] < nonConflictingEnd) {
-                    listIndexToSimplify = -1;
-                    nonConflictingEnd = endIntervals[i];
-                    // Remember the lowest endInterval
-                    listIndexToShift = i;
-                }
-                if (startIntervals[i] >= nonConflictingStart && endIntervals[i] <= nonConflictingEnd) {
-                    listIndexToSimplify = i;
-                }
-            }
-
-            if (listIndexToSimplify >= 0 && simplificationPossible) {
-                // Only simplify if there is more than one point
-                if (nonConflictingEnd - nonConflictingStart > 1) {
-                    int removed = douglasPeucker.simplify(pointList, nonConflictingStart, nonConflictingEnd);
-                    if (removed > 0) {
-                        for (int i = 0; i < listsToSimplify.size(); i++) {
-                            List pathDetails = listsToSimplify.get(i);
-                            reduceLength(pathDetails, offsets[i], startIntervals[i], endIntervals[i] - removed);
-                            // This is not needed for Instructions, as they don't contain references, but PointLists
-                            if (pathDetails.get(0) instanceof PathDetail) {
-                                for (int j = offsets[i] + 1; j < pathDetails.size(); j++) {
-                                    PathDetail pd = (PathDetail) pathDetails.get(j);
-                                    reduceLength(pathDetails, j, pd.getFirst() - removed, pd.getLast() - removed);
-                                }
-                            }
-                        }
+        // Keep all points referenced by the lists and simplify in between them in one pass
+        int[] indices = collectIndices();
+        int[] newIndices = indices.clone();
+        int removed = douglasPeucker.simplify(pointList, newIndices);
+        if (removed > 0) {
+            for (List list : listsToSimplify) {
+                if (list instanceof InstructionList) {
+                    int start = 0;
+                    for (Instruction instruction : (InstructionList) list) {
+                        int end = start + instruction.getLength();
+                        int newStart = newIndices[indexOf(indices, start)];
+                        int newEnd = newIndices[indexOf(indices, end)];
+                        if (newEnd - newStart != end - start)
+                            instruction.setPoints(pointList.shallowCopy(newStart, newEnd, false));
+                        start = end;
+                    }
+                } else {
+                    for (PathDetail pd : (List<PathDetail>) list) {
+                        pd.setFirst(newIndices[indexOf(indices, pd.getFirst())]);
+                        pd.setLast(newIndices[indexOf(indices, pd.getLast())]);
                     }
                 }
             }
-
-            if (listIndexToShift < 0)
-                throw new IllegalStateException("toShiftIndex cannot be negative");
-
-            int length = getLength(listsToSimplify.get(listIndexToShift), offsets[listIndexToShift]);
-            startIntervals[listIndexToShift] += length;
-            offsets[listIndexToShift]++;
-            if (offsets[listIndexToShift] >= listsToSimplify.get(listIndexToShift).size())
-                break;
         }
 
         for (Map.Entry<String, List<PathDetail>> pdEntry : pathDetails.entrySet()) {
@@ -154,33 +115,47 @@ public class PathSimplification {
         return pointList;
     }
 
-    private int getLength(Object o, int index) {
-        if (o instanceof InstructionList) {
-            return ((InstructionList) o).get(index).getLength();
+    /**
+     * @return the sorted and distinct indices of the points that are referenced by the lists
+     */
+    private int[] collectIndices() {
+        int count = 0;
+        for (List list : listsToSimplify) {
+            count += 2 * list.size() + 1;
         }
-        if (o instanceof List) {
-            return ((List<PathDetail>) o).get(index).getLength();
+        int[] indices = new int[count];
+        count = 0;
+        for (List list : listsToSimplify) {
+            if (list instanceof InstructionList) {
+                int index = 0;
+                indices[count++] = index;
+                for (Instruction instruction : (InstructionList) list) {
+                    index += instruction.getLength();
+                    indices[count++] = index;
+                }
+            } else if (list.isEmpty() || list.get(0) instanceof PathDetail) {
+                for (PathDetail pd : (List<PathDetail>) list) {
+                    indices[count++] = pd.getFirst();
+                    indices[count++] = pd.getLast();
+                }
+            } else {
+                throw new IllegalStateException("We can only handle List<PathDetail> or InstructionList");
+            }
         }
-        throw new IllegalStateException("We can only handle PathDetails or InstructionList in PathSimplification");
-    }
-
-    private void reduceLength(Object o, int index, int startIndex, int newEndIndex) {
-        if (o instanceof InstructionList) {
-            ((InstructionList) o).get(index).setPoints(this.pointList.shallowCopy(startIndex, newEndIndex, false));
-        } else if (o instanceof List) {
-            PathDetail pd = ((List<PathDetail>) o).get(index);
-            pd.setFirst(startIndex);
-            pd.setLast(newEndIndex);
-        } else {
-            throw new IllegalStateException("We can only handle List<PathDetail> or InstructionList");
+        Arrays.sort(indices, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || indices[distinct - 1] != indices[i])
+                indices[distinct++] = indices[i];
         }
+        return Arrays.copyOf(indices, distinct);
     }
 
-    private int[] calculateEndIntervals(int[] endIntervals, int[] startIntervals, int[] offset, List<List> toSimplify) {
-        for (int i = 0; i < toSimplify.size(); i++) {
-            endIntervals[i] = startIntervals[i] + getLength(toSimplify.get(i), offset[i]);
-        }
-        return endIntervals;
+    private static int indexOf(int[] indices, int index) {
+        int result = Arrays.binarySearch(indices, index);
+        if (result < 0)
+            throw new IllegalStateException("Index " + index + " was not kept during simplification");
+        return result;
     }
 
 }
@@ -19,6 +19,7 @@ package com.graphhopper.util.details;
 
 import com.graphhopper.routing.Path;
 import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.PointList;
 
 import java.util.List;
 
@@ -44,13 +45,22 @@ public class PathDetailsFromEdges implements Path.EdgeVisitor {
 
     @Override
     public void next(EdgeIteratorState edge, int index, int prevEdgeId) {
+        next(edge, edge.fetchWayGeometry(3));
+    }
+
+    /**
+     * Same as the visitor callback but with the already fetched geometry of the edge including its base and
+     * adjacent node, i.e. fetchWayGeometry(3).
+     */
+    public void next(EdgeIteratorState edge, PointList wayGeo) {
         for (PathDetailsBuilder calc : calculators) {
             if (calc.isEdgeDifferentToLastEdge(edge)) {
                 calc.endInterval(lastIndex);
                 calc.startInterval(lastIndex);
             }
         }
-        lastIndex += edge.fetchWayGeometry(2).size();
+        // the base node belongs to the previous edge
+        lastIndex += wayGeo.size() - 1;
     }
 
     @Override
@@ -18,10 +18,10 @@
 package com.graphhopper;
 
 import com.graphhopper.json.geo.JsonFeature;
+import com.graphhopper.routing.RouteCache;
 import com.graphhopper.routing.util.CarFlagEncoder;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.parsers.OSMRoadEnvironmentParser;
-import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.GraphBuilder;
 import com.graphhopper.storage.GraphHopperStorage;
 import com.graphhopper.storage.NodeAccess;
@@ -193,11 +193,11 @@ public class GraphHopperAPITest {
         final AtomicInteger checkPointCounter = new AtomicInteger(0);
         final GraphHopper graphHopper = new GraphHopper() {
             @Override
-            protected ChangeGraphHelper createChangeGraphHelper(Graph graph, LocationIndex locationIndex) {
+            protected ChangeGraphHelper createChangeGraphHelper(GraphHopperStorage graph, LocationIndex locationIndex) {
                 return new ChangeGraphHelper(graph, locationIndex) {
                     @Override
                     public long applyChanges(EncodingManager em, Collection<JsonFeature> features) {
-                        // force sleep inside the lock and let the main thread run until the lock barrier
+                        // force sleep before the changes are published and let the main thread route in the meantime
                         latch.countDown();
                         try {
                             Thread.sleep(400);
@@ -234,14 +234,63 @@ public class GraphHopperAPITest {
         });
 
         latch.await();
-        assertEquals(0, checkPointCounter.get());
+        // routing is not blocked by the pending change and uses the previous edge flags
         rsp = graphHopper.route(new GHRequest(42, 10.4, 42, 10));
         assertFalse(rsp.toString(), rsp.hasErrors());
-        assertEquals(8400, rsp.getBest().getTime());
+        assertEquals(1800, rsp.getBest().getTime());
+        assertEquals(0, checkPointCounter.get());
 
         executorService.shutdown();
         executorService.awaitTermination(3, TimeUnit.SECONDS);
-
         assertEquals(2, checkPointCounter.get());
+
+        rsp = graphHopper.route(new GHRequest(42, 10.4, 42, 10));
+        assertFalse(rsp.toString(), rsp.hasErrors());
+        assertEquals(8400, rsp.getBest().getTime());
+    }
+
+    @Test
+    public void testRouteCache() {
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        initGraph(graph);
+        graph.edge(1, 2, 10, true);
+
+        GraphHopper graphHopper = new GraphHopper().
+                setStoreOnFlush(false).
+                setEncodingManager(encodingManager).setCHEnabled(false).
+                setRouteCache(new RouteCache(10)).
+                loadGraph(graph);
+
+        GHResponse rsp = graphHopper.route(new GHRequest(42, 10.4, 42, 10));
+        assertFalse(rsp.toString(), rsp.hasErrors());
+        assertEquals("flexible", rsp.getMetrics().get("routing.mode", ""));
+        PathWrapper best = rsp.getBest();
+
+        rsp = graphHopper.route(new GHRequest(42, 10.4, 42, 10));
+        assertFalse(rsp.toString(), rsp.hasErrors());
+        assertEquals("cache", rsp.getMetrics().get("routing.mode", ""));
+        // every hit gets its own copy
+        assertNotSame(best, rsp.getBest());
+        assertEquals(best.getTime(), rsp.getBest().getTime());
+        assertEquals(best.getPoints().size(), rsp.getBest().getPoints().size());
+        assertEquals(best.getInstructions().size(), rsp.getBest().getInstructions().size());
+        assertTrue(rsp.getHints().has("visited_nodes.sum"));
+        assertEquals(1, graphHopper.getRouteCache().getHits());
+
+        // calcPaths never uses the cache
+        rsp = new GHResponse();
+        assertFalse(graphHopper.calcPaths(new GHRequest(42, 10.4, 42, 10), rsp).isEmpty());
+        assertEquals(1800, rsp.getBest().getTime());
+
+        // a graph change invalidates the cache
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("speed", 5);
+        graphHopper.changeGraph(Collections.singletonList(new JsonFeature("1", "bbox",
+                new BBox(10.399, 10.4, 42.0, 42.001), null, properties)));
+        rsp = graphHopper.route(new GHRequest(42, 10.4, 42, 10));
+        assertFalse(rsp.toString(), rsp.hasErrors());
+        assertEquals("flexible", rsp.getMetrics().get("routing.mode", ""));
+        assertEquals(8400, rsp.getBest().getTime());
+        assertEquals(1, graphHopper.getRouteCache().getHits());
     }
 }
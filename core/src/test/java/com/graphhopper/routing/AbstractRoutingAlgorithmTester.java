@@ -30,6 +30,7 @@ import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.QueryResult;
 import com.graphhopper.util.*;
+import com.graphhopper.util.exceptions.RequestCancelledException;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -484,6 +485,18 @@ public abstract class AbstractRoutingAlgorithmTester {
         assertFalse(p.isFound());
     }
 
+    @Test(expected = RequestCancelledException.class)
+    public void testCancellation() {
+        GraphHopperStorage graph = createGHStorage(false);
+        initBiGraph(graph);
+
+        RoutingAlgorithm algo = createAlgo(graph);
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        algo.setCancellationToken(token);
+        algo.calcPath(0, 4);
+    }
+
     // 0-1-2-3-4
     // |     / |
     // |    8  |
@@ -0,0 +1,156 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.ch.NodeOrderingProvider;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.Parameters;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.graphhopper.util.GHUtility.updateDistancesFor;
+import static com.graphhopper.util.Parameters.Algorithms.AltRoute.*;
+import static org.junit.Assert.*;
+
+public class AlternativeRouteCHTest {
+    private final FlagEncoder carFE = new CarFlagEncoder();
+    private final EncodingManager em = EncodingManager.create(carFE);
+    private final Weighting weighting = new FastestWeighting(carFE);
+
+    private GraphHopperStorage createTestGraph() {
+        GraphHopperStorage graph = new GraphHopperStorage(Collections.singletonList(weighting), new RAMDirectory(), em,
+                false, new GraphExtension.NoOpExtension()).create(1000);
+
+        /* 9
+         _/\
+         1  2-3-4-10
+         \   /   \
+         5--6-7---8
+
+         */
+        graph.edge(1, 9, 1, true);
+        graph.edge(9, 2, 1, true);
+        graph.edge(2, 3, 1, true);
+        graph.edge(3, 4, 1, true);
+        graph.edge(4, 10, 1, true);
+        graph.edge(5, 6, 1, true);
+        graph.edge(6, 7, 1, true);
+        graph.edge(7, 8, 1, true);
+        graph.edge(1, 5, 2, true);
+        graph.edge(6, 3, 1, true);
+        graph.edge(4, 8, 1, true);
+
+        updateDistancesFor(graph, 5, 0.00, 0.05);
+        updateDistancesFor(graph, 6, 0.00, 0.10);
+        updateDistancesFor(graph, 7, 0.00, 0.15);
+        updateDistancesFor(graph, 8, 0.00, 0.25);
+
+        updateDistancesFor(graph, 1, 0.05, 0.00);
+        updateDistancesFor(graph, 9, 0.10, 0.05);
+        updateDistancesFor(graph, 2, 0.05, 0.10);
+        updateDistancesFor(graph, 3, 0.05, 0.15);
+        updateDistancesFor(graph, 4, 0.05, 0.25);
+        updateDistancesFor(graph, 10, 0.05, 0.30);
+        graph.freeze();
+        return graph;
+    }
+
+    private RoutingAlgorithm createAlgo(GraphHopperStorage graph, int maxPaths, double maxShare, final int... contractionOrder) {
+        PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraphHopperStorage(graph, CHProfile.nodeBased(weighting));
+        if (contractionOrder.length > 0) {
+            pch.useFixedNodeOrdering(new NodeOrderingProvider() {
+                @Override
+                public int getNodeIdForLevel(int level) {
+                    return contractionOrder[level];
+                }
+
+                @Override
+                public int getNumNodes() {
+                    return contractionOrder.length;
+                }
+            });
+        }
+        pch.doWork();
+        AlgorithmOptions opts = AlgorithmOptions.start().algorithm(Parameters.Algorithms.ALT_ROUTE).weighting(weighting).build();
+        opts.getHints().put(MAX_PATHS, maxPaths);
+        opts.getHints().put(MAX_WEIGHT, 2);
+        opts.getHints().put(MAX_SHARE, maxShare);
+        return pch.createAlgo(graph.getCHGraph(CHProfile.nodeBased(weighting)), opts);
+    }
+
+    @Test
+    public void testCalcAlternatives() {
+        GraphHopperStorage graph = createTestGraph();
+        // the via node 8 is settled in both searches if it is contracted last
+        RoutingAlgorithm algo = createAlgo(graph, 2, 0.5, 0, 10, 1, 9, 2, 5, 3, 4, 6, 7, 8);
+        assertTrue(algo instanceof AlternativeRouteCH);
+        List<Path> paths = algo.calcPaths(5, 4);
+        assertEquals(2, paths.size());
+
+        Path bestPath = new DijkstraBidirectionRef(graph, weighting, TraversalMode.NODE_BASED).calcPath(5, 4);
+        assertEquals(IntArrayList.from(5, 6, 3, 4), paths.get(0).calcNodes());
+        assertEquals(bestPath.getWeight(), paths.get(0).getWeight(), 1e-3);
+        assertEquals(IntArrayList.from(5, 6, 7, 8, 4), paths.get(1).calcNodes());
+        assertEquals(1667.9, paths.get(1).getWeight(), .1);
+        assertEquals(paths.get(1).calcPoints().calcDistance(new DistanceCalcEarth()),
+                paths.get(1).getDistance(), 1);
+    }
+
+    @Test
+    public void testMaxShareAndMaxPaths() {
+        // the only alternatives share too much with the best path
+        List<Path> paths = createAlgo(createTestGraph(), 3, 0.1).calcPaths(5, 4);
+        assertEquals(1, paths.size());
+        assertEquals(IntArrayList.from(5, 6, 3, 4), paths.get(0).calcNodes());
+
+        paths = createAlgo(createTestGraph(), 3, 0.7).calcPaths(5, 10);
+        assertTrue(paths.size() <= 3);
+        for (int i = 1; i < paths.size(); i++) {
+            assertTrue(paths.get(i).isFound());
+            assertNotEquals(paths.get(0).calcNodes(), paths.get(i).calcNodes());
+            assertTrue(paths.get(i).getWeight() >= paths.get(0).getWeight());
+        }
+    }
+
+    @Test
+    public void testNotFound() {
+        GraphHopperStorage graph = new GraphHopperStorage(Collections.singletonList(weighting), new RAMDirectory(), em,
+                false, new GraphExtension.NoOpExtension()).create(1000);
+        graph.edge(0, 1, 1, true);
+        graph.edge(2, 3, 1, true);
+        updateDistancesFor(graph, 0, 0.00, 0.00);
+        updateDistancesFor(graph, 1, 0.00, 0.01);
+        updateDistancesFor(graph, 2, 0.01, 0.00);
+        updateDistancesFor(graph, 3, 0.01, 0.01);
+        graph.freeze();
+        List<Path> paths = createAlgo(graph, 2, 0.6).calcPaths(0, 3);
+        assertEquals(1, paths.size());
+        assertFalse(paths.get(0).isFound());
+    }
+}
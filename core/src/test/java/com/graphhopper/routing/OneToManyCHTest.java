@@ -0,0 +1,95 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.CHGraph;
+import com.graphhopper.storage.CHProfile;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Parameters;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class OneToManyCHTest {
+
+    @Test
+    public void testSameResultsAsBidirectionalSearch() {
+        CarFlagEncoder encoder = new CarFlagEncoder();
+        EncodingManager em = EncodingManager.create(encoder);
+        Weighting weighting = new FastestWeighting(encoder);
+        GraphHopperStorage graph = new GraphBuilder(em).setCHProfiles(CHProfile.nodeBased(weighting)).create();
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.5, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0);
+        graph.freeze();
+        CHGraph chGraph = graph.getCHGraph();
+        PrepareContractionHierarchies pch = new PrepareContractionHierarchies(chGraph);
+        pch.doWork();
+
+        AlgorithmOptions oneToManyOpts = AlgorithmOptions.start().algorithm(Parameters.Algorithms.ONE_TO_MANY).weighting(weighting).build();
+        AlgorithmOptions opts = AlgorithmOptions.start().weighting(weighting).build();
+        for (int i = 0; i < 20; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int[] toNodes = new int[20];
+            for (int j = 0; j < toNodes.length; j++) {
+                toNodes[j] = rnd.nextInt(graph.getNodes());
+            }
+            toNodes[0] = from;
+
+            OneToManyCH algo = (OneToManyCH) pch.createAlgo(chGraph, oneToManyOpts);
+            List<Path> paths = algo.calcPaths(from, toNodes);
+            assertEquals(toNodes.length, paths.size());
+            for (int j = 0; j < toNodes.length; j++) {
+                Path expected = pch.createAlgo(chGraph, opts).calcPath(from, toNodes[j]);
+                Path path = paths.get(j);
+                String msg = "seed: " + seed + ", " + from + "->" + toNodes[j];
+                assertEquals(msg, expected.isFound(), path.isFound());
+                assertEquals(msg, expected.getWeight(), path.getWeight(), 1.e-6);
+                assertEquals(msg, expected.getDistance(), path.getDistance(), 1.e-6);
+                assertEquals(msg, expected.getTime(), path.getTime());
+                if (path.isFound()) {
+                    assertEquals(msg, from, path.calcNodes().get(0));
+                    assertEquals(msg, toNodes[j], path.calcNodes().get(path.calcNodes().size() - 1));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEdgeBasedIsNotSupported() {
+        CarFlagEncoder encoder = new CarFlagEncoder(5, 5, 10);
+        EncodingManager em = EncodingManager.create(encoder);
+        Weighting weighting = new FastestWeighting(encoder);
+        GraphHopperStorage graph = new GraphBuilder(em).setCHProfiles(CHProfile.edgeBased(weighting, 40)).create();
+        graph.edge(0, 1, 10, true);
+        graph.freeze();
+        PrepareContractionHierarchies pch = new PrepareContractionHierarchies(graph.getCHGraph());
+        pch.doWork();
+        pch.createAlgo(graph.getCHGraph(), AlgorithmOptions.start().algorithm(Parameters.Algorithms.ONE_TO_MANY).weighting(weighting).build());
+    }
+}
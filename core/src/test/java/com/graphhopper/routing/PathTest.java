@@ -399,6 +399,28 @@ public class PathTest {
         assertEquals(5D, distanceDetails.get(3).getValue());
     }
 
+    @Test
+    public void testCalcPointsInstructionsAndDetailsAtOnce() {
+        Path p = new Dijkstra(roundaboutGraph.g, new ShortestWeighting(encoder), TraversalMode.NODE_BASED)
+                .calcPath(1, 8);
+        assertTrue(p.isFound());
+        List<String> requestedDetails = Arrays.asList(EDGE_ID, STREET_NAME, DISTANCE, TIME);
+
+        InstructionList wayList = new InstructionList(tr);
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        PointList points = p.calcPoints(mixedManagerRoundabout, wayList, requestedDetails, new PathDetailsBuilderFactory(), 3, details);
+
+        assertPList(p.calcPoints(), points);
+        assertEquals(p.calcInstructions(mixedManagerRoundabout, tr).toString(), wayList.toString());
+        assertEquals(getTurnDescriptions(p.calcInstructions(mixedManagerRoundabout, tr)), getTurnDescriptions(wayList));
+        assertEquals(p.calcDetails(requestedDetails, new PathDetailsBuilderFactory(), 3).toString(), details.toString());
+
+        // without instructions and details
+        details.clear();
+        assertPList(p.calcPoints(), p.calcPoints(mixedManagerRoundabout, null, Collections.<String>emptyList(), new PathDetailsBuilderFactory(), 0, details));
+        assertTrue(details.isEmpty());
+    }
+
     /**
      * case with one edge being not an exit
      */
@@ -607,6 +607,43 @@ public class QueryGraphTest {
         assertEquals(expect, isAvoidEdge(queryGraph, QueryGraph.VE_ADJ_REV));
     }
 
+    @Test
+    public void testCreateView() {
+        initHorseshoeGraph(g);
+        EdgeIteratorState edge = GHUtility.getEdge(g, 0, 1);
+        QueryResult qr = fakeEdgeQueryResult(edge, 1.5, 0, 0);
+        QueryGraph queryGraph = new QueryGraph(g);
+        try {
+            queryGraph.createView();
+            fail("createView before lookup should throw");
+        } catch (IllegalStateException ex) {
+        }
+        queryGraph.lookup(Arrays.asList(qr));
+
+        QueryGraph view1 = queryGraph.createView();
+        QueryGraph view2 = queryGraph.createView();
+        assertEquals(queryGraph.getNodes(), view1.getNodes());
+        assertEquals(queryGraph.getEdges(), view1.getEdges());
+        assertEquals(queryGraph.getEdgeIteratorState(1, 2).fetchWayGeometry(3),
+                view1.getEdgeIteratorState(1, 2).fetchWayGeometry(3));
+
+        // unfavoring in one view does not influence the original or other views
+        view1.enforceHeading(qr.getClosestNode(), 0., false);
+        assertTrue(isAvoidEdge(view1, QueryGraph.VE_BASE));
+        assertTrue(isAvoidEdge(view1, QueryGraph.VE_BASE_REV));
+        assertFalse(isAvoidEdge(queryGraph, QueryGraph.VE_BASE));
+        assertFalse(isAvoidEdge(view2, QueryGraph.VE_BASE));
+        assertTrue(queryGraph.getUnfavoredVirtualEdges().isEmpty());
+
+        view1.clearUnfavoredStatus();
+        assertFalse(isAvoidEdge(view1, QueryGraph.VE_BASE));
+        view2.unfavorVirtualEdgePair(2, 1);
+        assertTrue(view2.getEdgeIteratorState(1, 2).get(EdgeIteratorState.UNFAVORED_EDGE));
+        assertTrue(view2.getEdgeIteratorState(1, 0).get(EdgeIteratorState.UNFAVORED_EDGE));
+        assertFalse(view1.getEdgeIteratorState(1, 2).get(EdgeIteratorState.UNFAVORED_EDGE));
+        assertFalse(queryGraph.getEdgeIteratorState(1, 2).get(EdgeIteratorState.UNFAVORED_EDGE));
+    }
+
     @Test
     public void testunfavorVirtualEdgePair() {
 
@@ -139,6 +139,8 @@ public class RandomCHRoutingTest {
         CHGraph chGraph = graph.getCHGraph(chProfile);
         PrepareContractionHierarchies pch = new PrepareContractionHierarchies(chGraph);
         pch.doWork();
+        // a small cache of unpacked shortcuts that is cleared several times
+        ShortcutUnpackingCache shortcutUnpackingCache = new ShortcutUnpackingCache(200);
 
         int numQueryGraph = 25;
         for (int j = 0; j < numQueryGraph; j++) {
@@ -173,6 +175,12 @@ public class RandomCHRoutingTest {
                     fail("path not found for " + from + "->" + to + ", expected weight: " + refWeight);
                 }
 
+                pch.setShortcutUnpackingCache(shortcutUnpackingCache);
+                Path cachedPath = pch.createAlgo(chQueryGraph, AlgorithmOptions.start().build()).calcPath(from, to);
+                pch.setShortcutUnpackingCache(null);
+                assertEquals(path.calcNodes(), cachedPath.calcNodes());
+                assertEquals(path.getTime(), cachedPath.getTime());
+
                 double weight = path.getWeight();
                 if (Math.abs(refWeight - weight) > 1.e-2) {
                     System.out.println("expected: " + refPath.calcNodes());
@@ -0,0 +1,115 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.util.PointList;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RouteCacheTest {
+
+    private GHResponse createResponse() {
+        GHResponse rsp = new GHResponse();
+        PathWrapper path = new PathWrapper();
+        PointList points = new PointList();
+        points.add(42, 10);
+        points.add(42.1, 10.1);
+        path.setPoints(points);
+        path.setTime(1000);
+        rsp.add(path);
+        rsp.getHints().put("visited_nodes.sum", 5);
+        return rsp;
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        RouteCache cache = new RouteCache(2);
+        GHResponse rsp = new GHResponse();
+        assertFalse(cache.copyTo("a", 0, rsp));
+        cache.put("a", 0, createResponse());
+        cache.put("b", 0, createResponse());
+        // access 'a' so that 'b' is the eldest entry
+        assertTrue(cache.copyTo("a", 0, rsp));
+        assertEquals(1, rsp.getAll().size());
+        cache.put("c", 0, createResponse());
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.copyTo("a", 0, new GHResponse()));
+        assertTrue(cache.copyTo("c", 0, new GHResponse()));
+        assertFalse(cache.copyTo("b", 0, new GHResponse()));
+        assertEquals(3, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testNewVersionClearsCache() {
+        RouteCache cache = new RouteCache(10);
+        cache.copyTo("a", 0, new GHResponse());
+        cache.put("a", 0, createResponse());
+        assertTrue(cache.copyTo("a", 0, new GHResponse()));
+
+        assertFalse(cache.copyTo("a", 1, new GHResponse()));
+        assertEquals(0, cache.size());
+
+        // a response that was calculated with the old version is not cached
+        cache.put("a", 0, createResponse());
+        assertEquals(0, cache.size());
+        cache.put("a", 1, createResponse());
+        assertTrue(cache.copyTo("a", 1, new GHResponse()));
+    }
+
+    @Test
+    public void testOldVersionDoesNotClearCache() {
+        RouteCache cache = new RouteCache(10);
+        cache.put("a", 2, createResponse());
+        // a slow request that still uses an older version misses, but keeps the entries of the current version
+        assertFalse(cache.copyTo("a", 1, new GHResponse()));
+        assertEquals(1, cache.size());
+        assertTrue(cache.copyTo("a", 2, new GHResponse()));
+    }
+
+    @Test
+    public void testHitsGetCopies() {
+        RouteCache cache = new RouteCache(10);
+        GHResponse original = createResponse();
+        cache.put("a", 0, original);
+        original.getBest().getPoints().removeLastPoint();
+
+        GHResponse rsp = new GHResponse();
+        assertTrue(cache.copyTo("a", 0, rsp));
+        assertNotSame(original.getBest(), rsp.getBest());
+        assertEquals(2, rsp.getBest().getPoints().size());
+        assertEquals(1000, rsp.getBest().getTime());
+        assertEquals(5, rsp.getHints().getInt("visited_nodes.sum", 0));
+        rsp.getBest().getPoints().removeLastPoint();
+
+        rsp = new GHResponse();
+        assertTrue(cache.copyTo("a", 0, rsp));
+        assertEquals(2, rsp.getBest().getPoints().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testErrorsAreNotCached() {
+        GHResponse rsp = new GHResponse();
+        rsp.addError(new IllegalArgumentException("no route"));
+        new RouteCache(10).put("a", 0, rsp);
+    }
+}
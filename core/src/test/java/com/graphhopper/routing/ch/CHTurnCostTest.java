@@ -1092,12 +1092,52 @@ public class CHTurnCostTest {
         compareWithDijkstraOnRandomGraph_heuristic(seed);
     }
 
+    /**
+     * same as {@link #testFindPath_heuristic_compareWithDijkstra()}, but the node priorities are calculated
+     * concurrently and with estimating witness path searches
+     */
+    @Repeat(times = 10)
+    @Test
+    public void testFindPath_heuristic_compareWithDijkstra_concurrentPriorities() {
+        long seed = System.nanoTime();
+        LOGGER.info("Seed for testFindPath_heuristic_compareWithDijkstra_concurrentPriorities: {}", seed);
+        PMap pMap = new PMap();
+        pMap.put(PRIORITY_UPDATE_THREADS, 3);
+        pMap.put(ESTIMATION_LIMIT_FACTOR, 0.1);
+        compareWithDijkstraOnRandomGraph_heuristic(seed, pMap);
+    }
+
+    @Test
+    public void testConcurrentPrioritiesYieldSameShortcutsAsSingleThread() {
+        long seed = System.nanoTime();
+        LOGGER.info("Seed for testConcurrentPrioritiesYieldSameShortcutsAsSingleThread: {}", seed);
+        int singleThreadShortcuts = prepareRandomGraphAndCountShortcuts(seed, new PMap());
+        // with the default limits the witness searches on this small graph are never cut off, so as long as every
+        // thread starts with the limit of the main contractor the priorities must not depend on the threads
+        init();
+        PMap pMap = new PMap();
+        pMap.put(PRIORITY_UPDATE_THREADS, 3);
+        assertEquals(singleThreadShortcuts, prepareRandomGraphAndCountShortcuts(seed, pMap));
+    }
+
+    private int prepareRandomGraphAndCountShortcuts(long seed, PMap pMap) {
+        GHUtility.buildRandomGraph(graph, new Random(seed), 20, 3.0, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0.8);
+        GHUtility.addRandomTurnCosts(graph, seed, encoder, maxCost, turnCostExtension);
+        graph.freeze();
+        automaticPrepareCH(pMap);
+        return chGraph.getEdges() - graph.getEdges();
+    }
+
     private void compareWithDijkstraOnRandomGraph_heuristic(long seed) {
+        compareWithDijkstraOnRandomGraph_heuristic(seed, new PMap());
+    }
+
+    private void compareWithDijkstraOnRandomGraph_heuristic(long seed, PMap pMap) {
         GHUtility.buildRandomGraph(graph, new Random(seed), 20, 3.0, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0.8);
         GHUtility.addRandomTurnCosts(graph, seed, encoder, maxCost, turnCostExtension);
         graph.freeze();
         checkStrict = false;
-        automaticCompareCHWithDijkstra(100);
+        automaticCompareCHWithDijkstra(100, pMap);
     }
 
     private int nextCost(Random rnd) {
@@ -1173,7 +1213,10 @@ public class CHTurnCostTest {
     }
 
     private RoutingAlgorithmFactory automaticPrepareCH() {
-        PMap pMap = new PMap();
+        return automaticPrepareCH(new PMap());
+    }
+
+    private RoutingAlgorithmFactory automaticPrepareCH(PMap pMap) {
         pMap.put(PERIODIC_UPDATES, 20);
         pMap.put(LAST_LAZY_NODES_UPDATES, 100);
         pMap.put(NEIGHBOR_UPDATES, 4);
@@ -1185,10 +1228,14 @@ public class CHTurnCostTest {
     }
 
     private void automaticCompareCHWithDijkstra(int numQueries) {
+        automaticCompareCHWithDijkstra(numQueries, new PMap());
+    }
+
+    private void automaticCompareCHWithDijkstra(int numQueries, PMap pMap) {
         long seed = System.nanoTime();
         LOGGER.info("Seed used to create random routing queries: {}", seed);
         final Random rnd = new Random(seed);
-        RoutingAlgorithmFactory factory = automaticPrepareCH();
+        RoutingAlgorithmFactory factory = automaticPrepareCH(pMap);
         for (int i = 0; i < numQueries; ++i) {
             compareCHQueryWithDijkstra(factory, rnd.nextInt(graph.getNodes()), rnd.nextInt(graph.getNodes()));
         }
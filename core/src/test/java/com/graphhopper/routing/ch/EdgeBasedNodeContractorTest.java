@@ -1356,6 +1356,37 @@ public class EdgeBasedNodeContractorTest {
                 nodeContractor.getNumPolledEdges() <= 8);
     }
 
+    @Test
+    public void testPriorityCalculatorStartsWithLimitOfContractor() {
+        // 0-1-2
+        // | | |
+        // 3-4-5
+        // | | |
+        // 6-7-8
+        for (int i = 0; i < 3; i++) {
+            graph.edge(3 * i, 3 * i + 1, 1, true);
+            graph.edge(3 * i + 1, 3 * i + 2, 1, true);
+            graph.edge(i, i + 3, 1, true);
+            graph.edge(i + 3, i + 6, 1, true);
+        }
+        graph.freeze();
+        setMaxLevelOnAllNodes();
+        PMap pMap = new PMap();
+        pMap.put(CHParameters.MIN_MAX_SETTLED_EDGES, 1);
+        pMap.put(CHParameters.SETTLED_EDGES_RESET_INTERVAL, 1);
+        EdgeBasedNodeContractor nodeContractor = createNodeContractor(pMap);
+        // with the default estimation limit factor the priority searches adjust the limit as well
+        for (int node = 0; node < graph.getNodes(); node++) {
+            nodeContractor.calculatePriority(node);
+        }
+        assertTrue("limit: " + nodeContractor.getMaxSettledEdges(), nodeContractor.getMaxSettledEdges() > 1);
+
+        EdgeBasedNodeContractor priorityCalculator = new EdgeBasedNodeContractor(nodeContractor);
+        assertEquals(1, priorityCalculator.getMaxSettledEdges());
+        priorityCalculator.copyMaxSettledEdges(nodeContractor);
+        assertEquals(nodeContractor.getMaxSettledEdges(), priorityCalculator.getMaxSettledEdges());
+    }
+
     private void contractNode(NodeContractor nodeContractor, int node, int level) {
         nodeContractor.contractNode(node);
         chGraph.setLevel(node, level);
@@ -1382,9 +1413,13 @@ public class EdgeBasedNodeContractorTest {
     }
 
     private EdgeBasedNodeContractor createNodeContractor() {
+        return createNodeContractor(new PMap());
+    }
+
+    private EdgeBasedNodeContractor createNodeContractor(PMap pMap) {
         PreparationWeighting preparationWeighting = new PreparationWeighting(weighting);
         TurnWeighting turnWeighting = new TurnWeighting(preparationWeighting, turnCostExtension, uTurnCosts);
-        EdgeBasedNodeContractor nodeContractor = new EdgeBasedNodeContractor(chGraph, turnWeighting, new PMap());
+        EdgeBasedNodeContractor nodeContractor = new EdgeBasedNodeContractor(chGraph, turnWeighting, pMap);
         nodeContractor.initFromGraph();
         return nodeContractor;
     }
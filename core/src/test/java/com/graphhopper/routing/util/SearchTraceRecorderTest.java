@@ -0,0 +1,117 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.util;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.routing.*;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.TracingWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.NodeAccess;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
+import static com.graphhopper.util.Parameters.Algorithms.DIJKSTRA;
+import static org.junit.Assert.*;
+
+public class SearchTraceRecorderTest {
+
+    @Test
+    public void testHeapSamples() {
+        SearchTrace.Search search = new SearchTrace("", false).startSearch("dijkstra");
+        for (int i = 1; i <= 1000; i++) {
+            search.onSettled(i % 2 == 0, i);
+        }
+        assertEquals(500, search.getSettledFrom());
+        assertEquals(500, search.getSettledTo());
+        // the interval was doubled until the samples fit
+        assertEquals(16, search.getSampleInterval());
+        int[] heapSizesFrom = search.getHeapSizesFrom();
+        int[] heapSizesTo = search.getHeapSizesTo();
+        assertEquals(62, heapSizesFrom.length);
+        for (int i = 0; i < heapSizesFrom.length; i++) {
+            // the last settled node of both samples is from the reverse search
+            assertEquals(16 * (i + 1) - 1, heapSizesFrom[i]);
+            assertEquals(16 * (i + 1), heapSizesTo[i]);
+        }
+    }
+
+    @Test
+    public void testRingBuffer() {
+        SearchTraceRecorder recorder = new SearchTraceRecorder(2, 1, -1);
+        for (int i = 0; i < 3; i++) {
+            SearchTrace trace = recorder.start(new GHRequest(i, 0, 1, 1));
+            assertTrue(trace.isTimed());
+            recorder.finish(trace, new GHResponse(), i);
+        }
+        List<SearchTrace> traces = recorder.getTraces();
+        assertEquals(2, traces.size());
+        assertEquals(2, traces.get(0).getTookMillis());
+        assertEquals(1, traces.get(1).getTookMillis());
+    }
+
+    @Test
+    public void testSlowThreshold() {
+        assertNull(new SearchTraceRecorder(10, 0, -1).start(new GHRequest(0, 0, 1, 1)));
+
+        SearchTraceRecorder recorder = new SearchTraceRecorder(10, 0, 100);
+        SearchTrace trace = recorder.start(new GHRequest(0, 0, 1, 1));
+        assertFalse(trace.isTimed());
+        recorder.finish(trace, new GHResponse(), 50);
+        assertTrue(recorder.getTraces().isEmpty());
+
+        trace = recorder.start(new GHRequest(0, 0, 1, 1));
+        recorder.finish(trace, new GHResponse().addError(new IllegalArgumentException("not found")), 150);
+        assertEquals(1, recorder.getTraces().size());
+        assertTrue(recorder.getTraces().get(0).getErrors().contains("not found"));
+    }
+
+    @Test
+    public void testTraceAlgorithms() {
+        CarFlagEncoder encoder = new CarFlagEncoder();
+        GraphHopperStorage graph = new GraphBuilder(EncodingManager.create(encoder)).create();
+        NodeAccess na = graph.getNodeAccess();
+        for (int i = 0; i < 100; i++) {
+            na.setNode(i, 0, i * 0.001);
+            if (i > 0)
+                graph.edge(i - 1, i, 111, true);
+        }
+
+        SearchTrace trace = new SearchTrace("", true);
+        Weighting weighting = new TracingWeighting(new FastestWeighting(encoder), trace);
+        RoutingAlgorithmFactory factory = new TracingAlgorithmFactory(new RoutingAlgorithmFactorySimple(), trace);
+        Path path = factory.createAlgo(graph, AlgorithmOptions.start().algorithm(DIJKSTRA).weighting(weighting).build()).calcPath(10, 60);
+        assertEquals(50 * 111, path.getDistance(), 1e-6);
+        path = factory.createAlgo(graph, AlgorithmOptions.start().algorithm(ASTAR_BI).weighting(weighting).build()).calcPath(10, 60);
+        assertEquals(50 * 111, path.getDistance(), 1e-6);
+
+        List<SearchTrace.Search> searches = trace.getSearches();
+        assertEquals(2, searches.size());
+        assertEquals(DIJKSTRA, searches.get(0).getAlgorithm());
+        assertEquals(0, searches.get(0).getSettledTo());
+        assertTrue(searches.get(0).getSettledFrom() >= 50);
+        assertTrue(searches.get(1).getSettledFrom() > 0);
+        assertTrue(searches.get(1).getSettledTo() > 0);
+        assertTrue(searches.get(1).getHeapSizesFrom().length > 0);
+    }
+}
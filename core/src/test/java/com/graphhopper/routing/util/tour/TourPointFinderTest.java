@@ -0,0 +1,99 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.util.tour;
+
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.CancellationToken;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.exceptions.RequestCancelledException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TourPointFinderTest {
+    private final FlagEncoder encoder = new CarFlagEncoder();
+    private final EncodingManager em = EncodingManager.create(encoder);
+
+    // a straight road from node 0 to the east and a zig-zag road to the north
+    private GraphHopperStorage createGraph() {
+        GraphHopperStorage graph = new GraphBuilder(em).create();
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 0, 0);
+        int prev = 0;
+        for (int i = 1; i <= 40; i++) {
+            na.setNode(i, 0, i * 0.001);
+            addEdge(graph, prev, i);
+            prev = i;
+        }
+        prev = 0;
+        for (int i = 1; i <= 40; i++) {
+            na.setNode(40 + i, i * 0.001, i % 2 == 0 ? 0 : 0.001);
+            addEdge(graph, prev, 40 + i);
+            prev = 40 + i;
+        }
+        return graph;
+    }
+
+    private void addEdge(GraphHopperStorage graph, int from, int to) {
+        NodeAccess na = graph.getNodeAccess();
+        graph.edge(from, to, Helper.DIST_EARTH.calcDist(na.getLatitude(from), na.getLongitude(from),
+                na.getLatitude(to), na.getLongitude(to)), true);
+    }
+
+    @Test
+    public void testDetourFactor() {
+        TourPointFinder finder = TourPointFinder.explore(createGraph(), new FastestWeighting(encoder), null, 0, 3000, 10_000);
+        assertNotNull(finder);
+        assertEquals(1, finder.getDetourFactor(90), 0.01);
+        assertEquals(Math.sqrt(2), finder.getDetourFactor(0), 0.05);
+        // sectors without nodes use the factor of all nodes
+        assertTrue(finder.getDetourFactor(225) > 1.1);
+        assertTrue(finder.getDetourFactor(225) < 1.3);
+    }
+
+    @Test
+    public void testFindNode() {
+        TourPointFinder finder = TourPointFinder.explore(createGraph(), new FastestWeighting(encoder), null, 0, 3000, 10_000);
+        // the closest node to the north east within 10% of the network distance
+        double networkDistance = 20 * Helper.DIST_EARTH.calcDist(0, 0, 0, 0.001);
+        assertEquals(20, finder.findNode(0.01, 0.02, networkDistance, 0.1));
+        // the zig-zag road is longer, so the node on it with this network distance is closer to the start
+        int node = finder.findNode(0.02, 0, networkDistance, 0.1);
+        assertTrue(node > 40);
+        assertTrue(node - 40 < 16);
+        assertEquals(-1, finder.findNode(0.01, 0.01, 10 * networkDistance, 0.1));
+    }
+
+    @Test(expected = RequestCancelledException.class)
+    public void testCancelled() {
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        TourPointFinder.explore(createGraph(), new FastestWeighting(encoder), token, 0, 3000, 10_000);
+    }
+
+    @Test
+    public void testNotEnoughNodes() {
+        assertNull(TourPointFinder.explore(createGraph(), new FastestWeighting(encoder), null, 0, 3000, 5));
+    }
+}
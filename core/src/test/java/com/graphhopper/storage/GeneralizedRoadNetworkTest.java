@@ -0,0 +1,172 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.profiles.EnumEncodedValue;
+import com.graphhopper.routing.profiles.RoadClass;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.shapes.BBox;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class GeneralizedRoadNetworkTest {
+    private final String location = "./target/tmp/generalized";
+    private EnumEncodedValue<RoadClass> roadClassEnc;
+    private GraphHopperStorage graph;
+
+    //  0--1--2--3    motorway A1, the edge 1-2 has an almost straight pillar
+    //        |  |
+    //        4  5    2-4 is primary, 3-5 is residential
+    @Before
+    public void setUp() {
+        EncodingManager em = GHUtility.addDefaultEncodedValues(new EncodingManager.Builder(8)).add(new CarFlagEncoder()).build();
+        roadClassEnc = em.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
+        graph = new GraphBuilder(em).create();
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 0, 0);
+        na.setNode(1, 0, 0.01);
+        na.setNode(2, 0, 0.02);
+        na.setNode(3, 0, 0.03);
+        na.setNode(4, -0.01, 0.02);
+        na.setNode(5, -0.01, 0.03);
+        graph.edge(0, 1, 1000, true).set(roadClassEnc, RoadClass.MOTORWAY).setName("A1");
+        graph.edge(1, 2, 1000, true).set(roadClassEnc, RoadClass.MOTORWAY).setName("A1").
+                setWayGeometry(Helper.createPointList(0.00001, 0.015));
+        graph.edge(3, 2, 1000, true).set(roadClassEnc, RoadClass.MOTORWAY).setName("A1");
+        graph.edge(2, 4, 1000, true).set(roadClassEnc, RoadClass.PRIMARY).setName("Main");
+        graph.edge(3, 5, 1000, true).set(roadClassEnc, RoadClass.RESIDENTIAL).setName("Side");
+    }
+
+    @After
+    public void tearDown() {
+        Helper.removeDir(new File(location));
+    }
+
+    private List<PointList> query(GeneralizedRoadNetwork network, int zoom, BBox bbox, final List<RoadClass> roadClasses) {
+        final List<PointList> lines = new ArrayList<>();
+        network.query(zoom, bbox, new GeneralizedRoadNetwork.LineVisitor() {
+            @Override
+            public void onLine(PointList points, RoadClass roadClass, int edge) {
+                lines.add(points);
+                roadClasses.add(roadClass);
+            }
+        });
+        return lines;
+    }
+
+    @Test
+    public void testMergeAndSimplify() {
+        GeneralizedRoadNetwork network = new GeneralizedRoadNetwork(graph, new RAMDirectory()).prepare(roadClassEnc);
+        BBox all = new BBox(-1, 1, -1, 1);
+
+        List<RoadClass> roadClasses = new ArrayList<>();
+        List<PointList> lines = query(network, 5, all, roadClasses);
+        // the three motorway edges are merged into one straight line
+        assertEquals(1, lines.size());
+        assertEquals(RoadClass.MOTORWAY, roadClasses.get(0));
+        assertEquals(2, lines.get(0).getSize());
+        assertEquals(0, lines.get(0).getLon(0), 1e-6);
+        assertEquals(0.03, lines.get(0).getLon(1), 1e-6);
+
+        roadClasses.clear();
+        lines = query(network, 9, all, roadClasses);
+        assertEquals(2, lines.size());
+        assertTrue(roadClasses.contains(RoadClass.PRIMARY));
+
+        // residential roads are never included
+        roadClasses.clear();
+        query(network, GeneralizedRoadNetwork.getMaxZoom(), all, roadClasses);
+        assertFalse(roadClasses.contains(RoadClass.RESIDENTIAL));
+    }
+
+    @Test
+    public void testQueryBBox() {
+        GeneralizedRoadNetwork network = new GeneralizedRoadNetwork(graph, new RAMDirectory()).prepare(roadClassEnc);
+        List<RoadClass> roadClasses = new ArrayList<>();
+        assertEquals(0, query(network, 9, new BBox(1, 2, 1, 2), roadClasses).size());
+        // only the bounding box of the primary road intersects
+        assertEquals(1, query(network, 9, new BBox(0.019, 0.021, -0.009, -0.005), roadClasses).size());
+        assertEquals(RoadClass.PRIMARY, roadClasses.get(0));
+    }
+
+    @Test
+    public void testQueryManyLines() {
+        // separate motorways with different names so that they are not merged, some are long and span many cells
+        NodeAccess na = graph.getNodeAccess();
+        Random rand = new Random(0);
+        List<BBox> expectedBoxes = new ArrayList<>();
+        // the simplified motorway A1 of the setup
+        expectedBoxes.add(new BBox(0, 0.03, 0, 0));
+        for (int i = 0; i < 500; i++) {
+            int node = graph.getNodes();
+            double lat = rand.nextDouble() * 2 - 1, lon = rand.nextDouble() * 2 - 1;
+            double lat2 = lat + rand.nextDouble() * (i % 10 == 0 ? 0.5 : 0.01), lon2 = lon + rand.nextDouble() * 0.01;
+            na.setNode(node, lat, lon);
+            na.setNode(node + 1, lat2, lon2);
+            graph.edge(node, node + 1, 1000, true).set(roadClassEnc, RoadClass.MOTORWAY).setName("M" + i);
+            expectedBoxes.add(new BBox(lon, lon2, lat, lat2));
+        }
+        GeneralizedRoadNetwork network = new GeneralizedRoadNetwork(graph, new RAMDirectory()).prepare(roadClassEnc);
+        for (int i = 0; i < 100; i++) {
+            double lat = rand.nextDouble() * 2 - 1, lon = rand.nextDouble() * 2 - 1;
+            BBox queryBox = new BBox(lon, lon + 0.2, lat, lat + 0.2);
+            int expected = 0;
+            for (BBox box : expectedBoxes) {
+                if (box.intersects(queryBox))
+                    expected++;
+            }
+            final Set<Integer> edges = new HashSet<>();
+            final int[] count = {0};
+            network.query(5, queryBox, new GeneralizedRoadNetwork.LineVisitor() {
+                @Override
+                public void onLine(PointList points, RoadClass roadClass, int edge) {
+                    count[0]++;
+                    edges.add(edge);
+                }
+            });
+            assertEquals(expected, edges.size());
+            assertEquals("every line is visited only once", expected, count[0]);
+        }
+    }
+
+    @Test
+    public void testLoadExisting() {
+        new File(location).mkdirs();
+        new GeneralizedRoadNetwork(graph, new RAMDirectory(location, true)).prepare(roadClassEnc).close();
+
+        GeneralizedRoadNetwork network = new GeneralizedRoadNetwork(graph, new RAMDirectory(location, true));
+        assertTrue(network.loadExisting());
+        assertEquals(2, query(network, 9, new BBox(-1, 1, -1, 1), new ArrayList<RoadClass>()).size());
+
+        try {
+            network.query(GeneralizedRoadNetwork.getMaxZoom() + 1, new BBox(-1, 1, -1, 1), null);
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+}
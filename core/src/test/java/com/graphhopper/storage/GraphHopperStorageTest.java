@@ -17,6 +17,8 @@
  */
 package com.graphhopper.storage;
 
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
 import org.junit.Test;
@@ -55,6 +57,151 @@ public class GraphHopperStorageTest extends AbstractGraphStorageTester {
         }
     }
 
+    @Test
+    public void testPublishEdgeFlags() {
+        graph = createGHStorage();
+        EdgeIteratorState edge = graph.edge(0, 1, 10, true);
+        edge.set(carAvSpeedEnc, 60);
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+
+        IntsRef flags = IntsRef.deepCopyOf(edge.getFlags());
+        carAvSpeedEnc.setDecimal(false, flags, 20);
+        GHIntObjectHashMap<IntsRef> changes = new GHIntObjectHashMap<>();
+        changes.put(edge.getEdge(), flags);
+        graph.publishEdgeFlags(changes);
+        assertEquals(1, graph.getEdgeFlagOverlay().getVersion());
+
+        // the explorer was created before the change but reads the current version when the base node is set
+        EdgeIterator iter = explorer.setBaseNode(0);
+        assertTrue(iter.next());
+        assertEquals(20, iter.get(carAvSpeedEnc), 1);
+        assertEquals(20, graph.getEdgeIteratorState(edge.getEdge(), 1).get(carAvSpeedEnc), 1);
+        iter = graph.createEdgeExplorer().setBaseNode(1);
+        assertTrue(iter.next());
+        assertEquals(20, iter.getReverse(carAvSpeedEnc), 1);
+        AllEdgesIterator allIter = graph.getAllEdges();
+        assertTrue(allIter.next());
+        assertEquals(20, allIter.detach(false).get(carAvSpeedEnc), 1);
+
+        // flush writes the changes into the edge storage
+        graph.flush();
+        BaseGraph baseGraph = (BaseGraph) graph.getBaseGraph();
+        IntsRef storedFlags = encodingManager.createEdgeFlags();
+        baseGraph.edgeAccess.readFlags(baseGraph.edgeAccess.toPointer(edge.getEdge()), storedFlags);
+        assertEquals(20, carAvSpeedEnc.getDecimal(false, storedFlags), 1);
+        // ... and starts with an empty overlay
+        assertEquals(0, graph.getEdgeFlagOverlay().size());
+        assertEquals(1, graph.getEdgeFlagOverlay().getVersion());
+        assertEquals(20, graph.getEdgeIteratorState(edge.getEdge(), 1).get(carAvSpeedEnc), 1);
+    }
+
+    @Test
+    public void testPinEdgeFlagOverlay() {
+        graph = createGHStorage();
+        EdgeIteratorState edge = graph.edge(0, 1, 10, true);
+        edge.set(carAvSpeedEnc, 60);
+        publishSpeed(edge.getEdge(), 40);
+
+        EdgeFlagOverlay pinned = graph.getEdgeFlagOverlay();
+        assertNull(graph.pinEdgeFlagOverlay(pinned));
+        publishSpeed(edge.getEdge(), 20);
+        // edge iterators created after the change still read the pinned version
+        assertEquals(pinned, graph.getEdgeFlagOverlay());
+        assertEquals(40, graph.getEdgeIteratorState(edge.getEdge(), 1).get(carAvSpeedEnc), 1);
+        EdgeIterator iter = graph.createEdgeExplorer().setBaseNode(0);
+        assertTrue(iter.next());
+        assertEquals(40, iter.get(carAvSpeedEnc), 1);
+
+        assertEquals(pinned, graph.pinEdgeFlagOverlay(null));
+        assertEquals(2, graph.getEdgeFlagOverlay().getVersion());
+        assertEquals(20, graph.getEdgeIteratorState(edge.getEdge(), 1).get(carAvSpeedEnc), 1);
+    }
+
+    @Test
+    public void testReusedExplorerReadsPinnedEdgeFlagOverlay() {
+        graph = createGHStorage();
+        EdgeIteratorState edge = graph.edge(0, 1, 10, true);
+        edge.set(carAvSpeedEnc, 60);
+        publishSpeed(edge.getEdge(), 40);
+
+        EdgeFlagOverlay previous = graph.pinEdgeFlagOverlay(graph.getEdgeFlagOverlay());
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        graph.pinEdgeFlagOverlay(previous);
+        publishSpeed(edge.getEdge(), 20);
+
+        // a later request reuses the explorer and must not read the version of the first request
+        previous = graph.pinEdgeFlagOverlay(graph.getEdgeFlagOverlay());
+        try {
+            EdgeIterator iter = explorer.setBaseNode(0);
+            assertTrue(iter.next());
+            assertEquals(20, iter.get(carAvSpeedEnc), 1);
+        } finally {
+            graph.pinEdgeFlagOverlay(previous);
+        }
+    }
+
+    @Test
+    public void testFlushKeepsEdgeFlagOverlayWhileOlderVersionIsPinned() {
+        graph = createGHStorage();
+        EdgeIteratorState edge = graph.edge(0, 1, 10, true);
+        edge.set(carAvSpeedEnc, 60);
+
+        assertNull(graph.pinEdgeFlagOverlay(EdgeFlagOverlay.EMPTY));
+        publishSpeed(edge.getEdge(), 20);
+        graph.flush();
+        // the reader falls back to the edge storage as the edge is not in its version
+        assertEquals(60, graph.getEdgeIteratorState(edge.getEdge(), 1).get(carAvSpeedEnc), 1);
+        assertEquals(EdgeFlagOverlay.EMPTY, graph.pinEdgeFlagOverlay(null));
+        assertEquals(1, graph.getEdgeFlagOverlay().size());
+        assertEquals(20, graph.getEdgeIteratorState(edge.getEdge(), 1).get(carAvSpeedEnc), 1);
+
+        // without an older pin the overlay is folded into the edge storage
+        graph.flush();
+        assertEquals(0, graph.getEdgeFlagOverlay().size());
+        assertEquals(20, graph.getEdgeIteratorState(edge.getEdge(), 1).get(carAvSpeedEnc), 1);
+    }
+
+    @Test
+    public void testDirectWriteUpdatesEdgeFlagOverlay() {
+        graph = createGHStorage();
+        EdgeIteratorState edge = graph.edge(0, 1, 10, true);
+        edge.set(carAvSpeedEnc, 60);
+        publishSpeed(edge.getEdge(), 40);
+
+        graph.getEdgeIteratorState(edge.getEdge(), 1).set(carAvSpeedEnc, 30);
+        assertEquals(30, graph.getEdgeIteratorState(edge.getEdge(), 1).get(carAvSpeedEnc), 1);
+        graph.getEdgeIteratorState(edge.getEdge(), 1).setFlags(edge.getFlags());
+        assertEquals(60, graph.getEdgeIteratorState(edge.getEdge(), 1).get(carAvSpeedEnc), 1);
+    }
+
+    @Test
+    public void testEdgeFlagOverlayLayers() {
+        graph = createGHStorage();
+        int edges = 100;
+        for (int i = 0; i < edges; i++) {
+            graph.edge(i, i + 1, 10, true).set(carAvSpeedEnc, 60);
+        }
+        for (int i = 0; i < 1000; i++) {
+            publishSpeed(i % edges, 10 + i % 5 * 10);
+        }
+        EdgeFlagOverlay overlay = graph.getEdgeFlagOverlay();
+        assertEquals(1000, overlay.getVersion());
+        // merged layers keep only the latest flags of every edge
+        assertTrue("size " + overlay.size(), overlay.size() < 2 * edges);
+        for (int i = 0; i < edges; i++) {
+            // the last change of edge i was number 900 + i
+            assertEquals(10 + (900 + i) % 5 * 10, graph.getEdgeIteratorState(i, i + 1).get(carAvSpeedEnc), 1);
+        }
+    }
+
+    private void publishSpeed(int edgeId, double speed) {
+        IntsRef flags = IntsRef.deepCopyOf(graph.getEdgeIteratorState(edgeId, Integer.MIN_VALUE).getFlags());
+        carAvSpeedEnc.setDecimal(false, flags, speed);
+        GHIntObjectHashMap<IntsRef> changes = new GHIntObjectHashMap<>();
+        changes.put(edgeId, flags);
+        graph.publishEdgeFlags(changes);
+    }
+
     @Test
     public void testSave_and_fileFormat() throws IOException {
         graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), true).create(defaultSize);
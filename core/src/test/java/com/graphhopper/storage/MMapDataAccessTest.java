@@ -59,4 +59,15 @@ public class MMapDataAccessTest extends DataAccessTest {
         assertEquals(123, da.getInt(7 * 4));
         da.close();
     }
+
+    @Test
+    public void testLoad() {
+        MMapDataAccess da = (MMapDataAccess) createDataAccess(name);
+        da.create(300);
+        da.setInt(260, 123);
+        assertEquals(3, da.getSegments());
+        assertEquals(3 * 128, da.load());
+        assertEquals(123, da.getInt(260));
+        da.close();
+    }
 }
@@ -289,6 +289,61 @@ public class ShortcutUnpackerTest {
         }
     }
 
+    @Test
+    public void testUnpackingWithCache() {
+        // 0-1-2-3-4-5-6
+        DecimalEncodedValue speedEnc = encoder.getAverageSpeedEnc();
+        for (int i = 0; i < 6; i++) {
+            graph.edge(i, i + 1, 1, true).set(speedEnc, 60).setReverse(speedEnc, 30);
+        }
+        graph.freeze();
+        shortcut(0, 2, 0, 1, 0, 1);
+        shortcut(2, 4, 2, 3, 2, 3);
+        shortcut(4, 6, 4, 5, 4, 5);
+        shortcut(2, 6, 7, 8, 2, 5);
+        shortcut(0, 6, 6, 9, 0, 5);
+
+        ShortcutUnpackingCache cache = new ShortcutUnpackingCache(100);
+        for (boolean reverseOrder : new boolean[]{false, true}) {
+            for (int run = 0; run < 2; run++) {
+                TestVisitor expected = new TestVisitor();
+                new ShortcutUnpacker(chGraph, expected, edgeBased).visitOriginalEdgesFwd(10, 6, reverseOrder, PREV_EDGE);
+                TestVisitor visitor = new TestVisitor();
+                new ShortcutUnpacker(chGraph, visitor, edgeBased, cache).visitOriginalEdgesFwd(10, 6, reverseOrder, PREV_EDGE);
+                assertVisited(expected, visitor);
+
+                expected = new TestVisitor();
+                new ShortcutUnpacker(chGraph, expected, edgeBased).visitOriginalEdgesBwd(10, 0, reverseOrder, NEXT_EDGE);
+                visitor = new TestVisitor();
+                new ShortcutUnpacker(chGraph, visitor, edgeBased, cache).visitOriginalEdgesBwd(10, 0, reverseOrder, NEXT_EDGE);
+                assertVisited(expected, visitor);
+            }
+        }
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getMisses());
+        assertEquals(6, cache.getHits());
+
+        // the cache is cleared when it is full
+        cache = new ShortcutUnpackingCache(6);
+        ShortcutUnpacker unpacker = new ShortcutUnpacker(chGraph, new TestVisitor(), edgeBased, cache);
+        unpacker.visitOriginalEdgesFwd(10, 6, false, PREV_EDGE);
+        assertEquals(1, cache.size());
+        unpacker.visitOriginalEdgesBwd(10, 0, false, NEXT_EDGE);
+        assertEquals(1, cache.size());
+        // original edges are not cached
+        unpacker.visitOriginalEdgesFwd(0, 1, false, PREV_EDGE);
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getMisses());
+    }
+
+    private void assertVisited(TestVisitor expected, TestVisitor visitor) {
+        assertEquals(expected.edgeIds, visitor.edgeIds);
+        assertEquals(expected.baseNodes, visitor.baseNodes);
+        assertEquals(expected.adjNodes, visitor.adjNodes);
+        assertEquals(expected.prevOrNextEdgeIds, visitor.prevOrNextEdgeIds);
+        assertEquals(expected.times, visitor.times);
+    }
+
     private void addTurnCost(EdgeIteratorState inEdge, EdgeIteratorState outEdge, int viaNode, double costs) {
         turnCostExtension.addTurnInfo(inEdge.getEdge(), viaNode, outEdge.getEdge(), encoder.getTurnFlags(false, costs));
     }
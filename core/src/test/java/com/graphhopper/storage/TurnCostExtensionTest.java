@@ -4,10 +4,15 @@ import com.graphhopper.routing.util.BikeFlagEncoder;
 import com.graphhopper.routing.util.CarFlagEncoder;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.util.Helper;
 import org.junit.Test;
 
+import java.io.File;
+import java.util.Random;
+
 import static com.graphhopper.util.GHUtility.getEdge;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class TurnCostExtensionTest {
 
@@ -115,4 +120,55 @@ public class TurnCostExtensionTest {
         assertEquals(Double.POSITIVE_INFINITY, carEncoder.getTurnCost(flags023), 0);
         assertEquals(Double.POSITIVE_INFINITY, bikeEncoder.getTurnCost(flags023), 0);
     }
+
+    @Test
+    public void testFreezeKeepsTurnCosts() {
+        String location = "./target/turn-cost-freeze";
+        Helper.removeDir(new File(location));
+        FlagEncoder carEncoder = new CarFlagEncoder(5, 5, 3);
+        EncodingManager manager = EncodingManager.create(carEncoder);
+        GraphHopperStorage g = new GraphBuilder(manager).setLocation(location).setStore(true).create();
+        initGraph(g);
+        TurnCostExtension tcs = (TurnCostExtension) g.getExtension();
+
+        // add the entries in random order, node 4 has no turn costs
+        Random rnd = new Random(42);
+        long[][][] expected = new long[5][5][5];
+        for (int i = 0; i < 60; i++) {
+            int from = rnd.nextInt(5), via = rnd.nextInt(4), to = rnd.nextInt(5);
+            long flags = 1 + rnd.nextInt(7);
+            tcs.mergeOrOverwriteTurnInfo(from, via, to, flags, false);
+            expected[from][via][to] = flags;
+        }
+        assertTurnCosts(expected, tcs);
+
+        g.freeze();
+        assertTurnCosts(expected, tcs);
+
+        // entries can still be changed and added
+        tcs.mergeOrOverwriteTurnInfo(1, 2, 3, 6, false);
+        expected[1][2][3] = 6;
+        tcs.addTurnInfo(0, 4, 0, 5);
+        expected[0][4][0] = 5;
+        assertTurnCosts(expected, tcs);
+
+        g.flush();
+        g.close();
+
+        g = new GraphBuilder(manager).setLocation(location).setStore(true).build();
+        assertTrue(g.loadExisting());
+        assertTurnCosts(expected, (TurnCostExtension) g.getExtension());
+        g.close();
+        Helper.removeDir(new File(location));
+    }
+
+    private void assertTurnCosts(long[][][] expected, TurnCostExtension tcs) {
+        for (int from = 0; from < 5; from++) {
+            for (int via = 0; via < 5; via++) {
+                for (int to = 0; to < 5; to++) {
+                    assertEquals(from + "-" + via + "-" + to, expected[from][via][to], tcs.getTurnCostFlags(from, via, to));
+                }
+            }
+        }
+    }
 }
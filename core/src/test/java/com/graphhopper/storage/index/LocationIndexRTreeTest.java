@@ -0,0 +1,292 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage.index;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.profiles.BooleanEncodedValue;
+import com.graphhopper.routing.util.*;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class LocationIndexRTreeTest extends AbstractLocationIndexTester {
+    private final EncodingManager encodingManager = EncodingManager.create("car");
+
+    @Override
+    public LocationIndexRTree createIndex(Graph g, int resolution) {
+        return (LocationIndexRTree) new LocationIndexRTree(g, new RAMDirectory(location)).setNodeSize(4).prepareIndex();
+    }
+
+    @Override
+    public boolean hasEdgeSupport() {
+        return true;
+    }
+
+    //  0------\
+    // /|       \
+    // |1----3-\|
+    // |____/   4
+    // 2-------/
+    Graph createTestGraph() {
+        Graph graph = createGHStorage(encodingManager);
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 0.5, -0.5);
+        na.setNode(1, -0.5, -0.5);
+        na.setNode(2, -1, -1);
+        na.setNode(3, -0.4, 0.9);
+        na.setNode(4, -0.6, 1.6);
+        graph.edge(0, 1, 1, true);
+        graph.edge(0, 2, 1, true);
+        graph.edge(0, 4, 1, true);
+        graph.edge(1, 3, 1, true);
+        graph.edge(2, 3, 1, true);
+        graph.edge(2, 4, 1, true);
+        graph.edge(3, 4, 1, true);
+        return graph;
+    }
+
+    @Test
+    public void testSnappedPointAndGeometry() {
+        LocationIndex index = createIndex(createTestGraph(), -1);
+        // query directly the tower node
+        QueryResult res = index.findClosest(-0.4, 0.9, EdgeFilter.ALL_EDGES);
+        assertTrue(res.isValid());
+        assertEquals(QueryResult.Position.TOWER, res.getSnappedPosition());
+        assertEquals(3, res.getClosestNode());
+        assertEquals(new GHPoint(-0.4, 0.9), res.getSnappedPoint());
+
+        // query the edge (1,3). The edge (0,4) has 27674 as distance
+        res = index.findClosest(-0.2, 0.3, EdgeFilter.ALL_EDGES);
+        assertTrue(res.isValid());
+        assertEquals(QueryResult.Position.EDGE, res.getSnappedPosition());
+        assertEquals(26936, res.getQueryDistance(), 1);
+        assertEquals(new GHPoint(-0.441624, 0.317259), res.getSnappedPoint());
+    }
+
+    @Test
+    public void testLongEdgeWithPillars() {
+        // the tower nodes are far away from the query point, only the pillar geometry is close
+        Graph g = createGHStorage(encodingManager);
+        NodeAccess na = g.getNodeAccess();
+        na.setNode(0, 49, 9);
+        na.setNode(1, 52, 12);
+        na.setNode(2, 51.2, 9.3);
+        na.setNode(3, 51.3, 9.3);
+        EdgeIteratorState longEdge = g.edge(0, 1, 1, true).setWayGeometry(Helper.createPointList(51.25, 9.43, 51.26, 9.5));
+        g.edge(2, 3, 1, true);
+
+        LocationIndex index = createIndex(g, -1);
+        QueryResult res = index.findClosest(51.25, 9.431, EdgeFilter.ALL_EDGES);
+        assertEquals(longEdge.getEdge(), res.getClosestEdge().getEdge());
+        assertEquals(QueryResult.Position.EDGE, res.getSnappedPosition());
+        assertEquals(1, res.getWayIndex());
+
+        // beyond both segments adjacent to the first pillar
+        res = index.findClosest(51.26, 9.414, EdgeFilter.ALL_EDGES);
+        assertEquals(longEdge.getEdge(), res.getClosestEdge().getEdge());
+        assertEquals(QueryResult.Position.PILLAR, res.getSnappedPosition());
+        assertEquals(new GHPoint(51.25, 9.43), res.getSnappedPoint());
+    }
+
+    @Test
+    public void testEdgeFilter() {
+        Graph graph = createTestGraph();
+        FlagEncoder encoder = encodingManager.getEncoder("car");
+        BooleanEncodedValue accessEnc = encoder.getAccessEnc();
+        // block edge (1,3) which is the closest edge for the query
+        EdgeIteratorState edge = GHUtility.getEdge(graph, 1, 3);
+        edge.set(accessEnc, false).setReverse(accessEnc, false);
+        LocationIndex index = createIndex(graph, -1);
+
+        QueryResult res = index.findClosest(-0.2, 0.3, DefaultEdgeFilter.allEdges(encoder));
+        assertTrue(res.isValid());
+        assertEquals(GHUtility.getEdge(graph, 0, 4).getEdge(), res.getClosestEdge().getEdge());
+
+        res = index.findClosest(-0.2, 0.3, new EdgeFilter() {
+            @Override
+            public boolean accept(EdgeIteratorState edgeState) {
+                return false;
+            }
+        });
+        assertFalse(res.isValid());
+    }
+
+    @Test
+    public void testMaxSearchDistance() {
+        Graph graph = createTestGraph();
+        final int blockedEdge = GHUtility.getEdge(graph, 1, 3).getEdge();
+        final IntArrayList checkedEdges = new IntArrayList();
+        EdgeFilter filter = new EdgeFilter() {
+            @Override
+            public boolean accept(EdgeIteratorState edgeState) {
+                checkedEdges.add(edgeState.getEdge());
+                return edgeState.getEdge() != blockedEdge;
+            }
+        };
+        // the edge (0,4) is 27674m away
+        LocationIndexRTree index = createIndex(graph, -1).setMaxSearchDistance(30_000);
+        QueryResult res = index.findClosest(-0.2, 0.3, filter);
+        assertTrue(res.isValid());
+        assertEquals(GHUtility.getEdge(graph, 0, 4).getEdge(), res.getClosestEdge().getEdge());
+
+        index.setMaxSearchDistance(20_000);
+        assertFalse(index.findClosest(-0.2, 0.3, filter).isValid());
+
+        // every edge is passed to the filter only once, even if it has several segments
+        checkedEdges.clear();
+        index.setMaxSearchDistance(Double.MAX_VALUE);
+        assertFalse(index.findClosest(-0.2, 0.3, new EdgeFilter() {
+            @Override
+            public boolean accept(EdgeIteratorState edgeState) {
+                checkedEdges.add(edgeState.getEdge());
+                return false;
+            }
+        }).isValid());
+        assertEquals(graph.getAllEdges().length(), checkedEdges.size());
+    }
+
+    @Test
+    public void testCompareWithAllSegments() {
+        Graph graph = createSampleGraph(encodingManager);
+        Random rand = new Random(12);
+        // add pillar nodes to every edge
+        AllEdgesIterator iter = graph.getAllEdges();
+        NodeAccess na = graph.getNodeAccess();
+        while (iter.next()) {
+            double lat = (na.getLat(iter.getBaseNode()) + na.getLat(iter.getAdjNode())) / 2;
+            double lon = (na.getLon(iter.getBaseNode()) + na.getLon(iter.getAdjNode())) / 2;
+            iter.setWayGeometry(Helper.createPointList(lat + rand.nextDouble() * 0.2 - 0.1, lon + rand.nextDouble() * 0.2 - 0.1));
+        }
+        LocationIndex index = createIndex(graph, -1);
+        LocationIndex.Snapper snapper = index.createSnapper();
+        DistanceCalc distCalc = Helper.DIST_PLANE;
+        for (int i = 0; i < 500; i++) {
+            double lat = rand.nextDouble() * 6 - 0.5;
+            double lon = rand.nextDouble() * 6 - 0.5;
+            double expectedDist = Double.MAX_VALUE;
+            iter = graph.getAllEdges();
+            while (iter.next()) {
+                PointList points = iter.fetchWayGeometry(3);
+                for (int p = 1; p < points.getSize(); p++) {
+                    double lat1 = points.getLat(p - 1), lon1 = points.getLon(p - 1);
+                    double lat2 = points.getLat(p), lon2 = points.getLon(p);
+                    double dist = distCalc.validEdgeDistance(lat, lon, lat1, lon1, lat2, lon2)
+                            ? distCalc.calcNormalizedEdgeDistance(lat, lon, lat1, lon1, lat2, lon2)
+                            : Math.min(distCalc.calcNormalizedDist(lat, lon, lat1, lon1), distCalc.calcNormalizedDist(lat, lon, lat2, lon2));
+                    expectedDist = Math.min(expectedDist, dist);
+                }
+            }
+
+            QueryResult res = snapper.findClosest(lat, lon, EdgeFilter.ALL_EDGES);
+            assertEquals(distCalc.calcDenormalizedDist(expectedDist), res.getQueryDistance(), 1e-3);
+            GHPoint snapped = res.getSnappedPoint();
+            assertEquals(res.getQueryDistance(), distCalc.calcDist(lat, lon, snapped.lat, snapped.lon), 1);
+        }
+    }
+
+    // 0---1---2
+    // |   |   |
+    // |10 |   |
+    // | | |   |
+    // 3-9-4---5
+    // |   |   |
+    // 6---7---8
+    @Test
+    public void testFindNClosest() {
+        Graph graph = createGHStorage(encodingManager);
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 0.0010, 0.0000);
+        na.setNode(1, 0.0010, 0.0005);
+        na.setNode(2, 0.0010, 0.0010);
+        na.setNode(3, 0.0005, 0.0000);
+        na.setNode(4, 0.0005, 0.0005);
+        na.setNode(5, 0.0005, 0.0010);
+        na.setNode(6, 0.0000, 0.0000);
+        na.setNode(7, 0.0000, 0.0005);
+        na.setNode(8, 0.0000, 0.0010);
+        na.setNode(9, 0.0005, 0.0002);
+        na.setNode(10, 0.0007, 0.0002);
+        graph.edge(0, 1);
+        graph.edge(1, 2);
+        graph.edge(0, 3);
+        graph.edge(1, 4);
+        graph.edge(2, 5);
+        graph.edge(3, 9);
+        graph.edge(9, 4);
+        EdgeIteratorState edge4_5 = graph.edge(4, 5);
+        graph.edge(10, 9);
+        graph.edge(3, 6);
+        EdgeIteratorState edge4_7 = graph.edge(4, 7);
+        graph.edge(5, 8);
+        graph.edge(6, 7);
+        graph.edge(7, 8);
+
+        LocationIndexRTree index = createIndex(graph, -1);
+        // query node 4 => get at least 4-5, 4-7
+        List<QueryResult> result = index.findNClosest(0.0004, 0.0006, EdgeFilter.ALL_EDGES, 15);
+        List<Integer> ids = new ArrayList<>();
+        for (QueryResult qr : result) {
+            ids.add(qr.getClosestEdge().getEdge());
+        }
+        Collections.sort(ids);
+        assertEquals("edge ids do not match", Arrays.asList(edge4_5.getEdge(), edge4_7.getEdge()), ids);
+
+        // nothing within the radius => return the closest edge only
+        result = index.findNClosest(0.0004, 0.0006, EdgeFilter.ALL_EDGES, 1);
+        assertEquals(1, result.size());
+        assertTrue(result.get(0).getQueryDistance() > 1);
+    }
+
+    @Test
+    public void testQuery() {
+        Graph graph = createTestGraph();
+        LocationIndex index = createIndex(graph, -1);
+        final Set<Integer> nodes = new HashSet<>();
+        index.query(new BBox(1.45, 1.55, 0.35, 0.45), new LocationIndex.Visitor() {
+            @Override
+            public void onNode(int nodeId) {
+                nodes.add(nodeId);
+            }
+        });
+        // only the bounding box of edge (0,4) intersects
+        assertEquals(new HashSet<>(Arrays.asList(0, 4)), nodes);
+    }
+
+    @Test
+    public void testLoadExisting() {
+        Graph graph = createTestGraph();
+        new File(location).mkdirs();
+        LocationIndex index = new LocationIndexRTree(graph, new RAMDirectory(location, true)).prepareIndex();
+        index.flush();
+        QueryResult expected = index.findClosest(-0.2, 0.3, EdgeFilter.ALL_EDGES);
+        index.close();
+
+        idx = new LocationIndexRTree(graph, new RAMDirectory(location, true));
+        assertTrue(idx.loadExisting());
+        QueryResult res = idx.findClosest(-0.2, 0.3, EdgeFilter.ALL_EDGES);
+        assertEquals(expected.getClosestEdge().getEdge(), res.getClosestEdge().getEdge());
+        assertEquals(expected.getSnappedPoint(), res.getSnappedPoint());
+    }
+}
@@ -587,4 +587,52 @@ public class LocationIndexTreeTest extends AbstractLocationIndexTester {
                 Arrays.asList(edge4_5.getEdge(), edge4_7.getEdge()), ids);
     }
 
+    @Test
+    public void testSnapperIsReusable() {
+        Graph graph = createTestGraph2();
+        // add a loop with a pillar node to check that its direction is kept
+        EdgeIteratorState loop = graph.edge(0, 0, 10, true);
+        NodeAccess na = graph.getNodeAccess();
+        PointList pillars = new PointList();
+        pillars.add(na.getLat(0) + 0.001, na.getLon(0) + 0.001);
+        loop.setWayGeometry(pillars);
+        LocationIndexTree index = createIndex(graph, 500);
+        LocationIndex.Snapper snapper = index.createSnapper();
+        BBox bounds = graph.getBounds();
+        Random rand = new Random(12);
+        for (int i = 0; i < 200; i++) {
+            double lat = bounds.minLat + rand.nextDouble() * (bounds.maxLat - bounds.minLat);
+            double lon = bounds.minLon + rand.nextDouble() * (bounds.maxLon - bounds.minLon);
+            if (i == 0) {
+                lat = na.getLat(0) + 0.0008;
+                lon = na.getLon(0) + 0.0009;
+            }
+            // compare against the distance to the closest of all edges, the snapper returns one of them if there are several
+            double expectedDist = Double.MAX_VALUE;
+            AllEdgesIterator iter = graph.getAllEdges();
+            while (iter.next()) {
+                expectedDist = Math.min(expectedDist, calcDistToEdge(iter, lat, lon));
+            }
+            QueryResult qr = snapper.findClosest(lat, lon, EdgeFilter.ALL_EDGES);
+            assertTrue(qr.isValid());
+            assertEquals("query " + i, expectedDist, qr.getQueryDistance(), 1e-3);
+            assertEquals("query " + i, expectedDist, calcDistToEdge(qr.getClosestEdge(), lat, lon), 1e-3);
+            assertEquals(expectedDist, Helper.DIST_PLANE.calcDist(lat, lon, qr.getSnappedPoint().lat, qr.getSnappedPoint().lon), 1e-3);
+            if (i == 0)
+                assertEquals(loop.getEdge(), qr.getClosestEdge().getEdge());
+        }
+    }
+
+    private static double calcDistToEdge(EdgeIteratorState edge, double lat, double lon) {
+        DistanceCalc calc = Helper.DIST_PLANE;
+        PointList points = edge.fetchWayGeometry(3);
+        double minNormedDist = Double.MAX_VALUE;
+        for (int i = 0; i < points.size(); i++) {
+            minNormedDist = Math.min(minNormedDist, calc.calcNormalizedDist(lat, lon, points.getLat(i), points.getLon(i)));
+            if (i > 0 && calc.validEdgeDistance(lat, lon, points.getLat(i - 1), points.getLon(i - 1), points.getLat(i), points.getLon(i)))
+                minNormedDist = Math.min(minNormedDist, calc.calcNormalizedEdgeDistance(lat, lon,
+                        points.getLat(i - 1), points.getLon(i - 1), points.getLat(i), points.getLon(i)));
+        }
+        return calc.calcDenormalizedDist(minNormedDist);
+    }
 }
@@ -96,4 +96,49 @@ public class DouglasPeuckerTest {
                         + "(50.20138565901039,9.961668810881722), (50.20128507617008,9.96216874485095), (50.20088553877664,9.961953795595925), (50.200686794534775,9.961899033827313), (50.20014066696481,9.961716680863127), (50.199798499043254,9.961588158344957)",
                 pointList.toString());
     }
+
+    @Test
+    public void testSimplifyIntervals() {
+        PointList pointList = new PointList();
+        pointList.parse2DJSON(points1);
+        DouglasPeucker dp = new DouglasPeucker().setMaxDistance(.5);
+        PointList expected = pointList.clone(false);
+        int expectedRemoved = dp.simplify(expected, 20, 31);
+        expectedRemoved += dp.simplify(expected, 10, 20);
+        expectedRemoved += dp.simplify(expected, 0, 10);
+
+        int[] indices = {0, 10, 20, 31};
+        assertEquals(expectedRemoved, dp.simplify(pointList, indices));
+        assertEquals(expected, pointList);
+        assertEquals(0, indices[0]);
+        assertEquals(pointList.size() - 1, indices[3]);
+        assertEquals(expected.getLatitude(indices[1]), pointList.getLatitude(indices[1]), 1e-6);
+        PointList original = new PointList();
+        original.parse2DJSON(points1);
+        assertEquals(original.getLatitude(10), pointList.getLatitude(indices[1]), 1e-6);
+        assertEquals(original.getLatitude(20), pointList.getLatitude(indices[2]), 1e-6);
+    }
+
+    @Test
+    public void testSimplify3DLongLine() {
+        // a zigzag line with many points must neither overflow the stack nor lose the elevation
+        PointList pointList = new PointList(20_000, true);
+        for (int i = 0; i < 20_000; i++) {
+            pointList.add(49.9 + (i % 2) * 0.001, 11.5 + i * 0.0001, i);
+        }
+        DouglasPeucker dp = new DouglasPeucker();
+        dp.setApproximation(false);
+        dp.setMaxDistance(.5);
+        assertEquals(0, dp.simplify(pointList));
+        assertEquals(20_000, pointList.size());
+
+        pointList = new PointList(20_000, true);
+        for (int i = 0; i < 20_000; i++) {
+            pointList.add(0, 11.5 + i * 0.0001, i);
+        }
+        assertEquals(19_998, dp.simplify(pointList));
+        assertEquals(2, pointList.size());
+        assertEquals(0, pointList.getElevation(0), 1e-6);
+        assertEquals(19_999, pointList.getElevation(1), 1e-6);
+    }
 }
@@ -0,0 +1,116 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.util;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.RouteCache;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.HintsMap;
+import com.graphhopper.routing.util.SearchTraceRecorder;
+import com.graphhopper.routing.weighting.ShortestWeighting;
+import com.graphhopper.storage.CHProfile;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.NodeAccess;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EngineWarmUpTest {
+    private GraphHopper hopper;
+
+    @Before
+    public void setUp() {
+        final EncodingManager encodingManager = EncodingManager.create("car");
+        final GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 42, 10);
+        na.setNode(1, 42.1, 10.1);
+        na.setNode(2, 42.1, 10.2);
+        na.setNode(3, 42, 10.4);
+        graph.edge(0, 1, 10, true);
+        graph.edge(1, 2, 10, true);
+        graph.edge(2, 3, 10, true);
+        // loadGraph is protected
+        hopper = new GraphHopper() {
+            {
+                setStoreOnFlush(false).setEncodingManager(encodingManager).setCHEnabled(false);
+                loadGraph(graph);
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        hopper.close();
+    }
+
+    @Test
+    public void testFlexibleProfileWithoutCH() {
+        List<HintsMap> profiles = EngineWarmUp.createProfiles(hopper);
+        assertEquals(1, profiles.size());
+        assertEquals("car", profiles.get(0).getVehicle());
+        assertEquals("fastest", profiles.get(0).getWeighting());
+        assertTrue(profiles.get(0).getBool(Parameters.CH.DISABLE, false));
+        assertTrue(profiles.get(0).getBool(Parameters.Landmark.DISABLE, false));
+    }
+
+    @Test
+    public void testFlexibleProfileUsesConfiguredWeighting() {
+        FlagEncoder encoder = hopper.getEncodingManager().getEncoder("car");
+        hopper.getCHFactoryDecorator().setEnabled(true).setDisablingAllowed(true).
+                addCHProfile(CHProfile.nodeBased(new ShortestWeighting(encoder)));
+        List<HintsMap> profiles = EngineWarmUp.createProfiles(hopper);
+        assertEquals(2, profiles.size());
+        assertEquals("shortest", profiles.get(0).getWeighting());
+        assertFalse(profiles.get(0).getBool(Parameters.CH.DISABLE, false));
+        assertEquals("car", profiles.get(1).getVehicle());
+        assertEquals("shortest", profiles.get(1).getWeighting());
+        assertTrue(profiles.get(1).getBool(Parameters.CH.DISABLE, false));
+        assertTrue(profiles.get(1).getBool(Parameters.Landmark.DISABLE, false));
+    }
+
+    @Test
+    public void testWarmUpUntilStable() {
+        assertTrue(EngineWarmUp.warmUpUntilStable(hopper, 5, 100, 10, new CancellationToken()));
+
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        assertFalse(EngineWarmUp.warmUpUntilStable(hopper, 5, 100, 10, token));
+    }
+
+    @Test
+    public void testWarmUpBypassesRouteCacheAndTraces() {
+        hopper.setRouteCache(new RouteCache(100));
+        hopper.setSearchTraceRecorder(new SearchTraceRecorder(100, 1, 0));
+        assertTrue(EngineWarmUp.warmUpUntilStable(hopper, 5, 100, 10, new CancellationToken()));
+        assertEquals(0, hopper.getRouteCache().size());
+        assertEquals(0, hopper.getRouteCache().getHits());
+        assertTrue(hopper.getSearchTraceRecorder().getTraces().isEmpty());
+    }
+
+    @Test
+    public void testPreFaultSkipsRAMStorage() {
+        assertEquals(0, EngineWarmUp.preFault(hopper.getGraphHopperStorage().getDirectory()));
+    }
+}
@@ -229,6 +229,7 @@ public class Isochrone extends AbstractRoutingAlgorithm {
         EdgeExplorer explorer = reverseFlow ? inEdgeExplorer : outEdgeExplorer;
         while (true) {
             visitedNodes++;
+            checkCancelled();
             if (finished()) {
                 break;
             }
@@ -34,6 +34,12 @@ class EmptyLocationIndex implements LocationIndex {
         return this;
     }
 
+    @Override
+    public Snapper createSnapper() {
+        // no search state to reuse
+        return this::findClosest;
+    }
+
     @Override
     public QueryResult findClosest(double lat, double lon, EdgeFilter edgeFilter) {
         return new QueryResult(lat, lon);
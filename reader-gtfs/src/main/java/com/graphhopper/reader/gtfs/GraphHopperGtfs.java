@@ -41,6 +41,7 @@ import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.QueryResult;
 import com.graphhopper.util.*;
 import com.graphhopper.util.exceptions.PointNotFoundException;
+import com.graphhopper.util.exceptions.RequestCancelledException;
 import com.graphhopper.util.shapes.GHPoint;
 
 import javax.inject.Inject;
@@ -109,6 +110,7 @@ public final class GraphHopperGtfs {
         private final double walkSpeedKmH;
         private final double maxWalkDistancePerLeg;
         private final int blockedRouteTypes;
+        private final CancellationToken cancellationToken;
         private final GHLocation enter;
         private final GHLocation exit;
         private final Translation translation;
@@ -131,6 +133,7 @@ public final class GraphHopperGtfs {
             arriveBy = request.isArriveBy();
             walkSpeedKmH = request.getWalkSpeedKmH();
             blockedRouteTypes = request.getBlockedRouteTypes();
+            cancellationToken = request.getCancellationToken();
             translation = translationMap.getWithFallBack(request.getLocale());
             if (request.getPoints().size() != 2) {
                 throw new IllegalArgumentException("Exactly 2 points have to be specified, but was:" + request.getPoints().size());
@@ -183,7 +186,13 @@ public final class GraphHopperGtfs {
                 startNode = allQueryResults.get(0).getClosestNode();
                 destNode = allQueryResults.get(1).getClosestNode();
             }
-            List<List<Label.Transition>> solutions = findPaths(startNode, destNode);
+            List<List<Label.Transition>> solutions;
+            try {
+                solutions = findPaths(startNode, destNode);
+            } catch (RequestCancelledException ex) {
+                response.addError(ex);
+                return response;
+            }
             parseSolutionsAndAddToResponse(solutions, points);
             return response;
         }
@@ -220,6 +229,7 @@ public final class GraphHopperGtfs {
             GtfsStorage.EdgeType edgeType = reverse ? GtfsStorage.EdgeType.EXIT_PT : GtfsStorage.EdgeType.ENTER_PT;
             MultiCriteriaLabelSetting stationRouter = new MultiCriteriaLabelSetting(accessEgressGraphExplorer, flagEncoder, reverse, maxWalkDistancePerLeg, false, false, false, maxVisitedNodesForRequest, new ArrayList<>());
             stationRouter.setBetaWalkTime(betaWalkTime);
+            stationRouter.setCancellationToken(cancellationToken);
             Iterator<Label> stationIterator = stationRouter.calcLabels(destNode, startNode, initialTime, blockedRouteTypes).iterator();
             List<Label> stationLabels = new ArrayList<>();
             while (stationIterator.hasNext()) {
@@ -244,6 +254,7 @@ public final class GraphHopperGtfs {
             MultiCriteriaLabelSetting router = new MultiCriteriaLabelSetting(graphExplorer, flagEncoder, arriveBy, maxWalkDistancePerLeg, true, !ignoreTransfers, profileQuery, maxVisitedNodesForRequest, discoveredSolutions);
             router.setBetaTransfers(betaTransfers);
             router.setBetaWalkTime(betaWalkTime);
+            router.setCancellationToken(cancellationToken);
             if (!stationLabels.isEmpty()) {
                 smallestStationLabelWeight = stationRouter.weight(stationLabels.get(0));
             } else {
@@ -417,7 +428,8 @@ public final class GraphHopperGtfs {
                             @QueryParam("locale") String localeStr,
                             @QueryParam(Parameters.PT.IGNORE_TRANSFERS) Boolean ignoreTransfers,
                             @QueryParam(Parameters.PT.PROFILE_QUERY) Boolean profileQuery,
-                            @QueryParam(Parameters.PT.LIMIT_SOLUTIONS) Integer limitSolutions) {
+                            @QueryParam(Parameters.PT.LIMIT_SOLUTIONS) Integer limitSolutions,
+                            @QueryParam(Parameters.Routing.TIMEOUT) Long timeoutMillis) {
 
         if (departureTimeString == null) {
             throw new BadRequestException(String.format(Locale.ROOT, "Illegal value for required parameter %s: [%s]", Parameters.PT.EARLIEST_DEPARTURE_TIME, departureTimeString));
@@ -434,6 +446,7 @@ public final class GraphHopperGtfs {
         Optional.ofNullable(ignoreTransfers).ifPresent(request::setIgnoreTransfers);
         Optional.ofNullable(localeStr).ifPresent(s -> request.setLocale(Helper.getLocale(s)));
         Optional.ofNullable(limitSolutions).ifPresent(request::setLimitSolutions);
+        Optional.ofNullable(timeoutMillis).ifPresent(t -> request.setCancellationToken(new CancellationToken(null, t)));
 
         GHResponse route = new RequestHandler(request).route();
         return WebHelper.jsonObject(route, true, true, false, false, 0.0f);
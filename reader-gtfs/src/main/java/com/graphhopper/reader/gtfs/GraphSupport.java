@@ -188,6 +188,17 @@ class GraphSupport {
                         return this;
                     }
 
+                    @Override
+                    public String getRouteDesc() {
+                        return edge.getRouteDesc();
+                    }
+
+                    @Override
+                    public EdgeIteratorState setRouteDesc(String desc) {
+                        edge.setRouteDesc(desc);
+                        return this;
+                    }
+
                     @Override
                     public EdgeIteratorState detach(boolean reverse) {
                         return edge.detach(reverse);
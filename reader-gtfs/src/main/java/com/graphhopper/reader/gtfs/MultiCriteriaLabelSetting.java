@@ -20,6 +20,7 @@ package com.graphhopper.reader.gtfs;
 import com.carrotsearch.hppc.IntObjectHashMap;
 import com.carrotsearch.hppc.IntObjectMap;
 import com.graphhopper.routing.profiles.IntEncodedValue;
+import com.graphhopper.util.CancellationToken;
 import com.graphhopper.util.EdgeIterator;
 
 import java.time.Instant;
@@ -44,6 +45,7 @@ public class MultiCriteriaLabelSetting {
         void visit(Label label);
     }
 
+    private static final int CANCELLATION_CHECK_MASK = 0xFF;
     private final Comparator<Label> queueComparator;
     private final List<Label> targetLabels;
     private long startTime;
@@ -61,6 +63,8 @@ public class MultiCriteriaLabelSetting {
     private final GraphExplorer explorer;
     private double betaTransfers;
     private double betaWalkTime = 1.0;
+    private CancellationToken cancellationToken;
+    private int cancellationChecks;
 
     public MultiCriteriaLabelSetting(GraphExplorer explorer, PtFlagEncoder flagEncoder, boolean reverse, double maxWalkDistancePerLeg, boolean ptOnly, boolean mindTransfers, boolean profileQuery, int maxVisitedNodes, List<Label> solutions) {
         this.flagEncoder = flagEncoder;
@@ -115,6 +119,21 @@ public class MultiCriteriaLabelSetting {
         }
     }
 
+    /**
+     * Stops the search with a RequestCancelledException if the specified token is cancelled or timed out.
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * Only the first and then every 256th label checks the token, as System.nanoTime is too expensive for every label.
+     */
+    private void checkCancelled() {
+        if (cancellationToken != null && (cancellationChecks++ & CANCELLATION_CHECK_MASK) == 0)
+            cancellationToken.throwIfCancelled();
+    }
+
     // experimental
     void setBetaTransfers(double betaTransfers) {
         this.betaTransfers = betaTransfers;
@@ -146,6 +165,7 @@ public class MultiCriteriaLabelSetting {
             if (fromHeap.isEmpty()) {
                 return false;
             } else {
+                checkCancelled();
                 Label label = fromHeap.poll();
                 action.accept(label);
                 final IntEncodedValue validityEnc = flagEncoder.getValidityIdEnc();
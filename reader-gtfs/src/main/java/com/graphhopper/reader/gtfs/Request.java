@@ -18,6 +18,7 @@
 
 package com.graphhopper.reader.gtfs;
 
+import com.graphhopper.util.CancellationToken;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.shapes.GHPoint;
 
@@ -40,6 +41,7 @@ public class Request {
     private int blockedRouteTypes;
     private Locale locale = Helper.getLocale("en");
     private double maxWalkDistancePerLeg = Integer.MAX_VALUE;
+    private CancellationToken cancellationToken;
 
     public Request(List<GHLocation> points, Instant departureTime) {
         this.points = points;
@@ -149,4 +151,12 @@ public class Request {
     public void setMaxWalkDistancePerLeg(double maxWalkDistancePerLeg) {
         this.maxWalkDistancePerLeg = maxWalkDistancePerLeg;
     }
+
+    public CancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
 }
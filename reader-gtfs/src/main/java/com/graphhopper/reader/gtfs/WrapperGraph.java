@@ -285,6 +285,16 @@ public class WrapperGraph implements Graph {
                 throw new UnsupportedOperationException();
             }
 
+            @Override
+            public String getRouteDesc() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public EdgeIteratorState setRouteDesc(String desc) {
+                throw new UnsupportedOperationException();
+            }
+
             @Override
             public EdgeIteratorState detach(boolean reverse) {
                 throw new UnsupportedOperationException();
@@ -506,6 +516,17 @@ public class WrapperGraph implements Graph {
                         return this;
                     }
 
+                    @Override
+                    public String getRouteDesc() {
+                        return current.getRouteDesc();
+                    }
+
+                    @Override
+                    public EdgeIteratorState setRouteDesc(String desc) {
+                        current.setRouteDesc(desc);
+                        return this;
+                    }
+
                     @Override
                     public EdgeIteratorState detach(boolean reverse) {
                         return current.detach(reverse);
@@ -232,6 +232,58 @@ public class GraphHopperIT {
         assertEquals(958, rsp.getAll().get(2).getTime() / 1000);
     }
 
+    @Test
+    public void testAlternativeRoutesCH() {
+        GraphHopper tmpHopper = new GraphHopperOSM().
+                setOSMFile(DIR + "/north-bayreuth.osm.gz").
+                setCHEnabled(true).
+                setGraphHopperLocation(tmpGraphFile).
+                setEncodingManager(EncodingManager.create("car"));
+        tmpHopper.importOrLoad();
+
+        GHRequest req = new GHRequest(50.023513, 11.548862, 49.969441, 11.537876).
+                setAlgorithm(ALT_ROUTE).setVehicle("car").setWeighting("fastest");
+        req.getHints().put("alternative_route.max_paths", "3");
+        GHResponse rsp = tmpHopper.route(req);
+        assertFalse(rsp.getErrors().toString(), rsp.hasErrors());
+
+        assertEquals(3, rsp.getAll().size());
+        // the best path is the same as without CH
+        assertEquals(870, rsp.getAll().get(0).getTime() / 1000);
+        for (PathWrapper alternative : rsp.getAll()) {
+            assertTrue(alternative.getTime() <= 1.4 * rsp.getAll().get(0).getTime());
+        }
+        tmpHopper.close();
+    }
+
+    @Test
+    public void testOneToManyCH() {
+        GraphHopper tmpHopper = new GraphHopperOSM().
+                setOSMFile(DIR + "/north-bayreuth.osm.gz").
+                setCHEnabled(true).
+                setGraphHopperLocation(tmpGraphFile).
+                setEncodingManager(EncodingManager.create("car"));
+        tmpHopper.importOrLoad();
+
+        List<GHPoint> points = Arrays.asList(new GHPoint(50.023513, 11.548862), new GHPoint(49.969441, 11.537876),
+                new GHPoint(50.028917, 11.496506), new GHPoint(49.985228, 11.600876));
+        GHRequest req = new GHRequest(points).setAlgorithm(ONE_TO_MANY).setVehicle("car").setWeighting("fastest");
+        GHResponse rsp = tmpHopper.route(req);
+        assertFalse(rsp.getErrors().toString(), rsp.hasErrors());
+        assertEquals(3, rsp.getAll().size());
+
+        // every path is the same as the one of a separate request
+        for (int i = 1; i < points.size(); i++) {
+            GHResponse expected = tmpHopper.route(new GHRequest(points.get(0), points.get(i)).setVehicle("car").setWeighting("fastest"));
+            PathWrapper path = rsp.getAll().get(i - 1);
+            assertEquals(expected.getBest().getTime(), path.getTime());
+            assertEquals(expected.getBest().getDistance(), path.getDistance(), .1);
+            assertEquals(expected.getBest().getPoints(), path.getPoints());
+            assertEquals(expected.getBest().getWaypoints().toString(), path.getWaypoints().toString());
+        }
+        tmpHopper.close();
+    }
+
     @Test
     public void testPointHint() {
         GraphHopper tmpHopper = new GraphHopperOSM().
@@ -358,6 +410,53 @@ public class GraphHopperIT {
         assertEquals(3363, rsp.getBest().getDistance(), 1);
     }
 
+    @Test
+    public void testMonacoViaWithLegThreads() {
+        GHRequest req = new GHRequest().
+                addPoint(new GHPoint(43.727687, 7.418737)).
+                addPoint(new GHPoint(43.74958, 7.436566)).
+                addPoint(new GHPoint(43.739213, 7.427806)).
+                addPoint(new GHPoint(43.731, 7.42)).
+                addPoint(new GHPoint(43.727687, 7.418737)).
+                setAlgorithm(ASTAR).setVehicle(vehicle).setWeighting(weightCalcStr);
+        PathWrapper expected = hopper.route(req).getBest();
+
+        hopper.setLegThreads(2);
+        try {
+            GHResponse rsp = hopper.route(req);
+            assertFalse(rsp.getErrors().toString(), rsp.hasErrors());
+            PathWrapper arsp = rsp.getBest();
+            assertEquals(expected.getDistance(), arsp.getDistance(), .1);
+            assertEquals(expected.getTime(), arsp.getTime());
+            assertEquals(expected.getPoints(), arsp.getPoints());
+            assertEquals(expected.getInstructions().size(), arsp.getInstructions().size());
+
+            // every leg with a heading uses its own view of the QueryGraph
+            req = new GHRequest().
+                    addPoint(new GHPoint(43.727687, 7.418737), 270).
+                    addPoint(new GHPoint(43.74958, 7.436566)).
+                    addPoint(new GHPoint(43.739213, 7.427806), 90).
+                    addPoint(new GHPoint(43.731, 7.42)).
+                    addPoint(new GHPoint(43.727687, 7.418737)).
+                    setAlgorithm(ASTAR).setVehicle(vehicle).setWeighting(weightCalcStr);
+            hopper.setLegThreads(0);
+            expected = hopper.route(req).getBest();
+            hopper.setLegThreads(2);
+            rsp = hopper.route(req);
+            assertFalse(rsp.getErrors().toString(), rsp.hasErrors());
+            assertEquals(expected.getDistance(), rsp.getBest().getDistance(), .1);
+            assertEquals(expected.getPoints(), rsp.getBest().getPoints());
+
+            // pass_through makes the legs depend on each other and is still calculated correctly
+            req.getHints().put(Routing.PASS_THROUGH, true);
+            rsp = hopper.route(req);
+            assertFalse(rsp.getErrors().toString(), rsp.hasErrors());
+            assertTrue(rsp.getBest().getDistance() >= expected.getDistance());
+        } finally {
+            hopper.setLegThreads(0);
+        }
+    }
+
     @Test
     public void testMonacoVia() {
         Translation tr = hopper.getTranslationMap().getWithFallBack(Locale.US);
@@ -884,9 +983,10 @@ public class GraphHopperIT {
 
         assertEquals(1, rsp.getAll().size());
         PathWrapper pw = rsp.getBest();
-        assertEquals(1.45, rsp.getBest().getDistance() / 1000f, .01);
-        assertEquals(17, rsp.getBest().getTime() / 1000f / 60, 1);
-        assertEquals(63, pw.getPoints().size());
+        // the via point is placed with the detours of the roads around the start in mind
+        assertEquals(1.19, rsp.getBest().getDistance() / 1000f, .01);
+        assertEquals(14, rsp.getBest().getTime() / 1000f / 60, 1);
+        assertEquals(57, pw.getPoints().size());
     }
 
     @Test
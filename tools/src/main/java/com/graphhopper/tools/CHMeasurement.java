@@ -22,6 +22,7 @@ import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.reader.osm.GraphHopperOSM;
 import com.graphhopper.routing.ch.CHAlgoFactoryDecorator;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.lm.LMAlgoFactoryDecorator;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.NodeAccess;
@@ -52,10 +53,14 @@ public class CHMeasurement {
      * the node contraction heuristics with regards to the performance of the automatic graph contraction (the node
      * contraction order determines how many and which shortcuts will be introduced) and the resulting query speed.
      * The queries are compared with a normal AStar search for comparison and to ensure correctness.
+     * <p>
+     * To track the preparation of edge-based CH use a fixed reference extract like core/files/andorra.osm.pbf and
+     * compare the preparation time (_edge.prepare_ch_time) and the number of shortcuts (_edge.shortcuts) between runs,
+     * e.g. with quick=true to skip most of the queries.
      */
     private static void testPerformanceAutomaticNodeOrdering(String[] args) {
         // example args:
-        // map=berlin.pbf stats_file=stats.dat period_updates=0 lazy_updates=100 neighbor_updates=0 contract_nodes=100 log_messages=20 edge_quotient_weight=1.0 orig_edge_quotient_weight=3.0 hierarchy_depth_weight=2.0 sigma_factor=3.0 min_max_settled_edges=100 reset_interval=10000 landmarks=0 cleanup=true turncosts=true threshold=0.1 seed=456 comp_iterations=10 perf_iterations=100 quick=false
+        // map=berlin.pbf stats_file=stats.dat period_updates=0 lazy_updates=100 neighbor_updates=0 contract_nodes=100 log_messages=20 priority_threads=1 edge_quotient_weight=1.0 orig_edge_quotient_weight=3.0 hierarchy_depth_weight=2.0 sigma_factor=3.0 min_max_settled_edges=100 reset_interval=10000 estimation_limit_factor=1.0 landmarks=0 cleanup=true turncosts=true threshold=0.1 seed=456 comp_iterations=10 perf_iterations=100 quick=false
         long start = nanoTime();
         CmdArgs cmdArgs = CmdArgs.read(args);
         LOGGER.info("Running analysis with parameters {}", cmdArgs);
@@ -67,12 +72,14 @@ public class CHMeasurement {
         final int neighborUpdates = cmdArgs.getInt("neighbor_updates", 0);
         final int contractedNodes = cmdArgs.getInt("contract_nodes", 100);
         final int logMessages = cmdArgs.getInt("log_messages", 20);
+        final int priorityThreads = cmdArgs.getInt("priority_threads", 1);
         final float edgeQuotientWeight = cmdArgs.getFloat("edge_quotient_weight", 1.0f);
         final float origEdgeQuotientWeight = cmdArgs.getFloat("orig_edge_quotient_weight", 3.0f);
         final float hierarchyDepthWeight = cmdArgs.getFloat("hierarchy_depth_weight", 2.0f);
         final double sigmaFactor = cmdArgs.getFloat("sigma_factor", 3.0f);
         final int minMaxSettledEdges = cmdArgs.getInt("min_max_settled_edges", 100);
         final int resetInterval = cmdArgs.getInt("reset_interval", 10_000);
+        final double estimationLimitFactor = cmdArgs.getDouble("estimation_limit_factor", 1.0);
         final int landmarks = cmdArgs.getInt("landmarks", 0);
         final boolean cleanup = cmdArgs.getBool("cleanup", true);
         final boolean withTurnCosts = cmdArgs.getBool("turncosts", true);
@@ -103,12 +110,14 @@ public class CHMeasurement {
         cmdArgs.put(NEIGHBOR_UPDATES, neighborUpdates);
         cmdArgs.put(CONTRACTED_NODES, contractedNodes);
         cmdArgs.put(LOG_MESSAGES, logMessages);
+        cmdArgs.put(PRIORITY_UPDATE_THREADS, priorityThreads);
         cmdArgs.put(EDGE_QUOTIENT_WEIGHT, edgeQuotientWeight);
         cmdArgs.put(ORIGINAL_EDGE_QUOTIENT_WEIGHT, origEdgeQuotientWeight);
         cmdArgs.put(HIERARCHY_DEPTH_WEIGHT, hierarchyDepthWeight);
         cmdArgs.put(SIGMA_FACTOR, sigmaFactor);
         cmdArgs.put(MIN_MAX_SETTLED_EDGES, minMaxSettledEdges);
         cmdArgs.put(SETTLED_EDGES_RESET_INTERVAL, resetInterval);
+        cmdArgs.put(ESTIMATION_LIMIT_FACTOR, estimationLimitFactor);
 
         LMAlgoFactoryDecorator lmDecorator = graphHopper.getLMFactoryDecorator();
         lmDecorator.setEnabled(landmarks > 0);
@@ -129,6 +138,11 @@ public class CHMeasurement {
         sw.stop();
         results.put("_prepare_time", sw.getSeconds());
         LOGGER.info("Import and preparation took {}s", sw.getMillis() / 1000);
+        for (PrepareContractionHierarchies prepareCH : chDecorator.getPreparations()) {
+            String mode = prepareCH.isEdgeBased() ? "edge" : "node";
+            results.put("_" + mode + ".prepare_ch_time", fmt(prepareCH.getTotalTime()));
+            results.put("_" + mode + ".shortcuts", prepareCH.getShortcuts());
+        }
 
         if (!quick) {
             runCompareTest(DIJKSTRA_BI, graphHopper, withTurnCosts, uTurnCosts, seed, compIterations, errorThreshold, results);
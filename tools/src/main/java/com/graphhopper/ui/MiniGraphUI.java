@@ -30,7 +30,7 @@ import com.graphhopper.routing.profiles.DecimalEncodedValue;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.*;
-import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.QueryResult;
 import com.graphhopper.util.*;
 import com.graphhopper.util.Parameters.Algorithms;
@@ -72,7 +72,7 @@ public class MiniGraphUI {
     int currentPosY;
     private Logger logger = LoggerFactory.getLogger(getClass());
     private Path path;
-    private LocationIndexTree index;
+    private LocationIndex index;
     private String latLon = "";
     private GraphicsWrapper mg;
     private JPanel infoPanel;
@@ -166,7 +166,7 @@ public class MiniGraphUI {
 
         // prepare node quadtree to 'enter' the graph. create a 313*313 grid => <3km
 //         this.index = new DebugLocation2IDQuadtree(roadGraph, mg);
-        this.index = (LocationIndexTree) hopper.getLocationIndex();
+        this.index = hopper.getLocationIndex();
 //        this.algo = new DebugDijkstraBidirection(graph, mg);
         // this.algo = new DijkstraBidirection(graph);
 //        this.algo = new DebugAStar(graph, mg);
@@ -283,7 +283,7 @@ public class MiniGraphUI {
                     }
                 }
 
-                index.query(graph.getBounds(), new LocationIndexTree.Visitor() {
+                index.query(graph.getBounds(), new LocationIndex.Visitor() {
                     @Override
                     public boolean isTileInfo() {
                         return true;
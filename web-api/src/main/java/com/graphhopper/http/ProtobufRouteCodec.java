@@ -0,0 +1,705 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import com.graphhopper.util.shapes.BBox;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * Writes and reads route responses in the protocol buffers format described in docs/web/route.proto. It is a compact
+ * alternative to the JSON format for clients that request many routes: the points are stored as delta encoded
+ * integers and no text has to be parsed.
+ * <p>
+ * The messages are written with the low level API of protobuf-java, i.e. no generated classes are necessary and the
+ * points are written without creating intermediate objects. The sizes of the nested messages are calculated before
+ * they are written, like the generated code does.
+ */
+public class ProtobufRouteCodec {
+    public static final String MEDIA_TYPE = "application/x-protobuf";
+
+    // RouteResponse
+    private static final int RESPONSE_PATHS = 1;
+    private static final int RESPONSE_HINTS = 2;
+    private static final int RESPONSE_TOOK = 3;
+    // Hint
+    private static final int HINT_KEY = 1;
+    private static final int HINT_VALUE = 2;
+    // Path
+    private static final int PATH_DISTANCE = 1;
+    private static final int PATH_WEIGHT = 2;
+    private static final int PATH_TIME = 3;
+    private static final int PATH_TRANSFERS = 4;
+    private static final int PATH_DESCRIPTION = 5;
+    private static final int PATH_POINTS = 6;
+    private static final int PATH_SNAPPED_WAYPOINTS = 7;
+    private static final int PATH_INSTRUCTIONS = 8;
+    private static final int PATH_DETAILS = 9;
+    private static final int PATH_ASCEND = 10;
+    private static final int PATH_DESCEND = 11;
+    private static final int PATH_BBOX = 12;
+    // Points
+    private static final int POINTS_DIMENSION = 1;
+    private static final int POINTS_DELTAS = 2;
+    // Instruction
+    private static final int INSTRUCTION_SIGN = 1;
+    private static final int INSTRUCTION_TEXT = 2;
+    private static final int INSTRUCTION_STREET_NAME = 3;
+    private static final int INSTRUCTION_DISTANCE = 4;
+    private static final int INSTRUCTION_TIME = 5;
+    private static final int INSTRUCTION_FIRST = 6;
+    private static final int INSTRUCTION_LAST = 7;
+    private static final int INSTRUCTION_ANNOTATION_TEXT = 8;
+    private static final int INSTRUCTION_ANNOTATION_IMPORTANCE = 9;
+    private static final int INSTRUCTION_EXTRA_INFO = 10;
+    // PathDetails
+    private static final int DETAILS_NAME = 1;
+    private static final int DETAILS_ENTRIES = 2;
+    // PathDetail and ExtraInfo
+    private static final int DETAIL_FIRST = 1;
+    private static final int DETAIL_LAST = 2;
+    private static final int EXTRA_INFO_KEY = 1;
+    // the value of a PathDetail or ExtraInfo
+    private static final int VALUE_DOUBLE = 3;
+    private static final int VALUE_LONG = 4;
+    private static final int VALUE_INT = 5;
+    private static final int VALUE_BOOL = 6;
+    private static final int VALUE_STRING = 7;
+
+    private static final double COORDINATE_FACTOR = 1e6;
+    private static final double ELEVATION_FACTOR = 100;
+
+    /**
+     * Writes the response with the same content as WebHelper.jsonObject. Responses with errors have to be written
+     * as JSON.
+     */
+    public static void write(OutputStream outputStream, GHResponse ghRsp, boolean enableInstructions, boolean calcPoints,
+                             boolean enableElevation, float took) throws IOException {
+        if (ghRsp.hasErrors())
+            throw new IllegalArgumentException("Responses with errors cannot be written as protocol buffers: " + ghRsp.getErrors());
+
+        CodedOutputStream out = CodedOutputStream.newInstance(outputStream);
+        for (PathWrapper path : ghRsp.getAll()) {
+            writeLengthDelimited(out, RESPONSE_PATHS, computePathSize(path, enableInstructions, calcPoints, enableElevation));
+            writePath(out, path, enableInstructions, calcPoints, enableElevation);
+        }
+        for (Map.Entry<String, String> hint : ghRsp.getHints().toMap().entrySet()) {
+            writeLengthDelimited(out, RESPONSE_HINTS, CodedOutputStream.computeStringSize(HINT_KEY, hint.getKey())
+                    + CodedOutputStream.computeStringSize(HINT_VALUE, hint.getValue()));
+            out.writeString(HINT_KEY, hint.getKey());
+            out.writeString(HINT_VALUE, hint.getValue());
+        }
+        out.writeInt64(RESPONSE_TOOK, Math.round(took * 1000));
+        out.flush();
+    }
+
+    private static void writeLengthDelimited(CodedOutputStream out, int field, int size) throws IOException {
+        out.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        out.writeUInt32NoTag(size);
+    }
+
+    private static int computeLengthDelimitedSize(int field, int size) {
+        return CodedOutputStream.computeTagSize(field) + CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+    }
+
+    private static int computePathSize(PathWrapper path, boolean enableInstructions, boolean calcPoints, boolean enableElevation) {
+        int size = CodedOutputStream.computeDoubleSize(PATH_DISTANCE, Helper.round(path.getDistance(), 3))
+                + CodedOutputStream.computeDoubleSize(PATH_WEIGHT, Helper.round6(path.getRouteWeight()))
+                + CodedOutputStream.computeInt64Size(PATH_TIME, path.getTime())
+                + CodedOutputStream.computeInt32Size(PATH_TRANSFERS, path.getNumChanges());
+        for (String description : path.getDescription()) {
+            size += CodedOutputStream.computeStringSize(PATH_DESCRIPTION, description);
+        }
+        if (calcPoints) {
+            size += computeLengthDelimitedSize(PATH_POINTS, computePointsSize(path.getPoints(), enableElevation));
+            if (enableInstructions) {
+                int pointsIndex = 0;
+                for (Instruction instruction : path.getInstructions()) {
+                    size += computeLengthDelimitedSize(PATH_INSTRUCTIONS, computeInstructionSize(instruction, path.getInstructions().getTr(), pointsIndex));
+                    pointsIndex += instruction.getLength();
+                }
+            }
+            for (Map.Entry<String, List<PathDetail>> details : path.getPathDetails().entrySet()) {
+                size += computeLengthDelimitedSize(PATH_DETAILS, computePathDetailsSize(details.getKey(), details.getValue()));
+            }
+            size += CodedOutputStream.computeDoubleSize(PATH_ASCEND, path.getAscend())
+                    + CodedOutputStream.computeDoubleSize(PATH_DESCEND, path.getDescend());
+            if (path.getPoints().getSize() >= 2)
+                size += 4 * CodedOutputStream.computeDoubleSize(PATH_BBOX, 0);
+        }
+        size += computeLengthDelimitedSize(PATH_SNAPPED_WAYPOINTS, computePointsSize(path.getWaypoints(), enableElevation));
+        return size;
+    }
+
+    private static void writePath(CodedOutputStream out, PathWrapper path, boolean enableInstructions, boolean calcPoints, boolean enableElevation) throws IOException {
+        out.writeDouble(PATH_DISTANCE, Helper.round(path.getDistance(), 3));
+        out.writeDouble(PATH_WEIGHT, Helper.round6(path.getRouteWeight()));
+        out.writeInt64(PATH_TIME, path.getTime());
+        out.writeInt32(PATH_TRANSFERS, path.getNumChanges());
+        for (String description : path.getDescription()) {
+            out.writeString(PATH_DESCRIPTION, description);
+        }
+        if (calcPoints) {
+            writeLengthDelimited(out, PATH_POINTS, computePointsSize(path.getPoints(), enableElevation));
+            writePoints(out, path.getPoints(), enableElevation);
+            if (enableInstructions) {
+                Translation tr = path.getInstructions().getTr();
+                int pointsIndex = 0;
+                for (Instruction instruction : path.getInstructions()) {
+                    writeLengthDelimited(out, PATH_INSTRUCTIONS, computeInstructionSize(instruction, tr, pointsIndex));
+                    writeInstruction(out, instruction, tr, pointsIndex);
+                    pointsIndex += instruction.getLength();
+                }
+            }
+            for (Map.Entry<String, List<PathDetail>> details : path.getPathDetails().entrySet()) {
+                writeLengthDelimited(out, PATH_DETAILS, computePathDetailsSize(details.getKey(), details.getValue()));
+                writePathDetails(out, details.getKey(), details.getValue());
+            }
+            out.writeDouble(PATH_ASCEND, path.getAscend());
+            out.writeDouble(PATH_DESCEND, path.getDescend());
+            if (path.getPoints().getSize() >= 2) {
+                BBox bbox = path.calcBBox2D();
+                out.writeDouble(PATH_BBOX, bbox.minLon);
+                out.writeDouble(PATH_BBOX, bbox.minLat);
+                out.writeDouble(PATH_BBOX, bbox.maxLon);
+                out.writeDouble(PATH_BBOX, bbox.maxLat);
+            }
+        }
+        writeLengthDelimited(out, PATH_SNAPPED_WAYPOINTS, computePointsSize(path.getWaypoints(), enableElevation));
+        writePoints(out, path.getWaypoints(), enableElevation);
+    }
+
+    private static int computePointsSize(PointList points, boolean enableElevation) {
+        int deltasSize = computeDeltasSize(points, enableElevation);
+        return CodedOutputStream.computeInt32Size(POINTS_DIMENSION, enableElevation ? 3 : 2)
+                + (deltasSize == 0 ? 0 : computeLengthDelimitedSize(POINTS_DELTAS, deltasSize));
+    }
+
+    private static int computeDeltasSize(PointList points, boolean enableElevation) {
+        int size = 0;
+        int prevLat = 0, prevLon = 0, prevEle = 0;
+        for (int i = 0; i < points.getSize(); i++) {
+            int lat = toInt(points.getLatitude(i), COORDINATE_FACTOR);
+            int lon = toInt(points.getLongitude(i), COORDINATE_FACTOR);
+            size += CodedOutputStream.computeSInt32SizeNoTag(lat - prevLat) + CodedOutputStream.computeSInt32SizeNoTag(lon - prevLon);
+            prevLat = lat;
+            prevLon = lon;
+            if (enableElevation) {
+                int ele = toInt(points.getElevation(i), ELEVATION_FACTOR);
+                size += CodedOutputStream.computeSInt32SizeNoTag(ele - prevEle);
+                prevEle = ele;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Writes the latitude, longitude and elevation of every point as difference to the previous point into a single
+     * packed field.
+     */
+    private static void writePoints(CodedOutputStream out, PointList points, boolean enableElevation) throws IOException {
+        out.writeInt32(POINTS_DIMENSION, enableElevation ? 3 : 2);
+        int deltasSize = computeDeltasSize(points, enableElevation);
+        if (deltasSize == 0)
+            return;
+
+        writeLengthDelimited(out, POINTS_DELTAS, deltasSize);
+        int prevLat = 0, prevLon = 0, prevEle = 0;
+        for (int i = 0; i < points.getSize(); i++) {
+            int lat = toInt(points.getLatitude(i), COORDINATE_FACTOR);
+            int lon = toInt(points.getLongitude(i), COORDINATE_FACTOR);
+            out.writeSInt32NoTag(lat - prevLat);
+            out.writeSInt32NoTag(lon - prevLon);
+            prevLat = lat;
+            prevLon = lon;
+            if (enableElevation) {
+                int ele = toInt(points.getElevation(i), ELEVATION_FACTOR);
+                out.writeSInt32NoTag(ele - prevEle);
+                prevEle = ele;
+            }
+        }
+    }
+
+    private static int toInt(double value, double factor) {
+        // a 2D PointList returns NaN as elevation
+        return Double.isNaN(value) ? 0 : (int) Math.round(value * factor);
+    }
+
+    private static String getText(Instruction instruction, Translation tr) {
+        String text = instruction.getTurnDescription(tr);
+        if (Helper.isEmpty(text))
+            text = instruction.getAnnotation().getMessage();
+        return Helper.firstBig(text);
+    }
+
+    private static int computeInstructionSize(Instruction instruction, Translation tr, int pointsIndex) {
+        InstructionAnnotation ia = instruction.getAnnotation();
+        int size = CodedOutputStream.computeSInt32Size(INSTRUCTION_SIGN, instruction.getSign())
+                + CodedOutputStream.computeStringSize(INSTRUCTION_TEXT, getText(instruction, tr))
+                + CodedOutputStream.computeStringSize(INSTRUCTION_STREET_NAME, instruction.getName())
+                + CodedOutputStream.computeDoubleSize(INSTRUCTION_DISTANCE, Helper.round(instruction.getDistance(), 3))
+                + CodedOutputStream.computeInt64Size(INSTRUCTION_TIME, instruction.getTime())
+                + CodedOutputStream.computeInt32Size(INSTRUCTION_FIRST, pointsIndex)
+                + CodedOutputStream.computeInt32Size(INSTRUCTION_LAST, pointsIndex + instruction.getLength());
+        if (!ia.isEmpty())
+            size += CodedOutputStream.computeStringSize(INSTRUCTION_ANNOTATION_TEXT, ia.getMessage())
+                    + CodedOutputStream.computeInt32Size(INSTRUCTION_ANNOTATION_IMPORTANCE, ia.getImportance());
+        for (Map.Entry<String, Object> entry : instruction.getExtraInfoJSON().entrySet()) {
+            size += computeLengthDelimitedSize(INSTRUCTION_EXTRA_INFO, CodedOutputStream.computeStringSize(EXTRA_INFO_KEY, entry.getKey())
+                    + computeValueSize(entry.getValue()));
+        }
+        return size;
+    }
+
+    private static void writeInstruction(CodedOutputStream out, Instruction instruction, Translation tr, int pointsIndex) throws IOException {
+        InstructionAnnotation ia = instruction.getAnnotation();
+        out.writeSInt32(INSTRUCTION_SIGN, instruction.getSign());
+        out.writeString(INSTRUCTION_TEXT, getText(instruction, tr));
+        out.writeString(INSTRUCTION_STREET_NAME, instruction.getName());
+        out.writeDouble(INSTRUCTION_DISTANCE, Helper.round(instruction.getDistance(), 3));
+        out.writeInt64(INSTRUCTION_TIME, instruction.getTime());
+        out.writeInt32(INSTRUCTION_FIRST, pointsIndex);
+        out.writeInt32(INSTRUCTION_LAST, pointsIndex + instruction.getLength());
+        if (!ia.isEmpty()) {
+            out.writeString(INSTRUCTION_ANNOTATION_TEXT, ia.getMessage());
+            out.writeInt32(INSTRUCTION_ANNOTATION_IMPORTANCE, ia.getImportance());
+        }
+        for (Map.Entry<String, Object> entry : instruction.getExtraInfoJSON().entrySet()) {
+            writeLengthDelimited(out, INSTRUCTION_EXTRA_INFO, CodedOutputStream.computeStringSize(EXTRA_INFO_KEY, entry.getKey())
+                    + computeValueSize(entry.getValue()));
+            out.writeString(EXTRA_INFO_KEY, entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    private static int computePathDetailsSize(String name, List<PathDetail> details) {
+        int size = CodedOutputStream.computeStringSize(DETAILS_NAME, name);
+        for (PathDetail detail : details) {
+            size += computeLengthDelimitedSize(DETAILS_ENTRIES, computePathDetailSize(detail));
+        }
+        return size;
+    }
+
+    private static int computePathDetailSize(PathDetail detail) {
+        return CodedOutputStream.computeInt32Size(DETAIL_FIRST, detail.getFirst())
+                + CodedOutputStream.computeInt32Size(DETAIL_LAST, detail.getLast())
+                + computeValueSize(detail.getValue());
+    }
+
+    private static void writePathDetails(CodedOutputStream out, String name, List<PathDetail> details) throws IOException {
+        out.writeString(DETAILS_NAME, name);
+        for (PathDetail detail : details) {
+            writeLengthDelimited(out, DETAILS_ENTRIES, computePathDetailSize(detail));
+            out.writeInt32(DETAIL_FIRST, detail.getFirst());
+            out.writeInt32(DETAIL_LAST, detail.getLast());
+            writeValue(out, detail.getValue());
+        }
+    }
+
+    private static int computeValueSize(Object value) {
+        if (value instanceof Double)
+            return CodedOutputStream.computeDoubleSize(VALUE_DOUBLE, (Double) value);
+        else if (value instanceof Long)
+            return CodedOutputStream.computeSInt64Size(VALUE_LONG, (Long) value);
+        else if (value instanceof Integer)
+            return CodedOutputStream.computeSInt32Size(VALUE_INT, (Integer) value);
+        else if (value instanceof Boolean)
+            return CodedOutputStream.computeBoolSize(VALUE_BOOL, (Boolean) value);
+        else if (value instanceof String)
+            return CodedOutputStream.computeStringSize(VALUE_STRING, (String) value);
+        else if (value == null)
+            return 0;
+        throw new IllegalArgumentException("Unsupported type of value " + value.getClass());
+    }
+
+    private static void writeValue(CodedOutputStream out, Object value) throws IOException {
+        if (value instanceof Double)
+            out.writeDouble(VALUE_DOUBLE, (Double) value);
+        else if (value instanceof Long)
+            out.writeSInt64(VALUE_LONG, (Long) value);
+        else if (value instanceof Integer)
+            out.writeSInt32(VALUE_INT, (Integer) value);
+        else if (value instanceof Boolean)
+            out.writeBool(VALUE_BOOL, (Boolean) value);
+        else if (value instanceof String)
+            out.writeString(VALUE_STRING, (String) value);
+    }
+
+    /**
+     * Reads a response that was written via write. The instructions and path details are created like in
+     * PathWrapperDeserializer.
+     */
+    public static GHResponse read(InputStream inputStream, boolean hasElevation, boolean turnDescription) throws IOException {
+        CodedInputStream in = CodedInputStream.newInstance(inputStream);
+        in.setSizeLimit(Integer.MAX_VALUE);
+        GHResponse rsp = new GHResponse();
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case RESPONSE_PATHS:
+                    int oldLimit = in.pushLimit(in.readRawVarint32());
+                    rsp.add(readPath(in, hasElevation, turnDescription));
+                    in.popLimit(oldLimit);
+                    break;
+                case RESPONSE_HINTS:
+                    oldLimit = in.pushLimit(in.readRawVarint32());
+                    String key = null, value = "";
+                    while ((tag = in.readTag()) != 0) {
+                        if (WireFormat.getTagFieldNumber(tag) == HINT_KEY)
+                            key = in.readString();
+                        else if (WireFormat.getTagFieldNumber(tag) == HINT_VALUE)
+                            value = in.readString();
+                        else
+                            in.skipField(tag);
+                    }
+                    in.popLimit(oldLimit);
+                    if (key != null)
+                        rsp.getHints().put(key, value);
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        return rsp;
+    }
+
+    private static PathWrapper readPath(CodedInputStream in, boolean hasElevation, boolean turnDescription) throws IOException {
+        PathWrapper path = new PathWrapper();
+        List<String> description = new ArrayList<>();
+        // instructions reference the points, which are not necessarily read before
+        List<InstructionData> instructions = new ArrayList<>();
+        Map<String, List<PathDetail>> pathDetails = new HashMap<>();
+        PointList points = null;
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case PATH_DISTANCE:
+                    path.setDistance(in.readDouble());
+                    break;
+                case PATH_WEIGHT:
+                    path.setRouteWeight(in.readDouble());
+                    break;
+                case PATH_TIME:
+                    path.setTime(in.readInt64());
+                    break;
+                case PATH_TRANSFERS:
+                    path.setNumChanges(in.readInt32());
+                    break;
+                case PATH_DESCRIPTION:
+                    description.add(in.readString());
+                    break;
+                case PATH_POINTS:
+                    int oldLimit = in.pushLimit(in.readRawVarint32());
+                    points = readPoints(in, hasElevation);
+                    in.popLimit(oldLimit);
+                    break;
+                case PATH_SNAPPED_WAYPOINTS:
+                    oldLimit = in.pushLimit(in.readRawVarint32());
+                    path.setWaypoints(readPoints(in, hasElevation));
+                    in.popLimit(oldLimit);
+                    break;
+                case PATH_INSTRUCTIONS:
+                    oldLimit = in.pushLimit(in.readRawVarint32());
+                    instructions.add(readInstruction(in));
+                    in.popLimit(oldLimit);
+                    break;
+                case PATH_DETAILS:
+                    oldLimit = in.pushLimit(in.readRawVarint32());
+                    readPathDetails(in, pathDetails);
+                    in.popLimit(oldLimit);
+                    break;
+                case PATH_ASCEND:
+                    path.setAscend(in.readDouble());
+                    break;
+                case PATH_DESCEND:
+                    path.setDescend(in.readDouble());
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+
+        path.setDescription(description);
+        if (points != null) {
+            path.setPoints(points);
+            if (!instructions.isEmpty())
+                path.setInstructions(createInstructions(instructions, points, turnDescription));
+            path.addPathDetails(pathDetails);
+        }
+        List<Integer> pointsOrder = new ArrayList<>(path.getWaypoints().size());
+        for (int i = 0; i < path.getWaypoints().size(); i++) {
+            pointsOrder.add(i);
+        }
+        path.setPointsOrder(pointsOrder);
+        return path;
+    }
+
+    private static PointList readPoints(CodedInputStream in, boolean hasElevation) throws IOException {
+        int dimension = 2;
+        int[] deltas = new int[0];
+        int size = 0;
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            if (WireFormat.getTagFieldNumber(tag) == POINTS_DIMENSION) {
+                dimension = in.readInt32();
+            } else if (WireFormat.getTagFieldNumber(tag) == POINTS_DELTAS) {
+                if (WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                    int length = in.readRawVarint32();
+                    int oldLimit = in.pushLimit(length);
+                    // every value needs at least one byte
+                    deltas = Arrays.copyOf(deltas, size + length);
+                    while (in.getBytesUntilLimit() > 0) {
+                        deltas[size++] = in.readSInt32();
+                    }
+                    in.popLimit(oldLimit);
+                } else {
+                    if (size == deltas.length)
+                        deltas = Arrays.copyOf(deltas, Math.max(16, size * 2));
+                    deltas[size++] = in.readSInt32();
+                }
+            } else {
+                in.skipField(tag);
+            }
+        }
+
+        boolean withElevation = dimension == 3;
+        PointList points = new PointList(size / dimension, hasElevation || withElevation);
+        int lat = 0, lon = 0, ele = 0;
+        for (int i = 0; i + dimension <= size; i += dimension) {
+            lat += deltas[i];
+            lon += deltas[i + 1];
+            if (withElevation) {
+                ele += deltas[i + 2];
+                points.add(lat / COORDINATE_FACTOR, lon / COORDINATE_FACTOR, ele / ELEVATION_FACTOR);
+            } else if (points.is3D()) {
+                points.add(lat / COORDINATE_FACTOR, lon / COORDINATE_FACTOR, Double.NaN);
+            } else {
+                points.add(lat / COORDINATE_FACTOR, lon / COORDINATE_FACTOR);
+            }
+        }
+        return points;
+    }
+
+    private static void readPathDetails(CodedInputStream in, Map<String, List<PathDetail>> pathDetails) throws IOException {
+        String name = "";
+        List<PathDetail> list = new ArrayList<>();
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            if (WireFormat.getTagFieldNumber(tag) == DETAILS_NAME) {
+                name = in.readString();
+            } else if (WireFormat.getTagFieldNumber(tag) == DETAILS_ENTRIES) {
+                int oldLimit = in.pushLimit(in.readRawVarint32());
+                list.add(readPathDetail(in));
+                in.popLimit(oldLimit);
+            } else {
+                in.skipField(tag);
+            }
+        }
+        pathDetails.put(name, list);
+    }
+
+    private static PathDetail readPathDetail(CodedInputStream in) throws IOException {
+        int first = 0, last = 0;
+        Object value = null;
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            int field = WireFormat.getTagFieldNumber(tag);
+            if (field == DETAIL_FIRST)
+                first = in.readInt32();
+            else if (field == DETAIL_LAST)
+                last = in.readInt32();
+            else if (isValueField(field))
+                value = readValue(in, field);
+            else
+                in.skipField(tag);
+        }
+
+        PathDetail pd;
+        if (value instanceof Boolean)
+            pd = new PathDetail((Boolean) value);
+        else if (value instanceof Long)
+            pd = new PathDetail((Long) value);
+        else if (value instanceof Integer)
+            pd = new PathDetail((Integer) value);
+        else if (value instanceof Double)
+            pd = new PathDetail((Double) value);
+        else
+            // a String or null if the property does not exist for this segment
+            pd = new PathDetail((String) value);
+        pd.setFirst(first);
+        pd.setLast(last);
+        return pd;
+    }
+
+    private static boolean isValueField(int field) {
+        return field >= VALUE_DOUBLE && field <= VALUE_STRING;
+    }
+
+    private static Object readValue(CodedInputStream in, int field) throws IOException {
+        switch (field) {
+            case VALUE_DOUBLE:
+                return in.readDouble();
+            case VALUE_LONG:
+                return in.readSInt64();
+            case VALUE_INT:
+                return in.readSInt32();
+            case VALUE_BOOL:
+                return in.readBool();
+            case VALUE_STRING:
+                return in.readString();
+            default:
+                throw new IllegalArgumentException("Not a value field: " + field);
+        }
+    }
+
+    /**
+     * The fields of an instruction, which can only be created after the points of the path were read.
+     */
+    private static class InstructionData {
+        int sign;
+        String text = "";
+        String streetName = "";
+        double distance;
+        long time;
+        int first;
+        int last;
+        String annotationText;
+        int annotationImportance;
+        final Map<String, Object> extraInfo = new HashMap<>();
+    }
+
+    private static InstructionData readInstruction(CodedInputStream in) throws IOException {
+        InstructionData data = new InstructionData();
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case INSTRUCTION_SIGN:
+                    data.sign = in.readSInt32();
+                    break;
+                case INSTRUCTION_TEXT:
+                    data.text = in.readString();
+                    break;
+                case INSTRUCTION_STREET_NAME:
+                    data.streetName = in.readString();
+                    break;
+                case INSTRUCTION_DISTANCE:
+                    data.distance = in.readDouble();
+                    break;
+                case INSTRUCTION_TIME:
+                    data.time = in.readInt64();
+                    break;
+                case INSTRUCTION_FIRST:
+                    data.first = in.readInt32();
+                    break;
+                case INSTRUCTION_LAST:
+                    data.last = in.readInt32();
+                    break;
+                case INSTRUCTION_ANNOTATION_TEXT:
+                    data.annotationText = in.readString();
+                    break;
+                case INSTRUCTION_ANNOTATION_IMPORTANCE:
+                    data.annotationImportance = in.readInt32();
+                    break;
+                case INSTRUCTION_EXTRA_INFO:
+                    int oldLimit = in.pushLimit(in.readRawVarint32());
+                    String key = null;
+                    Object value = null;
+                    while ((tag = in.readTag()) != 0) {
+                        int field = WireFormat.getTagFieldNumber(tag);
+                        if (field == EXTRA_INFO_KEY)
+                            key = in.readString();
+                        else if (isValueField(field))
+                            value = readValue(in, field);
+                        else
+                            in.skipField(tag);
+                    }
+                    in.popLimit(oldLimit);
+                    if (key != null)
+                        data.extraInfo.put(key, value);
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        return data;
+    }
+
+    private static InstructionList createInstructions(List<InstructionData> instructions, PointList points, boolean turnDescription) {
+        InstructionList il = new InstructionList(null);
+        int viaCount = 1;
+        for (InstructionData data : instructions) {
+            String text = turnDescription ? data.text : data.streetName;
+            PointList instPL = new PointList(data.last - data.first, points.is3D());
+            for (int j = data.first; j <= data.last; j++) {
+                instPL.add(points, j);
+            }
+
+            InstructionAnnotation ia = InstructionAnnotation.EMPTY;
+            if (data.annotationText != null)
+                ia = new InstructionAnnotation(data.annotationImportance, data.annotationText);
+
+            Instruction instr;
+            int sign = data.sign;
+            if (sign == Instruction.USE_ROUNDABOUT || sign == Instruction.LEAVE_ROUNDABOUT) {
+                RoundaboutInstruction ri = new RoundaboutInstruction(sign, text, ia, instPL);
+                Object exitNumber = data.extraInfo.get("exit_number");
+                if (exitNumber != null)
+                    ri.setExitNumber(((Number) exitNumber).intValue());
+                if (Boolean.TRUE.equals(data.extraInfo.get("exited")))
+                    ri.setExited();
+                Object turnAngle = data.extraInfo.get("turn_angle");
+                if (turnAngle != null) {
+                    double angle = ((Number) turnAngle).doubleValue();
+                    ri.setDirOfRotation(angle);
+                    ri.setRadian((angle < 0 ? -Math.PI : Math.PI) - angle);
+                }
+                instr = ri;
+            } else if (sign == Instruction.REACHED_VIA) {
+                ViaInstruction tmpInstr = new ViaInstruction(text, ia, instPL);
+                tmpInstr.setViaCount(viaCount);
+                viaCount++;
+                instr = tmpInstr;
+            } else if (sign == Instruction.FINISH) {
+                instr = new FinishInstruction(text, instPL, 0);
+            } else {
+                instr = new Instruction(sign, text, ia, instPL);
+                Object heading = data.extraInfo.get("heading");
+                if (sign == Instruction.CONTINUE_ON_STREET && heading != null)
+                    instr.setExtraInfo("heading", ((Number) heading).doubleValue());
+            }
+
+            // the turn description is usually created by the routing service, see PathWrapperDeserializer
+            if (turnDescription)
+                instr.setUseRawName();
+
+            instr.setDistance(data.distance).setTime(data.time);
+            il.add(instr);
+        }
+        return il;
+    }
+}
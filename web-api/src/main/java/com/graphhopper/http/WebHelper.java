@@ -17,6 +17,7 @@
  */
 package com.graphhopper.http;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -25,6 +26,8 @@ import com.graphhopper.PathWrapper;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointList;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.text.NumberFormat;
@@ -129,6 +132,67 @@ public class WebHelper {
         return sb.toString();
     }
 
+    /**
+     * Provides the same characters as encodePolyline but encodes the points only when they are read, i.e. the
+     * encoded string of the whole PointList is never held in memory.
+     */
+    static class PolylineReader extends Reader {
+        private final PointList poly;
+        private final boolean includeElevation;
+        private final double precision;
+        // holds the encoded characters of the current point
+        private final StringBuilder pending = new StringBuilder(32);
+        private int pendingIndex;
+        private int pointIndex;
+        private int prevLat;
+        private int prevLon;
+        private int prevEle;
+
+        PolylineReader(PointList poly, boolean includeElevation, double precision) {
+            this.poly = poly;
+            this.includeElevation = includeElevation;
+            this.precision = precision;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            int count = 0;
+            while (count < len) {
+                if (pendingIndex == pending.length()) {
+                    if (pointIndex >= poly.getSize())
+                        break;
+                    pending.setLength(0);
+                    pendingIndex = 0;
+                    encodeNextPoint();
+                }
+                int n = Math.min(len - count, pending.length() - pendingIndex);
+                pending.getChars(pendingIndex, pendingIndex + n, cbuf, off + count);
+                pendingIndex += n;
+                count += n;
+            }
+            return count == 0 && len > 0 ? -1 : count;
+        }
+
+        private void encodeNextPoint() {
+            int num = (int) Math.floor(poly.getLatitude(pointIndex) * precision);
+            encodeNumber(pending, num - prevLat);
+            prevLat = num;
+            num = (int) Math.floor(poly.getLongitude(pointIndex) * precision);
+            encodeNumber(pending, num - prevLon);
+            prevLon = num;
+            if (includeElevation) {
+                num = (int) Math.floor(poly.getElevation(pointIndex) * 100);
+                encodeNumber(pending, num - prevEle);
+                prevEle = num;
+            }
+            pointIndex++;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
     private static void encodeNumber(StringBuilder sb, int num) {
         num = num << 1;
         if (num < 0) {
@@ -193,4 +257,79 @@ public class WebHelper {
         return json;
     }
 
+    /**
+     * Writes the same JSON as jsonObject but directly into the specified generator, i.e. without creating the JSON
+     * tree, the encoded polyline string or the list of coordinates of the points first. Large responses are therefore
+     * written with constant extra memory.
+     */
+    public static void writeJson(JsonGenerator gen, GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, boolean pointsEncoded, float took) throws IOException {
+        gen.writeStartObject();
+        gen.writeObjectField("hints", ghRsp.getHints().toMap());
+        gen.writeObjectFieldStart("info");
+        gen.writeObjectField("copyrights", COPYRIGHTS);
+        gen.writeNumberField("took", Math.round(took * 1000));
+        gen.writeEndObject();
+        gen.writeArrayFieldStart("paths");
+        for (PathWrapper ar : ghRsp.getAll()) {
+            gen.writeStartObject();
+            gen.writeNumberField("distance", Helper.round(ar.getDistance(), 3));
+            gen.writeNumberField("weight", Helper.round6(ar.getRouteWeight()));
+            gen.writeNumberField("time", ar.getTime());
+            gen.writeNumberField("transfers", ar.getNumChanges());
+            if (!ar.getDescription().isEmpty()) {
+                gen.writeObjectField("description", ar.getDescription());
+            }
+            if (calcPoints) {
+                gen.writeBooleanField("points_encoded", pointsEncoded);
+                if (ar.getPoints().getSize() >= 2) {
+                    gen.writeObjectField("bbox", ar.calcBBox2D());
+                }
+                gen.writeFieldName("points");
+                writePoints(gen, ar.getPoints(), enableElevation, pointsEncoded);
+                if (enableInstructions) {
+                    gen.writeObjectField("instructions", ar.getInstructions());
+                }
+                gen.writeObjectField("legs", ar.getLegs());
+                gen.writeObjectField("details", ar.getPathDetails());
+                gen.writeNumberField("ascend", ar.getAscend());
+                gen.writeNumberField("descend", ar.getDescend());
+            }
+            gen.writeFieldName("snapped_waypoints");
+            writePoints(gen, ar.getWaypoints(), enableElevation, pointsEncoded);
+            if (ar.getFare() != null) {
+                gen.writeStringField("fare", NumberFormat.getCurrencyInstance(Locale.ROOT).format(ar.getFare()));
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    /**
+     * Writes the points either as encoded polyline or in the GeoJSON format of PointList.toLineString.
+     */
+    static void writePoints(JsonGenerator gen, PointList points, boolean includeElevation, boolean pointsEncoded) throws IOException {
+        if (pointsEncoded) {
+            gen.writeString(new PolylineReader(points, includeElevation, 1e5), -1);
+            return;
+        }
+
+        gen.writeStartObject();
+        gen.writeStringField("type", "LineString");
+        gen.writeArrayFieldStart("coordinates");
+        int size = points.getSize();
+        // a single point is not supported in the specification #1412, so it is written twice
+        int count = size == 1 ? 2 : size;
+        for (int i = 0; i < count; i++) {
+            int index = Math.min(i, size - 1);
+            gen.writeStartArray();
+            gen.writeNumber(PointList.round6(points.getLongitude(index)));
+            gen.writeNumber(PointList.round6(points.getLatitude(index)));
+            if (includeElevation && !Double.isNaN(points.getElevation(index)))
+                gen.writeNumber(PointList.round2(points.getElevation(index)));
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
 }
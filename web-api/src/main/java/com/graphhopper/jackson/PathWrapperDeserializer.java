@@ -233,6 +233,8 @@ public class PathWrapperDeserializer extends JsonDeserializer<PathWrapper> {
             } else if (exClass.equals(PointOutOfBoundsException.class.getName())) {
                 int pointIndex = error.get("point_index").asInt();
                 errors.add(new PointOutOfBoundsException(exMessage, pointIndex));
+            } else if (exClass.equals(RequestCancelledException.class.getName())) {
+                errors.add(new RequestCancelledException(exMessage));
             } else if (exClass.isEmpty())
                 errors.add(new DetailedRuntimeException(exMessage, toMap(objectMapper, error)));
             else
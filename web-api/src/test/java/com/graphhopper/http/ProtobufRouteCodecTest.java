@@ -0,0 +1,154 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ProtobufRouteCodecTest {
+
+    private static final Translation TR = new Translation() {
+        @Override
+        public String tr(String key, Object... params) {
+            return key;
+        }
+
+        @Override
+        public Map<String, String> asMap() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public Locale getLocale() {
+            return Locale.US;
+        }
+
+        @Override
+        public String getLanguage() {
+            return "en";
+        }
+    };
+
+    private GHResponse createResponse() {
+        PointList points = Helper.createPointList3D(42.5, 1.5, 1000, 42.51, 1.52, 1010.25, 42.505, 1.53, 990, 42.52, 1.54, 1000);
+        PathWrapper path = new PathWrapper();
+        path.setPoints(points);
+        path.setWaypoints(Helper.createPointList3D(42.5, 1.5, 1000, 42.52, 1.54, 1000));
+        path.setDistance(1234.567).setTime(42000).setRouteWeight(12.345678).setAscend(20.25).setDescend(10);
+
+        InstructionList il = new InstructionList(TR);
+        Instruction continueInstr = new Instruction(Instruction.CONTINUE_ON_STREET, "main", InstructionAnnotation.EMPTY,
+                Helper.createPointList3D(42.5, 1.5, 1000));
+        continueInstr.setExtraInfo("heading", 90.5);
+        continueInstr.setDistance(100).setTime(1000);
+        il.add(continueInstr);
+        RoundaboutInstruction roundabout = new RoundaboutInstruction(Instruction.USE_ROUNDABOUT, "ring",
+                new InstructionAnnotation(1, "toll"), Helper.createPointList3D(42.51, 1.52, 1010.25, 42.505, 1.53, 990));
+        roundabout.setExitNumber(2).setDirOfRotation(-0.1).setRadian(-Math.PI + 1).setExited();
+        roundabout.setDistance(200).setTime(2000);
+        il.add(roundabout);
+        il.add(new FinishInstruction("end", 42.52, 1.54, 1000));
+        path.setInstructions(il);
+
+        PathDetail speed = new PathDetail(50.5);
+        speed.setLast(2);
+        PathDetail noSpeed = new PathDetail((String) null);
+        noSpeed.setFirst(2);
+        noSpeed.setLast(3);
+        PathDetail edge = new PathDetail(123456789012L);
+        edge.setLast(3);
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        details.put("average_speed", Arrays.asList(speed, noSpeed));
+        details.put("edge_id", Collections.singletonList(edge));
+        path.addPathDetails(details);
+
+        GHResponse rsp = new GHResponse();
+        rsp.add(path);
+        rsp.getHints().put("visited_nodes.sum", 10);
+        return rsp;
+    }
+
+    private GHResponse writeAndRead(GHResponse rsp, boolean enableElevation) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProtobufRouteCodec.write(out, rsp, true, true, enableElevation, 0.1f);
+        return ProtobufRouteCodec.read(new ByteArrayInputStream(out.toByteArray()), enableElevation, true);
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        GHResponse rsp = createResponse();
+        PathWrapper expected = rsp.getBest();
+        GHResponse readRsp = writeAndRead(rsp, true);
+        PathWrapper path = readRsp.getBest();
+
+        assertEquals("10", readRsp.getHints().get("visited_nodes.sum", ""));
+        assertEquals(expected.getDistance(), path.getDistance(), 1e-6);
+        assertEquals(expected.getRouteWeight(), path.getRouteWeight(), 1e-6);
+        assertEquals(expected.getTime(), path.getTime());
+        assertEquals(expected.getAscend(), path.getAscend(), 1e-6);
+        assertEquals(expected.getDescend(), path.getDescend(), 1e-6);
+        assertEquals(expected.getPoints(), path.getPoints());
+        assertEquals(expected.getWaypoints(), path.getWaypoints());
+        assertEquals(Arrays.asList(0, 1), path.getPointsOrder());
+
+        InstructionList il = path.getInstructions();
+        assertEquals(3, il.size());
+        assertEquals(Helper.firstBig(expected.getInstructions().get(0).getTurnDescription(TR)), il.get(0).getTurnDescription(null));
+        assertEquals(90.5, il.get(0).getExtraInfoJSON().get("heading"));
+        assertEquals(2, il.get(0).getLength());
+        RoundaboutInstruction roundabout = (RoundaboutInstruction) il.get(1);
+        assertEquals(2, roundabout.getExitNumber());
+        assertTrue(roundabout.isExited());
+        assertEquals(((RoundaboutInstruction) expected.getInstructions().get(1)).getTurnAngle(), roundabout.getTurnAngle(), 1e-6);
+        assertEquals("toll", roundabout.getAnnotation().getMessage());
+        assertEquals(200, roundabout.getDistance(), 1e-6);
+        assertEquals(2000, roundabout.getTime());
+        assertEquals(Instruction.FINISH, il.get(2).getSign());
+
+        Map<String, List<PathDetail>> details = path.getPathDetails();
+        assertEquals(expected.getPathDetails().toString(), details.toString());
+        assertNull(details.get("average_speed").get(1).getValue());
+        assertEquals(123456789012L, details.get("edge_id").get(0).getValue());
+    }
+
+    @Test
+    public void testWithoutElevation() throws Exception {
+        GHResponse rsp = createResponse();
+        PointList points = writeAndRead(rsp, false).getBest().getPoints();
+        assertFalse(points.is3D());
+        assertEquals(rsp.getBest().getPoints().size(), points.size());
+        assertEquals(42.505, points.getLat(2), 1e-6);
+        assertEquals(1.53, points.getLon(2), 1e-6);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testErrorsAreNotWritten() throws Exception {
+        GHResponse rsp = new GHResponse();
+        rsp.addError(new IllegalArgumentException("no route"));
+        ProtobufRouteCodec.write(new ByteArrayOutputStream(), rsp, true, true, false, 0);
+    }
+}
@@ -17,11 +17,21 @@
  */
 package com.graphhopper.http;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.jackson.Jackson;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointList;
+import com.graphhopper.util.details.PathDetail;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -79,4 +89,46 @@ public class WebHelperTest {
     public void testEncode1e6() throws Exception {
         assertEquals("ohdfzAgt}bVoEL", WebHelper.encodePolyline(Helper.createPointList(47.827608, 12.123476, 47.827712, 12.123469), false, 1e6));
     }
+
+    @Test
+    public void testPolylineReader() throws Exception {
+        PointList list = Helper.createPointList3D(38.5, -120.2, 10, 40.7, -120.95, 1234, 43.252, -126.453, 1234);
+        for (boolean includeElevation : new boolean[]{false, true}) {
+            WebHelper.PolylineReader reader = new WebHelper.PolylineReader(list, includeElevation, 1e5);
+            // a buffer smaller than the characters of one point
+            char[] buffer = new char[3];
+            StringBuilder sb = new StringBuilder();
+            int n;
+            while ((n = reader.read(buffer, 0, buffer.length)) >= 0) {
+                sb.append(buffer, 0, n);
+            }
+            assertEquals(WebHelper.encodePolyline(list, includeElevation), sb.toString());
+        }
+        assertEquals(-1, new WebHelper.PolylineReader(PointList.EMPTY, false, 1e5).read(new char[3], 0, 3));
+    }
+
+    @Test
+    public void testWriteJsonEqualsJsonObject() throws Exception {
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        PathWrapper path = new PathWrapper();
+        // the backslash of the encoded polyline has to be escaped
+        path.setPoints(Helper.createPointList3D(38.5, -120.2, 10, 40.7, -120.95, 1234, 43.252, -126.453, 1234, 43.25185, -126.4533, 1234));
+        path.setWaypoints(Helper.createPointList3D(38.5, -120.2, 10));
+        path.setDistance(1234.5678).setTime(42000).setRouteWeight(12.3456789).setDescription(Collections.singletonList("test"));
+        path.addPathDetails(Collections.singletonMap("street_name", Arrays.asList(new PathDetail("a"), new PathDetail("b"))));
+        GHResponse rsp = new GHResponse();
+        rsp.add(path);
+        rsp.getHints().put("visited_nodes.sum", 42);
+
+        for (boolean pointsEncoded : new boolean[]{false, true}) {
+            for (boolean enableElevation : new boolean[]{false, true}) {
+                StringWriter writer = new StringWriter();
+                JsonGenerator gen = objectMapper.getFactory().createGenerator(writer);
+                WebHelper.writeJson(gen, rsp, false, true, enableElevation, pointsEncoded, 0.1f);
+                gen.close();
+                String expected = objectMapper.writeValueAsString(WebHelper.jsonObject(rsp, false, true, enableElevation, pointsEncoded, 0.1f));
+                assertEquals(objectMapper.readTree(expected), objectMapper.readTree(writer.toString()));
+            }
+        }
+    }
 }
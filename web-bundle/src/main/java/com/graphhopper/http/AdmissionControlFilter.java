@@ -0,0 +1,387 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Parameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Limits the cost of the requests that are calculated concurrently per endpoint, so that expensive requests like
+ * isochrones cannot occupy all threads of the server and cheap CH routes keep a low latency under load. The cost of a
+ * request is estimated from its parameters and the request waits in a bounded queue until enough of the budget of its
+ * endpoint is free. If the queue is full or the request waited too long it is rejected with 429 Too Many Requests.
+ * Like the QoSFilter of Jetty a queued request is suspended, so it does not occupy a thread, and it is dispatched
+ * again once its cost is available. Therefore the filter has to be mapped for asynchronous dispatches as well.
+ * <p>
+ * The budget of an endpoint is configured via web.admission.&lt;endpoint&gt;.max_cost, endpoints without a budget are
+ * not limited. The admitted and rejected requests, the waiting time, the used budget and the queue length are
+ * recorded in the MetricRegistry under graphhopper.admission.*
+ */
+public class AdmissionControlFilter implements Filter {
+    static final String PREFIX = "graphhopper.admission";
+    static final int SC_TOO_MANY_REQUESTS = 429;
+    // route requests without CH explore way more nodes than with CH
+    static final int FLEXIBLE_COST_FACTOR = 10;
+    // the cost of a queued request that was admitted and is dispatched again
+    private static final String COST_ATTRIBUTE = AdmissionControlFilter.class.getName() + ".cost";
+    private static final String[] ENDPOINTS = {"route", "isochrone", "spt", "mvt"};
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControlFilter.class);
+    private final Map<String, Endpoint> endpoints = new HashMap<>();
+
+    public AdmissionControlFilter(CmdArgs configuration, MetricRegistry registry) {
+        for (String name : ENDPOINTS) {
+            String prefix = "web.admission." + name + ".";
+            int maxCost = configuration.getInt(prefix + "max_cost", 0);
+            if (maxCost <= 0)
+                continue;
+            endpoints.put(name, new Endpoint(name, maxCost, configuration.getInt(prefix + "max_queue", maxCost),
+                    configuration.getLong(prefix + "queue_timeout_ms", 1000), registry));
+        }
+    }
+
+    /**
+     * @return true if at least one endpoint is limited
+     */
+    public boolean isEnabled() {
+        return !endpoints.isEmpty();
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest httpReq = (HttpServletRequest) request;
+        Endpoint endpoint = endpoints.get(getEndpointName(httpReq));
+        if (endpoint == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Integer admittedCost = (Integer) request.getAttribute(COST_ATTRIBUTE);
+        if (admittedCost != null) {
+            // the queued request got its cost and is dispatched again
+            request.removeAttribute(COST_ATTRIBUTE);
+            admit(request, response, chain, endpoint, admittedCost);
+            return;
+        }
+
+        int cost = endpoint.limitCost(estimateCost(endpoint.name, httpReq.getParameterMap()));
+        if (endpoint.tryAcquire(cost)) {
+            admit(request, response, chain, endpoint, cost);
+        } else if (!request.isAsyncSupported()) {
+            logger.warn("Rejected request for " + endpoint.name + " as it cannot be queued: " + httpReq.getQueryString());
+            endpoint.rejected.mark();
+            reject((HttpServletResponse) response, endpoint.name);
+        } else {
+            queue(httpReq, endpoint, cost);
+        }
+    }
+
+    private void admit(ServletRequest request, ServletResponse response, FilterChain chain, Endpoint endpoint, int cost)
+            throws IOException, ServletException {
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // the request is still handled, e.g. the RouteResource suspended it
+                request.getAsyncContext().addListener(new ReleaseListener(endpoint, cost));
+                async = true;
+            }
+        } finally {
+            if (!async)
+                endpoint.release(cost);
+        }
+    }
+
+    /**
+     * Suspends the request until its cost is available or the queue timeout is reached.
+     */
+    private void queue(final HttpServletRequest httpReq, final Endpoint endpoint, final int cost) throws IOException {
+        final AsyncContext asyncContext = httpReq.startAsync();
+        asyncContext.setTimeout(endpoint.queueTimeoutMillis);
+        final Endpoint.Ticket ticket = endpoint.enqueue(cost, () -> {
+            httpReq.setAttribute(COST_ATTRIBUTE, cost);
+            asyncContext.dispatch();
+        });
+        if (ticket == null) {
+            logger.warn("Rejected request for " + endpoint.name + ": " + httpReq.getQueryString());
+            reject((HttpServletResponse) asyncContext.getResponse(), endpoint.name);
+            asyncContext.complete();
+            return;
+        }
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                // if the request was admitted meanwhile it is already dispatched again
+                if (endpoint.cancel(ticket)) {
+                    logger.warn("Rejected request for " + endpoint.name + " after waiting: " + httpReq.getQueryString());
+                    reject((HttpServletResponse) asyncContext.getResponse(), endpoint.name);
+                    asyncContext.complete();
+                }
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                endpoint.cancel(ticket);
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+    }
+
+    /**
+     * Releases the cost of an asynchronous request. onComplete is also called after an error or a timeout.
+     */
+    private static class ReleaseListener implements AsyncListener {
+        private final Endpoint endpoint;
+        private final int cost;
+
+        ReleaseListener(Endpoint endpoint, int cost) {
+            this.endpoint = endpoint;
+            this.cost = cost;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            endpoint.release(cost);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    /**
+     * Estimates the cost of a request relative to a CH route between two points, which has a cost of 1.
+     */
+    static int estimateCost(String endpoint, Map<String, String[]> params) {
+        switch (endpoint) {
+            case "route":
+                // every leg is a separate calculation
+                int legs = Math.max(1, count(params, "point") - 1);
+                return Boolean.parseBoolean(get(params, Parameters.CH.DISABLE, "false")) ? legs * FLEXIBLE_COST_FACTOR : legs;
+            case "isochrone":
+            case "spt":
+                // the explored area grows quadratically with the limit, the default limit of 10 minutes has a cost
+                // of 2 and the distance limit is compared to 10km
+                double ratio;
+                try {
+                    double distanceLimit = Double.parseDouble(get(params, "distance_limit", "-1"));
+                    ratio = distanceLimit > 0 ? distanceLimit / 10_000 : Double.parseDouble(get(params, "time_limit", "600")) / 600;
+                } catch (NumberFormatException ex) {
+                    // the resource rejects the request
+                    return 1;
+                }
+                return 1 + (int) Math.min(Integer.MAX_VALUE - 1, Math.max(0, ratio * ratio));
+            default:
+                return 1;
+        }
+    }
+
+    private static int count(Map<String, String[]> params, String key) {
+        String[] values = params.get(key);
+        return values == null ? 0 : values.length;
+    }
+
+    private static String get(Map<String, String[]> params, String key, String defaultValue) {
+        String[] values = params.get(key);
+        return values == null || values.length == 0 || values[0].isEmpty() ? defaultValue : values[0];
+    }
+
+    /**
+     * @return the first segment of the path below the servlet, e.g. route for /route?point=...
+     */
+    private static String getEndpointName(HttpServletRequest httpReq) {
+        String path = httpReq.getPathInfo() == null ? httpReq.getServletPath() : httpReq.getPathInfo();
+        if (path == null)
+            return "";
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = path.indexOf('/', start);
+        return end < 0 ? path.substring(start) : path.substring(start, end);
+    }
+
+    private static void reject(HttpServletResponse response, String endpoint) throws IOException {
+        String message = "Too many requests for " + endpoint + ", please try again later";
+        response.setStatus(SC_TOO_MANY_REQUESTS);
+        response.setHeader("Retry-After", "1");
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("{\"message\":\"" + message + "\",\"hints\":[{\"message\":\"" + message + "\"}]}");
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    /**
+     * The budget of one endpoint. A request is admitted immediately if its cost is available, so cheap requests can
+     * overtake expensive ones that wait for a larger part of the budget. Queued requests are admitted in their order
+     * whenever their cost gets available.
+     */
+    static class Endpoint {
+        final String name;
+        private final int maxCost;
+        private final int maxQueue;
+        private final long queueTimeoutMillis;
+        private int availableCost;
+        private final Deque<Ticket> queue = new ArrayDeque<>();
+        private final Meter admitted;
+        private final Meter rejected;
+        private final Timer queueTime;
+
+        Endpoint(String name, int maxCost, int maxQueue, long queueTimeoutMillis, MetricRegistry registry) {
+            this.name = name;
+            this.maxCost = maxCost;
+            this.maxQueue = maxQueue;
+            this.queueTimeoutMillis = queueTimeoutMillis;
+            this.availableCost = maxCost;
+            admitted = registry.meter(name(PREFIX, name, "admitted"));
+            rejected = registry.meter(name(PREFIX, name, "rejected"));
+            queueTime = registry.timer(name(PREFIX, name, "queue_time"));
+            registry.register(name(PREFIX, name, "used_cost"), (Gauge<Integer>) this::getUsedCost);
+            registry.register(name(PREFIX, name, "queued"), (Gauge<Integer>) this::getQueued);
+        }
+
+        /**
+         * @return the cost that is acquired for the estimated cost, a cost larger than the budget takes the whole budget
+         */
+        int limitCost(int cost) {
+            return Math.min(cost, maxCost);
+        }
+
+        /**
+         * @return true if the specified cost was available and is acquired now
+         */
+        boolean tryAcquire(int cost) {
+            synchronized (this) {
+                if (availableCost < cost)
+                    return false;
+                availableCost -= cost;
+            }
+            admitted.mark();
+            queueTime.update(0, TimeUnit.NANOSECONDS);
+            return true;
+        }
+
+        /**
+         * Queues a request that waits for the specified cost. Once it is available it is acquired and onAdmit is
+         * called by the thread that released it.
+         *
+         * @return the ticket of the request or null if the queue is full and the request is rejected
+         */
+        Ticket enqueue(int cost, Runnable onAdmit) {
+            Ticket ticket = new Ticket(cost, onAdmit);
+            synchronized (this) {
+                if (queue.size() < maxQueue) {
+                    queue.add(ticket);
+                    return ticket;
+                }
+            }
+            rejected.mark();
+            return null;
+        }
+
+        /**
+         * Removes the request from the queue, e.g. after the queue timeout.
+         *
+         * @return true if the request was still waiting and is rejected now, false if it was admitted already
+         */
+        boolean cancel(Ticket ticket) {
+            synchronized (this) {
+                if (!queue.remove(ticket))
+                    return false;
+            }
+            rejected.mark();
+            return true;
+        }
+
+        void release(int cost) {
+            List<Ticket> admittedTickets = null;
+            synchronized (this) {
+                availableCost += cost;
+                for (Iterator<Ticket> iter = queue.iterator(); iter.hasNext() && availableCost > 0; ) {
+                    Ticket ticket = iter.next();
+                    if (ticket.cost <= availableCost) {
+                        iter.remove();
+                        availableCost -= ticket.cost;
+                        if (admittedTickets == null)
+                            admittedTickets = new ArrayList<>(2);
+                        admittedTickets.add(ticket);
+                    }
+                }
+            }
+            if (admittedTickets == null)
+                return;
+            for (Ticket ticket : admittedTickets) {
+                admitted.mark();
+                queueTime.update(System.nanoTime() - ticket.start, TimeUnit.NANOSECONDS);
+                ticket.onAdmit.run();
+            }
+        }
+
+        synchronized int getUsedCost() {
+            return maxCost - availableCost;
+        }
+
+        synchronized int getQueued() {
+            return queue.size();
+        }
+
+        static class Ticket {
+            private final int cost;
+            private final Runnable onAdmit;
+            private final long start = System.nanoTime();
+
+            Ticket(int cost, Runnable onAdmit) {
+                this.cost = cost;
+                this.onAdmit = onAdmit;
+            }
+        }
+    }
+}
@@ -20,6 +20,7 @@ package com.graphhopper.http;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationConfig;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.module.SimpleModule;
@@ -31,6 +32,7 @@ import com.graphhopper.GraphHopper;
 import com.graphhopper.GraphHopperAPI;
 import com.graphhopper.http.health.GraphHopperHealthCheck;
 import com.graphhopper.http.health.GraphHopperStorageHealthCheck;
+import com.graphhopper.http.health.WarmUpHealthCheck;
 import com.graphhopper.isochrone.algorithm.DelaunayTriangulationIsolineBuilder;
 import com.graphhopper.jackson.Jackson;
 import com.graphhopper.reader.gtfs.GraphHopperGtfs;
@@ -40,26 +42,41 @@ import com.graphhopper.resources.*;
 import com.graphhopper.routing.util.CarFlagEncoder;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FootFlagEncoder;
+import com.graphhopper.routing.util.SearchTraceRecorder;
 import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.storage.GeneralizedRoadNetwork;
 import com.graphhopper.storage.GraphHopperStorage;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.util.CmdArgs;
 import com.graphhopper.util.TranslationMap;
+import com.google.common.util.concurrent.MoreExecutors;
 import io.dropwizard.ConfiguredBundle;
+import io.dropwizard.lifecycle.ExecutorServiceManager;
 import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
 import org.glassfish.hk2.api.Factory;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterRegistration;
 import javax.ws.rs.ext.WriterInterceptor;
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConfiguration> {
+    private static final Logger logger = LoggerFactory.getLogger(GraphHopperBundle.class);
 
     static class TranslationMapFactory implements Factory<TranslationMap> {
 
@@ -125,6 +142,22 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         }
     }
 
+    static class GeneralizedRoadNetworkFactory implements Factory<GeneralizedRoadNetwork> {
+
+        @Inject
+        GraphHopperManaged graphHopperManaged;
+
+        @Override
+        public GeneralizedRoadNetwork provide() {
+            return graphHopperManaged.getGeneralizedRoadNetwork();
+        }
+
+        @Override
+        public void dispose(GeneralizedRoadNetwork instance) {
+
+        }
+    }
+
     static class HasElevation implements Factory<Boolean> {
 
         @Inject
@@ -196,13 +229,31 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(new MultiExceptionGPXMessageBodyWriter());
 
         environment.jersey().register(new IllegalArgumentExceptionMapper());
+        environment.jersey().register(new RequestCancelledExceptionMapper());
         environment.jersey().register(new GHPointConverterProvider());
 
+        ExecutorService requestExecutor = null;
+        if (configuration.getGraphHopperConfiguration().getBool("web.virtual_threads.enabled", false)) {
+            requestExecutor = createRequestExecutor();
+            if (requestExecutor == null)
+                logger.warn("Virtual threads are not supported by this JVM, requests are handled by the thread pool of Jetty");
+            else
+                environment.lifecycle().manage(new ExecutorServiceManager(requestExecutor, Duration.seconds(5), "virtual-requests"));
+        }
+
+        AdmissionControlFilter admissionControl = new AdmissionControlFilter(configuration.getGraphHopperConfiguration(), environment.metrics());
+        if (admissionControl.isEnabled()) {
+            FilterRegistration.Dynamic filter = environment.servlets().addFilter("admission-control", admissionControl);
+            // queued requests are suspended and dispatched again, and the RouteResource suspends the request
+            filter.setAsyncSupported(true);
+            filter.addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC), true, "/*");
+        }
+
         if (configuration.getGraphHopperConfiguration().has("gtfs.file")) {
             // switch to different API implementation when using Pt
             runPtGraphHopper(configuration.getGraphHopperConfiguration(), environment);
         } else {
-            runRegularGraphHopper(configuration.getGraphHopperConfiguration(), environment);
+            runRegularGraphHopper(configuration.getGraphHopperConfiguration(), environment, requestExecutor);
         }
     }
 
@@ -216,6 +267,7 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
                 configuration.has("datareader.file") ? Arrays.asList(configuration.get("datareader.file", "").split(",")) : Collections.emptyList());
         final TranslationMap translationMap = GraphHopperGtfs.createTranslationMap();
         final LocationIndex locationIndex = GraphHopperGtfs.createOrLoadIndex(ghDirectory, graphHopperStorage);
+        final ExecutorService nearestBatchExecutor = createNearestBatchExecutor(configuration, environment);
         environment.jersey().register(new AbstractBinder() {
             @Override
             protected void configure() {
@@ -227,6 +279,7 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
                 bind(ptFlagEncoder).to(PtFlagEncoder.class);
                 bind(graphHopperStorage).to(GraphHopperStorage.class);
                 bind(gtfsStorage).to(GtfsStorage.class);
+                bind(nearestBatchExecutor).to(ExecutorService.class).named("nearestBatchExecutor");
                 bindFactory(RasterHullBuilderFactory.class).to(DelaunayTriangulationIsolineBuilder.class);
             }
         });
@@ -260,9 +313,30 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.healthChecks().register("graphhopper-storage", new GraphHopperStorageHealthCheck(graphHopperStorage));
     }
 
-    private void runRegularGraphHopper(CmdArgs configuration, Environment environment) {
+    /**
+     * @param asyncRequestExecutor the executor that handles the suspended route requests or null if they are handled
+     *                             on the thread of Jetty
+     */
+    private void runRegularGraphHopper(CmdArgs configuration, Environment environment, ExecutorService asyncRequestExecutor) {
         final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration, environment.getObjectMapper());
         environment.lifecycle().manage(graphHopperManaged);
+        final ExecutorService nearestBatchExecutor = createNearestBatchExecutor(configuration, environment);
+        final ExecutorService requestExecutor = asyncRequestExecutor == null ? MoreExecutors.newDirectExecutorService() : asyncRequestExecutor;
+        final ExecutorService routingExecutor = createRoutingExecutor(configuration, environment, asyncRequestExecutor != null);
+        final MVTTileCache mvtTileCache = createMVTTileCache(configuration);
+        environment.lifecycle().manage(new Managed() {
+            @Override
+            public void start() {
+                // managed objects are started in order, so the graph is already loaded
+                mvtTileCache.setGraphVersion(MVTTileCache.getGraphVersion(graphHopperManaged.getGraphHopper().getGraphHopperStorage()));
+            }
+
+            @Override
+            public void stop() {
+            }
+        });
+        final RoutingMetrics routingMetrics = new RoutingMetrics(environment.metrics());
+        graphHopperManaged.getGraphHopper().addChangeGraphListener(mvtTileCache);
         environment.jersey().register(new AbstractBinder() {
             @Override
             protected void configure() {
@@ -277,6 +351,13 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
                 bindFactory(EncodingManagerFactory.class).to(EncodingManager.class);
                 bindFactory(GraphHopperStorageFactory.class).to(GraphHopperStorage.class);
                 bindFactory(RasterHullBuilderFactory.class).to(DelaunayTriangulationIsolineBuilder.class);
+                bind(nearestBatchExecutor).to(ExecutorService.class).named("nearestBatchExecutor");
+                bind(requestExecutor).to(ExecutorService.class).named("requestExecutor");
+                bind(routingExecutor).to(ExecutorService.class).named("routingExecutor");
+                bind(mvtTileCache).to(MVTTileCache.class);
+                bind(routingMetrics).to(RoutingMetrics.class);
+                bind(environment.getObjectMapper()).to(ObjectMapper.class);
+                bindFactory(GeneralizedRoadNetworkFactory.class).to(GeneralizedRoadNetwork.class);
             }
         });
 
@@ -292,6 +373,68 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(I18NResource.class);
         environment.jersey().register(InfoResource.class);
         environment.healthChecks().register("graphhopper", new GraphHopperHealthCheck(graphHopperManaged.getGraphHopper()));
+        environment.healthChecks().register("warm-up", new WarmUpHealthCheck(graphHopperManaged));
+
+        SearchTraceRecorder searchTraceRecorder = graphHopperManaged.getGraphHopper().getSearchTraceRecorder();
+        if (searchTraceRecorder != null)
+            environment.admin().addServlet("search-traces", new SearchTraceServlet(searchTraceRecorder, environment.getObjectMapper())).
+                    addMapping("/search-traces");
+    }
+
+    /**
+     * Creates the executor for web.virtual_threads.enabled. The RouteResource suspends every request, so the Jetty
+     * thread is free again immediately, and calculates and writes the response on this executor. By default it
+     * starts a new virtual thread for every request, so slow clients and large responses do not occupy platform
+     * threads.
+     *
+     * @return the executor or null if the JVM does not support virtual threads
+     */
+    protected ExecutorService createRequestExecutor() {
+        // virtual threads need Java 21, so they are created via reflection
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            return null;
+        } catch (InvocationTargetException ex) {
+            // e.g. the preview of Java 19 and 20 throws an UnsupportedOperationException if not enabled
+            logger.warn("Cannot create virtual threads", ex.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * If the requests are handled on virtual threads the CPU intensive route calculations run on a pool of
+     * web.virtual_threads.routing_threads platform threads (default is the number of available processors), so the
+     * number of concurrent calculations stays bounded. Otherwise they run on the request thread.
+     */
+    private static ExecutorService createRoutingExecutor(CmdArgs configuration, Environment environment, boolean virtualThreads) {
+        if (!virtualThreads)
+            return MoreExecutors.newDirectExecutorService();
+        int threads = configuration.getInt("web.virtual_threads.routing_threads", Runtime.getRuntime().availableProcessors());
+        return environment.lifecycle().executorService("routing-%d").
+                minThreads(threads).maxThreads(threads).
+                build();
+    }
+
+    /**
+     * The batch requests of the NearestResource share this fixed size pool so that a single large batch cannot
+     * occupy more than the configured number of threads.
+     */
+    private static ExecutorService createNearestBatchExecutor(CmdArgs configuration, Environment environment) {
+        int threads = configuration.getInt("web.nearest.batch.threads", Runtime.getRuntime().availableProcessors());
+        return environment.lifecycle().executorService("nearest-batch-%d").
+                minThreads(threads).maxThreads(threads).
+                build();
+    }
+
+    /**
+     * Tiles of the MVTResource are kept in memory and, if web.mvt.cache.directory is set, on disk. Tiles of the
+     * directory can be rendered in advance via the prerender-tiles command.
+     */
+    public static MVTTileCache createMVTTileCache(CmdArgs configuration) {
+        String directory = configuration.get("web.mvt.cache.directory", "");
+        return new MVTTileCache(configuration.getInt("web.mvt.cache.max_tiles", 1000),
+                directory.isEmpty() ? null : new File(directory));
     }
 
 }
@@ -24,8 +24,13 @@ import com.graphhopper.GraphHopper;
 import com.graphhopper.json.geo.JsonFeatureCollection;
 import com.graphhopper.reader.osm.GraphHopperOSM;
 import com.graphhopper.routing.lm.LandmarkStorage;
+import com.graphhopper.routing.profiles.RoadClass;
 import com.graphhopper.routing.util.spatialrules.SpatialRuleLookupHelper;
+import com.graphhopper.storage.GeneralizedRoadNetwork;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.CancellationToken;
 import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.EngineWarmUp;
 import com.graphhopper.util.Parameters;
 import com.graphhopper.util.shapes.BBox;
 import io.dropwizard.lifecycle.Managed;
@@ -43,6 +48,15 @@ public class GraphHopperManaged implements Managed {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final GraphHopper graphHopper;
+    private GeneralizedRoadNetwork generalizedRoadNetwork;
+    private final boolean warmUpEnabled;
+    private final boolean warmUpPreFault;
+    private final int warmUpBatchSize;
+    private final int warmUpMaxQueries;
+    private final double warmUpTolerance;
+    private final CancellationToken warmUpToken = new CancellationToken();
+    private Thread warmUpThread;
+    private volatile boolean warm;
 
     public GraphHopperManaged(CmdArgs configuration, ObjectMapper objectMapper) {
         ObjectMapper localObjectMapper = objectMapper.copy();
@@ -67,6 +81,11 @@ public class GraphHopperManaged implements Managed {
             }
         }
         graphHopper.init(configuration);
+        warmUpEnabled = configuration.getBool("web.warm_up.enabled", false);
+        warmUpPreFault = configuration.getBool("web.warm_up.pre_fault", true);
+        warmUpBatchSize = configuration.getInt("web.warm_up.batch_size", 50);
+        warmUpMaxQueries = configuration.getInt("web.warm_up.max_queries", 1000);
+        warmUpTolerance = configuration.getDouble("web.warm_up.tolerance", 0.1);
     }
 
     @Override
@@ -76,14 +95,61 @@ public class GraphHopperManaged implements Managed {
                 + ", data_reader_file:" + graphHopper.getDataReaderFile()
                 + ", encoded values:" + graphHopper.getEncodingManager().toEncodedValuesAsString()
                 + ", " + graphHopper.getGraphHopperStorage().toDetailsString());
+
+        GraphHopperStorage ghStorage = graphHopper.getGraphHopperStorage();
+        generalizedRoadNetwork = new GeneralizedRoadNetwork(ghStorage, ghStorage.getDirectory());
+        if (!generalizedRoadNetwork.loadExisting() && graphHopper.getEncodingManager().hasEncodedValue(RoadClass.KEY))
+            generalizedRoadNetwork.prepare(graphHopper.getEncodingManager().getEnumEncodedValue(RoadClass.KEY, RoadClass.class));
+
+        if (warmUpEnabled) {
+            // the server already accepts requests, the health check reports when the warm up is finished
+            warmUpThread = new Thread(this::warmUp, "warm-up");
+            warmUpThread.setDaemon(true);
+            warmUpThread.start();
+        } else {
+            warm = true;
+        }
+    }
+
+    private void warmUp() {
+        try {
+            if (warmUpPreFault)
+                EngineWarmUp.preFault(graphHopper.getGraphHopperStorage().getDirectory());
+            if (!warmUpToken.isCancelled() && EngineWarmUp.warmUpUntilStable(graphHopper, warmUpBatchSize, warmUpMaxQueries, warmUpTolerance, warmUpToken))
+                logger.info("warm up finished");
+        } catch (Exception ex) {
+            logger.error("Problem while warming up, the requests are served anyway", ex);
+        } finally {
+            warm = true;
+        }
     }
 
-    GraphHopper getGraphHopper() {
+    /**
+     * @return true if the warm up is finished or disabled, i.e. the first requests are not slower than the others
+     */
+    public boolean isWarm() {
+        return warm;
+    }
+
+    public GraphHopper getGraphHopper() {
         return graphHopper;
     }
 
+    /**
+     * @return the road network for low zoom vector tiles. It is not initialized if the graph does not store the road_class.
+     */
+    public GeneralizedRoadNetwork getGeneralizedRoadNetwork() {
+        return generalizedRoadNetwork;
+    }
+
     @Override
-    public void stop() {
+    public void stop() throws InterruptedException {
+        if (warmUpThread != null) {
+            warmUpToken.cancel();
+            warmUpThread.join();
+        }
+        if (generalizedRoadNetwork != null)
+            generalizedRoadNetwork.close();
         graphHopper.close();
     }
 
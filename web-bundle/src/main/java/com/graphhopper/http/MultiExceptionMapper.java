@@ -20,6 +20,7 @@ package com.graphhopper.http;
 
 import com.graphhopper.MultiException;
 import com.graphhopper.util.Helper;
+import com.graphhopper.util.exceptions.RequestCancelledException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,6 +34,14 @@ public class MultiExceptionMapper implements ExceptionMapper<MultiException> {
 
     @Override
     public Response toResponse(MultiException e) {
+        for (Throwable error : e.getErrors()) {
+            if (error instanceof RequestCancelledException) {
+                logger.info("cancelled request: " + e.getErrors());
+                return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                        .entity(e)
+                        .build();
+            }
+        }
         logger.info("bad request: " + (Helper.isEmpty(e.getMessage()) ? "unknown reason" : e.getErrors()));
         return Response.status(Response.Status.BAD_REQUEST)
                 .entity(e)
@@ -0,0 +1,24 @@
+package com.graphhopper.http;
+
+import com.graphhopper.MultiException;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.exceptions.RequestCancelledException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+@Provider
+public class RequestCancelledExceptionMapper implements ExceptionMapper<RequestCancelledException> {
+    private static final Logger logger = LoggerFactory.getLogger(RequestCancelledExceptionMapper.class);
+
+    @Override
+    public Response toResponse(RequestCancelledException e) {
+        logger.info("cancelled request: " + (Helper.isEmpty(e.getMessage()) ? "unknown reason" : e.getMessage()));
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(new MultiException(e))
+                .build();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.*;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.util.PMap;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.graphhopper.util.Helper.toLowerCase;
+
+/**
+ * Records the internals of route requests in the MetricRegistry of Dropwizard, i.e. they are available on the
+ * admin port under /metrics and via the configured reporters. The values are read from the metrics of the GHResponse:
+ * the timings of the location lookup, the algorithm and the path extraction, the visited and the virtual nodes and
+ * the routing mode, which is 'ch', 'lm', 'flexible' or 'cache'. The ratio gauges show which fraction of the successful
+ * requests was answered with the help of the CH or LM preparation.
+ */
+public class RoutingMetrics {
+    static final String PREFIX = "graphhopper.routing";
+
+    private final MetricRegistry registry;
+    private final Meter requests;
+    private final Meter errors;
+    private final Timer lookupTime;
+    private final Timer routingTime;
+    private final Timer pathExtractionTime;
+    private final Histogram visitedNodes;
+    private final Histogram virtualNodes;
+    private final Counter chRequests;
+    private final Counter lmRequests;
+
+    public RoutingMetrics(MetricRegistry registry) {
+        this.registry = registry;
+        requests = registry.meter(name(PREFIX, "requests"));
+        errors = registry.meter(name(PREFIX, "errors"));
+        lookupTime = registry.timer(name(PREFIX, "lookup"));
+        routingTime = registry.timer(name(PREFIX, "algorithm"));
+        pathExtractionTime = registry.timer(name(PREFIX, "path_extraction"));
+        visitedNodes = registry.histogram(name(PREFIX, "visited_nodes"));
+        virtualNodes = registry.histogram(name(PREFIX, "virtual_nodes"));
+        chRequests = registry.counter(name(PREFIX, "mode", "ch"));
+        lmRequests = registry.counter(name(PREFIX, "mode", "lm"));
+        registry.register(name(PREFIX, "mode", "ch", "ratio"), new RequestRatio(chRequests));
+        registry.register(name(PREFIX, "mode", "lm", "ratio"), new RequestRatio(lmRequests));
+    }
+
+    public void record(GHRequest request, GHResponse response) {
+        requests.mark();
+        // only successful requests are counted per algorithm and profile, as the parameters are then known to be
+        // valid and cannot create an arbitrary number of metrics
+        if (response.hasErrors()) {
+            errors.mark();
+            return;
+        }
+
+        PMap metrics = response.getMetrics();
+        String mode = metrics.get("routing.mode", "flexible");
+        if (mode.equals("ch"))
+            chRequests.inc();
+        else if (mode.equals("lm"))
+            lmRequests.inc();
+        else
+            registry.counter(name(PREFIX, "mode", mode)).inc();
+
+        String algorithm = request.getAlgorithm().isEmpty() ? "default" : toLowerCase(request.getAlgorithm());
+        registry.counter(name(PREFIX, "algorithm", algorithm)).inc();
+        registry.counter(name(PREFIX, "profile", toLowerCase(request.getVehicle()), toLowerCase(request.getWeighting()))).inc();
+
+        lookupTime.update(metrics.getLong("took.lookup_micros", 0), TimeUnit.MICROSECONDS);
+        // responses from the route cache did not run an algorithm
+        if (mode.equals("cache"))
+            return;
+        routingTime.update(metrics.getLong("took.routing_micros", 0), TimeUnit.MICROSECONDS);
+        pathExtractionTime.update(metrics.getLong("took.path_extraction_micros", 0), TimeUnit.MICROSECONDS);
+        // the visited nodes are part of the public hints
+        visitedNodes.update(response.getHints().getLong("visited_nodes.sum", 0));
+        virtualNodes.update(metrics.getLong("virtual_nodes", 0));
+    }
+
+    private class RequestRatio extends RatioGauge {
+        private final Counter counter;
+
+        RequestRatio(Counter counter) {
+            this.counter = counter;
+        }
+
+        @Override
+        protected Ratio getRatio() {
+            return Ratio.of(counter.getCount(), requests.getCount() - errors.getCount());
+        }
+    }
+}
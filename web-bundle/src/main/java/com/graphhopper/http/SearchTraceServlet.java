@@ -0,0 +1,48 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.routing.util.SearchTraceRecorder;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Returns the search traces of the last sampled or slow route requests as JSON, the newest first. It is served on
+ * the admin port only as the traces contain the coordinates of the requests.
+ */
+public class SearchTraceServlet extends HttpServlet {
+    private final SearchTraceRecorder recorder;
+    private final ObjectMapper objectMapper;
+
+    public SearchTraceServlet(SearchTraceRecorder recorder, ObjectMapper objectMapper) {
+        this.recorder = recorder;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "must-revalidate,no-cache,no-store");
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(resp.getOutputStream(), recorder.getTraces());
+    }
+}
@@ -13,6 +13,7 @@ import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.CancellationToken;
 import com.graphhopper.util.StopWatch;
 import com.graphhopper.util.shapes.GHPoint;
 import org.locationtech.jts.geom.Coordinate;
@@ -94,6 +95,8 @@ public class IsochroneResource {
 
         Weighting weighting = graphHopper.createWeighting(hintsMap, encoder, graph);
         Isochrone isochrone = new Isochrone(queryGraph, weighting, reverseFlow);
+        if (graphHopper.getTimeoutMillis() > 0)
+            isochrone.setCancellationToken(new CancellationToken(null, graphHopper.getTimeoutMillis()));
 
         if (distanceInMeter > 0) {
             isochrone.setDistanceLimit(distanceInMeter);
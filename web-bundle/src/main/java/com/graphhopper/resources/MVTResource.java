@@ -4,8 +4,10 @@ import com.graphhopper.GraphHopper;
 import com.graphhopper.routing.profiles.*;
 import com.graphhopper.routing.util.DefaultEdgeFilter;
 import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.GeneralizedRoadNetwork;
+import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.NodeAccess;
-import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
 import com.wdtinc.mapbox_vector_tile.VectorTile;
@@ -30,9 +32,7 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Path("mvt")
@@ -42,11 +42,16 @@ public class MVTResource {
     private static final MediaType PBF = new MediaType("application", "x-protobuf");
     private final GraphHopper graphHopper;
     private final EncodingManager encodingManager;
+    private final MVTTileCache tileCache;
+    private final GeneralizedRoadNetwork generalizedRoadNetwork;
 
     @Inject
-    public MVTResource(GraphHopper graphHopper, EncodingManager encodingManager) {
+    public MVTResource(GraphHopper graphHopper, EncodingManager encodingManager, MVTTileCache tileCache,
+                       GeneralizedRoadNetwork generalizedRoadNetwork) {
         this.graphHopper = graphHopper;
         this.encodingManager = encodingManager;
+        this.tileCache = tileCache;
+        this.generalizedRoadNetwork = generalizedRoadNetwork;
     }
 
     @GET
@@ -60,17 +65,45 @@ public class MVTResource {
             @PathParam("y") int yInfo,
             @QueryParam(Parameters.Details.PATH_DETAILS) List<String> pathDetails) {
 
-        if (zInfo <= 9) {
-            VectorTile.Tile.Builder mvtBuilder = VectorTile.Tile.newBuilder();
-            return Response.fromResponse(Response.ok(mvtBuilder.build().toByteArray(), PBF).build())
-                    .header("X-GH-Took", "0")
-                    .build();
+        StopWatch totalSW = new StopWatch().start();
+        byte[] bytes = getTile(zInfo, xInfo, yInfo, pathDetails);
+        totalSW.stop();
+        return Response.ok(bytes, PBF).header("X-GH-Took", "" + totalSW.getSeconds() * 1000)
+                .build();
+    }
+
+    /**
+     * Returns the encoded tile from the cache or renders and caches it.
+     */
+    public byte[] getTile(int zInfo, int xInfo, int yInfo, List<String> pathDetails) {
+        List<String> validDetails = new ArrayList<>();
+        // low zoom levels are rendered from the generalized road network without path details, so they must not
+        // be part of the key, otherwise the same tile would be cached once per combination of details
+        if (zInfo > GeneralizedRoadNetwork.getMaxZoom()) {
+            for (String str : pathDetails) {
+                // how to indicate an erroneous parameter?
+                if (str.contains(",") || !encodingManager.hasEncodedValue(str) || validDetails.contains(str))
+                    continue;
+                validDetails.add(str);
+            }
+            Collections.sort(validDetails);
         }
 
+        MVTTileCache.TileKey key = new MVTTileCache.TileKey(zInfo, xInfo, yInfo, validDetails);
+        byte[] bytes = tileCache.get(key);
+        if (bytes == null) {
+            long generation = tileCache.getGeneration();
+            bytes = createTile(zInfo, xInfo, yInfo, validDetails);
+            tileCache.put(key, bytes, generation);
+        }
+        return bytes;
+    }
+
+    private byte[] createTile(int zInfo, int xInfo, int yInfo, List<String> pathDetails) {
         StopWatch totalSW = new StopWatch().start();
         Coordinate nw = num2deg(xInfo, yInfo, zInfo);
         Coordinate se = num2deg(xInfo + 1, yInfo + 1, zInfo);
-        LocationIndexTree locationIndex = (LocationIndexTree) graphHopper.getLocationIndex();
+        LocationIndex locationIndex = graphHopper.getLocationIndex();
         final NodeAccess na = graphHopper.getGraphHopperStorage().getNodeAccess();
         EdgeExplorer edgeExplorer = graphHopper.getGraphHopperStorage().createEdgeExplorer(DefaultEdgeFilter.ALL_EDGES);
         BBox bbox = new BBox(nw.x, se.x, se.y, nw.y);
@@ -93,67 +126,79 @@ public class MVTResource {
         final MvtLayerProps layerProps = new MvtLayerProps();
         final VectorTile.Tile.Layer.Builder layerBuilder = MvtLayerBuild.newLayerBuilder("roads", layerParams);
 
-        locationIndex.query(bbox, new LocationIndexTree.EdgeVisitor(edgeExplorer) {
-            @Override
-            public void onEdge(EdgeIteratorState edge, int nodeA, int nodeB) {
-                LineString lineString;
-                RoadClass rc = edge.get(roadClassEnc);
-                if (zInfo >= 14) {
-                    PointList pl = edge.fetchWayGeometry(3);
-                    lineString = pl.toLineString(false);
-                } else if (rc == RoadClass.MOTORWAY
-                        || zInfo > 10 && (rc == RoadClass.PRIMARY || rc == RoadClass.TRUNK)
-                        || zInfo > 11 && (rc == RoadClass.SECONDARY)
-                        || zInfo > 12) {
-                    double lat = na.getLatitude(nodeA);
-                    double lon = na.getLongitude(nodeA);
-                    double toLat = na.getLatitude(nodeB);
-                    double toLon = na.getLongitude(nodeB);
-                    lineString = geometryFactory.createLineString(new Coordinate[]{new Coordinate(lon, lat), new Coordinate(toLon, toLat)});
-                } else {
-                    // skip edge for certain zoom
-                    return;
-                }
-
+        if (zInfo <= GeneralizedRoadNetwork.getMaxZoom()) {
+            // for low zoom levels the simplified major roads are rendered without path details
+            final Graph graph = graphHopper.getGraphHopperStorage();
+            generalizedRoadNetwork.query(zInfo, bbox, (points, roadClass, edge) -> {
                 edgeCounter.incrementAndGet();
+                LineString lineString = points.toLineString(false);
                 Map<String, Object> map = new HashMap<>(2);
-                map.put("name", edge.getName());
-                for (String str : pathDetails) {
-                    // how to indicate an erroneous parameter?
-                    if (str.contains(",") || !encodingManager.hasEncodedValue(str))
-                        continue;
-
-                    EncodedValue ev = encodingManager.getEncodedValue(str, EncodedValue.class);
-                    if (ev instanceof EnumEncodedValue)
-                        map.put(ev.getName(), edge.get((EnumEncodedValue) ev).toString());
-                    else if (ev instanceof DecimalEncodedValue)
-                        map.put(ev.getName(), edge.get((DecimalEncodedValue) ev));
-                    else if (ev instanceof BooleanEncodedValue)
-                        map.put(ev.getName(), edge.get((BooleanEncodedValue) ev));
-                    else if (ev instanceof IntEncodedValue)
-                        map.put(ev.getName(), edge.get((IntEncodedValue) ev));
-                }
-
+                map.put("name", graph.getEdgeIteratorState(edge, Integer.MIN_VALUE).getName());
+                map.put(RoadClass.KEY, roadClass.toString());
                 lineString.setUserData(map);
 
-                // doing some AffineTransformation
                 TileGeomResult tileGeom = JtsAdapter.createTileGeom(lineString, tileEnvelope, geometryFactory, layerParams, acceptAllGeomFilter);
                 List<VectorTile.Tile.Feature> features = JtsAdapter.toFeatures(tileGeom.mvtGeoms, layerProps, converter);
                 layerBuilder.addAllFeatures(features);
-            }
+            });
+        } else {
+            locationIndex.query(bbox, new LocationIndex.EdgeVisitor(edgeExplorer) {
+                @Override
+                public void onEdge(EdgeIteratorState edge, int nodeA, int nodeB) {
+                    LineString lineString;
+                    RoadClass rc = edge.get(roadClassEnc);
+                    if (zInfo >= 14) {
+                        PointList pl = edge.fetchWayGeometry(3);
+                        lineString = pl.toLineString(false);
+                    } else if (rc == RoadClass.MOTORWAY
+                            || zInfo > 10 && (rc == RoadClass.PRIMARY || rc == RoadClass.TRUNK)
+                            || zInfo > 11 && (rc == RoadClass.SECONDARY)
+                            || zInfo > 12) {
+                        double lat = na.getLatitude(nodeA);
+                        double lon = na.getLongitude(nodeA);
+                        double toLat = na.getLatitude(nodeB);
+                        double toLon = na.getLongitude(nodeB);
+                        lineString = geometryFactory.createLineString(new Coordinate[]{new Coordinate(lon, lat), new Coordinate(toLon, toLat)});
+                    } else {
+                        // skip edge for certain zoom
+                        return;
+                    }
+
+                    edgeCounter.incrementAndGet();
+                    Map<String, Object> map = new HashMap<>(2);
+                    map.put("name", edge.getName());
+                    for (String str : pathDetails) {
+                        EncodedValue ev = encodingManager.getEncodedValue(str, EncodedValue.class);
+                        if (ev instanceof EnumEncodedValue)
+                            map.put(ev.getName(), edge.get((EnumEncodedValue) ev).toString());
+                        else if (ev instanceof DecimalEncodedValue)
+                            map.put(ev.getName(), edge.get((DecimalEncodedValue) ev));
+                        else if (ev instanceof BooleanEncodedValue)
+                            map.put(ev.getName(), edge.get((BooleanEncodedValue) ev));
+                        else if (ev instanceof IntEncodedValue)
+                            map.put(ev.getName(), edge.get((IntEncodedValue) ev));
+                    }
+
+                    lineString.setUserData(map);
+
+                    // doing some AffineTransformation
+                    TileGeomResult tileGeom = JtsAdapter.createTileGeom(lineString, tileEnvelope, geometryFactory, layerParams, acceptAllGeomFilter);
+                    List<VectorTile.Tile.Feature> features = JtsAdapter.toFeatures(tileGeom.mvtGeoms, layerProps, converter);
+                    layerBuilder.addAllFeatures(features);
+                }
 
-            @Override
-            public void onTile(BBox bbox, int depth) {
-            }
-        });
+                @Override
+                public void onTile(BBox bbox, int depth) {
+                }
+            });
+        }
 
         MvtLayerBuild.writeProps(layerBuilder, layerProps);
         mvtBuilder.addLayers(layerBuilder.build());
         byte[] bytes = mvtBuilder.build().toByteArray();
         totalSW.stop();
         logger.debug("took: " + totalSW.getSeconds() + ", edges:" + edgeCounter.get());
-        return Response.ok(bytes, PBF).header("X-GH-Took", "" + totalSW.getSeconds() * 1000)
-                .build();
+        return bytes;
     }
 
     Coordinate num2deg(int xInfo, int yInfo, int zoom) {
@@ -0,0 +1,315 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.change.ChangeGraphHelper;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.shapes.BBox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Caches the encoded vector tiles of the MVTResource in an in-memory LRU and optionally in a directory with
+ * a z/x/y layout. Tiles are keyed by z/x/y and the requested path details. Tiles are removed from both stores
+ * when an edge in the tile is modified via GraphHopper.changeGraph.
+ * <p>
+ * The tiles of the directory are stored in a subdirectory per graph version, see {@link #setGraphVersion}, so the
+ * tiles of a previous import are never served. The disk is accessed without holding the lock of the in-memory cache.
+ */
+public class MVTTileCache implements ChangeGraphHelper.EdgeChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(MVTTileCache.class);
+    private final Map<TileKey, byte[]> tiles;
+    private final File directory;
+    // tiles are read and written concurrently, only the removal of tiles from the directory is exclusive
+    private final ReadWriteLock directoryLock = new ReentrantReadWriteLock();
+    // the directory of the current graph version or null if the version is not yet known
+    private volatile File versionDirectory;
+    // incremented for every invalidation so that tiles rendered before a change are not stored afterwards
+    private volatile long generation;
+
+    /**
+     * @param maxTiles  the maximum number of tiles kept in memory, 0 disables the in-memory cache
+     * @param directory the directory to store the tiles, can be null
+     */
+    public MVTTileCache(final int maxTiles, File directory) {
+        if (maxTiles < 0)
+            throw new IllegalArgumentException("maximum number of tiles cannot be negative: " + maxTiles);
+
+        this.tiles = new LinkedHashMap<TileKey, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TileKey, byte[]> eldest) {
+                return size() > maxTiles;
+            }
+        };
+        this.directory = directory;
+        if (directory != null && !directory.exists() && !directory.mkdirs())
+            throw new IllegalStateException("Cannot create tile directory " + directory);
+    }
+
+    /**
+     * Uses the tiles stored for the specified version of the graph and removes the tiles of all other versions from
+     * the directory. The directory is not used before this is called.
+     *
+     * @see #getGraphVersion(GraphHopperStorage)
+     */
+    public void setGraphVersion(String version) {
+        if (directory == null)
+            return;
+
+        directoryLock.writeLock().lock();
+        try {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (!file.getName().equals(version)) {
+                        logger.info("removing tiles of other graph version " + file);
+                        Helper.removeDir(file);
+                    }
+                }
+            }
+            versionDirectory = new File(directory, version);
+        } finally {
+            directoryLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return an identifier of the graph that changes with every import
+     */
+    public static String getGraphVersion(GraphHopperStorage ghStorage) {
+        String importDate = ghStorage.getProperties().get("datareader.import.date");
+        return importDate.replaceAll("[^0-9A-Za-z]", "") + "-" + ghStorage.getNodes() + "-" + ghStorage.getEdges();
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return the encoded tile or null if it is not cached
+     */
+    public byte[] get(TileKey key) {
+        long readGeneration;
+        synchronized (this) {
+            byte[] bytes = tiles.get(key);
+            if (bytes != null)
+                return bytes;
+            readGeneration = generation;
+        }
+
+        byte[] bytes;
+        directoryLock.readLock().lock();
+        try {
+            File file = getFile(key);
+            if (file == null || !file.exists())
+                return null;
+            bytes = Files.readAllBytes(file.toPath());
+        } catch (IOException ex) {
+            // the file was removed in the meantime
+            return null;
+        } finally {
+            directoryLock.readLock().unlock();
+        }
+
+        synchronized (this) {
+            // the file might have been read right before it was removed
+            if (readGeneration != generation)
+                return null;
+            tiles.put(key, bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Stores the tile if no change happened after the specified generation.
+     */
+    public void put(TileKey key, byte[] bytes, long renderGeneration) {
+        synchronized (this) {
+            if (renderGeneration != generation)
+                return;
+            tiles.put(key, bytes);
+        }
+
+        directoryLock.readLock().lock();
+        try {
+            // an invalidation cannot run concurrently, so the file is removed by every later one
+            File file = getFile(key);
+            if (file == null || renderGeneration != generation)
+                return;
+
+            Files.createDirectories(file.getParentFile().toPath());
+            File tmpFile = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp").toFile();
+            Files.write(tmpFile.toPath(), bytes);
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot store tile " + key, ex);
+        } finally {
+            directoryLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onEdgeChange(EdgeIteratorState edge) {
+        PointList points = edge.fetchWayGeometry(3);
+        BBox bbox = BBox.createInverse(false);
+        for (int i = 0; i < points.getSize(); i++) {
+            bbox.update(points.getLat(i), points.getLon(i));
+        }
+        invalidate(bbox);
+    }
+
+    /**
+     * Removes all tiles that intersect the specified area.
+     */
+    public void invalidate(BBox bbox) {
+        synchronized (this) {
+            generation++;
+            Iterator<TileKey> iter = tiles.keySet().iterator();
+            while (iter.hasNext()) {
+                if (iter.next().intersects(bbox))
+                    iter.remove();
+            }
+        }
+
+        directoryLock.writeLock().lock();
+        try {
+            File[] zoomDirs = versionDirectory == null ? null : versionDirectory.listFiles();
+            if (zoomDirs == null)
+                return;
+            for (File zoomDir : zoomDirs) {
+                int zoom;
+                try {
+                    zoom = Integer.parseInt(zoomDir.getName());
+                } catch (NumberFormatException ex) {
+                    continue;
+                }
+                int minX = lonToTileX(bbox.minLon, zoom), maxX = lonToTileX(bbox.maxLon, zoom);
+                int minY = latToTileY(bbox.maxLat, zoom), maxY = latToTileY(bbox.minLat, zoom);
+                for (int x = minX; x <= maxX; x++) {
+                    File[] files = new File(zoomDir, Integer.toString(x)).listFiles();
+                    if (files == null)
+                        continue;
+                    for (File file : files) {
+                        int y = parseTileY(file.getName());
+                        if (y >= minY && y <= maxY && !file.delete())
+                            logger.warn("Cannot remove tile " + file);
+                    }
+                }
+            }
+        } finally {
+            directoryLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the file of the tile or null if the directory is not used
+     */
+    private File getFile(TileKey key) {
+        File dir = versionDirectory;
+        if (dir == null)
+            return null;
+        // the details are escaped so that e.g. the details a_b and a, b cannot share a file
+        StringBuilder name = new StringBuilder().append(key.y);
+        for (int i = 0; i < key.pathDetails.size(); i++) {
+            name.append(i == 0 ? '-' : '~');
+            try {
+                name.append(URLEncoder.encode(key.pathDetails.get(i), "UTF-8"));
+            } catch (UnsupportedEncodingException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        name.append(".mvt");
+        return new File(dir, key.z + File.separator + key.x + File.separator + name);
+    }
+
+    private static int parseTileY(String fileName) {
+        int end = 0;
+        while (end < fileName.length() && Character.isDigit(fileName.charAt(end))) {
+            end++;
+        }
+        return end == 0 ? -1 : Integer.parseInt(fileName.substring(0, end));
+    }
+
+    public static int lonToTileX(double lon, int zoom) {
+        int n = 1 << zoom;
+        return Math.max(0, Math.min(n - 1, (int) Math.floor((lon + 180) / 360 * n)));
+    }
+
+    public static int latToTileY(double lat, int zoom) {
+        int n = 1 << zoom;
+        double latRad = Math.toRadians(lat);
+        double y = (1 - Math.log(Math.tan(latRad) + 1 / Math.cos(latRad)) / Math.PI) / 2 * n;
+        return Math.max(0, Math.min(n - 1, (int) Math.floor(y)));
+    }
+
+    public static final class TileKey {
+        final int z;
+        final int x;
+        final int y;
+        final List<String> pathDetails;
+
+        /**
+         * @param pathDetails the valid and sorted path details
+         */
+        public TileKey(int z, int x, int y, List<String> pathDetails) {
+            this.z = z;
+            this.x = x;
+            this.y = y;
+            this.pathDetails = pathDetails;
+        }
+
+        boolean intersects(BBox bbox) {
+            return x >= lonToTileX(bbox.minLon, z) && x <= lonToTileX(bbox.maxLon, z)
+                    && y >= latToTileY(bbox.maxLat, z) && y <= latToTileY(bbox.minLat, z);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof TileKey))
+                return false;
+            TileKey other = (TileKey) obj;
+            return z == other.z && x == other.x && y == other.y && pathDetails.equals(other.pathDetails);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(z, x, y, pathDetails);
+        }
+
+        @Override
+        public String toString() {
+            return z + "/" + x + "/" + y + " " + pathDetails;
+        }
+    }
+}
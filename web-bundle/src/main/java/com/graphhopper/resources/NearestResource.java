@@ -18,19 +18,37 @@
 package com.graphhopper.resources;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
 import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.CmdArgs;
 import com.graphhopper.util.DistanceCalc;
 import com.graphhopper.util.Helper;
+import com.graphhopper.util.StopWatch;
 import com.graphhopper.util.shapes.GHPoint;
 import com.graphhopper.util.shapes.GHPoint3D;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * @author svantulden
@@ -40,13 +58,26 @@ import javax.ws.rs.core.MediaType;
 @Produces(MediaType.APPLICATION_JSON)
 public class NearestResource {
 
+    private static final Logger logger = LoggerFactory.getLogger(NearestResource.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    // number of points snapped by one task of the batch executor
+    static final int BATCH_CHUNK_SIZE = 256;
+
     private final DistanceCalc calc = Helper.DIST_EARTH;
     private final LocationIndex index;
+    private final EncodingManager encodingManager;
+    private final ExecutorService batchExecutor;
+    private final int maxBatchPoints;
     private final boolean hasElevation;
 
     @Inject
-    NearestResource(LocationIndex index, @Named("hasElevation") Boolean hasElevation) {
+    NearestResource(LocationIndex index, EncodingManager encodingManager, CmdArgs configuration,
+                    @Named("nearestBatchExecutor") ExecutorService batchExecutor,
+                    @Named("hasElevation") Boolean hasElevation) {
         this.index = index;
+        this.encodingManager = encodingManager;
+        this.batchExecutor = batchExecutor;
+        this.maxBatchPoints = configuration.getInt("web.nearest.batch.max_points", 10_000);
         this.hasElevation = hasElevation;
     }
 
@@ -54,11 +85,38 @@ public class NearestResource {
         public final String type = "Point";
         public final double[] coordinates;
         public final double distance; // Distance from input to snapped point in meters
+        // only set for the entries of a batch response that failed, then the other fields are empty
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public final String message;
+
+        Response(double[] coordinates, double distance) {
+            this(coordinates, distance, null);
+        }
 
         @JsonCreator
-        Response(@JsonProperty("coordinates") double[] coordinates, @JsonProperty("distance") double distance) {
+        Response(@JsonProperty("coordinates") double[] coordinates, @JsonProperty("distance") double distance,
+                 @JsonProperty("message") String message) {
             this.coordinates = coordinates;
             this.distance = distance;
+            this.message = message;
+        }
+    }
+
+    public static class BatchRequest {
+        // GeoJson order, i.e. [longitude,latitude]
+        public List<GHPoint> points = new ArrayList<>();
+        public String vehicle = "";
+        public boolean elevation = false;
+    }
+
+    public static class BatchResponse {
+        // one entry per requested point in the same order, null if the point could not be snapped and an entry with
+        // only a message if snapping failed
+        public final List<Response> results;
+
+        @JsonCreator
+        BatchResponse(@JsonProperty("results") List<Response> results) {
+            this.results = results;
         }
     }
 
@@ -66,12 +124,127 @@ public class NearestResource {
     public Response doGet(@QueryParam("point") GHPoint point, @QueryParam("elevation") @DefaultValue("false") boolean elevation) {
         QueryResult qr = index.findClosest(point.lat, point.lon, EdgeFilter.ALL_EDGES);
         if (qr.isValid()) {
-            GHPoint3D snappedPoint = qr.getSnappedPoint();
-            double[] coordinates = hasElevation && elevation ? new double[]{snappedPoint.lon, snappedPoint.lat, snappedPoint.ele} : new double[]{snappedPoint.lon, snappedPoint.lat};
-            return new Response(coordinates, calc.calcDist(point.lat, point.lon, snappedPoint.lat, snappedPoint.lon));
+            return createResponse(point, qr, hasElevation && elevation);
         } else {
             throw new WebApplicationException("Nearest point cannot be found!");
         }
     }
 
+    /**
+     * Snaps many points within one request. The points are split into chunks which are snapped in parallel and the
+     * results are streamed back in the order of the request as soon as the corresponding chunk is finished.
+     */
+    @POST
+    @Path("batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public javax.ws.rs.core.Response doPostBatch(BatchRequest request) {
+        if (request == null || request.points == null || request.points.isEmpty())
+            throw new IllegalArgumentException("You have to pass at least one point");
+        if (request.points.size() > maxBatchPoints)
+            throw new IllegalArgumentException("Too many points: " + request.points.size() + ", the maximum is " + maxBatchPoints);
+        if (request.elevation && !hasElevation)
+            throw new IllegalArgumentException("Elevation not supported!");
+        // the status is sent before the first point is snapped, so all points are checked upfront
+        for (int i = 0; i < request.points.size(); i++) {
+            GHPoint point = request.points.get(i);
+            if (point == null || !point.isValid() || Math.abs(point.lat) > 90 || Math.abs(point.lon) > 180)
+                throw new IllegalArgumentException("Point " + i + " is invalid: " + point);
+        }
+
+        final EdgeFilter edgeFilter;
+        if (Helper.isEmpty(request.vehicle)) {
+            edgeFilter = EdgeFilter.ALL_EDGES;
+        } else {
+            if (!encodingManager.hasEncoder(request.vehicle))
+                throw new IllegalArgumentException("Vehicle not supported: " + request.vehicle);
+            edgeFilter = DefaultEdgeFilter.allEdges(encodingManager.getEncoder(request.vehicle));
+        }
+
+        final StopWatch sw = new StopWatch().start();
+        final List<GHPoint> points = request.points;
+        final boolean elevation = request.elevation;
+        final List<Future<Response[]>> chunks = new ArrayList<>(points.size() / BATCH_CHUNK_SIZE + 1);
+        for (int from = 0; from < points.size(); from += BATCH_CHUNK_SIZE) {
+            final List<GHPoint> chunk = points.subList(from, Math.min(points.size(), from + BATCH_CHUNK_SIZE));
+            chunks.add(batchExecutor.submit(() -> {
+                // the snapper reuses its search state for all points of this chunk
+                LocationIndex.Snapper snapper = index.createSnapper();
+                Response[] results = new Response[chunk.size()];
+                for (int i = 0; i < results.length; i++) {
+                    GHPoint point = chunk.get(i);
+                    try {
+                        QueryResult qr = snapper.findClosest(point.lat, point.lon, edgeFilter);
+                        if (qr.isValid())
+                            results[i] = createResponse(point, qr, elevation);
+                    } catch (RuntimeException ex) {
+                        logger.warn("Cannot snap " + point, ex);
+                        results[i] = createError(ex);
+                    }
+                }
+                return results;
+            }));
+        }
+
+        StreamingOutput out = output -> {
+            try (JsonGenerator json = JSON_FACTORY.createGenerator(output, JsonEncoding.UTF8)) {
+                json.writeStartObject();
+                json.writeArrayFieldStart("results");
+                for (int chunkIndex = 0; chunkIndex < chunks.size(); chunkIndex++) {
+                    Response[] results;
+                    try {
+                        results = chunks.get(chunkIndex).get();
+                    } catch (ExecutionException ex) {
+                        // the JSON is already partially written, so the failed chunk is reported per point
+                        logger.error("Problem while snapping batch of " + points.size() + " points", ex.getCause());
+                        results = new Response[Math.min(BATCH_CHUNK_SIZE, points.size() - chunkIndex * BATCH_CHUNK_SIZE)];
+                        Arrays.fill(results, createError(ex.getCause()));
+                    }
+                    for (Response response : results) {
+                        if (response == null)
+                            json.writeNull();
+                        else
+                            writeResponse(json, response);
+                    }
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            } catch (InterruptedException ex) {
+                for (Future<Response[]> chunk : chunks) {
+                    chunk.cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while snapping batch of " + points.size() + " points", ex);
+            }
+            logger.info("nearest batch took: " + sw.stop().getSeconds() + ", points: " + points.size());
+        };
+        // took header does not make sense as we stream
+        return javax.ws.rs.core.Response.ok(out).build();
+    }
+
+    private Response createResponse(GHPoint point, QueryResult qr, boolean elevation) {
+        GHPoint3D snappedPoint = qr.getSnappedPoint();
+        double[] coordinates = elevation ? new double[]{snappedPoint.lon, snappedPoint.lat, snappedPoint.ele} : new double[]{snappedPoint.lon, snappedPoint.lat};
+        return new Response(coordinates, calc.calcDist(point.lat, point.lon, snappedPoint.lat, snappedPoint.lon));
+    }
+
+    private static Response createError(Throwable ex) {
+        return new Response(null, 0, ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage());
+    }
+
+    private static void writeResponse(JsonGenerator json, Response response) throws IOException {
+        json.writeStartObject();
+        if (response.message != null) {
+            json.writeStringField("message", response.message);
+            json.writeEndObject();
+            return;
+        }
+        json.writeStringField("type", response.type);
+        json.writeArrayFieldStart("coordinates");
+        for (double coordinate : response.coordinates) {
+            json.writeNumber(coordinate);
+        }
+        json.writeEndArray();
+        json.writeNumberField("distance", response.distance);
+        json.writeEndObject();
+    }
 }
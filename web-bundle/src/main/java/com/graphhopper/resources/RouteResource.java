@@ -17,15 +17,21 @@
  */
 package com.graphhopper.resources;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopperAPI;
 import com.graphhopper.MultiException;
+import com.graphhopper.http.ProtobufRouteCodec;
+import com.graphhopper.http.RoutingMetrics;
 import com.graphhopper.http.WebHelper;
 import com.graphhopper.routing.util.HintsMap;
+import com.graphhopper.util.CancellationToken;
 import com.graphhopper.util.Constants;
 import com.graphhopper.util.InstructionList;
 import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.exceptions.RequestCancelledException;
 import com.graphhopper.util.gpx.GpxFromInstructions;
 import com.graphhopper.util.shapes.GHPoint;
 import org.slf4j.Logger;
@@ -35,12 +41,18 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.*;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import static com.graphhopper.util.Parameters.Details.PATH_DETAILS;
 import static com.graphhopper.util.Parameters.Routing.*;
@@ -59,40 +71,97 @@ public class RouteResource {
 
     private final GraphHopperAPI graphHopper;
     private final Boolean hasElevation;
+    private final RoutingMetrics routingMetrics;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService requestExecutor;
+    private final ExecutorService routingExecutor;
 
     @Inject
-    public RouteResource(GraphHopperAPI graphHopper, @Named("hasElevation") Boolean hasElevation) {
+    public RouteResource(GraphHopperAPI graphHopper, @Named("hasElevation") Boolean hasElevation, RoutingMetrics routingMetrics, ObjectMapper objectMapper,
+                         @Named("requestExecutor") ExecutorService requestExecutor, @Named("routingExecutor") ExecutorService routingExecutor) {
         this.graphHopper = graphHopper;
         this.hasElevation = hasElevation;
+        this.routingMetrics = routingMetrics;
+        this.objectMapper = objectMapper;
+        this.requestExecutor = requestExecutor;
+        this.routingExecutor = routingExecutor;
     }
 
+    /**
+     * The request is suspended and the response is calculated and written on the request executor, e.g. on a virtual
+     * thread, so the thread of Jetty is free again immediately.
+     */
     @GET
-    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml"})
-    public Response doGet(
-            @Context HttpServletRequest httpReq,
-            @Context UriInfo uriInfo,
-            @Context ContainerRequestContext rc,
-            @QueryParam(WAY_POINT_MAX_DISTANCE) @DefaultValue("1") double minPathPrecision,
-            @QueryParam("point") List<GHPoint> requestPoints,
-            @QueryParam("type") @DefaultValue("json") String type,
-            @QueryParam(INSTRUCTIONS) @DefaultValue("true") boolean instructions,
-            @QueryParam(CALC_POINTS) @DefaultValue("true") boolean calcPoints,
-            @QueryParam("elevation") @DefaultValue("false") boolean enableElevation,
-            @QueryParam("points_encoded") @DefaultValue("true") boolean pointsEncoded,
-            @QueryParam("vehicle") @DefaultValue("car") String vehicleStr,
-            @QueryParam("weighting") @DefaultValue("fastest") String weighting,
-            @QueryParam("algorithm") @DefaultValue("") String algoStr,
-            @QueryParam("locale") @DefaultValue("en") String localeStr,
-            @QueryParam(POINT_HINT) List<String> pointHints,
-            @QueryParam(SNAP_PREVENTION) List<String> snapPreventions,
-            @QueryParam(PATH_DETAILS) List<String> pathDetails,
-            @QueryParam("heading") List<Double> favoredHeadings,
-            @QueryParam("gpx.route") @DefaultValue("true") boolean withRoute /* default to false for the route part in next API version, see #437 */,
-            @QueryParam("gpx.track") @DefaultValue("true") boolean withTrack,
-            @QueryParam("gpx.waypoints") @DefaultValue("false") boolean withWayPoints,
-            @QueryParam("gpx.trackname") @DefaultValue("GraphHopper Track") String trackName,
-            @QueryParam("gpx.millis") String timeString) {
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml", ProtobufRouteCodec.MEDIA_TYPE})
+    public void doGet(
+            @Suspended final AsyncResponse asyncResponse,
+            @Context final HttpServletRequest httpReq,
+            @Context final UriInfo uriInfo,
+            @Context final ContainerRequestContext rc,
+            @QueryParam(WAY_POINT_MAX_DISTANCE) @DefaultValue("1") final double minPathPrecision,
+            @QueryParam("point") final List<GHPoint> requestPoints,
+            @QueryParam("type") @DefaultValue("json") final String type,
+            @QueryParam(INSTRUCTIONS) @DefaultValue("true") final boolean instructions,
+            @QueryParam(CALC_POINTS) @DefaultValue("true") final boolean calcPoints,
+            @QueryParam("elevation") @DefaultValue("false") final boolean enableElevation,
+            @QueryParam("points_encoded") @DefaultValue("true") final boolean pointsEncoded,
+            @QueryParam("vehicle") @DefaultValue("car") final String vehicleStr,
+            @QueryParam("weighting") @DefaultValue("fastest") final String weighting,
+            @QueryParam("algorithm") @DefaultValue("") final String algoStr,
+            @QueryParam("locale") @DefaultValue("en") final String localeStr,
+            @QueryParam(POINT_HINT) final List<String> pointHints,
+            @QueryParam(SNAP_PREVENTION) final List<String> snapPreventions,
+            @QueryParam(PATH_DETAILS) final List<String> pathDetails,
+            @QueryParam("heading") final List<Double> favoredHeadings,
+            @QueryParam("gpx.route") @DefaultValue("true") final boolean withRoute /* default to false for the route part in next API version, see #437 */,
+            @QueryParam("gpx.track") @DefaultValue("true") final boolean withTrack,
+            @QueryParam("gpx.waypoints") @DefaultValue("false") final boolean withWayPoints,
+            @QueryParam("gpx.trackname") @DefaultValue("GraphHopper Track") final String trackName,
+            @QueryParam("gpx.millis") final String timeString) {
+        Runnable task = () -> {
+            try {
+                asyncResponse.resume(doGet(httpReq, uriInfo, rc, minPathPrecision, requestPoints, type, instructions,
+                        calcPoints, enableElevation, pointsEncoded, vehicleStr, weighting, algoStr, localeStr, pointHints,
+                        snapPreventions, pathDetails, favoredHeadings, withRoute, withTrack, withWayPoints, trackName, timeString));
+            } catch (Throwable ex) {
+                // the exception mappers create the response
+                asyncResponse.resume(ex);
+            }
+        };
+        try {
+            requestExecutor.execute(task);
+        } catch (RejectedExecutionException ex) {
+            // the executor is shut down
+            task.run();
+        }
+    }
+
+    private Response doGet(
+            HttpServletRequest httpReq,
+            UriInfo uriInfo,
+            ContainerRequestContext rc,
+            double minPathPrecision,
+            List<GHPoint> requestPoints,
+            String type,
+            boolean instructions,
+            boolean calcPoints,
+            boolean enableElevation,
+            boolean pointsEncoded,
+            String vehicleStr,
+            String weighting,
+            String algoStr,
+            String localeStr,
+            List<String> pointHints,
+            List<String> snapPreventions,
+            List<String> pathDetails,
+            List<Double> favoredHeadings,
+            boolean withRoute,
+            boolean withTrack,
+            boolean withWayPoints,
+            String trackName,
+            String timeString) {
         boolean writeGPX = "gpx".equalsIgnoreCase(type);
+        boolean writeProtobuf = !writeGPX && prefersProtobuf(rc.getAcceptableMediaTypes());
         instructions = writeGPX || instructions;
 
         StopWatch sw = new StopWatch().start();
@@ -135,7 +204,8 @@ public class RouteResource {
                 put(INSTRUCTIONS, instructions).
                 put(WAY_POINT_MAX_DISTANCE, minPathPrecision);
 
-        GHResponse ghResponse = graphHopper.route(request);
+        GHResponse ghResponse = route(request);
+        routingMetrics.record(request, ghResponse);
 
         // TODO: Request logging and timing should perhaps be done somewhere outside
         float took = sw.stop().getSeconds();
@@ -153,17 +223,71 @@ public class RouteResource {
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
                     + ", points0: " + ghResponse.getBest().getPoints().getSize()
                     + ", debugInfo: " + ghResponse.getDebugInfo());
+            if (writeProtobuf)
+                return Response.ok(protobufStreamingOutput(ghResponse, instructions, calcPoints, enableElevation, took), ProtobufRouteCodec.MEDIA_TYPE).
+                        header("X-GH-Took", "" + Math.round(took * 1000)).
+                        build();
             return writeGPX ?
                     gpxSuccessResponseBuilder(ghResponse, timeString, trackName, enableElevation, withRoute, withTrack, withWayPoints, Constants.VERSION).
                             header("X-GH-Took", "" + Math.round(took * 1000)).
                             build()
                     :
-                    Response.ok(WebHelper.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+                    Response.ok(jsonStreamingOutput(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took), MediaType.APPLICATION_JSON).
                             header("X-GH-Took", "" + Math.round(took * 1000)).
                             build();
         }
     }
 
+    /**
+     * Calculates the route on the routing executor, e.g. on a platform thread if this request is handled on a
+     * virtual thread.
+     */
+    private GHResponse route(final GHRequest request) {
+        CancellationToken cancellationToken = new CancellationToken(request.getCancellationToken(), 0);
+        request.setCancellationToken(cancellationToken);
+        Future<GHResponse> future = routingExecutor.submit(() -> graphHopper.route(request));
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            cancellationToken.cancel();
+            Thread.currentThread().interrupt();
+            throw new RequestCancelledException("The request was interrupted");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            if (ex.getCause() instanceof Error)
+                throw (Error) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    /**
+     * The binary format is only used if it is the preferred type of the client, i.e. not for wildcards.
+     */
+    private static boolean prefersProtobuf(List<MediaType> acceptableMediaTypes) {
+        if (acceptableMediaTypes.isEmpty())
+            return false;
+        MediaType mediaType = acceptableMediaTypes.get(0);
+        return !mediaType.isWildcardSubtype() && mediaType.isCompatible(MediaType.valueOf(ProtobufRouteCodec.MEDIA_TYPE));
+    }
+
+    /**
+     * Writes the response directly into the output stream, see WebHelper.writeJson
+     */
+    private StreamingOutput jsonStreamingOutput(final GHResponse ghResponse, final boolean instructions, final boolean calcPoints,
+                                                final boolean enableElevation, final boolean pointsEncoded, final float took) {
+        return output -> {
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(output).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                WebHelper.writeJson(gen, ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took);
+            }
+        };
+    }
+
+    private static StreamingOutput protobufStreamingOutput(final GHResponse ghResponse, final boolean instructions, final boolean calcPoints,
+                                                          final boolean enableElevation, final float took) {
+        return output -> ProtobufRouteCodec.write(output, ghResponse, instructions, calcPoints, enableElevation, took);
+    }
+
     private void translateTurnCostsParamToEdgeBased(GHRequest request, MultivaluedMap<String, String> queryParams) {
         if (queryParams.containsKey(TURN_COSTS)) {
             List<String> turnCosts = queryParams.get(TURN_COSTS);
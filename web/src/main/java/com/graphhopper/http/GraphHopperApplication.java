@@ -19,6 +19,7 @@ package com.graphhopper.http;
 
 import com.graphhopper.gtfs.dropwizard.RealtimeBundle;
 import com.graphhopper.http.cli.ImportCommand;
+import com.graphhopper.http.cli.PrerenderTilesCommand;
 import com.graphhopper.http.resources.RootResource;
 import io.dropwizard.Application;
 import io.dropwizard.bundles.assets.ConfiguredAssetsBundle;
@@ -26,6 +27,7 @@ import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 
 import javax.servlet.DispatcherType;
+import javax.servlet.FilterRegistration;
 import java.util.EnumSet;
 
 public final class GraphHopperApplication extends Application<GraphHopperServerConfiguration> {
@@ -40,13 +42,19 @@ public final class GraphHopperApplication extends Application<GraphHopperServerC
         bootstrap.addBundle(new RealtimeBundle());
         bootstrap.addBundle(new ConfiguredAssetsBundle("/assets/", "/maps/", "index.html"));
         bootstrap.addCommand(new ImportCommand());
+        bootstrap.addCommand(new PrerenderTilesCommand());
     }
 
     @Override
     public void run(GraphHopperServerConfiguration configuration, Environment environment) throws Exception {
         environment.jersey().register(new GHJerseyViolationExceptionMapper());
         environment.jersey().register(new RootResource());
-        environment.servlets().addFilter("cors", CORSFilter.class).addMappingForUrlPatterns(EnumSet.allOf(DispatcherType.class), false, "*");
-        environment.servlets().addFilter("ipfilter", new IPFilter(configuration.getGraphHopperConfiguration().get("jetty.whiteips", ""), configuration.getGraphHopperConfiguration().get("jetty.blackips", ""))).addMappingForUrlPatterns(EnumSet.allOf(DispatcherType.class), false, "*");
+        // the filters have to support asynchronous requests as the RouteResource suspends them
+        FilterRegistration.Dynamic cors = environment.servlets().addFilter("cors", CORSFilter.class);
+        cors.setAsyncSupported(true);
+        cors.addMappingForUrlPatterns(EnumSet.allOf(DispatcherType.class), false, "*");
+        FilterRegistration.Dynamic ipFilter = environment.servlets().addFilter("ipfilter", new IPFilter(configuration.getGraphHopperConfiguration().get("jetty.whiteips", ""), configuration.getGraphHopperConfiguration().get("jetty.blackips", "")));
+        ipFilter.setAsyncSupported(true);
+        ipFilter.addMappingForUrlPatterns(EnumSet.allOf(DispatcherType.class), false, "*");
     }
 }
@@ -0,0 +1,99 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.cli;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.http.GraphHopperManaged;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.resources.MVTResource;
+import com.graphhopper.resources.MVTTileCache;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.shapes.BBox;
+import io.dropwizard.cli.ConfiguredCommand;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Renders the vector tiles of a zoom range into web.mvt.cache.directory, so that the server does not need to
+ * create them on the first request.
+ */
+public class PrerenderTilesCommand extends ConfiguredCommand<GraphHopperServerConfiguration> {
+    private static final Logger logger = LoggerFactory.getLogger(PrerenderTilesCommand.class);
+
+    public PrerenderTilesCommand() {
+        super("prerender-tiles", "renders the vector tiles of a zoom range into web.mvt.cache.directory");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        super.configure(subparser);
+        subparser.addArgument("--min-zoom").type(Integer.class).setDefault(10).help("the first zoom level to render");
+        subparser.addArgument("--max-zoom").type(Integer.class).setDefault(14).help("the last zoom level to render");
+        subparser.addArgument("--details").setDefault("").help("comma separated list of path details to include in the tiles");
+    }
+
+    @Override
+    protected void run(Bootstrap<GraphHopperServerConfiguration> bootstrap, Namespace namespace, GraphHopperServerConfiguration configuration) throws Exception {
+        CmdArgs args = configuration.getGraphHopperConfiguration();
+        String directory = args.get("web.mvt.cache.directory", "");
+        if (directory.isEmpty())
+            throw new IllegalArgumentException("Configure web.mvt.cache.directory to store the tiles");
+
+        int minZoom = namespace.getInt("min_zoom");
+        int maxZoom = namespace.getInt("max_zoom");
+        if (minZoom < 0 || maxZoom > 22 || minZoom > maxZoom)
+            throw new IllegalArgumentException("Invalid zoom range " + minZoom + "-" + maxZoom);
+        String detailsStr = namespace.getString("details");
+        List<String> details = detailsStr.isEmpty() ? Collections.<String>emptyList() : Arrays.asList(detailsStr.split(","));
+
+        final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(args, bootstrap.getObjectMapper());
+        graphHopperManaged.start();
+        try {
+            GraphHopper hopper = graphHopperManaged.getGraphHopper();
+            // keeping the tiles in memory is not necessary as every tile is rendered only once
+            MVTTileCache tileCache = new MVTTileCache(0, new File(directory));
+            tileCache.setGraphVersion(MVTTileCache.getGraphVersion(hopper.getGraphHopperStorage()));
+            MVTResource resource = new MVTResource(hopper, hopper.getEncodingManager(), tileCache,
+                    graphHopperManaged.getGeneralizedRoadNetwork());
+            BBox bounds = hopper.getGraphHopperStorage().getBounds();
+            for (int zoom = minZoom; zoom <= maxZoom; zoom++) {
+                StopWatch sw = new StopWatch().start();
+                int minX = MVTTileCache.lonToTileX(bounds.minLon, zoom), maxX = MVTTileCache.lonToTileX(bounds.maxLon, zoom);
+                int minY = MVTTileCache.latToTileY(bounds.maxLat, zoom), maxY = MVTTileCache.latToTileY(bounds.minLat, zoom);
+                for (int x = minX; x <= maxX; x++) {
+                    for (int y = minY; y <= maxY; y++) {
+                        resource.getTile(zoom, x, y, details);
+                    }
+                }
+                logger.info("rendered " + (long) (maxX - minX + 1) * (maxY - minY + 1) + " tiles of zoom " + zoom
+                        + " in " + sw.stop().getSeconds() + "s");
+            }
+        } finally {
+            graphHopperManaged.stop();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.graphhopper.http.AdmissionControlFilter.estimateCost;
+import static org.junit.Assert.*;
+
+public class AdmissionControlFilterTest {
+
+    @Test
+    public void testEstimateCost() {
+        Map<String, String[]> params = new HashMap<>();
+        params.put("point", new String[]{"1,1", "2,2", "3,3"});
+        assertEquals(2, estimateCost("route", params));
+        params.put("ch.disable", new String[]{"true"});
+        assertEquals(2 * AdmissionControlFilter.FLEXIBLE_COST_FACTOR, estimateCost("route", params));
+
+        params.clear();
+        assertEquals(2, estimateCost("isochrone", params));
+        params.put("time_limit", new String[]{"1800"});
+        assertEquals(10, estimateCost("isochrone", params));
+        params.put("distance_limit", new String[]{"20000"});
+        assertEquals(5, estimateCost("spt", params));
+        params.put("distance_limit", new String[]{"abc"});
+        assertEquals(1, estimateCost("spt", params));
+
+        assertEquals(1, estimateCost("mvt", params));
+    }
+
+    @Test
+    public void testRejectIfQueueIsFull() {
+        MetricRegistry registry = new MetricRegistry();
+        AdmissionControlFilter.Endpoint endpoint = new AdmissionControlFilter.Endpoint("isochrone", 4, 0, 10, registry);
+        assertTrue(endpoint.tryAcquire(3));
+        // a larger cost than the budget takes the whole budget
+        assertEquals(4, endpoint.limitCost(10));
+        assertFalse(endpoint.tryAcquire(4));
+        assertNull(endpoint.enqueue(4, () -> fail("the queue is full")));
+        assertTrue(endpoint.tryAcquire(1));
+
+        endpoint.release(3);
+        endpoint.release(1);
+        assertTrue(endpoint.tryAcquire(4));
+        assertEquals(3, registry.meter("graphhopper.admission.isochrone.admitted").getCount());
+        assertEquals(1, registry.meter("graphhopper.admission.isochrone.rejected").getCount());
+        assertEquals(4, registry.getGauges().get("graphhopper.admission.isochrone.used_cost").getValue());
+    }
+
+    @Test
+    public void testWaitInQueue() {
+        MetricRegistry registry = new MetricRegistry();
+        AdmissionControlFilter.Endpoint endpoint = new AdmissionControlFilter.Endpoint("route", 2, 2, 10_000, registry);
+        assertTrue(endpoint.tryAcquire(2));
+        final AtomicInteger admitted = new AtomicInteger();
+        AdmissionControlFilter.Endpoint.Ticket expensive = endpoint.enqueue(2, () -> fail("the cost is not available"));
+        assertNotNull(endpoint.enqueue(1, admitted::incrementAndGet));
+        assertEquals(2, registry.getGauges().get("graphhopper.admission.route.queued").getValue());
+
+        // the cheap request overtakes the expensive one
+        endpoint.release(1);
+        assertEquals(1, admitted.get());
+        assertEquals(1, registry.getGauges().get("graphhopper.admission.route.queued").getValue());
+        assertEquals(2, registry.getGauges().get("graphhopper.admission.route.used_cost").getValue());
+
+        // the expensive request times out
+        assertTrue(endpoint.cancel(expensive));
+        assertFalse(endpoint.cancel(expensive));
+        endpoint.release(2);
+        assertEquals(0, registry.getGauges().get("graphhopper.admission.route.queued").getValue());
+        assertEquals(0, registry.getGauges().get("graphhopper.admission.route.used_cost").getValue());
+        assertEquals(1, registry.meter("graphhopper.admission.route.rejected").getCount());
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.AfterClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.ws.rs.core.Response;
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GraphHopperWarmUpTest {
+    private static final String DIR = "./target/warm-up-test-gh/";
+
+    private static final GraphHopperServerConfiguration config = new GraphHopperServerConfiguration();
+
+    static {
+        config.getGraphHopperConfiguration().merge(new CmdArgs().
+                put("graph.flag_encoders", "car").
+                put("graph.dataaccess", "MMAP").
+                put("prepare.ch.weightings", "fastest").
+                put("prepare.lm.weightings", "fastest").
+                put("datareader.file", "../core/files/andorra.osm.pbf").
+                put("routing.ch.disabling_allowed", true).
+                put("routing.lm.disabling_allowed", true).
+                put("graph.location", DIR).
+                put("web.warm_up.enabled", true).
+                put("web.warm_up.batch_size", 10).
+                put("web.warm_up.max_queries", 50));
+    }
+
+    @ClassRule
+    public static final DropwizardAppRule<GraphHopperServerConfiguration> app = new DropwizardAppRule(
+            GraphHopperApplication.class, config);
+
+    @AfterClass
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testHealthCheckReportsWarmUp() throws Exception {
+        JsonNode json = null;
+        for (int i = 0; i < 600; i++) {
+            Response response = app.client().target("http://localhost:" + app.getAdminPort() + "/healthcheck").request().buildGet().invoke();
+            json = response.readEntity(JsonNode.class);
+            if (response.getStatus() == 200)
+                break;
+            assertEquals("GraphHopper is still warming up.", json.get("warm-up").get("message").asText());
+            Thread.sleep(100);
+        }
+        assertTrue(json.get("warm-up").get("healthy").asBoolean());
+
+        Response response = app.client().target("http://localhost:" + app.getLocalPort() + "/route?point=42.554851,1.536198&point=42.510071,1.548128").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+    }
+}
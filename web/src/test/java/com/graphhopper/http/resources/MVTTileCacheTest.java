@@ -0,0 +1,84 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.graphhopper.resources.MVTTileCache;
+import com.graphhopper.resources.MVTTileCache.TileKey;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.BBox;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class MVTTileCacheTest {
+    private static final File DIR = new File("./target/mvt-tile-cache-test/");
+
+    @After
+    public void tearDown() {
+        Helper.removeDir(DIR);
+    }
+
+    private static MVTTileCache createCache(String version) {
+        // without tiles in memory every tile is read from the directory
+        MVTTileCache cache = new MVTTileCache(0, DIR);
+        cache.setGraphVersion(version);
+        return cache;
+    }
+
+    @Test
+    public void testDetailsDoNotShareFile() {
+        MVTTileCache cache = createCache("v1");
+        TileKey key1 = new TileKey(15, 16522, 12099, Collections.singletonList("a_b"));
+        TileKey key2 = new TileKey(15, 16522, 12099, Arrays.asList("a", "b"));
+        cache.put(key1, new byte[]{1}, cache.getGeneration());
+        cache.put(key2, new byte[]{2}, cache.getGeneration());
+        assertArrayEquals(new byte[]{1}, cache.get(key1));
+        assertArrayEquals(new byte[]{2}, cache.get(key2));
+    }
+
+    @Test
+    public void testTilesOfOtherGraphVersionAreRemoved() {
+        TileKey key = new TileKey(15, 16522, 12099, Collections.<String>emptyList());
+        MVTTileCache cache = createCache("v1");
+        cache.put(key, new byte[]{1}, cache.getGeneration());
+        assertArrayEquals(new byte[]{1}, createCache("v1").get(key));
+
+        assertNull(createCache("v2").get(key));
+        assertFalse(new File(DIR, "v1").exists());
+    }
+
+    @Test
+    public void testInvalidate() {
+        MVTTileCache cache = createCache("v1");
+        TileKey key = new TileKey(15, 16522, 12099, Collections.<String>emptyList());
+        long generation = cache.getGeneration();
+        cache.put(key, new byte[]{1}, generation);
+        // the tile of z15 covers lon 1.516 to 1.527 and lat 42.521 to 42.529
+        cache.invalidate(new BBox(1.52, 1.521, 42.522, 42.523));
+        assertNull(cache.get(key));
+
+        // a tile that was rendered before the invalidation is not stored
+        cache.put(key, new byte[]{1}, generation);
+        assertNull(cache.get(key));
+    }
+}
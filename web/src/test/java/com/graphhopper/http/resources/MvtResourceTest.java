@@ -17,8 +17,10 @@
  */
 package com.graphhopper.http.resources;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.graphhopper.http.GraphHopperApplication;
 import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.util.CmdArgs;
 import com.graphhopper.util.Helper;
 import com.wdtinc.mapbox_vector_tile.adapt.jts.MvtReader;
@@ -34,7 +36,9 @@ import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.MultiLineString;
 
+import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -42,7 +46,9 @@ import java.util.List;
 import java.util.Map;
 
 import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 /**
  * @author Peter Karich
@@ -59,6 +65,7 @@ public class MvtResourceTest {
                 put("prepare.ch.weightings", "no").
                 put("prepare.min_network_size", "0").
                 put("prepare.min_one_way_network_size", "0").
+                put("web.change_graph.enabled", "true").
                 put("datareader.file", "../core/files/andorra.osm.pbf").
                 put("graph.location", DIR));
     }
@@ -88,6 +95,20 @@ public class MvtResourceTest {
         assertEquals("Camì de les Pardines", map.get("name"));
     }
 
+    @Test
+    public void testLowZoomOnlyContainsMajorRoads() throws IOException {
+        final Response response = app.client().target("http://localhost:8080/mvt/9/258/189.mvt").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        InputStream is = response.readEntity(InputStream.class);
+        JtsMvt result = MvtReader.loadMvt(is, new GeometryFactory(), new TagKeyValueMapConverter());
+        JtsLayer layer = result.getLayersByName().get("roads");
+        assertFalse(layer.getGeometries().isEmpty());
+        for (Geometry geometry : layer.getGeometries()) {
+            String roadClass = (String) ((Map) geometry.getUserData()).get("road_class");
+            assertTrue(roadClass, roadClass.equals("trunk") || roadClass.equals("primary") || roadClass.equals("motorway"));
+        }
+    }
+
     @Test
     public void testWithDetailsInResponse() throws IOException {
         final Response response = app.client().target("http://localhost:8080/mvt/15/16522/12102.mvt?details=max_speed&details=road_class&details=road_environment").request().buildGet().invoke();
@@ -113,4 +134,43 @@ public class MvtResourceTest {
         map = (Map) ((Geometry) layerGeoList.get(12)).getUserData();
         assertEquals("bridge", map.get("road_environment"));
     }
+
+    @Test
+    public void testCachedTileIsInvalidatedByChangeGraph() throws IOException {
+        String speedKey = EncodingManager.getKey("car", "average_speed");
+        String url = "http://localhost:8080/mvt/15/16522/12099.mvt?details=" + speedKey;
+        byte[] bytes = app.client().target(url).request().get(byte[].class);
+        // second request is served from the cache
+        assertArrayEquals(bytes, app.client().target(url).request().get(byte[].class));
+        int slowEdges = countEdgesWithSpeed(bytes, speedKey, 10);
+
+        String geoJson = "{"
+                + "\"type\": \"FeatureCollection\","
+                + "\"features\": [{"
+                + "  \"type\": \"Feature\","
+                + "  \"geometry\": {"
+                + "    \"type\": \"Point\","
+                + "    \"coordinates\": [1.521692, 42.522969]"
+                + "  },"
+                + "  \"properties\": {"
+                + "    \"vehicles\": [\"car\"],"
+                + "    \"speed\": 10"
+                + "  }}]}";
+        Response response = app.client().target("http://localhost:8080/change").request().post(Entity.json(geoJson));
+        assertEquals(200, response.getStatus());
+        assertEquals(1, response.readEntity(JsonNode.class).get("updates").asInt());
+
+        bytes = app.client().target(url).request().get(byte[].class);
+        assertEquals(slowEdges + 1, countEdgesWithSpeed(bytes, speedKey, 10));
+    }
+
+    private static int countEdgesWithSpeed(byte[] bytes, String speedKey, double speed) throws IOException {
+        JtsMvt result = MvtReader.loadMvt(new ByteArrayInputStream(bytes), new GeometryFactory(), new TagKeyValueMapConverter());
+        int count = 0;
+        for (Geometry geometry : result.getLayersByName().get("roads").getGeometries()) {
+            if (((Number) ((Map) geometry.getUserData()).get(speedKey)).doubleValue() == speed)
+                count++;
+        }
+        return count;
+    }
 }
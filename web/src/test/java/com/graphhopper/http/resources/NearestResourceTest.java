@@ -17,20 +17,27 @@
  */
 package com.graphhopper.http.resources;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.graphhopper.http.GraphHopperApplication;
 import com.graphhopper.http.GraphHopperServerConfiguration;
 import com.graphhopper.resources.NearestResource;
 import com.graphhopper.util.CmdArgs;
 import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.GHPoint;
 import io.dropwizard.testing.junit.DropwizardAppRule;
 import org.junit.AfterClass;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.Response;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -66,4 +73,55 @@ public class NearestResourceTest {
         NearestResource.Response json = response.readEntity(NearestResource.Response.class);
         assertThat("nearest point", json.coordinates, is(new double[]{1.5363742288086868, 42.55483907636756}));
     }
+
+    @Test
+    public void testBatchNearestQuery() {
+        NearestResource.BatchRequest request = new NearestResource.BatchRequest();
+        request.vehicle = "car";
+        request.points = new ArrayList<>();
+        // more points than fit into a single chunk to check that the order is kept
+        for (int i = 0; i < 600; i++) {
+            request.points.add(new GHPoint(42.554851, 1.536198));
+            request.points.add(new GHPoint(42.510071, 1.548128));
+        }
+        final Response response = app.client().target("http://localhost:8080/nearest/batch").request().post(Entity.json(request));
+        assertThat("HTTP status", response.getStatus(), is(200));
+        NearestResource.BatchResponse json = response.readEntity(NearestResource.BatchResponse.class);
+        assertThat("results", json.results.size(), is(request.points.size()));
+        assertThat("nearest point", json.results.get(0).coordinates, is(new double[]{1.5363742288086868, 42.55483907636756}));
+        for (int i = 0; i < json.results.size(); i += 2) {
+            assertThat(json.results.get(i).coordinates, is(json.results.get(0).coordinates));
+            assertThat(json.results.get(i + 1).coordinates, is(json.results.get(1).coordinates));
+        }
+    }
+
+    @Test
+    public void testBatchNearestQueryPointNotFound() {
+        NearestResource.BatchRequest request = new NearestResource.BatchRequest();
+        request.points = Arrays.asList(new GHPoint(42.554851, 1.536198), new GHPoint(-10, -10));
+        final Response response = app.client().target("http://localhost:8080/nearest/batch").request().post(Entity.json(request));
+        assertThat("HTTP status", response.getStatus(), is(200));
+        NearestResource.BatchResponse json = response.readEntity(NearestResource.BatchResponse.class);
+        assertThat("results", json.results.size(), is(2));
+        assertNull(json.results.get(1));
+    }
+
+    @Test
+    public void testBatchNearestQueryUnknownVehicle() {
+        NearestResource.BatchRequest request = new NearestResource.BatchRequest();
+        request.vehicle = "space_shuttle";
+        request.points = Arrays.asList(new GHPoint(42.554851, 1.536198));
+        final Response response = app.client().target("http://localhost:8080/nearest/batch").request().post(Entity.json(request));
+        assertThat("HTTP status", response.getStatus(), is(400));
+    }
+
+    @Test
+    public void testBatchNearestQueryInvalidPoint() {
+        NearestResource.BatchRequest request = new NearestResource.BatchRequest();
+        request.points = Arrays.asList(new GHPoint(42.554851, 1.536198), new GHPoint(100, 1.536198));
+        final Response response = app.client().target("http://localhost:8080/nearest/batch").request().post(Entity.json(request));
+        // the error is detected before the response is streamed
+        assertThat("HTTP status", response.getStatus(), is(400));
+        assertThat(response.readEntity(JsonNode.class).get("message").asText(), containsString("Point 1 is invalid"));
+    }
 }
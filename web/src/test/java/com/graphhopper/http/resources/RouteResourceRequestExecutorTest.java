@@ -0,0 +1,154 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.http.GraphHopperBundle;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Helper;
+import io.dropwizard.Application;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the RouteResource suspends the requests and handles them on the request executor, which starts virtual
+ * threads if web.virtual_threads.enabled is set. Here it is replaced by a pool of platform threads, so the test does
+ * not depend on the JVM.
+ */
+public class RouteResourceRequestExecutorTest {
+    private static final String DIR = "./target/andorra-request-executor-gh/";
+    private static final ThreadPoolExecutor requestExecutor = (ThreadPoolExecutor) Executors.newFixedThreadPool(2);
+
+    private static final GraphHopperServerConfiguration config = new GraphHopperServerConfiguration();
+
+    static {
+        config.getGraphHopperConfiguration().merge(new CmdArgs().
+                put("graph.flag_encoders", "car").
+                put("prepare.ch.weightings", "fastest").
+                put("prepare.min_network_size", "0").
+                put("prepare.min_one_way_network_size", "0").
+                put("datareader.file", "../core/files/andorra.osm.pbf").
+                put("web.virtual_threads.enabled", "true").
+                put("web.virtual_threads.routing_threads", "2").
+                put("web.admission.route.max_cost", "1").
+                put("graph.location", DIR));
+    }
+
+    public static class TestApplication extends Application<GraphHopperServerConfiguration> {
+        @Override
+        public void initialize(Bootstrap<GraphHopperServerConfiguration> bootstrap) {
+            bootstrap.addBundle(new GraphHopperBundle() {
+                @Override
+                protected ExecutorService createRequestExecutor() {
+                    return requestExecutor;
+                }
+            });
+        }
+
+        @Override
+        public void run(GraphHopperServerConfiguration configuration, Environment environment) {
+        }
+    }
+
+    @ClassRule
+    public static final DropwizardAppRule<GraphHopperServerConfiguration> app = new DropwizardAppRule<>(TestApplication.class, config);
+
+    @BeforeClass
+    @AfterClass
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testRouteIsHandledOnRequestExecutor() throws InterruptedException {
+        long tasks = requestExecutor.getTaskCount();
+        Response response = app.client().target("http://localhost:8080/route?point=42.554851,1.536198&point=42.510071,1.548128").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        double distance = json.get("paths").get(0).get("distance").asDouble();
+        assertTrue("distance wasn't correct:" + distance, distance > 9000 && distance < 9500);
+        assertEquals(tasks + 1, requestExecutor.getTaskCount());
+
+        // the exceptions thrown on the request executor are mapped as usual
+        response = app.client().target("http://localhost:8080/route?point=-42.554851,1.536198&point=42.510071,1.548128").request().buildGet().invoke();
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(JsonNode.class).get("message").asText().contains("Point 0 is out of bounds"));
+        assertEquals(tasks + 2, requestExecutor.getTaskCount());
+
+        // the admission control releases the cost when the suspended request is completed
+        waitForGauge("used_cost", 0);
+    }
+
+    @Test
+    public void testQueuedRequestIsDispatchedWhenCostIsReleased() throws Exception {
+        // block the request executor, so the first request keeps the whole budget
+        final CountDownLatch blocked = new CountDownLatch(1);
+        for (int i = 0; i < requestExecutor.getCorePoolSize(); i++) {
+            requestExecutor.execute(() -> {
+                try {
+                    blocked.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        try {
+            Future<Response> first = app.client().target("http://localhost:8080/route?point=42.554851,1.536198&point=42.510071,1.548128").request().async().get();
+            waitForGauge("used_cost", 1);
+            // the second request is suspended in the queue of the admission control and rejected after the timeout
+            Future<Response> rejected = app.client().target("http://localhost:8080/route?point=42.554851,1.536198&point=42.510071,1.548128").request().async().get();
+            waitForGauge("queued", 1);
+            assertEquals(429, rejected.get(10, TimeUnit.SECONDS).getStatus());
+            waitForGauge("queued", 0);
+
+            Future<Response> second = app.client().target("http://localhost:8080/route?point=42.554851,1.536198&point=42.510071,1.548128").request().async().get();
+            waitForGauge("queued", 1);
+            assertFalse(second.isDone());
+
+            blocked.countDown();
+            assertEquals(200, first.get(10, TimeUnit.SECONDS).getStatus());
+            assertEquals(200, second.get(10, TimeUnit.SECONDS).getStatus());
+        } finally {
+            blocked.countDown();
+        }
+        waitForGauge("queued", 0);
+        waitForGauge("used_cost", 0);
+    }
+
+    private static void waitForGauge(String name, int expected) throws InterruptedException {
+        MetricRegistry metrics = app.getEnvironment().metrics();
+        String gauge = "graphhopper.admission.route." + name;
+        for (int i = 0; i < 100 && !Integer.valueOf(expected).equals(metrics.getGauges().get(gauge).getValue()); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, metrics.getGauges().get(gauge).getValue());
+    }
+}
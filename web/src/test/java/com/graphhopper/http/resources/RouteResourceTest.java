@@ -17,6 +17,7 @@
  */
 package com.graphhopper.http.resources;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
@@ -65,6 +66,8 @@ public class RouteResourceTest {
                 put("prepare.min_one_way_network_size", "0").
                 put("datareader.file", "../core/files/andorra.osm.pbf").
                 put("graph.encoded_values", "road_class,surface,road_environment,max_speed").
+                put("routing.trace.capacity", "5").
+                put("routing.trace.slow_threshold", "0").
                 put("graph.location", DIR));
     }
 
@@ -90,6 +93,61 @@ public class RouteResourceTest {
         assertTrue("distance wasn't correct:" + distance, distance < 9500);
     }
 
+    @Test
+    public void testRoutingMetrics() {
+        MetricRegistry metrics = app.getEnvironment().metrics();
+        long chCount = metrics.counter("graphhopper.routing.mode.ch").getCount();
+        long flexibleCount = metrics.counter("graphhopper.routing.mode.flexible").getCount();
+        long lookupCount = metrics.timer("graphhopper.routing.lookup").getCount();
+        long errorCount = metrics.meter("graphhopper.routing.errors").getCount();
+
+        Response response = app.client().target("http://localhost:8080/route?point=42.554851,1.536198&point=42.510071,1.548128").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        response = app.client().target("http://localhost:8080/route?point=42.554851,1.536198&point=42.510071,1.548128&ch.disable=true&algorithm=dijkstrabi").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        JsonNode hints = response.readEntity(JsonNode.class).get("hints");
+        // the internal metrics are not part of the response
+        assertFalse(hints.has("routing.mode"));
+        assertFalse(hints.has("took.routing_micros"));
+        assertTrue(hints.get("visited_nodes.sum").asLong() > 0);
+        response = app.client().target("http://localhost:8080/route?point=-42.554851,1.536198&point=42.510071,1.548128").request().buildGet().invoke();
+        assertEquals(400, response.getStatus());
+
+        assertEquals(chCount + 1, metrics.counter("graphhopper.routing.mode.ch").getCount());
+        assertEquals(flexibleCount + 1, metrics.counter("graphhopper.routing.mode.flexible").getCount());
+        assertEquals(lookupCount + 2, metrics.timer("graphhopper.routing.lookup").getCount());
+        assertEquals(errorCount + 1, metrics.meter("graphhopper.routing.errors").getCount());
+        assertTrue(metrics.counter("graphhopper.routing.algorithm.dijkstrabi").getCount() > 0);
+        assertTrue(metrics.counter("graphhopper.routing.profile.car.fastest").getCount() > 1);
+        assertTrue(metrics.histogram("graphhopper.routing.virtual_nodes").getSnapshot().getMax() > 0);
+        double chRatio = (Double) metrics.getGauges().get("graphhopper.routing.mode.ch.ratio").getValue();
+        assertTrue(chRatio > 0 && chRatio < 1);
+    }
+
+    @Test
+    public void testSearchTraces() {
+        Response response = app.client().target("http://localhost:8080/route?point=42.554851,1.536198&point=42.510071,1.548128&ch.disable=true&algorithm=astarbi").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+
+        response = app.client().target("http://localhost:" + app.getAdminPort() + "/search-traces").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        JsonNode traces = response.readEntity(JsonNode.class);
+        assertTrue(traces.size() > 0 && traces.size() <= 5);
+        JsonNode trace = null;
+        for (JsonNode node : traces) {
+            if (node.get("request").asText().contains("astarbi")) {
+                trace = node;
+                break;
+            }
+        }
+        assertNotNull(traces.toString(), trace);
+        JsonNode search = trace.get("searches").get(0);
+        assertTrue(search.get("algorithm").asText().startsWith("astarbi"));
+        assertTrue(search.get("settledFrom").asInt() > 0);
+        assertTrue(search.get("settledTo").asInt() > 0);
+        assertTrue(search.get("heapSizesFrom").size() > 0);
+    }
+
     @Test
     public void testWrongPointFormat() {
         final Response response = app.client().target("http://localhost:8080/route?point=1234&point=42.510071,1.548128").request().buildGet().invoke();
@@ -173,6 +231,43 @@ public class RouteResourceTest {
         assertEquals(false, instructions.get(24).getExtraInfoJSON().get("exited"));
     }
 
+    @Test
+    public void testGraphHopperWebProtobuf() {
+        GHRequest request = new GHRequest().
+                addPoint(new GHPoint(42.554851, 1.536198)).
+                addPoint(new GHPoint(42.531896, 1.553278)).
+                addPoint(new GHPoint(42.510071, 1.548128));
+        request.setPathDetails(Arrays.asList("average_speed", "edge_id", "time"));
+        GraphHopperWeb jsonHopper = new GraphHopperWeb();
+        assertTrue(jsonHopper.load("http://localhost:8080/route"));
+        PathWrapper expected = jsonHopper.route(request).getBest();
+
+        GraphHopperWeb hopper = new GraphHopperWeb().setProtobuf(true);
+        assertTrue(hopper.load("http://localhost:8080/route"));
+        GHResponse rsp = hopper.route(request);
+        assertFalse(rsp.getErrors().toString(), rsp.hasErrors());
+        PathWrapper arsp = rsp.getBest();
+        assertEquals(expected.getDistance(), arsp.getDistance(), 1e-3);
+        assertEquals(expected.getTime(), arsp.getTime());
+        assertEquals(expected.getPoints().size(), arsp.getPoints().size());
+        assertEquals(expected.getPoints().getLat(10), arsp.getPoints().getLat(10), 1e-5);
+        assertEquals(expected.getPoints().getLon(10), arsp.getPoints().getLon(10), 1e-5);
+        assertEquals(expected.getWaypoints().size(), arsp.getWaypoints().size());
+        assertEquals(expected.getPathDetails().toString(), arsp.getPathDetails().toString());
+
+        InstructionList instructions = arsp.getInstructions();
+        assertEquals(26, instructions.size());
+        assertEquals("Continue onto la Callisa", instructions.get(0).getTurnDescription(null));
+        assertEquals("At roundabout, take exit 2", instructions.get(4).getTurnDescription(null));
+        assertEquals(true, instructions.get(4).getExtraInfoJSON().get("exited"));
+        assertEquals(expected.getInstructions().get(4).getPoints().size(), instructions.get(4).getPoints().size());
+
+        // errors are returned as JSON
+        rsp = hopper.route(new GHRequest(42.554851, 1.536198, 42.510071, 1.548128).setVehicle("SPACE-SHUTTLE"));
+        assertTrue(rsp.hasErrors());
+        assertTrue(rsp.getErrors().get(0) instanceof IllegalArgumentException);
+    }
+
     @Test
     public void testPathDetailsRoadClass() {
         GraphHopperAPI hopper = new com.graphhopper.api.GraphHopperWeb();